@@ -27,6 +27,16 @@ public class Branch {
         return new Branch(name, products);
     }
 
+    /**
+     * Rebuilds a stored branch; see {@link co.com.bancolombia.model.franchise.Franchise#restore}.
+     */
+    public static Branch restore(String name, List<Product> products) {
+        Branch branch = new Branch();
+        branch.name = name;
+        branch.products = products != null ? products : Collections.emptyList();
+        return branch;
+    }
+
     public List<Product> getProducts() {
         return Collections.unmodifiableList(products);
     }
@@ -30,6 +30,18 @@ public class Franchise {
         return new Franchise(id, name, branches);
     }
 
+    /**
+     * Rebuilds a franchise that was validated when it was stored, without validating it again and
+     * without copying {@code branches}, which the caller hands over and must not modify afterwards.
+     */
+    public static Franchise restore(String id, String name, List<Branch> branches) {
+        Franchise franchise = new Franchise();
+        franchise.id = id;
+        franchise.name = name;
+        franchise.branches = branches != null ? branches : Collections.emptyList();
+        return franchise;
+    }
+
     public List<Branch> getBranches() {
         return Collections.unmodifiableList(branches);
     }
@@ -3,7 +3,13 @@ package co.com.bancolombia.model.franchise.gateways;
 import co.com.bancolombia.model.branch.Branch;
 import co.com.bancolombia.model.branchtopproduct.BranchTopProduct;
 import co.com.bancolombia.model.franchise.Franchise;
+import co.com.bancolombia.model.franchiseimport.FranchiseImportResult;
+import co.com.bancolombia.model.franchisesummary.FranchiseSummary;
+import co.com.bancolombia.model.page.PageResult;
 import co.com.bancolombia.model.product.Product;
+import co.com.bancolombia.model.productlocation.ProductLocation;
+import co.com.bancolombia.model.stock.StockUpdate;
+import co.com.bancolombia.model.stock.StockUpdateResult;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
@@ -11,12 +17,25 @@ public interface FranchiseRepository {
     Mono<Franchise> save(Franchise franchise);
     Mono<Franchise> findById(String id);
     Flux<Franchise> findAll();
+    Mono<PageResult<Franchise>> findPage(String pageToken, int size);
+    Mono<PageResult<FranchiseSummary>> findSummaryPage(String pageToken, int size);
+    Mono<PageResult<ProductLocation>> findLowStockPage(int threshold, String pageToken, int size);
+    Flux<ProductLocation> findProductsByNamePrefix(String prefix);
+    Flux<FranchiseImportResult> importFranchises(Flux<Franchise> franchises);
 
     Mono<Franchise> addBranchToFranchise(String franchiseId, Branch newBranch);
     Mono<Franchise> addProductToBranch(String franchiseId, String branchName, Product product);
     Mono<Franchise> removeProductFromBranch(String franchiseId, String branchName, String productName);
-    Mono<Franchise> updateProductStock(String franchiseId, String branchName, String productName, int newStock);
-    Flux<BranchTopProduct> getTopProductsPerBranch(String franchiseId);
+    Mono<Product> updateProductStock(String franchiseId, String branchName, String productName, int newStock);
+    Mono<Product> adjustProductStock(String franchiseId, String branchName, String productName, int delta);
+    Flux<StockUpdateResult> updateProductStocks(Flux<StockUpdate> updates);
+    Flux<BranchTopProduct> getTopProductsPerBranch(String franchiseId, int limit, boolean withTies);
+    default Flux<BranchTopProduct> getTopProductsPerBranch(String franchiseId, int limit) {
+        return getTopProductsPerBranch(franchiseId, limit, false);
+    }
+    default Flux<BranchTopProduct> getTopProductsPerBranch(String franchiseId) {
+        return getTopProductsPerBranch(franchiseId, 1);
+    }
     Mono<Franchise> updateFranchiseName(String franchiseId, String newName);
     Mono<Franchise> updateBranchName(String franchiseId, String currentBranchName, String newBranchName);
     Mono<Franchise> updateProductName(String franchiseId, String branchName, String currentProductName, String newProductName);
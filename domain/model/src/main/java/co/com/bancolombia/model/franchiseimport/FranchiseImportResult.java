@@ -0,0 +1,22 @@
+package co.com.bancolombia.model.franchiseimport;
+
+import co.com.bancolombia.model.franchise.Franchise;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Outcome of importing one franchise. Holds the same {@link Franchise} instance that was submitted,
+ * so callers can correlate results with their input.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class FranchiseImportResult {
+    private Franchise franchise;
+    private FranchiseImportStatus status;
+
+    public static FranchiseImportResult of(Franchise franchise, FranchiseImportStatus status) {
+        return new FranchiseImportResult(franchise, status);
+    }
+}
@@ -0,0 +1,8 @@
+package co.com.bancolombia.model.franchiseimport;
+
+public enum FranchiseImportStatus {
+    IMPORTED,
+    DUPLICATE_ID,
+    DUPLICATE_NAME,
+    FAILED
+}
@@ -0,0 +1,21 @@
+package co.com.bancolombia.model.franchisesummary;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Read model for list views: the franchise identity plus branch and product counts, without the
+ * branch and product tree.
+ */
+@Getter
+@ToString
+@Builder(toBuilder = true)
+@AllArgsConstructor
+public class FranchiseSummary {
+    private String id;
+    private String name;
+    private int branchCount;
+    private int productCount;
+}
@@ -0,0 +1,23 @@
+package co.com.bancolombia.model.page;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated listing. {@code nextToken} is opaque to callers and is
+ * {@code null} on the last page.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class PageResult<T> {
+    private List<T> items;
+    private String nextToken;
+
+    public boolean hasNext() {
+        return nextToken != null;
+    }
+}
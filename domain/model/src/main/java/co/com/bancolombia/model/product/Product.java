@@ -23,6 +23,13 @@ public class Product {
         return new Product(name, stock);
     }
 
+    /**
+     * Rebuilds a stored product; see {@link co.com.bancolombia.model.franchise.Franchise#restore}.
+     */
+    public static Product restore(String name, Integer stock) {
+        return new Product(name, stock);
+    }
+
     private static void validateName(String name) {
         if (name == null || name.trim().isEmpty()) {
             throw new DomainValidationException(DomainErrorCode.INVALID_PRODUCT, "Product name cannot be null");
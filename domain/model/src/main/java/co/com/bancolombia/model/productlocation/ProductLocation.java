@@ -0,0 +1,22 @@
+package co.com.bancolombia.model.productlocation;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * A product together with the franchise and branch that hold it, as returned by the queries that
+ * search products across franchises.
+ */
+@Getter
+@ToString
+@Builder(toBuilder = true)
+@AllArgsConstructor
+public class ProductLocation {
+    private String franchiseId;
+    private String franchiseName;
+    private String branchName;
+    private String productName;
+    private int stock;
+}
@@ -0,0 +1,30 @@
+package co.com.bancolombia.model.stock;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * One entry of a bulk stock sync. Entries are not validated on creation so a bad one can be
+ * reported back individually instead of failing the whole sync.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+@Builder(toBuilder = true)
+public class StockUpdate {
+    private String franchiseId;
+    private String branchName;
+    private String productName;
+    private Integer stock;
+
+    public boolean isValid() {
+        return !isBlank(franchiseId) && !isBlank(branchName) && !isBlank(productName)
+                && stock != null && stock >= 0;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+}
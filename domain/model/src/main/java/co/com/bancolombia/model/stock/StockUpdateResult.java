@@ -0,0 +1,17 @@
+package co.com.bancolombia.model.stock;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+@Getter
+@ToString
+@AllArgsConstructor
+public class StockUpdateResult {
+    private StockUpdate update;
+    private StockUpdateStatus status;
+
+    public static StockUpdateResult of(StockUpdate update, StockUpdateStatus status) {
+        return new StockUpdateResult(update, status);
+    }
+}
@@ -0,0 +1,10 @@
+package co.com.bancolombia.model.stock;
+
+public enum StockUpdateStatus {
+    UPDATED,
+    INVALID,
+    FRANCHISE_NOT_FOUND,
+    BRANCH_NOT_FOUND,
+    PRODUCT_NOT_FOUND,
+    FAILED
+}
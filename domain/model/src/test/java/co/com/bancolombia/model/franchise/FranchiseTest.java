@@ -4,9 +4,11 @@ import co.com.bancolombia.model.branch.Branch;
 import org.junit.jupiter.api.Test;
 
 import java.util.Collections;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 class FranchiseTest {
 
@@ -49,4 +51,15 @@ class FranchiseTest {
 
         assertNotNull(franchise.toString());
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldRestoreStoredFranchiseWithoutCopyingBranches() {
+        List<Branch> branches = List.of(Branch.restore("Branch 1", List.of()));
+
+        Franchise franchise = Franchise.restore("F123", "SuperFranchise", branches);
+
+        assertEquals("SuperFranchise", franchise.getName());
+        assertSame(branches.getFirst(), franchise.getBranches().getFirst());
+        assertEquals(1, franchise.getBranches().size());
+    }
+}
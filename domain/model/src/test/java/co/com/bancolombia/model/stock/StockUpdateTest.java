@@ -0,0 +1,27 @@
+package co.com.bancolombia.model.stock;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StockUpdateTest {
+
+    @Test
+    void shouldBeValidWithTargetAndNonNegativeStock() {
+        assertTrue(new StockUpdate("f-1", "Branch", "Product", 0).isValid());
+    }
+
+    @Test
+    void shouldBeInvalidWithNegativeOrMissingStock() {
+        assertFalse(new StockUpdate("f-1", "Branch", "Product", -1).isValid());
+        assertFalse(new StockUpdate("f-1", "Branch", "Product", null).isValid());
+    }
+
+    @Test
+    void shouldBeInvalidWithBlankTarget() {
+        assertFalse(new StockUpdate(" ", "Branch", "Product", 1).isValid());
+        assertFalse(new StockUpdate("f-1", null, "Product", 1).isValid());
+        assertFalse(new StockUpdate("f-1", "Branch", "", 1).isValid());
+    }
+}
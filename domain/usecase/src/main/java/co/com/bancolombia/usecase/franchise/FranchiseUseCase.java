@@ -3,8 +3,14 @@ package co.com.bancolombia.usecase.franchise;
 import co.com.bancolombia.model.branch.Branch;
 import co.com.bancolombia.model.branchtopproduct.BranchTopProduct;
 import co.com.bancolombia.model.franchise.Franchise;
+import co.com.bancolombia.model.franchiseimport.FranchiseImportResult;
+import co.com.bancolombia.model.franchisesummary.FranchiseSummary;
+import co.com.bancolombia.model.page.PageResult;
 import co.com.bancolombia.model.franchise.gateways.FranchiseRepository;
 import co.com.bancolombia.model.product.Product;
+import co.com.bancolombia.model.productlocation.ProductLocation;
+import co.com.bancolombia.model.stock.StockUpdate;
+import co.com.bancolombia.model.stock.StockUpdateResult;
 import lombok.RequiredArgsConstructor;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -25,6 +31,26 @@ public class FranchiseUseCase {
         return repository.findAll();
     }
 
+    public Mono<PageResult<Franchise>> findPage(String pageToken, int size) {
+        return repository.findPage(pageToken, size);
+    }
+
+    public Mono<PageResult<FranchiseSummary>> findSummaryPage(String pageToken, int size) {
+        return repository.findSummaryPage(pageToken, size);
+    }
+
+    public Mono<PageResult<ProductLocation>> findLowStockPage(int threshold, String pageToken, int size) {
+        return repository.findLowStockPage(threshold, pageToken, size);
+    }
+
+    public Flux<ProductLocation> findProductsByNamePrefix(String prefix) {
+        return repository.findProductsByNamePrefix(prefix);
+    }
+
+    public Flux<FranchiseImportResult> importFranchises(Flux<Franchise> franchises) {
+        return repository.importFranchises(franchises);
+    }
+
     public Mono<Franchise> addBranchToFranchise(String franchiseId, Branch newBranch) {
         return repository.addBranchToFranchise(franchiseId, newBranch);
     }
@@ -37,14 +63,30 @@ public class FranchiseUseCase {
         return repository.removeProductFromBranch(franchiseId, branchName, productName);
     }
 
-    public Mono<Franchise> updateProductStock(String franchiseId, String branchName, String productName, int newStock) {
+    public Mono<Product> updateProductStock(String franchiseId, String branchName, String productName, int newStock) {
         return repository.updateProductStock(franchiseId, branchName, productName, newStock);
     }
 
+    public Mono<Product> adjustProductStock(String franchiseId, String branchName, String productName, int delta) {
+        return repository.adjustProductStock(franchiseId, branchName, productName, delta);
+    }
+
+    public Flux<StockUpdateResult> bulkUpdateProductStock(Flux<StockUpdate> updates) {
+        return repository.updateProductStocks(updates);
+    }
+
     public Flux<BranchTopProduct> getTopProducts(String franchiseId) {
         return repository.getTopProductsPerBranch(franchiseId);
     }
 
+    public Flux<BranchTopProduct> getTopProducts(String franchiseId, int limit) {
+        return repository.getTopProductsPerBranch(franchiseId, limit);
+    }
+
+    public Flux<BranchTopProduct> getTopProducts(String franchiseId, int limit, boolean withTies) {
+        return repository.getTopProductsPerBranch(franchiseId, limit, withTies);
+    }
+
     public Mono<Franchise> updateFranchiseName(String franchiseId, String newName) {
         return repository.updateFranchiseName(franchiseId, newName);
     }
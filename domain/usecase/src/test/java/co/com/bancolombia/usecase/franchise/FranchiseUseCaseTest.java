@@ -4,7 +4,15 @@ import co.com.bancolombia.model.branch.Branch;
 import co.com.bancolombia.model.branchtopproduct.BranchTopProduct;
 import co.com.bancolombia.model.franchise.Franchise;
 import co.com.bancolombia.model.franchise.gateways.FranchiseRepository;
+import co.com.bancolombia.model.franchiseimport.FranchiseImportResult;
+import co.com.bancolombia.model.franchiseimport.FranchiseImportStatus;
+import co.com.bancolombia.model.franchisesummary.FranchiseSummary;
+import co.com.bancolombia.model.page.PageResult;
 import co.com.bancolombia.model.product.Product;
+import co.com.bancolombia.model.productlocation.ProductLocation;
+import co.com.bancolombia.model.stock.StockUpdate;
+import co.com.bancolombia.model.stock.StockUpdateResult;
+import co.com.bancolombia.model.stock.StockUpdateStatus;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -15,6 +23,8 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import java.util.List;
+
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
@@ -168,15 +178,106 @@ class FranchiseUseCaseTest {
         String branchName = "Test Branch";
         String productName = "Test Product";
         int newStock = 25;
-        when(repository.updateProductStock(franchiseId, branchName, productName, newStock)).thenReturn(Mono.just(testFranchise));
+        when(repository.updateProductStock(franchiseId, branchName, productName, newStock)).thenReturn(Mono.just(testProduct));
 
         StepVerifier.create(franchiseUseCase.updateProductStock(franchiseId, branchName, productName, newStock))
-                .expectNext(testFranchise)
+                .expectNext(testProduct)
                 .verifyComplete();
 
         verify(repository, times(1)).updateProductStock(franchiseId, branchName, productName, newStock);
     }
 
+    @Test
+    void adjustProductStock_ShouldAdjustStock_WhenValidParameters() {
+        String franchiseId = "franchise-1";
+        String branchName = "Test Branch";
+        String productName = "Test Product";
+        int delta = -5;
+        when(repository.adjustProductStock(franchiseId, branchName, productName, delta)).thenReturn(Mono.just(testProduct));
+
+        StepVerifier.create(franchiseUseCase.adjustProductStock(franchiseId, branchName, productName, delta))
+                .expectNext(testProduct)
+                .verifyComplete();
+
+        verify(repository, times(1)).adjustProductStock(franchiseId, branchName, productName, delta);
+    }
+
+    @Test
+    void findPage_ShouldReturnPageFromRepository() {
+        PageResult<Franchise> page = new PageResult<>(List.of(), null);
+        when(repository.findPage("token", 10)).thenReturn(Mono.just(page));
+
+        StepVerifier.create(franchiseUseCase.findPage("token", 10))
+                .expectNext(page)
+                .verifyComplete();
+
+        verify(repository, times(1)).findPage("token", 10);
+    }
+
+    @Test
+    void findSummaryPage_ShouldReturnSummariesFromRepository() {
+        PageResult<FranchiseSummary> page = new PageResult<>(List.of(
+                FranchiseSummary.builder().id("franchise-1").name("Franchise").branchCount(1).productCount(3).build()),
+                null);
+        when(repository.findSummaryPage(null, 20)).thenReturn(Mono.just(page));
+
+        StepVerifier.create(franchiseUseCase.findSummaryPage(null, 20))
+                .expectNext(page)
+                .verifyComplete();
+    }
+
+    @Test
+    void findLowStockPage_ShouldReturnLowStockProductsFromRepository() {
+        PageResult<ProductLocation> page = new PageResult<>(List.of(
+                ProductLocation.builder().franchiseId("franchise-1").franchiseName("Franchise")
+                        .branchName("Branch").productName("Product").stock(2).build()),
+                null);
+        when(repository.findLowStockPage(5, null, 20)).thenReturn(Mono.just(page));
+
+        StepVerifier.create(franchiseUseCase.findLowStockPage(5, null, 20))
+                .expectNext(page)
+                .verifyComplete();
+    }
+
+    @Test
+    void findProductsByNamePrefix_ShouldReturnLocationsFromRepository() {
+        ProductLocation location = ProductLocation.builder().franchiseId("franchise-1").franchiseName("Franchise")
+                .branchName("Branch").productName("Product").stock(8).build();
+        when(repository.findProductsByNamePrefix("pro")).thenReturn(Flux.just(location));
+
+        StepVerifier.create(franchiseUseCase.findProductsByNamePrefix("pro"))
+                .expectNext(location)
+                .verifyComplete();
+    }
+
+    @Test
+    void importFranchises_ShouldReturnResultPerFranchise() {
+        Franchise franchise = Franchise.builder().id("franchise-9").name("Imported").build();
+        Flux<Franchise> franchises = Flux.just(franchise);
+        FranchiseImportResult result = FranchiseImportResult.of(franchise, FranchiseImportStatus.IMPORTED);
+        when(repository.importFranchises(franchises)).thenReturn(Flux.just(result));
+
+        StepVerifier.create(franchiseUseCase.importFranchises(franchises))
+                .expectNext(result)
+                .verifyComplete();
+
+        verify(repository, times(1)).importFranchises(franchises);
+    }
+
+    @Test
+    void bulkUpdateProductStock_ShouldReturnPerItemResults() {
+        StockUpdate update = new StockUpdate("franchise-1", "Test Branch", "Test Product", 12);
+        Flux<StockUpdate> updates = Flux.just(update);
+        StockUpdateResult result = StockUpdateResult.of(update, StockUpdateStatus.UPDATED);
+        when(repository.updateProductStocks(updates)).thenReturn(Flux.just(result));
+
+        StepVerifier.create(franchiseUseCase.bulkUpdateProductStock(updates))
+                .expectNext(result)
+                .verifyComplete();
+
+        verify(repository, times(1)).updateProductStocks(updates);
+    }
+
     @Test
     void getTopProducts_ShouldReturnTopProducts_WhenFranchiseExists() {
         String franchiseId = "franchise-1";
@@ -205,6 +306,30 @@ class FranchiseUseCaseTest {
         verify(repository, times(1)).getTopProductsPerBranch(franchiseId);
     }
 
+    @Test
+    void getTopProducts_ShouldUseGivenLimit() {
+        String franchiseId = "franchise-1";
+        when(repository.getTopProductsPerBranch(franchiseId, 3)).thenReturn(Flux.just(testBranchTopProduct));
+
+        StepVerifier.create(franchiseUseCase.getTopProducts(franchiseId, 3))
+                .expectNext(testBranchTopProduct)
+                .verifyComplete();
+
+        verify(repository, times(1)).getTopProductsPerBranch(franchiseId, 3);
+    }
+
+    @Test
+    void getTopProducts_ShouldRequestTiesWhenAsked() {
+        String franchiseId = "franchise-1";
+        when(repository.getTopProductsPerBranch(franchiseId, 2, true)).thenReturn(Flux.just(testBranchTopProduct));
+
+        StepVerifier.create(franchiseUseCase.getTopProducts(franchiseId, 2, true))
+                .expectNext(testBranchTopProduct)
+                .verifyComplete();
+
+        verify(repository, times(1)).getTopProductsPerBranch(franchiseId, 2, true);
+    }
+
     @Test
     void updateFranchiseName_ShouldUpdateName_WhenValidParameters() {
         String franchiseId = "franchise-1";
@@ -0,0 +1,89 @@
+package co.com.bancolombia.inmemory.benchmark;
+
+import co.com.bancolombia.inmemory.InMemoryFranchiseRepository;
+import co.com.bancolombia.model.branch.Branch;
+import co.com.bancolombia.model.franchise.Franchise;
+import co.com.bancolombia.model.product.Product;
+import co.com.bancolombia.model.stock.StockUpdate;
+import co.com.bancolombia.model.stock.StockUpdateResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The stock update scenarios of the Mongo {@code StockUpdateBenchmark} run against the in-memory
+ * adapter, with the same franchise shape. The difference between both is what persistence costs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class InMemoryStockUpdateBenchmark {
+
+    private static final String FRANCHISE_ID = "benchmark-franchise";
+
+    @Param({"10", "100"})
+    private int branches;
+
+    @Param({"50"})
+    private int productsPerBranch;
+
+    private InMemoryFranchiseRepository repository;
+    private String branchName;
+    private String productName;
+    private int stock;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repository = new InMemoryFranchiseRepository();
+        branchName = "Branch " + branches / 2;
+        productName = "Product " + productsPerBranch / 2;
+        repository.save(franchise()).block();
+    }
+
+    @Benchmark
+    public Product atomicSet() {
+        return repository.updateProductStock(FRANCHISE_ID, branchName, productName, ++stock).block();
+    }
+
+    @Benchmark
+    public Product atomicIncrement() {
+        return repository.adjustProductStock(FRANCHISE_ID, branchName, productName, 1).block();
+    }
+
+    @Benchmark
+    public List<StockUpdateResult> bulkSet() {
+        int newStock = ++stock;
+        List<StockUpdate> updates = new ArrayList<>(productsPerBranch);
+        for (int p = 0; p < productsPerBranch; p++) {
+            updates.add(new StockUpdate(FRANCHISE_ID, branchName, "Product " + p, newStock));
+        }
+        return repository.updateProductStocks(Flux.fromIterable(updates)).collectList().block();
+    }
+
+    private Franchise franchise() {
+        List<Branch> branchList = new ArrayList<>(branches);
+        for (int b = 0; b < branches; b++) {
+            List<Product> products = new ArrayList<>(productsPerBranch);
+            for (int p = 0; p < productsPerBranch; p++) {
+                products.add(Product.builder().name("Product " + p).stock(p).build());
+            }
+            branchList.add(Branch.builder().name("Branch " + b).products(products).build());
+        }
+        return Franchise.builder()
+                .id(FRANCHISE_ID)
+                .name("Benchmark Franchise")
+                .branches(branchList)
+                .build();
+    }
+}
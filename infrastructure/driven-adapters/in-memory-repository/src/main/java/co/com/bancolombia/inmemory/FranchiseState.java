@@ -0,0 +1,104 @@
+package co.com.bancolombia.inmemory;
+
+import co.com.bancolombia.commons.exception.AppErrorCode;
+import co.com.bancolombia.commons.exception.AppException;
+import co.com.bancolombia.model.branch.Branch;
+import co.com.bancolombia.model.franchise.Franchise;
+import co.com.bancolombia.model.product.Product;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * Immutable snapshot of a franchise. Branches and products are indexed by their lower-cased name,
+ * which makes every case-insensitive lookup a map access; every change returns a new snapshot so
+ * readers never see a partial update. Two branches of a franchise, or two products of a branch,
+ * whose names differ only by case are rejected rather than collapsed into one entry.
+ */
+record FranchiseState(String id, String name, Map<String, BranchState> branches) {
+
+    record BranchState(String name, Map<String, ProductState> products) {
+
+        BranchState withProducts(UnaryOperator<Map<String, ProductState>> change) {
+            return new BranchState(name, Collections.unmodifiableMap(change.apply(new LinkedHashMap<>(products))));
+        }
+
+        BranchState renamed(String newName) {
+            return new BranchState(newName, products);
+        }
+
+        static BranchState of(Branch branch) {
+            Map<String, ProductState> products = new LinkedHashMap<>();
+            for (Product product : branch.getProducts()) {
+                if (products.putIfAbsent(keyOf(product.getName()), new ProductState(product.getName(), product.getStock())) != null) {
+                    throw new AppException(AppErrorCode.DUPLICATE_PRODUCT_NAME);
+                }
+            }
+            return new BranchState(branch.getName(), Collections.unmodifiableMap(products));
+        }
+    }
+
+    record ProductState(String name, int stock) {
+
+        ProductState withStock(int newStock) {
+            return new ProductState(name, newStock);
+        }
+
+        Product toProduct() {
+            return Product.restore(name, stock);
+        }
+    }
+
+    static String keyOf(String name) {
+        return name == null ? null : name.toLowerCase(Locale.ROOT);
+    }
+
+    static FranchiseState of(Franchise franchise, String id) {
+        Map<String, BranchState> branches = new LinkedHashMap<>();
+        for (Branch branch : franchise.getBranches()) {
+            if (branches.putIfAbsent(keyOf(branch.getName()), BranchState.of(branch)) != null) {
+                throw new AppException(AppErrorCode.DUPLICATE_BRANCH_NAME);
+            }
+        }
+        return new FranchiseState(id, franchise.getName(), Collections.unmodifiableMap(branches));
+    }
+
+    FranchiseState withBranches(UnaryOperator<Map<String, BranchState>> change) {
+        return new FranchiseState(id, name, Collections.unmodifiableMap(change.apply(new LinkedHashMap<>(branches))));
+    }
+
+    FranchiseState renamed(String newName) {
+        return new FranchiseState(id, newName, branches);
+    }
+
+    int productCount() {
+        return branches.values().stream().mapToInt(branch -> branch.products().size()).sum();
+    }
+
+    Franchise toFranchise() {
+        // The state only ever holds validated input, so the entities are restored without copies
+        return Franchise.restore(id, name, branches.values().stream()
+                .map(branch -> Branch.restore(branch.name(),
+                        branch.products().values().stream().map(ProductState::toProduct).toList()))
+                .toList());
+    }
+
+    /**
+     * Replaces the entry stored under {@code oldKey} keeping its position, so a rename does not
+     * move a branch or product to the end of the listing.
+     */
+    static <V> Map<String, V> replaceKey(Map<String, V> entries, String oldKey, String newKey, V value) {
+        Map<String, V> replaced = new LinkedHashMap<>();
+        entries.forEach((key, current) -> {
+            if (key.equals(oldKey)) {
+                replaced.put(newKey, value);
+            } else {
+                replaced.put(key, current);
+            }
+        });
+        return replaced;
+    }
+}
@@ -0,0 +1,445 @@
+package co.com.bancolombia.inmemory;
+
+import co.com.bancolombia.commons.exception.AppErrorCode;
+import co.com.bancolombia.commons.exception.AppException;
+import co.com.bancolombia.commons.page.PageTokens;
+import co.com.bancolombia.inmemory.FranchiseState.BranchState;
+import co.com.bancolombia.inmemory.FranchiseState.ProductState;
+import co.com.bancolombia.model.branch.Branch;
+import co.com.bancolombia.model.branchtopproduct.BranchTopProduct;
+import co.com.bancolombia.model.franchise.Franchise;
+import co.com.bancolombia.model.franchise.gateways.FranchiseRepository;
+import co.com.bancolombia.model.franchiseimport.FranchiseImportResult;
+import co.com.bancolombia.model.franchiseimport.FranchiseImportStatus;
+import co.com.bancolombia.model.franchisesummary.FranchiseSummary;
+import co.com.bancolombia.model.page.PageResult;
+import co.com.bancolombia.model.product.Product;
+import co.com.bancolombia.model.productlocation.ProductLocation;
+import co.com.bancolombia.model.stock.StockUpdate;
+import co.com.bancolombia.model.stock.StockUpdateResult;
+import co.com.bancolombia.model.stock.StockUpdateStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * Lock-free, in-process implementation of the whole gateway, active with the {@code in-memory}
+ * profile. It lets the service and its load tests run without a database and gives a baseline for
+ * what the persistence adapter itself costs.
+ * <p>
+ * Each franchise lives in an {@link AtomicReference} to an immutable {@link FranchiseState};
+ * mutations build the next snapshot and publish it with a compare-and-set, retrying on contention.
+ * Franchises are kept sorted by id for keyset pages, and a name index enforces case-insensitive
+ * unique franchise names the way the Mongo unique index does. Errors use the same codes as the
+ * Mongo adapter.
+ */
+@Slf4j
+@Component
+@Profile("in-memory")
+public class InMemoryFranchiseRepository implements FranchiseRepository {
+
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int LOW_STOCK_KEY_PARTS = 3;
+
+    private final NavigableMap<String, AtomicReference<FranchiseState>> franchises = new ConcurrentSkipListMap<>();
+    private final Map<String, String> idsByNameKey = new ConcurrentHashMap<>();
+
+    @Override
+    public Mono<Franchise> save(Franchise franchise) {
+        return Mono.fromCallable(() -> {
+            String id = franchise.getId() != null ? franchise.getId() : UUID.randomUUID().toString();
+            FranchiseState state = FranchiseState.of(franchise, id);
+            if (insert(state)) {
+                log.info("Franchise created with ID: {}", id);
+                return state.toFranchise();
+            }
+            FranchiseState saved = update(id, franchise.getName(), current -> state);
+            log.info("Franchise updated with ID: {}", id);
+            return saved.toFranchise();
+        });
+    }
+
+    @Override
+    public Mono<Franchise> findById(String id) {
+        return Mono.fromSupplier(() -> franchises.get(id))
+                .map(ref -> ref.get().toFranchise());
+    }
+
+    @Override
+    public Flux<Franchise> findAll() {
+        return Flux.fromIterable(franchises.values())
+                .map(ref -> ref.get().toFranchise());
+    }
+
+    @Override
+    public Mono<PageResult<Franchise>> findPage(String pageToken, int size) {
+        return page(pageToken, size, FranchiseState::toFranchise);
+    }
+
+    @Override
+    public Mono<PageResult<FranchiseSummary>> findSummaryPage(String pageToken, int size) {
+        return page(pageToken, size, state -> FranchiseSummary.builder()
+                .id(state.id())
+                .name(state.name())
+                .branchCount(state.branches().size())
+                .productCount(state.productCount())
+                .build());
+    }
+
+    /**
+     * Same order and continuation key as the Mongo adapter: franchise id, then branch name, then
+     * product name.
+     */
+    @Override
+    public Mono<PageResult<ProductLocation>> findLowStockPage(int threshold, String pageToken, int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            return Mono.error(new AppException(AppErrorCode.BAD_REQUEST,
+                    "Page size must be between 1 and " + MAX_PAGE_SIZE));
+        }
+        if (threshold < 1) {
+            return Mono.error(new AppException(AppErrorCode.BAD_REQUEST, "Threshold must be greater than 0"));
+        }
+        return Mono.fromSupplier(() -> {
+            List<String> after = pageToken == null ? null : PageTokens.decodeKey(pageToken, LOW_STOCK_KEY_PARTS);
+            Map<String, AtomicReference<FranchiseState>> from = after == null
+                    ? franchises
+                    : franchises.tailMap(after.getFirst(), true);
+            List<ProductLocation> rows = from.values().stream()
+                    .map(AtomicReference::get)
+                    .flatMap(state -> state.branches().values().stream()
+                            .sorted(Comparator.comparing(BranchState::name))
+                            .flatMap(branch -> branch.products().values().stream()
+                                    .filter(product -> product.stock() < threshold)
+                                    .sorted(Comparator.comparing(ProductState::name))
+                                    .map(product -> ProductLocation.builder()
+                                            .franchiseId(state.id())
+                                            .franchiseName(state.name())
+                                            .branchName(branch.name())
+                                            .productName(product.name())
+                                            .stock(product.stock())
+                                            .build())))
+                    .filter(row -> after == null || isAfter(row, after))
+                    .limit(size + 1L)
+                    .toList();
+            boolean hasNext = rows.size() > size;
+            List<ProductLocation> page = hasNext ? rows.subList(0, size) : rows;
+            String nextToken = hasNext ? PageTokens.encodeKey(List.of(page.getLast().getFranchiseId(),
+                    page.getLast().getBranchName(), page.getLast().getProductName())) : null;
+            return new PageResult<>(page, nextToken);
+        });
+    }
+
+    @Override
+    public Flux<ProductLocation> findProductsByNamePrefix(String prefix) {
+        if (prefix == null || prefix.isBlank()) {
+            return Flux.error(new AppException(AppErrorCode.BAD_REQUEST, "Product name prefix must not be blank"));
+        }
+        String key = FranchiseState.keyOf(prefix);
+        return Flux.fromIterable(franchises.values())
+                .map(AtomicReference::get)
+                .flatMapIterable(state -> state.branches().values().stream()
+                        .flatMap(branch -> branch.products().entrySet().stream()
+                                .filter(product -> product.getKey().startsWith(key))
+                                .map(product -> ProductLocation.builder()
+                                        .franchiseId(state.id())
+                                        .franchiseName(state.name())
+                                        .branchName(branch.name())
+                                        .productName(product.getValue().name())
+                                        .stock(product.getValue().stock())
+                                        .build()))
+                        .toList());
+    }
+
+    private static boolean isAfter(ProductLocation row, List<String> key) {
+        if (!row.getFranchiseId().equals(key.get(0))) {
+            return true;
+        }
+        int branch = row.getBranchName().compareTo(key.get(1));
+        return branch > 0 || branch == 0 && row.getProductName().compareTo(key.get(2)) > 0;
+    }
+
+    @Override
+    public Flux<FranchiseImportResult> importFranchises(Flux<Franchise> franchisesToImport) {
+        return franchisesToImport.map(franchise -> {
+            try {
+                FranchiseImportStatus status = insert(FranchiseState.of(franchise, franchise.getId()))
+                        ? FranchiseImportStatus.IMPORTED
+                        : FranchiseImportStatus.DUPLICATE_ID;
+                return FranchiseImportResult.of(franchise, status);
+            } catch (AppException e) {
+                // Branches or products colliding by case make the franchise itself invalid
+                return FranchiseImportResult.of(franchise, e.getErrorCode() == AppErrorCode.DUPLICATE_FRANCHISE_NAME
+                        ? FranchiseImportStatus.DUPLICATE_NAME
+                        : FranchiseImportStatus.FAILED);
+            }
+        });
+    }
+
+    @Override
+    public Mono<Franchise> addBranchToFranchise(String franchiseId, Branch newBranch) {
+        return mutate(franchiseId, state -> state.withBranches(branches -> {
+            if (branches.putIfAbsent(FranchiseState.keyOf(newBranch.getName()), BranchState.of(newBranch)) != null) {
+                throw new AppException(AppErrorCode.DUPLICATE_BRANCH_NAME);
+            }
+            return branches;
+        }));
+    }
+
+    @Override
+    public Mono<Franchise> addProductToBranch(String franchiseId, String branchName, Product product) {
+        return mutate(franchiseId, state -> withBranch(state, branchName, branch -> branch.withProducts(products -> {
+            ProductState added = new ProductState(product.getName(), product.getStock());
+            if (products.putIfAbsent(FranchiseState.keyOf(product.getName()), added) != null) {
+                throw new AppException(AppErrorCode.DUPLICATE_PRODUCT_NAME);
+            }
+            return products;
+        })));
+    }
+
+    @Override
+    public Mono<Franchise> removeProductFromBranch(String franchiseId, String branchName, String productName) {
+        return mutate(franchiseId, state -> withBranch(state, branchName, branch -> branch.withProducts(products -> {
+            if (products.remove(FranchiseState.keyOf(productName)) == null) {
+                throw new AppException(AppErrorCode.PRODUCT_NOT_FOUND);
+            }
+            return products;
+        })));
+    }
+
+    @Override
+    public Mono<Product> updateProductStock(String franchiseId, String branchName, String productName, int newStock) {
+        if (newStock < 0) {
+            return Mono.error(new AppException(AppErrorCode.BAD_REQUEST, "Stock cannot be less than 0"));
+        }
+        return Mono.fromCallable(() -> setStock(franchiseId, branchName, productName, stock -> newStock));
+    }
+
+    @Override
+    public Mono<Product> adjustProductStock(String franchiseId, String branchName, String productName, int delta) {
+        if (delta == 0) {
+            return Mono.error(new AppException(AppErrorCode.BAD_REQUEST, "Delta cannot be 0"));
+        }
+        return Mono.fromCallable(() -> setStock(franchiseId, branchName, productName, stock -> {
+            long adjusted = (long) stock + delta;
+            if (adjusted < 0) {
+                throw new AppException(AppErrorCode.INSUFFICIENT_STOCK);
+            }
+            if (adjusted > Integer.MAX_VALUE) {
+                throw new AppException(AppErrorCode.BAD_REQUEST, "Stock cannot be greater than " + Integer.MAX_VALUE);
+            }
+            return (int) adjusted;
+        }));
+    }
+
+    @Override
+    public Flux<StockUpdateResult> updateProductStocks(Flux<StockUpdate> updates) {
+        return updates.map(update -> {
+            if (!update.isValid()) {
+                return StockUpdateResult.of(update, StockUpdateStatus.INVALID);
+            }
+            try {
+                setStock(update.getFranchiseId(), update.getBranchName(), update.getProductName(),
+                        stock -> update.getStock());
+                return StockUpdateResult.of(update, StockUpdateStatus.UPDATED);
+            } catch (AppException e) {
+                return StockUpdateResult.of(update, switch (e.getErrorCode()) {
+                    case FRANCHISE_NOT_FOUND -> StockUpdateStatus.FRANCHISE_NOT_FOUND;
+                    case BRANCH_NOT_FOUND -> StockUpdateStatus.BRANCH_NOT_FOUND;
+                    case PRODUCT_NOT_FOUND -> StockUpdateStatus.PRODUCT_NOT_FOUND;
+                    default -> StockUpdateStatus.FAILED;
+                });
+            }
+        });
+    }
+
+    /**
+     * Same ranking as the Mongo aggregation: products are ordered by stock then name and the first
+     * {@code limit} of each branch are returned. With ties, a product's rank is one plus the number
+     * of products of its branch with more stock, and every product ranked within the limit is returned.
+     */
+    @Override
+    public Flux<BranchTopProduct> getTopProductsPerBranch(String franchiseId, int limit, boolean withTies) {
+        if (limit < 1) {
+            return Flux.error(new AppException(AppErrorCode.BAD_REQUEST, "Limit must be greater than 0"));
+        }
+        return Mono.justOrEmpty(franchises.get(franchiseId))
+                .flatMapIterable(ref -> {
+                    List<BranchTopProduct> top = new ArrayList<>();
+                    for (BranchState branch : ref.get().branches().values()) {
+                        List<ProductState> ranked = branch.products().values().stream()
+                                .sorted(Comparator.comparingInt(ProductState::stock).reversed()
+                                        .thenComparing(ProductState::name))
+                                .toList();
+                        for (int i = 0; i < ranked.size(); i++) {
+                            boolean tiedWithPrevious = withTies && i > 0 && ranked.get(i).stock() == ranked.get(i - 1).stock();
+                            if (i >= limit && !tiedWithPrevious) {
+                                break;
+                            }
+                            top.add(new BranchTopProduct(branch.name(), ranked.get(i).toProduct()));
+                        }
+                    }
+                    return top;
+                });
+    }
+
+    @Override
+    public Mono<Franchise> updateFranchiseName(String franchiseId, String newName) {
+        return Mono.fromCallable(() -> update(franchiseId, newName, state -> state.renamed(newName)).toFranchise());
+    }
+
+    @Override
+    public Mono<Franchise> updateBranchName(String franchiseId, String currentBranchName, String newBranchName) {
+        String currentKey = FranchiseState.keyOf(currentBranchName);
+        String newKey = FranchiseState.keyOf(newBranchName);
+        return mutate(franchiseId, state -> {
+            if (!newKey.equals(currentKey) && state.branches().containsKey(newKey)) {
+                throw new AppException(AppErrorCode.DUPLICATE_BRANCH_NAME);
+            }
+            BranchState branch = state.branches().get(currentKey);
+            if (branch == null) {
+                throw new AppException(AppErrorCode.BRANCH_NOT_FOUND);
+            }
+            return state.withBranches(branches ->
+                    FranchiseState.replaceKey(branches, currentKey, newKey, branch.renamed(newBranchName)));
+        });
+    }
+
+    @Override
+    public Mono<Franchise> updateProductName(String franchiseId, String branchName, String currentProductName,
+                                             String newProductName) {
+        String currentKey = FranchiseState.keyOf(currentProductName);
+        String newKey = FranchiseState.keyOf(newProductName);
+        return mutate(franchiseId, state -> withBranch(state, branchName, branch -> {
+            if (!newKey.equals(currentKey) && branch.products().containsKey(newKey)) {
+                throw new AppException(AppErrorCode.DUPLICATE_PRODUCT_NAME);
+            }
+            ProductState product = branch.products().get(currentKey);
+            if (product == null) {
+                throw new AppException(AppErrorCode.PRODUCT_NOT_FOUND);
+            }
+            return branch.withProducts(products -> FranchiseState.replaceKey(products, currentKey, newKey,
+                    new ProductState(newProductName, product.stock())));
+        }));
+    }
+
+    private Mono<Franchise> mutate(String franchiseId, UnaryOperator<FranchiseState> change) {
+        return Mono.fromCallable(() -> update(franchiseId, null, change).toFranchise());
+    }
+
+    private Product setStock(String franchiseId, String branchName, String productName,
+                             UnaryOperator<Integer> newStock) {
+        String productKey = FranchiseState.keyOf(productName);
+        FranchiseState updated = update(franchiseId, null, state -> withBranch(state, branchName, branch -> {
+            ProductState product = branch.products().get(productKey);
+            if (product == null) {
+                throw new AppException(AppErrorCode.PRODUCT_NOT_FOUND);
+            }
+            return branch.withProducts(products -> {
+                products.put(productKey, product.withStock(newStock.apply(product.stock())));
+                return products;
+            });
+        }));
+        return updated.branches().get(FranchiseState.keyOf(branchName)).products().get(productKey).toProduct();
+    }
+
+    private static FranchiseState withBranch(FranchiseState state, String branchName,
+                                             UnaryOperator<BranchState> change) {
+        String branchKey = FranchiseState.keyOf(branchName);
+        BranchState branch = state.branches().get(branchKey);
+        if (branch == null) {
+            throw new AppException(AppErrorCode.BRANCH_NOT_FOUND);
+        }
+        BranchState changed = change.apply(branch);
+        return state.withBranches(branches -> {
+            branches.put(branchKey, changed);
+            return branches;
+        });
+    }
+
+    /**
+     * Adds a new franchise, reserving its name first. Returns {@code false} when the id is taken.
+     */
+    private boolean insert(FranchiseState state) {
+        String nameKey = FranchiseState.keyOf(state.name());
+        String owner = idsByNameKey.putIfAbsent(nameKey, state.id());
+        if (owner != null && !owner.equals(state.id())) {
+            throw new AppException(AppErrorCode.DUPLICATE_FRANCHISE_NAME);
+        }
+        if (franchises.putIfAbsent(state.id(), new AtomicReference<>(state)) != null) {
+            if (owner == null) {
+                idsByNameKey.remove(nameKey, state.id());
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Publishes the snapshot computed by {@code change} with a compare-and-set, recomputing it on
+     * contention. When {@code newName} is given the name index is moved along: the new name is
+     * reserved before publishing and the name actually replaced is released afterwards.
+     */
+    private FranchiseState update(String franchiseId, String newName, UnaryOperator<FranchiseState> change) {
+        AtomicReference<FranchiseState> ref = franchises.get(franchiseId);
+        if (ref == null) {
+            throw new AppException(AppErrorCode.FRANCHISE_NOT_FOUND);
+        }
+        String newKey = FranchiseState.keyOf(newName);
+        String owner = newKey == null ? null : idsByNameKey.putIfAbsent(newKey, franchiseId);
+        if (owner != null && !owner.equals(franchiseId)) {
+            throw new AppException(AppErrorCode.DUPLICATE_FRANCHISE_NAME);
+        }
+        try {
+            while (true) {
+                FranchiseState current = ref.get();
+                FranchiseState next = change.apply(current);
+                if (ref.compareAndSet(current, next)) {
+                    String oldKey = FranchiseState.keyOf(current.name());
+                    if (newKey != null && !newKey.equals(oldKey)) {
+                        idsByNameKey.remove(oldKey, franchiseId);
+                    }
+                    return next;
+                }
+            }
+        } catch (RuntimeException e) {
+            if (newKey != null && owner == null) {
+                idsByNameKey.remove(newKey, franchiseId);
+            }
+            throw e;
+        }
+    }
+
+    private <T> Mono<PageResult<T>> page(String pageToken, int size, Function<FranchiseState, T> toItem) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            return Mono.error(new AppException(AppErrorCode.BAD_REQUEST,
+                    "Page size must be between 1 and " + MAX_PAGE_SIZE));
+        }
+        return Mono.fromSupplier(() -> {
+            Map<String, AtomicReference<FranchiseState>> after = pageToken == null
+                    ? franchises
+                    : franchises.tailMap(PageTokens.decode(pageToken), false);
+            List<FranchiseState> states = after.values().stream()
+                    .limit(size + 1L)
+                    .map(AtomicReference::get)
+                    .toList();
+            boolean hasNext = states.size() > size;
+            List<FranchiseState> page = hasNext ? states.subList(0, size) : states;
+            String nextToken = hasNext ? PageTokens.encode(page.getLast().id()) : null;
+            return new PageResult<>(page.stream().map(toItem).toList(), nextToken);
+        });
+    }
+}
@@ -0,0 +1,284 @@
+package co.com.bancolombia.inmemory;
+
+import co.com.bancolombia.commons.exception.AppErrorCode;
+import co.com.bancolombia.commons.exception.AppException;
+import co.com.bancolombia.model.branch.Branch;
+import co.com.bancolombia.model.franchise.Franchise;
+import co.com.bancolombia.model.franchiseimport.FranchiseImportResult;
+import co.com.bancolombia.model.franchiseimport.FranchiseImportStatus;
+import co.com.bancolombia.model.franchisesummary.FranchiseSummary;
+import co.com.bancolombia.model.product.Product;
+import co.com.bancolombia.model.productlocation.ProductLocation;
+import co.com.bancolombia.model.stock.StockUpdate;
+import co.com.bancolombia.model.stock.StockUpdateResult;
+import co.com.bancolombia.model.stock.StockUpdateStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class InMemoryFranchiseRepositoryTest {
+
+    private InMemoryFranchiseRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        repository = new InMemoryFranchiseRepository();
+        repository.save(franchise("f-1", "Franchise")).block();
+    }
+
+    @Test
+    void shouldFindSavedFranchiseWithItsTree() {
+        StepVerifier.create(repository.findById("f-1"))
+                .expectNextMatches(f -> f.getName().equals("Franchise")
+                        && f.getBranches().size() == 1
+                        && f.getBranches().getFirst().getProducts().size() == 2)
+                .verifyComplete();
+        StepVerifier.create(repository.findById("missing")).verifyComplete();
+    }
+
+    @Test
+    void shouldRejectDuplicateFranchiseNameIgnoringCase() {
+        StepVerifier.create(repository.save(franchise("f-2", "FRANCHISE")))
+                .expectErrorMatches(code(AppErrorCode.DUPLICATE_FRANCHISE_NAME))
+                .verify();
+    }
+
+    @Test
+    void shouldReleaseOldNameOnRename() {
+        StepVerifier.create(repository.updateFranchiseName("f-1", "Renamed"))
+                .expectNextMatches(f -> f.getName().equals("Renamed"))
+                .verifyComplete();
+
+        StepVerifier.create(repository.save(franchise("f-2", "franchise")))
+                .expectNextCount(1)
+                .verifyComplete();
+        StepVerifier.create(repository.updateFranchiseName("f-2", "renamed"))
+                .expectErrorMatches(code(AppErrorCode.DUPLICATE_FRANCHISE_NAME))
+                .verify();
+    }
+
+    @Test
+    void shouldLookUpBranchesAndProductsIgnoringCase() {
+        StepVerifier.create(repository.updateProductStock("f-1", "MAIN branch", "apple", 42))
+                .expectNextMatches(p -> p.getName().equals("Apple") && p.getStock() == 42)
+                .verifyComplete();
+        StepVerifier.create(repository.adjustProductStock("f-1", "main BRANCH", "APPLE", -2))
+                .expectNextMatches(p -> p.getStock() == 40)
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldReportMissingPathsAndGuardStock() {
+        StepVerifier.create(repository.updateProductStock("missing", "Main Branch", "Apple", 1))
+                .expectErrorMatches(code(AppErrorCode.FRANCHISE_NOT_FOUND))
+                .verify();
+        StepVerifier.create(repository.updateProductStock("f-1", "Other", "Apple", 1))
+                .expectErrorMatches(code(AppErrorCode.BRANCH_NOT_FOUND))
+                .verify();
+        StepVerifier.create(repository.removeProductFromBranch("f-1", "Main Branch", "Kiwi"))
+                .expectErrorMatches(code(AppErrorCode.PRODUCT_NOT_FOUND))
+                .verify();
+        StepVerifier.create(repository.adjustProductStock("f-1", "Main Branch", "Apple", -11))
+                .expectErrorMatches(code(AppErrorCode.INSUFFICIENT_STOCK))
+                .verify();
+        StepVerifier.create(repository.adjustProductStock("f-1", "Main Branch", "Apple", Integer.MIN_VALUE))
+                .expectErrorMatches(code(AppErrorCode.INSUFFICIENT_STOCK))
+                .verify();
+        StepVerifier.create(repository.adjustProductStock("f-1", "Main Branch", "Apple", Integer.MAX_VALUE))
+                .expectErrorMatches(code(AppErrorCode.BAD_REQUEST))
+                .verify();
+        StepVerifier.create(repository.adjustProductStock("f-1", "Main Branch", "Apple", 0))
+                .expectErrorMatches(code(AppErrorCode.BAD_REQUEST))
+                .verify();
+        StepVerifier.create(repository.updateProductStock("f-1", "Main Branch", "Apple", -1))
+                .expectErrorMatches(code(AppErrorCode.BAD_REQUEST))
+                .verify();
+    }
+
+    @Test
+    void shouldRejectDuplicateBranchAndProductNames() {
+        StepVerifier.create(repository.addBranchToFranchise("f-1", Branch.builder().name("main branch").build()))
+                .expectErrorMatches(code(AppErrorCode.DUPLICATE_BRANCH_NAME))
+                .verify();
+        StepVerifier.create(repository.addProductToBranch("f-1", "Main Branch",
+                        Product.builder().name("PEAR").stock(1).build()))
+                .expectErrorMatches(code(AppErrorCode.DUPLICATE_PRODUCT_NAME))
+                .verify();
+        StepVerifier.create(repository.updateProductName("f-1", "Main Branch", "Apple", "pear"))
+                .expectErrorMatches(code(AppErrorCode.DUPLICATE_PRODUCT_NAME))
+                .verify();
+    }
+
+    @Test
+    void shouldRejectSavedBranchesOrProductsDifferingOnlyByCase() {
+        Franchise branches = Franchise.builder().id("f-2").name("Second")
+                .branches(List.of(Branch.builder().name("North").build(), Branch.builder().name("NORTH").build()))
+                .build();
+        Franchise products = Franchise.builder().id("f-3").name("Third")
+                .branches(List.of(Branch.builder().name("North").products(List.of(
+                        Product.builder().name("Kiwi").stock(1).build(),
+                        Product.builder().name("kiwi").stock(2).build())).build()))
+                .build();
+
+        StepVerifier.create(repository.save(branches))
+                .expectErrorMatches(code(AppErrorCode.DUPLICATE_BRANCH_NAME))
+                .verify();
+        StepVerifier.create(repository.save(products))
+                .expectErrorMatches(code(AppErrorCode.DUPLICATE_PRODUCT_NAME))
+                .verify();
+        StepVerifier.create(repository.findById("f-2")).verifyComplete();
+        StepVerifier.create(repository.findById("f-3")).verifyComplete();
+    }
+
+    @Test
+    void shouldRenameBranchKeepingItsPosition() {
+        repository.addBranchToFranchise("f-1", Branch.builder().name("Second").build()).block();
+
+        StepVerifier.create(repository.updateBranchName("f-1", "main branch", "Central"))
+                .expectNextMatches(f -> f.getBranches().get(0).getName().equals("Central")
+                        && f.getBranches().get(1).getName().equals("Second"))
+                .verifyComplete();
+        StepVerifier.create(repository.updateBranchName("f-1", "Central", "SECOND"))
+                .expectErrorMatches(code(AppErrorCode.DUPLICATE_BRANCH_NAME))
+                .verify();
+    }
+
+    @Test
+    void shouldReturnTopProductsWithTies() {
+        repository.addProductToBranch("f-1", "Main Branch", Product.builder().name("Plum").stock(10).build()).block();
+
+        StepVerifier.create(repository.getTopProductsPerBranch("f-1", 1, true).collectList())
+                .expectNextMatches(top -> top.size() == 2
+                        && top.stream().allMatch(t -> t.getProduct().getStock() == 10))
+                .verifyComplete();
+        StepVerifier.create(repository.getTopProductsPerBranch("f-1").collectList())
+                .expectNextMatches(top -> top.size() == 1)
+                .verifyComplete();
+        StepVerifier.create(repository.getTopProductsPerBranch("f-1", 0))
+                .expectErrorMatches(code(AppErrorCode.BAD_REQUEST))
+                .verify();
+    }
+
+    @Test
+    void shouldReportEachBulkStockUpdate() {
+        StockUpdate applied = new StockUpdate("f-1", "main branch", "pear", 7);
+        StockUpdate missingProduct = new StockUpdate("f-1", "Main Branch", "Kiwi", 7);
+        StockUpdate invalid = new StockUpdate("f-1", "Main Branch", "Pear", -1);
+
+        StepVerifier.create(repository.updateProductStocks(Flux.just(applied, missingProduct, invalid))
+                        .map(StockUpdateResult::getStatus))
+                .expectNext(StockUpdateStatus.UPDATED, StockUpdateStatus.PRODUCT_NOT_FOUND, StockUpdateStatus.INVALID)
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldImportWithDuplicateDetection() {
+        StepVerifier.create(repository.importFranchises(Flux.just(
+                                franchise("f-2", "Second"), franchise("f-1", "Other"), franchise("f-3", "SECOND")))
+                        .map(FranchiseImportResult::getStatus))
+                .expectNext(FranchiseImportStatus.IMPORTED, FranchiseImportStatus.DUPLICATE_ID,
+                        FranchiseImportStatus.DUPLICATE_NAME)
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldFailImportOfBranchesOrProductsDifferingOnlyByCase() {
+        Franchise branches = Franchise.builder().id("f-2").name("Second")
+                .branches(List.of(Branch.builder().name("North").build(), Branch.builder().name("north").build()))
+                .build();
+        Franchise products = Franchise.builder().id("f-3").name("Third")
+                .branches(List.of(Branch.builder().name("North").products(List.of(
+                        Product.builder().name("Kiwi").stock(1).build(),
+                        Product.builder().name("KIWI").stock(2).build())).build()))
+                .build();
+
+        StepVerifier.create(repository.importFranchises(Flux.just(branches, products, franchise("f-4", "Fourth")))
+                        .map(FranchiseImportResult::getStatus))
+                .expectNext(FranchiseImportStatus.FAILED, FranchiseImportStatus.FAILED, FranchiseImportStatus.IMPORTED)
+                .verifyComplete();
+        // A failed import leaves its name free
+        StepVerifier.create(repository.save(franchise("f-5", "Second")))
+                .expectNextCount(1)
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldPageByIdAndSummarize() {
+        repository.save(franchise("f-2", "Second")).block();
+        repository.save(franchise("f-3", "Third")).block();
+
+        var first = repository.findSummaryPage(null, 2).block();
+        assertEquals(List.of("f-1", "f-2"), first.getItems().stream().map(FranchiseSummary::getId).toList());
+        assertEquals(2, first.getItems().getFirst().getProductCount());
+
+        var second = repository.findPage(first.getNextToken(), 2).block();
+        assertEquals(List.of("f-3"), second.getItems().stream().map(Franchise::getId).toList());
+        assertNull(second.getNextToken());
+    }
+
+    @Test
+    void shouldPageLowStockProductsAcrossFranchises() {
+        repository.save(franchise("f-2", "Second")).block();
+
+        var first = repository.findLowStockPage(10, null, 1).block();
+        assertEquals(List.of("f-1"), first.getItems().stream().map(ProductLocation::getFranchiseId).toList());
+        assertEquals("Pear", first.getItems().getFirst().getProductName());
+
+        var second = repository.findLowStockPage(10, first.getNextToken(), 1).block();
+        assertEquals(List.of("f-2"), second.getItems().stream().map(ProductLocation::getFranchiseId).toList());
+        assertEquals(5, second.getItems().getFirst().getStock());
+        assertNull(second.getNextToken());
+    }
+
+    @Test
+    void shouldFindProductsByNamePrefixIgnoringCase() {
+        repository.save(franchise("f-2", "Second")).block();
+
+        StepVerifier.create(repository.findProductsByNamePrefix("PE"))
+                .expectNextMatches(location -> location.getFranchiseId().equals("f-1")
+                        && location.getProductName().equals("Pear"))
+                .expectNextMatches(location -> location.getFranchiseId().equals("f-2"))
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldNotLoseConcurrentIncrements() {
+        Flux.fromStream(IntStream.range(0, 200).boxed())
+                .parallel(8)
+                .runOn(Schedulers.parallel())
+                .flatMap(i -> repository.adjustProductStock("f-1", "Main Branch", "Apple", 1))
+                .sequential()
+                .blockLast();
+
+        StepVerifier.create(repository.updateProductStock("f-1", "Main Branch", "Pear", 0)
+                        .then(repository.findById("f-1")))
+                .expectNextMatches(f -> f.getBranches().getFirst().getProducts().getFirst().getStock() == 210)
+                .verifyComplete();
+    }
+
+    private static Predicate<Throwable> code(AppErrorCode code) {
+        return e -> e instanceof AppException app && app.getErrorCode() == code;
+    }
+
+    private static Franchise franchise(String id, String name) {
+        return Franchise.builder()
+                .id(id)
+                .name(name)
+                .branches(List.of(Branch.builder()
+                        .name("Main Branch")
+                        .products(List.of(
+                                Product.builder().name("Apple").stock(10).build(),
+                                Product.builder().name("Pear").stock(5).build()))
+                        .build()))
+                .build();
+    }
+}
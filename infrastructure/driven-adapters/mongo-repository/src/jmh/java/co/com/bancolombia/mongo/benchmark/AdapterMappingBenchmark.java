@@ -0,0 +1,84 @@
+package co.com.bancolombia.mongo.benchmark;
+
+import co.com.bancolombia.model.branch.Branch;
+import co.com.bancolombia.model.franchise.Franchise;
+import co.com.bancolombia.model.product.Product;
+import co.com.bancolombia.mongo.helper.document.FranchiseDocument;
+import co.com.bancolombia.mongo.helper.mapper.FranchiseDocumentMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.reactivecommons.utils.ObjectMapper;
+import org.reactivecommons.utils.ObjectMapperImp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Documents mapped per millisecond by {@code AdapterOperations}, each operation mapping one
+ * franchise. The {@code reflective} benchmarks are the former plumbing, the reflection-driven
+ * {@link ObjectMapper}; the {@code specialized} ones are the {@link FranchiseDocumentMapper}
+ * functions the adapter is now built with.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class AdapterMappingBenchmark {
+
+    @Param({"1", "10"})
+    private int branches;
+
+    @Param({"50"})
+    private int productsPerBranch;
+
+    private ObjectMapper reflectiveMapper;
+    private FranchiseDocumentMapper specializedMapper;
+    private Franchise franchise;
+    private FranchiseDocument document;
+
+    @Setup
+    public void setUp() {
+        reflectiveMapper = new ObjectMapperImp();
+        specializedMapper = new FranchiseDocumentMapper();
+        List<Branch> branchList = new ArrayList<>(branches);
+        for (int b = 0; b < branches; b++) {
+            List<Product> products = new ArrayList<>(productsPerBranch);
+            for (int p = 0; p < productsPerBranch; p++) {
+                products.add(Product.builder().name("Product " + p).stock(p).build());
+            }
+            branchList.add(Branch.builder().name("Branch " + b).products(products).build());
+        }
+        franchise = Franchise.builder()
+                .id("benchmark-franchise")
+                .name("Benchmark Franchise")
+                .branches(branchList)
+                .build();
+        document = specializedMapper.toDocument(franchise);
+    }
+
+    @Benchmark
+    public FranchiseDocument reflectiveToData() {
+        return reflectiveMapper.map(franchise, FranchiseDocument.class);
+    }
+
+    @Benchmark
+    public FranchiseDocument specializedToData() {
+        return specializedMapper.toDocument(franchise);
+    }
+
+    @Benchmark
+    public Franchise reflectiveToEntity() {
+        return reflectiveMapper.mapBuilder(document, Franchise.FranchiseBuilder.class).build();
+    }
+
+    @Benchmark
+    public Franchise specializedToEntity() {
+        return specializedMapper.toEntity(document);
+    }
+}
@@ -0,0 +1,56 @@
+package co.com.bancolombia.mongo.benchmark;
+
+import co.com.bancolombia.mongo.MongoDBRepository;
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.repository.support.ReactiveMongoRepositoryFactory;
+import reactor.core.publisher.Mono;
+
+/**
+ * Wiring shared by the benchmarks. They run against a real mongod, by default the one used by the
+ * dev profile; override it with {@code -Dbenchmark.mongo.uri=...}.
+ */
+public final class BenchmarkMongo implements AutoCloseable {
+
+    private static final String DEFAULT_URI = "mongodb://localhost:27017";
+    private static final String DATABASE = "franchise_benchmark";
+
+    private final MongoClient client;
+    private final ReactiveMongoTemplate template;
+    private final MongoDBRepository repository;
+    private final CommandTrafficListener traffic = new CommandTrafficListener();
+
+    public BenchmarkMongo() {
+        MongoClientSettings settings = MongoClientSettings.builder()
+                .applyConnectionString(new ConnectionString(System.getProperty("benchmark.mongo.uri", DEFAULT_URI)))
+                .addCommandListener(traffic)
+                .build();
+        this.client = MongoClients.create(settings);
+        this.template = new ReactiveMongoTemplate(client, DATABASE);
+        this.repository = new ReactiveMongoRepositoryFactory(template).getRepository(MongoDBRepository.class);
+    }
+
+    public ReactiveMongoTemplate template() {
+        return template;
+    }
+
+    public MongoDBRepository repository() {
+        return repository;
+    }
+
+    public CommandTrafficListener traffic() {
+        return traffic;
+    }
+
+    public void dropDatabase() {
+        template.getMongoDatabase().flatMap(db -> Mono.from(db.drop())).block();
+    }
+
+    @Override
+    public void close() {
+        client.close();
+    }
+}
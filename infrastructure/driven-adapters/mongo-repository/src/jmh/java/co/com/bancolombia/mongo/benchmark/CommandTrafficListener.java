@@ -0,0 +1,37 @@
+package co.com.bancolombia.mongo.benchmark;
+
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the commands (round trips) and the BSON bytes sent to the server, so benchmarks can
+ * report the wire cost of an operation next to its latency.
+ */
+public class CommandTrafficListener implements CommandListener {
+
+    private final AtomicLong commands = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        commands.incrementAndGet();
+        bytes.addAndGet(new RawBsonDocument(event.getCommand(), new BsonDocumentCodec()).getByteBuffer().remaining());
+    }
+
+    public void reset() {
+        commands.set(0);
+        bytes.set(0);
+    }
+
+    public long commands() {
+        return commands.get();
+    }
+
+    public long bytes() {
+        return bytes.get();
+    }
+}
@@ -0,0 +1,92 @@
+package co.com.bancolombia.mongo.benchmark;
+
+import co.com.bancolombia.model.branch.Branch;
+import co.com.bancolombia.model.franchise.Franchise;
+import co.com.bancolombia.model.product.Product;
+import co.com.bancolombia.mongo.helper.document.BranchDocument;
+import co.com.bancolombia.mongo.helper.document.FranchiseDocument;
+import co.com.bancolombia.mongo.helper.document.ProductDocument;
+import co.com.bancolombia.mongo.helper.mapper.FranchiseDocumentMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping cost of a write on a franchise, without a database. {@code validatedRoundTrip} is the
+ * former chain of a mutation: the document read is mapped to a validated entity, back to a document
+ * for the replacement, and the saved document to a validated entity again. {@code restore} is what
+ * a write costs now: the document returned by the single update is restored as an entity. Run with
+ * the {@code gc} profiler, which reports the bytes allocated per operation
+ * ({@code gc.alloc.rate.norm}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MappingBenchmark {
+
+    @Param({"10", "100"})
+    private int branches;
+
+    @Param({"50"})
+    private int productsPerBranch;
+
+    private FranchiseDocumentMapper mapper;
+    private FranchiseDocument document;
+
+    @Setup
+    public void setUp() {
+        mapper = new FranchiseDocumentMapper();
+        List<BranchDocument> branchDocuments = new ArrayList<>(branches);
+        for (int b = 0; b < branches; b++) {
+            List<ProductDocument> products = new ArrayList<>(productsPerBranch);
+            for (int p = 0; p < productsPerBranch; p++) {
+                products.add(ProductDocument.builder().name("Product " + p).nameKey("product " + p).stock(p).build());
+            }
+            branchDocuments.add(BranchDocument.builder().name("Branch " + b).products(products).build());
+        }
+        document = FranchiseDocument.builder()
+                .id("benchmark-franchise")
+                .name("Benchmark Franchise")
+                .branches(branchDocuments)
+                .build();
+    }
+
+    @Benchmark
+    public Franchise validatedRoundTrip() {
+        Franchise read = validated(document);
+        FranchiseDocument replacement = mapper.toDocument(read);
+        return validated(replacement);
+    }
+
+    @Benchmark
+    public Franchise restore() {
+        return mapper.toEntity(document);
+    }
+
+    /**
+     * The former document to entity mapping, through the validating builders that copy every list.
+     */
+    private static Franchise validated(FranchiseDocument doc) {
+        return Franchise.builder()
+                .id(doc.getId())
+                .name(doc.getName())
+                .branches(doc.getBranches().stream()
+                        .map(branch -> Branch.builder()
+                                .name(branch.getName())
+                                .products(branch.getProducts().stream()
+                                        .map(p -> Product.builder().name(p.getName()).stock(p.getStock()).build())
+                                        .toList())
+                                .build())
+                        .toList())
+                .build();
+    }
+}
@@ -0,0 +1,118 @@
+package co.com.bancolombia.mongo.benchmark;
+
+import co.com.bancolombia.model.branch.Branch;
+import co.com.bancolombia.model.franchise.Franchise;
+import co.com.bancolombia.model.product.Product;
+import co.com.bancolombia.model.productlocation.ProductLocation;
+import co.com.bancolombia.mongo.MongoRepositoryAdapter;
+import co.com.bancolombia.mongo.config.FranchiseCollectionInitializer;
+import co.com.bancolombia.mongo.config.MongoAdapterProperties;
+import co.com.bancolombia.mongo.helper.bulk.FranchiseBulkImporter;
+import co.com.bancolombia.mongo.helper.bulk.StockBulkWriter;
+import co.com.bancolombia.mongo.helper.bulk.StockWriteBehindBuffer;
+import co.com.bancolombia.mongo.helper.concurrency.KeyedSerialExecutor;
+import co.com.bancolombia.mongo.helper.mapper.FranchiseDocumentMapper;
+import com.mongodb.ReadPreference;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finds the products whose name starts with a prefix, either by streaming every franchise through
+ * {@code findAll} and filtering in the JVM (the only option before the search existed) or with the
+ * indexed search on {@code branches.products.nameKey}. The prefix matches the products of a single
+ * franchise, so the scan reads the whole collection to return a handful of rows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ProductSearchBenchmark {
+
+    private static final int BRANCHES = 2;
+    private static final int PRODUCTS_PER_BRANCH = 10;
+    private static final int INSERT_BATCH = 1_000;
+
+    @Param({"10000", "100000"})
+    private int franchises;
+
+    private BenchmarkMongo mongo;
+    private MongoRepositoryAdapter adapter;
+    private String prefix;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mongo = new BenchmarkMongo();
+        mongo.dropDatabase();
+        FranchiseDocumentMapper mapper = new FranchiseDocumentMapper();
+        adapter = new MongoRepositoryAdapter(mongo.repository(), mapper, mongo.template(),
+                new StockBulkWriter(mongo.template(), new MongoAdapterProperties()),
+                new FranchiseBulkImporter(mongo.template(), mapper, new MongoAdapterProperties()),
+                new StockWriteBehindBuffer(new StockBulkWriter(mongo.template(), new MongoAdapterProperties()),
+                        new MongoAdapterProperties(), new SimpleMeterRegistry()),
+                new KeyedSerialExecutor(new SimpleMeterRegistry()), ReadPreference.primary(),
+                new MongoAdapterProperties());
+        Flux.range(0, franchises)
+                .map(f -> mapper.toDocument(franchise(f)))
+                .buffer(INSERT_BATCH)
+                .concatMap(batch -> mongo.template().insertAll(batch))
+                .blockLast();
+        new FranchiseCollectionInitializer(mongo.template()).initialize().block();
+        prefix = "SKU " + franchises / 2 + "-";
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        mongo.dropDatabase();
+        mongo.close();
+    }
+
+    @Benchmark
+    public List<ProductLocation> scanFindAll() {
+        String key = prefix.toLowerCase(Locale.ROOT);
+        return adapter.findAll()
+                .flatMapIterable(franchise -> franchise.getBranches().stream()
+                        .flatMap(branch -> branch.getProducts().stream()
+                                .filter(product -> product.getName().toLowerCase(Locale.ROOT).startsWith(key))
+                                .map(product -> ProductLocation.builder()
+                                        .franchiseId(franchise.getId())
+                                        .franchiseName(franchise.getName())
+                                        .branchName(branch.getName())
+                                        .productName(product.getName())
+                                        .stock(product.getStock())
+                                        .build()))
+                        .toList())
+                .collectList()
+                .block();
+    }
+
+    @Benchmark
+    public List<ProductLocation> indexedPrefixSearch() {
+        return adapter.findProductsByNamePrefix(prefix).collectList().block();
+    }
+
+    private static Franchise franchise(int index) {
+        List<Branch> branches = new ArrayList<>(BRANCHES);
+        for (int b = 0; b < BRANCHES; b++) {
+            List<Product> products = new ArrayList<>(PRODUCTS_PER_BRANCH);
+            for (int p = 0; p < PRODUCTS_PER_BRANCH; p++) {
+                products.add(Product.builder().name("SKU " + index + "-" + b + "-" + p).stock(p).build());
+            }
+            branches.add(Branch.builder().name("Branch " + b).products(products).build());
+        }
+        return Franchise.builder().id("franchise-" + index).name("Franchise " + index).branches(branches).build();
+    }
+}
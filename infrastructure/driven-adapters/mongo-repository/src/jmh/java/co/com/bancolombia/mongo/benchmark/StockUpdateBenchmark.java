@@ -0,0 +1,189 @@
+package co.com.bancolombia.mongo.benchmark;
+
+import co.com.bancolombia.model.franchise.Franchise;
+import co.com.bancolombia.model.product.Product;
+import co.com.bancolombia.model.stock.StockUpdate;
+import co.com.bancolombia.model.stock.StockUpdateResult;
+import co.com.bancolombia.mongo.MongoDBRepository;
+import co.com.bancolombia.mongo.MongoRepositoryAdapter;
+import co.com.bancolombia.mongo.config.MongoAdapterProperties;
+import co.com.bancolombia.mongo.helper.bulk.FranchiseBulkImporter;
+import co.com.bancolombia.mongo.helper.bulk.StockBulkWriter;
+import co.com.bancolombia.mongo.helper.bulk.StockWriteBehindBuffer;
+import co.com.bancolombia.mongo.helper.concurrency.KeyedSerialExecutor;
+import co.com.bancolombia.mongo.helper.document.BranchDocument;
+import co.com.bancolombia.mongo.helper.document.FranchiseDocument;
+import co.com.bancolombia.mongo.helper.document.ProductDocument;
+import co.com.bancolombia.mongo.helper.mapper.FranchiseDocumentMapper;
+import com.mongodb.ReadPreference;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the former read-modify-write stock update (find, map, mutate, find again, replace the
+ * whole document) against the single server-side update. Besides latency, the {@link Traffic}
+ * counters report the updates made and the round trips and bytes they sent, measured by
+ * {@link CommandTrafficListener}; divide by {@code updates} for the cost of one update.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StockUpdateBenchmark {
+
+    private static final String FRANCHISE_ID = "benchmark-franchise";
+
+    @Param({"10", "100"})
+    private int branches;
+
+    @Param({"50"})
+    private int productsPerBranch;
+
+    private BenchmarkMongo mongo;
+    private MongoDBRepository repository;
+    private FranchiseDocumentMapper mapper;
+    private MongoRepositoryAdapter adapter;
+    private String branchName;
+    private String productName;
+    private int stock;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mongo = new BenchmarkMongo();
+        mongo.dropDatabase();
+        repository = mongo.repository();
+        mapper = new FranchiseDocumentMapper();
+        adapter = new MongoRepositoryAdapter(repository, mapper, mongo.template(),
+                new StockBulkWriter(mongo.template(), new MongoAdapterProperties()),
+                new FranchiseBulkImporter(mongo.template(), mapper, new MongoAdapterProperties()),
+                new StockWriteBehindBuffer(new StockBulkWriter(mongo.template(), new MongoAdapterProperties()),
+                        new MongoAdapterProperties(), new SimpleMeterRegistry()),
+                new KeyedSerialExecutor(new SimpleMeterRegistry()), ReadPreference.primary(),
+                new MongoAdapterProperties());
+        branchName = "Branch " + branches / 2;
+        productName = "Product " + productsPerBranch / 2;
+        repository.save(franchise()).block();
+    }
+
+    @Setup(Level.Iteration)
+    public void resetTraffic() {
+        mongo.traffic().reset();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        mongo.dropDatabase();
+        mongo.close();
+    }
+
+    @Benchmark
+    public FranchiseDocument readModifyWrite(Traffic traffic) {
+        int newStock = ++stock;
+        FranchiseDocument saved = repository.findById(FRANCHISE_ID)
+                .flatMap(read -> {
+                    Franchise franchise = mapper.toEntity(read);
+                    franchise.getBranches().stream()
+                            .filter(b -> b.getName().equalsIgnoreCase(branchName))
+                            .flatMap(b -> b.getProducts().stream())
+                            .filter(p -> p.getName().equalsIgnoreCase(productName))
+                            .findFirst()
+                            .ifPresent(p -> p.setStock(newStock));
+                    FranchiseDocument updated = mapper.toDocument(franchise);
+                    updated.setVersion(read.getVersion());
+                    return repository.findById(franchise.getId())
+                            .then(repository.save(updated));
+                })
+                .block();
+        traffic.record(mongo.traffic(), 1);
+        return saved;
+    }
+
+    @Benchmark
+    public Product atomicSet(Traffic traffic) {
+        Product updated = adapter.updateProductStock(FRANCHISE_ID, branchName, productName, ++stock).block();
+        traffic.record(mongo.traffic(), 1);
+        return updated;
+    }
+
+    @Benchmark
+    public Product atomicIncrement(Traffic traffic) {
+        Product updated = adapter.adjustProductStock(FRANCHISE_ID, branchName, productName, 1).block();
+        traffic.record(mongo.traffic(), 1);
+        return updated;
+    }
+
+    /**
+     * Sets the stock of every product of a branch through one bulk call; each product counts as an
+     * update so traffic compares directly with the single-update benchmarks.
+     */
+    @Benchmark
+    public List<StockUpdateResult> bulkSet(Traffic traffic) {
+        int newStock = ++stock;
+        List<StockUpdate> updates = new ArrayList<>(productsPerBranch);
+        for (int p = 0; p < productsPerBranch; p++) {
+            updates.add(new StockUpdate(FRANCHISE_ID, branchName, "Product " + p, newStock));
+        }
+        List<StockUpdateResult> results = adapter.updateProductStocks(Flux.fromIterable(updates)).collectList().block();
+        traffic.record(mongo.traffic(), productsPerBranch);
+        return results;
+    }
+
+    private FranchiseDocument franchise() {
+        List<BranchDocument> branchDocuments = new ArrayList<>(branches);
+        for (int b = 0; b < branches; b++) {
+            List<ProductDocument> products = new ArrayList<>(productsPerBranch);
+            for (int p = 0; p < productsPerBranch; p++) {
+                products.add(ProductDocument.builder().name("Product " + p).stock(p).build());
+            }
+            branchDocuments.add(BranchDocument.builder().name("Branch " + b).products(products).build());
+        }
+        return FranchiseDocument.builder()
+                .id(FRANCHISE_ID)
+                .name("Benchmark Franchise")
+                .branches(branchDocuments)
+                .build();
+    }
+
+    /**
+     * Totals of the measured iteration, reported by JMH next to the latency.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Traffic {
+
+        public long updates;
+        public long roundTrips;
+        public long bytesSent;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            updates = 0;
+            roundTrips = 0;
+            bytesSent = 0;
+        }
+
+        /**
+         * Adds {@code count} updates; the listener is reset with the iteration, so its totals are
+         * the iteration's.
+         */
+        void record(CommandTrafficListener listener, long count) {
+            updates += count;
+            roundTrips = listener.commands();
+            bytesSent = listener.bytes();
+        }
+    }
+}
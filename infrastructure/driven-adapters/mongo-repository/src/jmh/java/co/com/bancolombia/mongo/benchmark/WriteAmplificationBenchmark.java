@@ -0,0 +1,191 @@
+package co.com.bancolombia.mongo.benchmark;
+
+import co.com.bancolombia.model.branch.Branch;
+import co.com.bancolombia.model.franchise.Franchise;
+import co.com.bancolombia.model.franchise.gateways.FranchiseRepository;
+import co.com.bancolombia.model.product.Product;
+import co.com.bancolombia.mongo.BranchPerDocumentRepositoryAdapter;
+import co.com.bancolombia.mongo.MongoRepositoryAdapter;
+import co.com.bancolombia.mongo.config.BranchCollectionInitializer;
+import co.com.bancolombia.mongo.config.MongoAdapterProperties;
+import co.com.bancolombia.mongo.helper.bulk.FranchiseBulkImporter;
+import co.com.bancolombia.mongo.helper.bulk.StockBulkWriter;
+import co.com.bancolombia.mongo.helper.bulk.StockWriteBehindBuffer;
+import co.com.bancolombia.mongo.helper.concurrency.KeyedSerialExecutor;
+import co.com.bancolombia.mongo.helper.concurrency.OptimisticRetry;
+import co.com.bancolombia.mongo.helper.document.FranchiseBranchDocument;
+import co.com.bancolombia.mongo.helper.document.FranchiseDocument;
+import co.com.bancolombia.mongo.helper.mapper.FranchiseDocumentMapper;
+import com.mongodb.ReadPreference;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares branch-level writes on the embedded layout, where every franchise is one document, and
+ * on the branch-per-document layout. Besides latency, the {@link Traffic} counters report the
+ * writes made, the bytes they sent, measured by {@link CommandTrafficListener}, and the BSON size of
+ * the documents they touched, which the embedded layout makes grow with the number of branches;
+ * divide by {@code writes} for the cost of one write.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class WriteAmplificationBenchmark {
+
+    private static final String FRANCHISE_ID = "benchmark-franchise";
+    private static final String EMBEDDED = "embedded";
+
+    @Param({EMBEDDED, "branch-per-document"})
+    private String layout;
+
+    @Param({"10", "100", "1000"})
+    private int branches;
+
+    @Param({"50"})
+    private int productsPerBranch;
+
+    private BenchmarkMongo mongo;
+    private FranchiseRepository adapter;
+    private String branchName;
+    private String productName;
+    private int stock;
+    private int touchedDocumentSize;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mongo = new BenchmarkMongo();
+        mongo.dropDatabase();
+        FranchiseDocumentMapper mapper = new FranchiseDocumentMapper();
+        MongoAdapterProperties properties = new MongoAdapterProperties();
+        FranchiseBulkImporter importer = new FranchiseBulkImporter(mongo.template(), mapper, properties);
+        KeyedSerialExecutor serialExecutor = new KeyedSerialExecutor(new SimpleMeterRegistry());
+        if (EMBEDDED.equals(layout)) {
+            adapter = new MongoRepositoryAdapter(mongo.repository(), mapper, mongo.template(),
+                    new StockBulkWriter(mongo.template(), properties), importer,
+                    new StockWriteBehindBuffer(new StockBulkWriter(mongo.template(), properties),
+                            properties, new SimpleMeterRegistry()),
+                    serialExecutor, ReadPreference.primary(), properties);
+        } else {
+            BranchCollectionInitializer initializer = new BranchCollectionInitializer(mongo.template(), mapper);
+            initializer.afterSingletonsInstantiated();
+            initializer.initialize().block();
+            adapter = new BranchPerDocumentRepositoryAdapter(mapper, mongo.template(),
+                    new OptimisticRetry(properties, new SimpleMeterRegistry()), importer,
+                    serialExecutor, ReadPreference.primary(), properties);
+        }
+        branchName = "Branch " + branches / 2;
+        productName = "Product " + productsPerBranch / 2;
+        adapter.save(franchise()).block();
+    }
+
+    @Setup(Level.Iteration)
+    public void resetTraffic() {
+        touchedDocumentSize = touchedDocumentSize();
+        mongo.traffic().reset();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        mongo.dropDatabase();
+        mongo.close();
+    }
+
+    @Benchmark
+    public Product updateStock(Traffic traffic) {
+        Product updated = adapter.updateProductStock(FRANCHISE_ID, branchName, productName, ++stock).block();
+        traffic.record(mongo.traffic(), 1, touchedDocumentSize);
+        return updated;
+    }
+
+    /**
+     * Adds a product to a branch and removes it again, so the branch keeps its size across
+     * invocations; each counts as two writes.
+     */
+    @Benchmark
+    public Franchise addAndRemoveProduct(Traffic traffic) {
+        Product added = Product.builder().name("Added product").stock(++stock).build();
+        Franchise franchise = adapter.addProductToBranch(FRANCHISE_ID, branchName, added)
+                .then(Mono.defer(() -> adapter.removeProductFromBranch(FRANCHISE_ID, branchName, added.getName())))
+                .block();
+        traffic.record(mongo.traffic(), 2, touchedDocumentSize);
+        return franchise;
+    }
+
+    private int touchedDocumentSize() {
+        boolean embedded = EMBEDDED.equals(layout);
+        Document match = embedded
+                ? new Document("_id", FRANCHISE_ID)
+                : new Document("franchiseId", FRANCHISE_ID).append("nameKey", FranchiseDocument.nameKeyOf(branchName));
+        List<Document> pipeline = List.of(
+                new Document("$match", match),
+                new Document("$project", new Document("size", new Document("$bsonSize", "$$ROOT"))));
+        return mongo.template()
+                .getCollection(mongo.template()
+                        .getCollectionName(embedded ? FranchiseDocument.class : FranchiseBranchDocument.class))
+                .flatMap(collection -> Mono.from(collection.aggregate(pipeline).first()))
+                .map(result -> result.getInteger("size"))
+                .blockOptional()
+                .orElse(0);
+    }
+
+    private Franchise franchise() {
+        List<Branch> branchList = new ArrayList<>(branches);
+        for (int b = 0; b < branches; b++) {
+            List<Product> products = new ArrayList<>(productsPerBranch);
+            for (int p = 0; p < productsPerBranch; p++) {
+                products.add(Product.builder().name("Product " + p).stock(p).build());
+            }
+            branchList.add(Branch.builder().name("Branch " + b).products(products).build());
+        }
+        return Franchise.builder()
+                .id(FRANCHISE_ID)
+                .name("Benchmark Franchise")
+                .branches(branchList)
+                .build();
+    }
+
+    /**
+     * Totals of the measured iteration, reported by JMH next to the latency.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Traffic {
+
+        public long writes;
+        public long bytesSent;
+        public long touchedDocumentBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            writes = 0;
+            bytesSent = 0;
+            touchedDocumentBytes = 0;
+        }
+
+        /**
+         * Adds {@code count} writes, each touching a document of {@code documentSize} bytes; the
+         * listener is reset with the iteration, so its totals are the iteration's.
+         */
+        void record(CommandTrafficListener listener, long count, int documentSize) {
+            writes += count;
+            bytesSent = listener.bytes();
+            touchedDocumentBytes += count * documentSize;
+        }
+    }
+}
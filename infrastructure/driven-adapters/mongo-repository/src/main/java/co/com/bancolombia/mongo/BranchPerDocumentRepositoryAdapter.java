@@ -0,0 +1,734 @@
+package co.com.bancolombia.mongo;
+
+import co.com.bancolombia.commons.exception.AppErrorCode;
+import co.com.bancolombia.commons.exception.AppException;
+import co.com.bancolombia.commons.page.PageTokens;
+import co.com.bancolombia.model.branch.Branch;
+import co.com.bancolombia.model.branchtopproduct.BranchTopProduct;
+import co.com.bancolombia.model.franchise.Franchise;
+import co.com.bancolombia.model.franchise.gateways.FranchiseRepository;
+import co.com.bancolombia.model.franchiseimport.FranchiseImportResult;
+import co.com.bancolombia.model.franchiseimport.FranchiseImportStatus;
+import co.com.bancolombia.model.franchisesummary.FranchiseSummary;
+import co.com.bancolombia.model.page.PageResult;
+import co.com.bancolombia.model.product.Product;
+import co.com.bancolombia.model.productlocation.ProductLocation;
+import co.com.bancolombia.model.stock.StockUpdate;
+import co.com.bancolombia.model.stock.StockUpdateResult;
+import co.com.bancolombia.model.stock.StockUpdateStatus;
+import co.com.bancolombia.mongo.cache.CachingFranchiseRepository;
+import co.com.bancolombia.mongo.config.MongoAdapterProperties;
+import co.com.bancolombia.mongo.helper.bulk.FranchiseBulkImporter;
+import co.com.bancolombia.mongo.helper.concurrency.KeyedSerialExecutor;
+import co.com.bancolombia.mongo.helper.concurrency.OptimisticRetry;
+import co.com.bancolombia.mongo.helper.document.FranchiseBranchDocument;
+import co.com.bancolombia.mongo.helper.document.FranchiseDocument;
+import co.com.bancolombia.mongo.helper.document.FranchiseSummaryDocument;
+import co.com.bancolombia.mongo.helper.document.ProductDocument;
+import co.com.bancolombia.mongo.helper.document.ProductLocationDocument;
+import co.com.bancolombia.mongo.helper.mapper.FranchiseDocumentMapper;
+import co.com.bancolombia.mongo.helper.query.BranchAggregations;
+import co.com.bancolombia.mongo.helper.query.KeysetPages;
+import co.com.bancolombia.mongo.helper.query.StockTargets;
+import co.com.bancolombia.mongo.helper.query.TopProductSummaries;
+import co.com.bancolombia.mongo.metrics.CommandOrigin;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ReadPreference;
+import com.mongodb.bulk.BulkWriteError;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Stores every branch, with its products, as a document of its own in {@code franchise_branch},
+ * while the franchise document keeps only its header. A stock or product write rewrites one branch
+ * instead of the whole franchise, at the cost of reassembling the tree when a caller needs it.
+ * Active with the {@code branch-per-document} profile; {@code BranchCollectionInitializer} moves
+ * franchises stored by {@link MongoRepositoryAdapter} into this layout.
+ * <p>
+ * Writes spanning several documents (saving or importing a franchise, which writes the header and
+ * then its branches) are not atomic: a concurrent read may see them half written, and a save that
+ * fails part way leaves branches of both the old and the new state until it is retried. Reads of
+ * the header and its branches are separate queries as well. Stock write-behind is not available in
+ * this layout.
+ */
+@Slf4j
+@Repository
+@Profile("branch-per-document & !in-memory")
+@Qualifier(CachingFranchiseRepository.DELEGATE)
+public class BranchPerDocumentRepositoryAdapter implements FranchiseRepository {
+
+    private static final String ID = "_id";
+    private static final String NAME = "name";
+    private static final String NAME_KEY = "nameKey";
+    private static final String FRANCHISE_ID = "franchiseId";
+    private static final String PRODUCTS = "products";
+    private static final String VERSION = "version";
+    private static final String TOP_PRODUCTS = "topProducts";
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int LOW_STOCK_KEY_PARTS = 3;
+    private static final int NAME_LOOKUP_BATCH = 100;
+    private static final int STOCK_UPDATE_CONCURRENCY = 16;
+    private static final long INITIAL_VERSION = 0L;
+
+    private final FranchiseDocumentMapper franchiseDocumentMapper;
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final OptimisticRetry optimisticRetry;
+    private final FranchiseBulkImporter franchiseBulkImporter;
+    private final KeyedSerialExecutor serialExecutor;
+    private final ReadPreference readOnlyPreference;
+    private final int exportBatchSize;
+    private final int importBatchSize;
+
+    public BranchPerDocumentRepositoryAdapter(FranchiseDocumentMapper franchiseDocumentMapper,
+                                              ReactiveMongoTemplate mongoTemplate, OptimisticRetry optimisticRetry,
+                                              FranchiseBulkImporter franchiseBulkImporter,
+                                              KeyedSerialExecutor serialExecutor, ReadPreference readOnlyPreference,
+                                              MongoAdapterProperties properties) {
+        this.franchiseDocumentMapper = franchiseDocumentMapper;
+        this.mongoTemplate = mongoTemplate;
+        this.optimisticRetry = optimisticRetry;
+        this.franchiseBulkImporter = franchiseBulkImporter;
+        this.serialExecutor = serialExecutor;
+        this.readOnlyPreference = readOnlyPreference;
+        this.exportBatchSize = properties.getExport().getBatchSize();
+        this.importBatchSize = properties.getBulk().getBatchSize();
+        if (properties.getWriteBehind().isEnabled()) {
+            log.warn("Stock write-behind is not supported by the branch-per-document layout, "
+                    + "stock updates are written directly");
+        }
+    }
+
+    /**
+     * Sets the header's own fields if nobody modified it since it was read, upserts every branch by
+     * its name key and only then removes the branches the franchise no longer has, so no branch that
+     * is kept is ever missing. The rest of the stored header is left alone: a franchise not migrated
+     * yet keeps its embedded branches for {@code BranchCollectionInitializer}.
+     */
+    @Override
+    public Mono<Franchise> save(Franchise franchise) {
+        FranchiseDocument header = franchiseDocumentMapper.toHeaderDocument(franchise);
+        List<FranchiseBranchDocument> branches =
+                franchiseDocumentMapper.toBranchDocuments(franchise.getId(), franchise.getBranches());
+        if (branches.stream().map(FranchiseBranchDocument::getNameKey).distinct().count() < branches.size()) {
+            return Mono.error(new AppException(AppErrorCode.DUPLICATE_BRANCH_NAME));
+        }
+        return serialized(franchise.getId(), () -> mongoTemplate.findById(franchise.getId(), FranchiseDocument.class)
+                .flatMap(existing -> updateHeader(existing, header)
+                        .then(replaceBranches(existing.getId(), branches))
+                        .then(Mono.defer(() -> requireHeader(existing.getId())))
+                        .flatMap(saved -> withBranches(saved, ReadPreference.primary()))
+                        .doOnNext(f -> log.info("Franchise updated with ID: {}", f.getId())))
+                .switchIfEmpty(Mono.defer(() -> mongoTemplate.insert(header)
+                        .flatMap(inserted -> mongoTemplate.insertAll(branches)
+                                .collectList()
+                                .map(insertedBranches -> franchiseDocumentMapper.toEntity(inserted, insertedBranches)))
+                        .doOnNext(f -> log.info("Franchise created with ID: {}", f.getId())))))
+                .onErrorMap(e -> isDuplicate(e, FranchiseDocument.NAME_KEY_INDEX),
+                        e -> new AppException(AppErrorCode.DUPLICATE_FRANCHISE_NAME, e))
+                .onErrorMap(e -> isDuplicate(e, FranchiseBranchDocument.NAME_KEY_INDEX),
+                        e -> new AppException(AppErrorCode.DUPLICATE_BRANCH_NAME, e))
+                .onErrorMap(OptimisticLockingFailureException.class,
+                        e -> new AppException(AppErrorCode.CONCURRENT_MODIFICATION, e))
+                .doOnError(e -> log.error("Error saving franchise: {}", e.getMessage()))
+                .contextWrite(CommandOrigin.of("save"));
+    }
+
+    private Mono<Void> updateHeader(FranchiseDocument existing, FranchiseDocument header) {
+        return mongoTemplate.updateFirst(
+                        new Query(Criteria.where(ID).is(existing.getId()).and(VERSION).is(existing.getVersion())),
+                        new Update().set(NAME, header.getName()).set(NAME_KEY, header.getNameKey()).inc(VERSION, 1),
+                        FranchiseDocument.class)
+                .flatMap(result -> result.getMatchedCount() == 0
+                        ? Mono.error(new OptimisticLockingFailureException(
+                                "Franchise " + existing.getId() + " was modified concurrently"))
+                        : Mono.empty());
+    }
+
+    /**
+     * Upserts the branches by franchise id and name key in one ordered bulk write, keeping the id and
+     * so the position of the branches that already exist, then deletes the ones left out.
+     */
+    private Mono<Void> replaceBranches(String franchiseId, List<FranchiseBranchDocument> branches) {
+        Mono<Void> upserts = Mono.empty();
+        if (!branches.isEmpty()) {
+            ReactiveBulkOperations operations =
+                    mongoTemplate.bulkOps(BulkOperations.BulkMode.ORDERED, FranchiseBranchDocument.class);
+            branches.forEach(branch -> operations.upsert(
+                    new Query(Criteria.where(FRANCHISE_ID).is(franchiseId).and(NAME_KEY).is(branch.getNameKey())),
+                    new Update()
+                            .setOnInsert(ID, branch.getId())
+                            .set(NAME, branch.getName())
+                            .set(PRODUCTS, branch.getProducts())
+                            .set(TOP_PRODUCTS, branch.getTopProducts())
+                            .inc(VERSION, 1)));
+            upserts = operations.execute().then();
+        }
+        List<String> kept = branches.stream().map(FranchiseBranchDocument::getNameKey).toList();
+        return upserts.then(Mono.defer(() -> mongoTemplate.remove(
+                new Query(Criteria.where(FRANCHISE_ID).is(franchiseId).and(NAME_KEY).nin(kept)),
+                FranchiseBranchDocument.class))).then();
+    }
+
+    /**
+     * Reads from the primary, like {@link MongoRepositoryAdapter#findById}, since it loads the cache.
+     */
+    @Override
+    public Mono<Franchise> findById(String id) {
+        return mongoTemplate.findOne(new Query(Criteria.where(ID).is(id)), FranchiseDocument.class)
+                .flatMap(header -> withBranches(header, ReadPreference.primary()))
+                .doOnNext(f -> log.info("Franchise found with ID: {}", id))
+                .doOnError(e -> log.error("Error finding franchise by ID {}: {}", id, e.getMessage()))
+                .contextWrite(CommandOrigin.of("findById"));
+    }
+
+    /**
+     * Streams the headers from one cursor and fetches the branches of each {@code export.batch-size}
+     * headers with a single query, so memory does not grow with the collection.
+     */
+    @Override
+    public Flux<Franchise> findAll() {
+        return mongoTemplate.find(readOnly(new Query().cursorBatchSize(exportBatchSize)), FranchiseDocument.class)
+                .buffer(exportBatchSize)
+                .concatMap(this::withBranches)
+                .doOnComplete(() -> log.info("Completed retrieving all franchises"))
+                .doOnError(e -> log.error("Error retrieving franchises: {}", e.getMessage()))
+                .contextWrite(CommandOrigin.of("findAll"));
+    }
+
+    @Override
+    public Mono<PageResult<Franchise>> findPage(String pageToken, int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            return Mono.error(new AppException(AppErrorCode.BAD_REQUEST,
+                    "Page size must be between 1 and " + MAX_PAGE_SIZE));
+        }
+        return findHeaderPage(pageToken, size)
+                .flatMap(headers -> toPage(headers, size, header -> PageTokens.encode(header.getId()),
+                        page -> withBranches(page).collectList()))
+                .doOnNext(page -> log.info("Found page of {} franchises", page.getItems().size()))
+                .doOnError(e -> log.error("Error retrieving franchise page: {}", e.getMessage()))
+                .contextWrite(CommandOrigin.of("findPage"));
+    }
+
+    @Override
+    public Mono<PageResult<FranchiseSummary>> findSummaryPage(String pageToken, int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            return Mono.error(new AppException(AppErrorCode.BAD_REQUEST,
+                    "Page size must be between 1 and " + MAX_PAGE_SIZE));
+        }
+        return findHeaderPage(pageToken, size)
+                .flatMap(headers -> toPage(headers, size, header -> PageTokens.encode(header.getId()), this::summarize))
+                .doOnNext(page -> log.info("Found page of {} franchise summaries", page.getItems().size()))
+                .doOnError(e -> log.error("Error retrieving franchise summaries: {}", e.getMessage()))
+                .contextWrite(CommandOrigin.of("findSummaryPage"));
+    }
+
+    @Override
+    public Mono<PageResult<ProductLocation>> findLowStockPage(int threshold, String pageToken, int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            return Mono.error(new AppException(AppErrorCode.BAD_REQUEST,
+                    "Page size must be between 1 and " + MAX_PAGE_SIZE));
+        }
+        if (threshold < 1) {
+            return Mono.error(new AppException(AppErrorCode.BAD_REQUEST, "Threshold must be greater than 0"));
+        }
+        return Mono.fromSupplier(() -> readOnly(BranchAggregations.lowStock(threshold,
+                        pageToken == null ? null : PageTokens.decodeKey(pageToken, LOW_STOCK_KEY_PARTS), size + 1)))
+                .flatMap(aggregation -> mongoTemplate.aggregate(aggregation, ProductLocationDocument.class)
+                        .collectList())
+                .flatMap(rows -> toPage(rows, size, row -> PageTokens.encodeKey(List.of(
+                                row.getFranchiseId(), row.getBranchName(), row.getProductName())),
+                        page -> withFranchiseNames(page)
+                                .map(named -> named.stream().map(franchiseDocumentMapper::toProductLocation).toList())))
+                .doOnNext(page -> log.info("Found page of {} low-stock products", page.getItems().size()))
+                .doOnError(e -> log.error("Error retrieving low-stock products: {}", e.getMessage()))
+                .contextWrite(CommandOrigin.of("findLowStockPage"));
+    }
+
+    @Override
+    public Flux<ProductLocation> findProductsByNamePrefix(String prefix) {
+        if (prefix == null || prefix.isBlank()) {
+            return Flux.error(new AppException(AppErrorCode.BAD_REQUEST, "Product name prefix must not be blank"));
+        }
+        return mongoTemplate.aggregate(readOnly(BranchAggregations.productSearch(prefix)), ProductLocationDocument.class)
+                .buffer(NAME_LOOKUP_BATCH)
+                .concatMap(rows -> withFranchiseNames(rows).flatMapIterable(Function.identity()))
+                .map(franchiseDocumentMapper::toProductLocation)
+                .doOnComplete(() -> log.info("Completed product search for prefix '{}'", prefix))
+                .doOnError(e -> log.error("Error searching products: {}", e.getMessage()))
+                .contextWrite(CommandOrigin.of("findProductsByNamePrefix"));
+    }
+
+    private Query readOnly(Query query) {
+        return query.withReadPreference(readOnlyPreference);
+    }
+
+    private <T> TypedAggregation<T> readOnly(TypedAggregation<T> aggregation) {
+        return aggregation.withOptions(AggregationOptions.builder().readPreference(readOnlyPreference).build());
+    }
+
+    private Mono<List<FranchiseDocument>> findHeaderPage(String pageToken, int size) {
+        return Mono.fromSupplier(() -> {
+                    // One extra header tells whether there is a next page without a count
+                    Query query = new Query().with(Sort.by(Sort.Direction.ASC, ID)).limit(size + 1);
+                    if (pageToken != null) {
+                        query.addCriteria(KeysetPages.afterId(PageTokens.decode(pageToken)));
+                    }
+                    return readOnly(query);
+                })
+                .flatMap(query -> mongoTemplate.find(query, FranchiseDocument.class).collectList());
+    }
+
+    /**
+     * Trims the extra document fetched past {@code size}, turns it into the next page token and
+     * completes the rest of the page.
+     */
+    private static <D, T> Mono<PageResult<T>> toPage(List<D> documents, int size, Function<D, String> tokenOf,
+                                                     Function<List<D>, Mono<List<T>>> toEntities) {
+        boolean hasNext = documents.size() > size;
+        List<D> page = hasNext ? documents.subList(0, size) : documents;
+        String nextToken = hasNext ? tokenOf.apply(page.getLast()) : null;
+        return toEntities.apply(page).map(items -> new PageResult<>(items, nextToken));
+    }
+
+    private Mono<Franchise> withBranches(FranchiseDocument header, ReadPreference readPreference) {
+        return mongoTemplate.find(branchesOf(header.getId()).withReadPreference(readPreference),
+                        FranchiseBranchDocument.class)
+                .collectList()
+                .map(branches -> franchiseDocumentMapper.toEntity(header, branches));
+    }
+
+    /**
+     * Reassembles a batch of headers with one query for all their branches, keeping the headers'
+     * order.
+     */
+    private Flux<Franchise> withBranches(List<FranchiseDocument> headers) {
+        if (headers.isEmpty()) {
+            return Flux.empty();
+        }
+        Query query = readOnly(new Query(Criteria.where(FRANCHISE_ID).in(idsOf(headers))));
+        return mongoTemplate.find(query, FranchiseBranchDocument.class)
+                .collectMultimap(FranchiseBranchDocument::getFranchiseId)
+                .flatMapIterable(branches -> headers.stream()
+                        .map(header -> franchiseDocumentMapper.toEntity(header, inIdOrder(branches.get(header.getId()))))
+                        .toList());
+    }
+
+    private Mono<List<FranchiseSummary>> summarize(List<FranchiseDocument> headers) {
+        if (headers.isEmpty()) {
+            return Mono.just(List.of());
+        }
+        return mongoTemplate.aggregate(readOnly(BranchAggregations.counts(idsOf(headers))), FranchiseSummaryDocument.class)
+                .collectMap(FranchiseSummaryDocument::getId)
+                .map(counts -> headers.stream()
+                        .map(header -> {
+                            Optional<FranchiseSummaryDocument> count = Optional.ofNullable(counts.get(header.getId()));
+                            return franchiseDocumentMapper.toSummary(FranchiseSummaryDocument.builder()
+                                    .id(header.getId())
+                                    .name(header.getName())
+                                    .branchCount(count.map(FranchiseSummaryDocument::getBranchCount).orElse(0))
+                                    .productCount(count.map(FranchiseSummaryDocument::getProductCount).orElse(0))
+                                    .build());
+                        })
+                        .toList());
+    }
+
+    /**
+     * Branch rows only carry the franchise id; the names come from one query over the headers.
+     */
+    private Mono<List<ProductLocationDocument>> withFranchiseNames(List<ProductLocationDocument> rows) {
+        if (rows.isEmpty()) {
+            return Mono.just(rows);
+        }
+        Set<String> franchiseIds = rows.stream().map(ProductLocationDocument::getFranchiseId).collect(Collectors.toSet());
+        Query query = readOnly(new Query(Criteria.where(ID).in(franchiseIds)));
+        query.fields().include(NAME);
+        return mongoTemplate.find(query, FranchiseDocument.class)
+                .collectMap(FranchiseDocument::getId, FranchiseDocument::getName)
+                .map(names -> {
+                    rows.forEach(row -> row.setFranchiseName(names.get(row.getFranchiseId())));
+                    return rows;
+                });
+    }
+
+    /**
+     * Headers go in through the bulk importer first, then the branches of the franchises it
+     * imported. A franchise whose branches could not be written is removed again and reported as
+     * failed.
+     */
+    @Override
+    public Flux<FranchiseImportResult> importFranchises(Flux<Franchise> franchises) {
+        return franchiseBulkImporter.insert(franchises, franchiseDocumentMapper::toHeaderDocument)
+                .buffer(importBatchSize)
+                .concatMap(this::insertImportedBranches)
+                .doOnComplete(() -> log.info("Completed franchise import"))
+                .doOnError(e -> log.error("Error importing franchises: {}", e.getMessage()))
+                .contextWrite(CommandOrigin.of("importFranchises"));
+    }
+
+    private Flux<FranchiseImportResult> insertImportedBranches(List<FranchiseImportResult> results) {
+        // Bulk inserts bypass the template's version handling, so branches start at version 0 here
+        List<FranchiseBranchDocument> branches = results.stream()
+                .filter(result -> result.getStatus() == FranchiseImportStatus.IMPORTED)
+                .flatMap(result -> franchiseDocumentMapper.toBranchDocuments(result.getFranchise().getId(),
+                        result.getFranchise().getBranches()).stream())
+                .map(branch -> branch.toBuilder().version(INITIAL_VERSION).build())
+                .toList();
+        if (branches.isEmpty()) {
+            return Flux.fromIterable(results);
+        }
+        return mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, FranchiseBranchDocument.class)
+                .insert(branches)
+                .execute()
+                .map(result -> Set.<String>of())
+                .onErrorResume(BulkOperationException.class, e -> Mono.just(franchisesOf(e.getErrors(), branches)))
+                .onErrorResume(MongoBulkWriteException.class, e -> Mono.just(franchisesOf(e.getWriteErrors(), branches)))
+                .onErrorResume(e -> {
+                    log.error("Import of {} branches failed: {}", branches.size(), e.getMessage());
+                    return Mono.just(branches.stream().map(FranchiseBranchDocument::getFranchiseId)
+                            .collect(Collectors.toSet()));
+                })
+                .flatMap(failed -> failed.isEmpty() ? Mono.just(failed) : removeFranchises(failed).thenReturn(failed))
+                .flatMapMany(failed -> Flux.fromIterable(results)
+                        .map(result -> result.getStatus() == FranchiseImportStatus.IMPORTED
+                                && failed.contains(result.getFranchise().getId())
+                                ? FranchiseImportResult.of(result.getFranchise(), FranchiseImportStatus.FAILED)
+                                : result));
+    }
+
+    private static Set<String> franchisesOf(List<BulkWriteError> errors, List<FranchiseBranchDocument> branches) {
+        return errors.stream()
+                .map(error -> branches.get(error.getIndex()).getFranchiseId())
+                .collect(Collectors.toSet());
+    }
+
+    private Mono<Void> removeFranchises(Set<String> franchiseIds) {
+        log.warn("Removing {} imported franchises whose branches could not be written", franchiseIds.size());
+        return mongoTemplate.remove(new Query(Criteria.where(FRANCHISE_ID).in(franchiseIds)), FranchiseBranchDocument.class)
+                .then(mongoTemplate.remove(new Query(Criteria.where(ID).in(franchiseIds)), FranchiseDocument.class))
+                .then();
+    }
+
+    @Override
+    public Mono<Franchise> addBranchToFranchise(String franchiseId, Branch newBranch) {
+        // The unique index over franchise id and branch name key rejects duplicate names
+        return serialized(franchiseId, () -> requireHeader(franchiseId)
+                        .flatMap(header -> mongoTemplate.insert(franchiseDocumentMapper.toBranchDocument(franchiseId, newBranch))
+                                .doOnNext(branch -> log.info("Branch '{}' added to franchise '{}'",
+                                        newBranch.getName(), header.getName()))
+                                .then(Mono.defer(() -> withBranches(header, ReadPreference.primary())))))
+                .onErrorMap(e -> isDuplicate(e, FranchiseBranchDocument.NAME_KEY_INDEX),
+                        e -> new AppException(AppErrorCode.DUPLICATE_BRANCH_NAME, e))
+                .doOnError(e -> log.error("Error adding branch: {}", e.getMessage()))
+                .contextWrite(CommandOrigin.of("addBranchToFranchise"));
+    }
+
+    @Override
+    public Mono<Franchise> addProductToBranch(String franchiseId, String branchName, Product product) {
+        return mutateBranch("addProductToBranch", franchiseId, branchName, branch -> {
+                    List<ProductDocument> products = new ArrayList<>(productsOf(branch));
+                    boolean exists = products.stream().anyMatch(p -> p.getName().equalsIgnoreCase(product.getName()));
+                    if (exists) {
+                        return Mono.error(new AppException(AppErrorCode.DUPLICATE_PRODUCT_NAME));
+                    }
+                    products.add(franchiseDocumentMapper.toProductDocument(product));
+                    branch.setProducts(products);
+                    log.info("Product '{}' added to branch '{}'", product.getName(), branchName);
+                    return Mono.just(branch);
+                })
+                .doOnError(e -> log.error("Error adding product to branch: {}", e.getMessage()))
+                .contextWrite(CommandOrigin.of("addProductToBranch"));
+    }
+
+    @Override
+    public Mono<Franchise> removeProductFromBranch(String franchiseId, String branchName, String productName) {
+        return mutateBranch("removeProductFromBranch", franchiseId, branchName, branch -> {
+                    List<ProductDocument> products = new ArrayList<>(productsOf(branch));
+                    boolean removed = products.removeIf(p -> p.getName().equalsIgnoreCase(productName));
+                    if (!removed) return Mono.error(new AppException(AppErrorCode.PRODUCT_NOT_FOUND));
+                    branch.setProducts(products);
+                    log.info("Product '{}' removed from branch '{}'", productName, branchName);
+                    return Mono.just(branch);
+                })
+                .doOnError(e -> log.error("Error removing product from branch: {}", e.getMessage()))
+                .contextWrite(CommandOrigin.of("removeProductFromBranch"));
+    }
+
+    @Override
+    public Mono<Product> updateProductStock(String franchiseId, String branchName, String productName, int newStock) {
+        if (newStock < 0) {
+            return Mono.error(new AppException(AppErrorCode.BAD_REQUEST, "Stock cannot be less than 0"));
+        }
+        return applyStockUpdate(franchiseId, branchName, productName, StockTargets.productNamed(productName),
+                StockTargets.setBranchStock(productName, newStock))
+                .doOnNext(p -> log.info("Stock of product '{}' updated to {}", productName, newStock))
+                .doOnError(e -> log.error("Error updating product stock: {}", e.getMessage()))
+                .contextWrite(CommandOrigin.of("updateProductStock"));
+    }
+
+    @Override
+    public Mono<Product> adjustProductStock(String franchiseId, String branchName, String productName, int delta) {
+        if (delta == 0) {
+            return Mono.error(new AppException(AppErrorCode.BAD_REQUEST, "Delta cannot be 0"));
+        }
+        // The stock bounds live in the filter, so a rejected adjustment writes nothing
+        return applyStockUpdate(franchiseId, branchName, productName, StockTargets.adjustable(productName, delta),
+                StockTargets.adjustBranchStock(productName, delta),
+                delta < 0 ? AppErrorCode.INSUFFICIENT_STOCK : AppErrorCode.BAD_REQUEST)
+                .doOnNext(p -> log.info("Stock of product '{}' adjusted by {} to {}", productName, delta, p.getStock()))
+                .doOnError(e -> log.error("Error adjusting product stock: {}", e.getMessage()))
+                .contextWrite(CommandOrigin.of("adjustProductStock"));
+    }
+
+    /**
+     * Each update is a single-branch write already, so updates are applied individually, a bounded
+     * number at a time, and results are emitted in input order.
+     */
+    @Override
+    public Flux<StockUpdateResult> updateProductStocks(Flux<StockUpdate> updates) {
+        return updates.flatMapSequential(update -> update.isValid()
+                        ? applyStockUpdate(update.getFranchiseId(), update.getBranchName(), update.getProductName(),
+                                StockTargets.productNamed(update.getProductName()),
+                                StockTargets.setBranchStock(update.getProductName(), update.getStock()))
+                                .map(product -> StockUpdateResult.of(update, StockUpdateStatus.UPDATED))
+                                .onErrorResume(e -> Mono.just(StockUpdateResult.of(update, statusOf(e))))
+                        : Mono.just(StockUpdateResult.of(update, StockUpdateStatus.INVALID)),
+                        STOCK_UPDATE_CONCURRENCY)
+                .doOnComplete(() -> log.info("Completed bulk stock update"))
+                .doOnError(e -> log.error("Error in bulk stock update: {}", e.getMessage()))
+                .contextWrite(CommandOrigin.of("updateProductStocks"));
+    }
+
+    private static StockUpdateStatus statusOf(Throwable error) {
+        if (!(error instanceof AppException appException)) {
+            return StockUpdateStatus.FAILED;
+        }
+        return switch (appException.getErrorCode()) {
+            case FRANCHISE_NOT_FOUND -> StockUpdateStatus.FRANCHISE_NOT_FOUND;
+            case BRANCH_NOT_FOUND -> StockUpdateStatus.BRANCH_NOT_FOUND;
+            case PRODUCT_NOT_FOUND -> StockUpdateStatus.PRODUCT_NOT_FOUND;
+            default -> StockUpdateStatus.FAILED;
+        };
+    }
+
+    /**
+     * Applies a stock update as a single findAndModify on the branch document, projecting back only
+     * the updated product. The branch is read again only when nothing matched, to tell which part
+     * of the path is missing.
+     */
+    private Mono<Product> applyStockUpdate(String franchiseId, String branchName, String productName,
+                                           Criteria productCriteria, AggregationUpdate update) {
+        return applyStockUpdate(franchiseId, branchName, productName, productCriteria, update, AppErrorCode.INSUFFICIENT_STOCK);
+    }
+
+    /**
+     * @param rejection reported when the product exists but {@code productCriteria} rejected its stock
+     */
+    private Mono<Product> applyStockUpdate(String franchiseId, String branchName, String productName,
+                                           Criteria productCriteria, AggregationUpdate update, AppErrorCode rejection) {
+        Query query = new Query(branchNamed(franchiseId, branchName).and(PRODUCTS).elemMatch(productCriteria));
+        query.fields().elemMatch(PRODUCTS, StockTargets.productNamed(productName));
+
+        return serialized(franchiseId, () -> mongoTemplate.findAndModify(query, update,
+                        FindAndModifyOptions.options().returnNew(true), FranchiseBranchDocument.class))
+                .flatMap(branch -> Mono.justOrEmpty(findProduct(branch, productName)))
+                .map(franchiseDocumentMapper::toProduct)
+                .switchIfEmpty(Mono.defer(() -> resolveStockUpdateFailure(franchiseId, branchName, productName, rejection)));
+    }
+
+    private Mono<Product> resolveStockUpdateFailure(String franchiseId, String branchName, String productName,
+                                                     AppErrorCode rejection) {
+        return findBranch(franchiseId, branchName)
+                .switchIfEmpty(Mono.defer(() -> missingBranch(franchiseId)))
+                .flatMap(branch -> findProduct(branch, productName).isEmpty()
+                        ? Mono.error(new AppException(AppErrorCode.PRODUCT_NOT_FOUND))
+                        : Mono.error(new AppException(rejection)));
+    }
+
+    /**
+     * Reads the branch, applies the mutation and replaces the branch document only if its version is
+     * still the one that was read, like {@link MongoRepositoryAdapter} does with whole franchises.
+     * The franchise is reassembled from the primary once the write is done.
+     */
+    private Mono<Franchise> mutateBranch(String operation, String franchiseId, String branchName,
+                                         Function<FranchiseBranchDocument, Mono<FranchiseBranchDocument>> mutation) {
+        return serialized(franchiseId, () -> optimisticRetry.execute(operation, () -> findBranch(franchiseId, branchName)
+                        .switchIfEmpty(Mono.defer(() -> missingBranch(franchiseId)))
+                        .flatMap(mutation)
+                        .map(BranchPerDocumentRepositoryAdapter::refreshTopProducts)
+                        .flatMap(mongoTemplate::save))
+                .then(Mono.defer(() -> requireHeader(franchiseId)))
+                .flatMap(header -> withBranches(header, ReadPreference.primary())));
+    }
+
+    private <T> Mono<T> serialized(String franchiseId, Supplier<Mono<T>> write) {
+        // A franchise without id is being created and has nothing to be ordered against yet
+        return franchiseId == null ? Mono.defer(write) : serialExecutor.submit(franchiseId, write);
+    }
+
+    private Mono<FranchiseDocument> requireHeader(String franchiseId) {
+        return mongoTemplate.findById(franchiseId, FranchiseDocument.class)
+                .switchIfEmpty(Mono.error(new AppException(AppErrorCode.FRANCHISE_NOT_FOUND)));
+    }
+
+    private <T> Mono<T> missingBranch(String franchiseId) {
+        return requireHeader(franchiseId).then(Mono.error(new AppException(AppErrorCode.BRANCH_NOT_FOUND)));
+    }
+
+    private Mono<FranchiseBranchDocument> findBranch(String franchiseId, String branchName) {
+        return mongoTemplate.findOne(new Query(branchNamed(franchiseId, branchName)), FranchiseBranchDocument.class);
+    }
+
+    private static Criteria branchNamed(String franchiseId, String branchName) {
+        return Criteria.where(FRANCHISE_ID).is(franchiseId).and(NAME_KEY).is(FranchiseDocument.nameKeyOf(branchName));
+    }
+
+    private static Query branchesOf(String franchiseId) {
+        return new Query(Criteria.where(FRANCHISE_ID).is(franchiseId)).with(Sort.by(Sort.Direction.ASC, ID));
+    }
+
+    /**
+     * The products of a branch whose summary was truncated, read in full to rank its ties.
+     */
+    private Mono<List<ProductDocument>> productsOf(String branchId) {
+        Query query = readOnly(new Query(Criteria.where(ID).is(branchId)));
+        query.fields().include(PRODUCTS);
+        return mongoTemplate.findOne(query, FranchiseBranchDocument.class)
+                .map(FranchiseBranchDocument::getProducts);
+    }
+
+    private static FranchiseBranchDocument refreshTopProducts(FranchiseBranchDocument branch) {
+        branch.setTopProducts(TopProductSummaries.summarize(branch.getProducts()));
+        return branch;
+    }
+
+    private static List<ProductDocument> productsOf(FranchiseBranchDocument branch) {
+        return branch.getProducts() == null ? List.of() : branch.getProducts();
+    }
+
+    private static Optional<ProductDocument> findProduct(FranchiseBranchDocument branch, String productName) {
+        return productsOf(branch).stream()
+                .filter(p -> p.getName().equalsIgnoreCase(productName))
+                .findFirst();
+    }
+
+    private static List<String> idsOf(List<FranchiseDocument> headers) {
+        return headers.stream().map(FranchiseDocument::getId).toList();
+    }
+
+    private static List<FranchiseBranchDocument> inIdOrder(Collection<FranchiseBranchDocument> branches) {
+        if (branches == null) return List.of();
+        return branches.stream().sorted(Comparator.comparing(FranchiseBranchDocument::getId)).toList();
+    }
+
+    private static boolean isDuplicate(Throwable e, String index) {
+        return e instanceof DuplicateKeyException
+                && e.getMessage() != null
+                && e.getMessage().contains(index);
+    }
+
+    /**
+     * Reads the maintained summaries of the branches, or ranks their products when the limit goes
+     * past what a summary holds or ties are asked for past a truncated summary.
+     */
+    @Override
+    public Flux<BranchTopProduct> getTopProductsPerBranch(String franchiseId, int limit, boolean withTies) {
+        if (limit < 1) {
+            return Flux.error(new AppException(AppErrorCode.BAD_REQUEST, "Limit must be greater than 0"));
+        }
+        boolean summarized = limit <= TopProductSummaries.SIZE;
+        Query query = readOnly(branchesOf(franchiseId));
+        query.fields().include(NAME, summarized ? TOP_PRODUCTS : PRODUCTS);
+        return mongoTemplate.find(query, FranchiseBranchDocument.class)
+                .concatMap(branch -> (summarized && withTies && TopProductSummaries.isTruncated(branch.getTopProducts())
+                        ? productsOf(branch.getId())
+                        : Mono.justOrEmpty(summarized ? branch.getTopProducts() : branch.getProducts()))
+                        .flatMapIterable(products -> TopProductSummaries.top(products, limit, withTies).stream()
+                                .map(product -> new BranchTopProduct(branch.getName(), franchiseDocumentMapper.toProduct(product)))
+                                .toList()))
+                .doOnComplete(() -> log.info("Completed top product lookup for franchise {}", franchiseId))
+                .doOnError(e -> log.error("Error retrieving top products: {}", e.getMessage()))
+                .contextWrite(CommandOrigin.of("getTopProductsPerBranch"));
+    }
+
+    @Override
+    public Mono<Franchise> updateFranchiseName(String franchiseId, String newName) {
+        Update update = new Update()
+                .set(NAME, newName)
+                .set(NAME_KEY, FranchiseDocument.nameKeyOf(newName))
+                .inc(VERSION, 1);
+        return serialized(franchiseId, () -> mongoTemplate.findAndModify(new Query(Criteria.where(ID).is(franchiseId)),
+                        update, FindAndModifyOptions.options().returnNew(true), FranchiseDocument.class)
+                        .switchIfEmpty(Mono.error(new AppException(AppErrorCode.FRANCHISE_NOT_FOUND)))
+                        .flatMap(header -> withBranches(header, ReadPreference.primary())))
+                .onErrorMap(e -> isDuplicate(e, FranchiseDocument.NAME_KEY_INDEX),
+                        e -> new AppException(AppErrorCode.DUPLICATE_FRANCHISE_NAME, e))
+                .doOnNext(f -> log.info("Franchise name updated to '{}'", newName))
+                .doOnError(e -> log.error("Error updating franchise name: {}", e.getMessage()))
+                .contextWrite(CommandOrigin.of("updateFranchiseName"));
+    }
+
+    @Override
+    public Mono<Franchise> updateBranchName(String franchiseId, String currentBranchName, String newBranchName) {
+        // Another branch already holding the new name is rejected by the unique index on save
+        return mutateBranch("updateBranchName", franchiseId, currentBranchName, branch -> {
+                    branch.setName(newBranchName);
+                    branch.setNameKey(FranchiseDocument.nameKeyOf(newBranchName));
+                    log.info("Branch name updated from '{}' to '{}'", currentBranchName, newBranchName);
+                    return Mono.just(branch);
+                })
+                .onErrorMap(e -> isDuplicate(e, FranchiseBranchDocument.NAME_KEY_INDEX),
+                        e -> new AppException(AppErrorCode.DUPLICATE_BRANCH_NAME, e))
+                .doOnError(e -> log.error("Error updating branch name: {}", e.getMessage()))
+                .contextWrite(CommandOrigin.of("updateBranchName"));
+    }
+
+    @Override
+    public Mono<Franchise> updateProductName(String franchiseId, String branchName, String currentProductName, String newProductName) {
+        return mutateBranch("updateProductName", franchiseId, branchName, branch -> {
+                    boolean productExists = productsOf(branch).stream()
+                            .anyMatch(p -> p.getName().equalsIgnoreCase(newProductName) &&
+                                    !p.getName().equalsIgnoreCase(currentProductName));
+                    if (productExists) {
+                        return Mono.error(new AppException(AppErrorCode.DUPLICATE_PRODUCT_NAME));
+                    }
+
+                    ProductDocument product = findProduct(branch, currentProductName)
+                            .orElseThrow(() -> new AppException(AppErrorCode.PRODUCT_NOT_FOUND));
+
+                    product.setName(newProductName);
+                    product.setNameKey(FranchiseDocument.nameKeyOf(newProductName));
+                    log.info("Product name updated from '{}' to '{}' in branch '{}'", currentProductName, newProductName, branchName);
+                    return Mono.just(branch);
+                })
+                .doOnError(e -> log.error("Error updating product name: {}", e.getMessage()))
+                .contextWrite(CommandOrigin.of("updateProductName"));
+    }
+}
@@ -1,266 +1,547 @@
 package co.com.bancolombia.mongo;
 
+import co.com.bancolombia.commons.exception.AppErrorCode;
+import co.com.bancolombia.commons.exception.AppException;
+import co.com.bancolombia.commons.page.PageTokens;
 import co.com.bancolombia.model.branch.Branch;
 import co.com.bancolombia.model.branchtopproduct.BranchTopProduct;
 import co.com.bancolombia.model.franchise.Franchise;
 import co.com.bancolombia.model.franchise.gateways.FranchiseRepository;
+import co.com.bancolombia.model.franchiseimport.FranchiseImportResult;
+import co.com.bancolombia.model.franchisesummary.FranchiseSummary;
+import co.com.bancolombia.model.page.PageResult;
 import co.com.bancolombia.model.product.Product;
-import co.com.bancolombia.mongo.exception.AppErrorCode;
-import co.com.bancolombia.mongo.exception.AppException;
+import co.com.bancolombia.model.productlocation.ProductLocation;
+import co.com.bancolombia.model.stock.StockUpdate;
+import co.com.bancolombia.model.stock.StockUpdateResult;
+import co.com.bancolombia.mongo.cache.CachingFranchiseRepository;
+import co.com.bancolombia.mongo.config.MongoAdapterProperties;
 import co.com.bancolombia.mongo.helper.AdapterOperations;
+import co.com.bancolombia.mongo.helper.bulk.FranchiseBulkImporter;
+import co.com.bancolombia.mongo.helper.bulk.StockBulkWriter;
+import co.com.bancolombia.mongo.helper.bulk.StockWriteBehindBuffer;
+import co.com.bancolombia.mongo.helper.concurrency.KeyedSerialExecutor;
 import co.com.bancolombia.mongo.helper.document.BranchDocument;
+import co.com.bancolombia.mongo.helper.document.BranchTopProductDocument;
 import co.com.bancolombia.mongo.helper.document.FranchiseDocument;
+import co.com.bancolombia.mongo.helper.document.FranchiseSummaryDocument;
 import co.com.bancolombia.mongo.helper.document.ProductDocument;
+import co.com.bancolombia.mongo.helper.document.ProductLocationDocument;
 import co.com.bancolombia.mongo.helper.mapper.FranchiseDocumentMapper;
+import co.com.bancolombia.mongo.helper.query.FranchiseDiff;
+import co.com.bancolombia.mongo.helper.query.FranchiseSummaryAggregation;
+import co.com.bancolombia.mongo.helper.query.KeysetPages;
+import co.com.bancolombia.mongo.helper.query.LowStockAggregation;
+import co.com.bancolombia.mongo.helper.query.ProductSearchAggregation;
+import co.com.bancolombia.mongo.helper.query.StockTargets;
+import co.com.bancolombia.mongo.helper.query.StructureTargets;
+import co.com.bancolombia.mongo.helper.query.TopProductSummaries;
+import co.com.bancolombia.mongo.helper.query.TopProductsAggregation;
+import co.com.bancolombia.mongo.metrics.CommandOrigin;
+import com.mongodb.ReadPreference;
 import lombok.extern.slf4j.Slf4j;
-import org.reactivecommons.utils.ObjectMapper;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
 import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static co.com.bancolombia.mongo.helper.query.NameMatchers.ignoreCase;
 
 @Slf4j
 @Repository
+@Profile("!in-memory & !branch-per-document")
+@Qualifier(CachingFranchiseRepository.DELEGATE)
 public class MongoRepositoryAdapter extends AdapterOperations<Franchise, FranchiseDocument, String, MongoDBRepository>
         implements FranchiseRepository {
 
+    private static final String ID = "_id";
+    private static final String NAME = "name";
+    private static final String NAME_KEY = "nameKey";
+    private static final String BRANCHES = "branches";
+    private static final String VERSION = "version";
+    private static final String TOP_PRODUCTS = "topProducts";
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int LOW_STOCK_KEY_PARTS = 3;
+
     private final FranchiseDocumentMapper franchiseDocumentMapper;
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final StockBulkWriter stockBulkWriter;
+    private final FranchiseBulkImporter franchiseBulkImporter;
+    private final StockWriteBehindBuffer stockWriteBehind;
+    private final KeyedSerialExecutor serialExecutor;
+    private final ReadPreference readOnlyPreference;
+    private final int exportBatchSize;
 
-    public MongoRepositoryAdapter(MongoDBRepository repository, ObjectMapper mapper, FranchiseDocumentMapper mapper1) {
-        super(repository, mapper, d -> mapper.mapBuilder(d, Franchise.FranchiseBuilder.class).build());
-        this.franchiseDocumentMapper = mapper1;
+    public MongoRepositoryAdapter(MongoDBRepository repository, FranchiseDocumentMapper franchiseDocumentMapper,
+                                  ReactiveMongoTemplate mongoTemplate, StockBulkWriter stockBulkWriter,
+                                  FranchiseBulkImporter franchiseBulkImporter, StockWriteBehindBuffer stockWriteBehind,
+                                  KeyedSerialExecutor serialExecutor, ReadPreference readOnlyPreference,
+                                  MongoAdapterProperties properties) {
+        super(repository, franchiseDocumentMapper::toDocument, franchiseDocumentMapper::toEntity);
+        this.franchiseDocumentMapper = franchiseDocumentMapper;
+        this.mongoTemplate = mongoTemplate;
+        this.stockBulkWriter = stockBulkWriter;
+        this.franchiseBulkImporter = franchiseBulkImporter;
+        this.stockWriteBehind = stockWriteBehind;
+        this.serialExecutor = serialExecutor;
+        this.readOnlyPreference = readOnlyPreference;
+        this.exportBatchSize = properties.getExport().getBatchSize();
     }
 
     @Override
     public Mono<Franchise> save(Franchise franchise) {
-        return repository.findById(franchise.getId())
+        return serialized(franchise.getId(), () -> repository.findById(franchise.getId())
                 .flatMap(existing -> {
-                    // Si ya existe, solo actualiza
-                    FranchiseDocument updatedDoc = franchiseDocumentMapper.toDocument(franchise);
-                    return repository.save(updatedDoc)
+                    // Si ya existe, escribe solo lo que cambió y solo si nadie la modificó desde la lectura
+                    FranchiseDocument updatedDoc = withVersionOf(franchiseDocumentMapper.toDocument(franchise), existing);
+                    return writeChanges(existing, updatedDoc)
                             .doOnNext(doc -> log.info("Franchise updated with ID: {}", doc.getId()))
                             .map(franchiseDocumentMapper::toEntity);
                 })
                 .switchIfEmpty(
-                        // Si no existe, validamos duplicado por nombre
-                        repository.findAll()
-                                .filter(doc -> doc.getName().equalsIgnoreCase(franchise.getName()))
-                                .hasElements()
-                                .flatMap(exists -> {
-                                    if (Boolean.TRUE.equals(exists)) {
-                                        return Mono.error(new AppException(AppErrorCode.DUPLICATE_FRANCHISE_NAME));
-                                    }
-                                    return Mono.just(franchise)
-                                            .map(franchiseDocumentMapper::toDocument)
-                                            .flatMap(repository::save)
-                                            .doOnNext(doc -> log.info("Franchise created with ID: {}", doc.getId()))
-                                            .map(franchiseDocumentMapper::toEntity);
-                                })
-                )
+                        // Si no existe, el índice único sobre nameKey rechaza nombres duplicados
+                        Mono.fromSupplier(() -> franchiseDocumentMapper.toDocument(franchise))
+                                .flatMap(repository::insert)
+                                .doOnNext(doc -> log.info("Franchise created with ID: {}", doc.getId()))
+                                .map(franchiseDocumentMapper::toEntity)
+                ))
+                .onErrorMap(MongoRepositoryAdapter::isDuplicateName,
+                        e -> new AppException(AppErrorCode.DUPLICATE_FRANCHISE_NAME, e))
+                .onErrorMap(OptimisticLockingFailureException.class,
+                        e -> new AppException(AppErrorCode.CONCURRENT_MODIFICATION, e))
                 .doOnError(e -> log.error("Error saving franchise: {}", e.getMessage()))
-                .doOnSuccess(f -> log.info("Franchise entity returned: {}", f.getName()));
+                .doOnSuccess(f -> log.info("Franchise entity returned: {}", f.getName()))
+                .contextWrite(CommandOrigin.of("save"));
     }
 
-
+    /**
+     * Always reads from the primary: this is what the franchise cache loads, and a lagging secondary
+     * would put a state older than the write that just evicted it back in the cache.
+     */
     @Override
     public Mono<Franchise> findById(String id) {
-        return repository.findById(id)
+        return mongoTemplate.findOne(new Query(Criteria.where(ID).is(id)), FranchiseDocument.class)
                 .doOnNext(f -> log.info("Franchise found with ID: {}", id))
                 .doOnError(e -> log.error("Error finding franchise by ID {}: {}", id, e.getMessage()))
-                .map(franchiseDocumentMapper::toEntity);
+                .map(franchiseDocumentMapper::toEntity)
+                .contextWrite(CommandOrigin.of("findById"));
     }
 
+    /**
+     * Streams the whole collection from one cursor. Documents are fetched {@code export.batch-size}
+     * at a time as downstream demand arrives, so memory does not grow with the collection.
+     */
     @Override
     public Flux<Franchise> findAll() {
-        return repository.findAll()
-                .doOnNext(f -> log.info("Found franchise: {}", f.getName()))
+        return mongoTemplate.find(readOnly(new Query().cursorBatchSize(exportBatchSize)), FranchiseDocument.class)
+                .doOnNext(f -> log.debug("Found franchise: {}", f.getName()))
                 .map(franchiseDocumentMapper::toEntity)
                 .doOnComplete(() -> log.info("Completed retrieving all franchises"))
-                .doOnError(e -> log.error("Error retrieving franchises: {}", e.getMessage()));
+                .doOnError(e -> log.error("Error retrieving franchises: {}", e.getMessage()))
+                .contextWrite(CommandOrigin.of("findAll"));
     }
 
     @Override
-    public Mono<Franchise> addBranchToFranchise(String franchiseId, Branch newBranch) {
-        return findById(franchiseId)
-                .switchIfEmpty(Mono.error(new AppException(AppErrorCode.FRANCHISE_NOT_FOUND)))
-                .flatMap(franchise -> {
-                    boolean exists = franchise.getBranches().stream()
-                            .anyMatch(branch -> branch.getName().equalsIgnoreCase(newBranch.getName()));
-                    if (exists) {
-                        return Mono.error(new AppException(AppErrorCode.DUPLICATE_BRANCH_NAME));
+    public Mono<PageResult<Franchise>> findPage(String pageToken, int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            return Mono.error(new AppException(AppErrorCode.BAD_REQUEST,
+                    "Page size must be between 1 and " + MAX_PAGE_SIZE));
+        }
+        return Mono.fromSupplier(() -> {
+                    // One extra document tells whether there is a next page without a count
+                    Query query = new Query().with(Sort.by(Sort.Direction.ASC, ID)).limit(size + 1);
+                    if (pageToken != null) {
+                        query.addCriteria(KeysetPages.afterId(PageTokens.decode(pageToken)));
                     }
-                    List<Branch> branches = new ArrayList<>(franchise.getBranches());
-                    branches.add(newBranch);
-                    franchise.setBranches(branches);
-                    log.info("Branch '{}' added to franchise '{}'", newBranch.getName(), franchise.getName());
-                    return save(franchise);
+                    return readOnly(query);
                 })
-                .doOnError(e -> log.error("Error adding branch: {}", e.getMessage()));
+                .flatMap(query -> mongoTemplate.find(query, FranchiseDocument.class).collectList())
+                .map(documents -> toPage(documents, size, document -> PageTokens.encode(document.getId()),
+                        franchiseDocumentMapper::toEntity))
+                .doOnNext(page -> log.info("Found page of {} franchises", page.getItems().size()))
+                .doOnError(e -> log.error("Error retrieving franchise page: {}", e.getMessage()))
+                .contextWrite(CommandOrigin.of("findPage"));
+    }
+
+    @Override
+    public Mono<PageResult<FranchiseSummary>> findSummaryPage(String pageToken, int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            return Mono.error(new AppException(AppErrorCode.BAD_REQUEST,
+                    "Page size must be between 1 and " + MAX_PAGE_SIZE));
+        }
+        return Mono.fromSupplier(() -> readOnly(FranchiseSummaryAggregation.of(
+                        pageToken == null ? null : KeysetPages.afterId(PageTokens.decode(pageToken)), size + 1)))
+                .flatMap(aggregation -> mongoTemplate.aggregate(aggregation, FranchiseSummaryDocument.class)
+                        .collectList())
+                .map(documents -> toPage(documents, size, document -> PageTokens.encode(document.getId()),
+                        franchiseDocumentMapper::toSummary))
+                .doOnNext(page -> log.info("Found page of {} franchise summaries", page.getItems().size()))
+                .doOnError(e -> log.error("Error retrieving franchise summaries: {}", e.getMessage()))
+                .contextWrite(CommandOrigin.of("findSummaryPage"));
+    }
+
+    @Override
+    public Mono<PageResult<ProductLocation>> findLowStockPage(int threshold, String pageToken, int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            return Mono.error(new AppException(AppErrorCode.BAD_REQUEST,
+                    "Page size must be between 1 and " + MAX_PAGE_SIZE));
+        }
+        if (threshold < 1) {
+            return Mono.error(new AppException(AppErrorCode.BAD_REQUEST, "Threshold must be greater than 0"));
+        }
+        return Mono.fromSupplier(() -> readOnly(LowStockAggregation.of(threshold,
+                        pageToken == null ? null : PageTokens.decodeKey(pageToken, LOW_STOCK_KEY_PARTS), size + 1)))
+                .flatMap(aggregation -> mongoTemplate.aggregate(aggregation, ProductLocationDocument.class)
+                        .collectList())
+                .map(documents -> toPage(documents, size, document -> PageTokens.encodeKey(List.of(
+                                document.getFranchiseId(), document.getBranchName(), document.getProductName())),
+                        franchiseDocumentMapper::toProductLocation))
+                .doOnNext(page -> log.info("Found page of {} low-stock products", page.getItems().size()))
+                .doOnError(e -> log.error("Error retrieving low-stock products: {}", e.getMessage()))
+                .contextWrite(CommandOrigin.of("findLowStockPage"));
+    }
+
+    @Override
+    public Flux<ProductLocation> findProductsByNamePrefix(String prefix) {
+        if (prefix == null || prefix.isBlank()) {
+            return Flux.error(new AppException(AppErrorCode.BAD_REQUEST, "Product name prefix must not be blank"));
+        }
+        return mongoTemplate.aggregate(readOnly(ProductSearchAggregation.of(prefix)), ProductLocationDocument.class)
+                .map(franchiseDocumentMapper::toProductLocation)
+                .doOnComplete(() -> log.info("Completed product search for prefix '{}'", prefix))
+                .doOnError(e -> log.error("Error searching products: {}", e.getMessage()))
+                .contextWrite(CommandOrigin.of("findProductsByNamePrefix"));
+    }
+
+    /**
+     * Routes a read that no write depends on by the configured read preference. Mutations read
+     * through {@link #repository}, which always targets the primary.
+     */
+    private Query readOnly(Query query) {
+        return query.withReadPreference(readOnlyPreference);
+    }
+
+    private <T> TypedAggregation<T> readOnly(TypedAggregation<T> aggregation) {
+        return aggregation.withOptions(AggregationOptions.builder().readPreference(readOnlyPreference).build());
+    }
+
+    /**
+     * Trims the extra document fetched past {@code size} and turns it into the next page token.
+     */
+    private static <D, T> PageResult<T> toPage(List<D> documents, int size, Function<D, String> tokenOf,
+                                               Function<D, T> toEntity) {
+        boolean hasNext = documents.size() > size;
+        List<D> page = hasNext ? documents.subList(0, size) : documents;
+        String nextToken = hasNext ? tokenOf.apply(page.getLast()) : null;
+        return new PageResult<>(page.stream().map(toEntity).toList(), nextToken);
+    }
+
+    @Override
+    public Flux<FranchiseImportResult> importFranchises(Flux<Franchise> franchises) {
+        return franchiseBulkImporter.insert(franchises)
+                .doOnComplete(() -> log.info("Completed franchise import"))
+                .doOnError(e -> log.error("Error importing franchises: {}", e.getMessage()))
+                .contextWrite(CommandOrigin.of("importFranchises"));
+    }
+
+    @Override
+    public Mono<Franchise> addBranchToFranchise(String franchiseId, Branch newBranch) {
+        return applyStructureChange(franchiseId,
+                StructureTargets.branchAbsent(franchiseId, newBranch.getName()),
+                StructureTargets.addBranch(franchiseDocumentMapper.toBranchDocument(newBranch)),
+                doc -> AppErrorCode.DUPLICATE_BRANCH_NAME)
+                .doOnNext(f -> log.info("Branch '{}' added to franchise '{}'", newBranch.getName(), f.getName()))
+                .doOnError(e -> log.error("Error adding branch: {}", e.getMessage()))
+                .contextWrite(CommandOrigin.of("addBranchToFranchise"));
     }
 
     @Override
     public Mono<Franchise> addProductToBranch(String franchiseId, String branchName, Product product) {
-        return findById(franchiseId)
-                .switchIfEmpty(Mono.error(new AppException(AppErrorCode.FRANCHISE_NOT_FOUND)))
-                .flatMap(franchise ->
-                        Mono.justOrEmpty(franchise.getBranches().stream()
-                                        .filter(branch -> branch.getName().equalsIgnoreCase(branchName))
-                                        .findFirst())
-                                .switchIfEmpty(Mono.error(new AppException(AppErrorCode.BRANCH_NOT_FOUND)))
-                                .flatMap(branch -> {
-                                    boolean exists = branch.getProducts().stream()
-                                            .anyMatch(p -> p.getName().equalsIgnoreCase(product.getName()));
-                                    if (exists) {
-                                        return Mono.error(new AppException(AppErrorCode.DUPLICATE_PRODUCT_NAME));
-                                    }
-                                    List<Product> products = new ArrayList<>(branch.getProducts());
-                                    products.add(product);
-                                    branch.setProducts(products);
-                                    log.info("Product '{}' added to branch '{}'", product.getName(), branchName);
-                                    return save(franchise);
-                                })
-                )
-                .doOnError(e -> log.error("Error adding product to branch: {}", e.getMessage()));
+        return applyStructureChange(franchiseId,
+                StructureTargets.productAbsent(franchiseId, branchName, product.getName()),
+                StructureTargets.addProduct(branchName, franchiseDocumentMapper.toProductDocument(product)),
+                doc -> findBranch(doc, branchName).isEmpty()
+                        ? AppErrorCode.BRANCH_NOT_FOUND
+                        : AppErrorCode.DUPLICATE_PRODUCT_NAME)
+                .doOnNext(f -> log.info("Product '{}' added to branch '{}'", product.getName(), branchName))
+                .doOnError(e -> log.error("Error adding product to branch: {}", e.getMessage()))
+                .contextWrite(CommandOrigin.of("addProductToBranch"));
     }
 
     @Override
     public Mono<Franchise> removeProductFromBranch(String franchiseId, String branchName, String productName) {
-        return findById(franchiseId)
-                .switchIfEmpty(Mono.error(new AppException(AppErrorCode.FRANCHISE_NOT_FOUND)))
-                .flatMap(franchise ->
-                        Mono.justOrEmpty(franchise.getBranches().stream()
-                                        .filter(branch -> branch.getName().equalsIgnoreCase(branchName))
-                                        .findFirst())
-                                .switchIfEmpty(Mono.error(new AppException(AppErrorCode.BRANCH_NOT_FOUND)))
-                                .flatMap(branch -> {
-                                    List<Product> products = new ArrayList<>(branch.getProducts());
-                                    boolean removed = products.removeIf(p -> p.getName().equalsIgnoreCase(productName));
-                                    if (!removed) return Mono.error(new AppException(AppErrorCode.PRODUCT_NOT_FOUND));
-                                    branch.setProducts(products);
-                                    log.info("Product '{}' removed from branch '{}'", productName, branchName);
-                                    return save(franchise);
-                                })
-                )
-                .doOnError(e -> log.error("Error removing product from branch: {}", e.getMessage()));
+        return applyStructureChange(franchiseId,
+                StructureTargets.productPresent(franchiseId, branchName, productName),
+                StructureTargets.removeProduct(branchName, productName),
+                doc -> findBranch(doc, branchName).isEmpty()
+                        ? AppErrorCode.BRANCH_NOT_FOUND
+                        : AppErrorCode.PRODUCT_NOT_FOUND)
+                .doOnNext(f -> log.info("Product '{}' removed from branch '{}'", productName, branchName))
+                .doOnError(e -> log.error("Error removing product from branch: {}", e.getMessage()))
+                .contextWrite(CommandOrigin.of("removeProductFromBranch"));
     }
 
     @Override
-    public Mono<Franchise> updateProductStock(String franchiseId, String branchName, String productName, int newStock) {
-        return findById(franchiseId)
-                .switchIfEmpty(Mono.error(new AppException(AppErrorCode.FRANCHISE_NOT_FOUND)))
-                .flatMap(franchise ->
-                        Mono.justOrEmpty(franchise.getBranches().stream()
-                                        .filter(branch -> branch.getName().equalsIgnoreCase(branchName))
-                                        .findFirst())
-                                .switchIfEmpty(Mono.error(new AppException(AppErrorCode.BRANCH_NOT_FOUND)))
-                                .flatMap(branch ->
-                                        Mono.justOrEmpty(branch.getProducts().stream()
-                                                        .filter(p -> p.getName().equalsIgnoreCase(productName))
-                                                        .findFirst())
-                                                .switchIfEmpty(Mono.error(new AppException(AppErrorCode.PRODUCT_NOT_FOUND)))
-                                                .flatMap(product -> {
-                                                    product.setStock(newStock);
-                                                    log.info("Stock of product '{}' updated to {}", productName, newStock);
-                                                    return save(franchise);
-                                                })
-                                )
-                )
-                .doOnError(e -> log.error("Error updating product stock: {}", e.getMessage()));
+    public Mono<Product> updateProductStock(String franchiseId, String branchName, String productName, int newStock) {
+        if (newStock < 0) {
+            return Mono.error(new AppException(AppErrorCode.BAD_REQUEST, "Stock cannot be less than 0"));
+        }
+        if (stockWriteBehind.isEnabled()) {
+            return stockWriteBehind.submit(new StockUpdate(franchiseId, branchName, productName, newStock));
+        }
+        return applyStockUpdate(franchiseId, branchName, productName,
+                StockTargets.productNamed(productName),
+                StockTargets.setStock(branchName, productName, newStock))
+                .doOnNext(p -> log.info("Stock of product '{}' updated to {}", productName, newStock))
+                .doOnError(e -> log.error("Error updating product stock: {}", e.getMessage()))
+                .contextWrite(CommandOrigin.of("updateProductStock"));
     }
 
     @Override
-    public Flux<BranchTopProduct> getTopProductsPerBranch(String franchiseId) {
-        return repository.findById(franchiseId)
-                .doOnNext(fr -> log.info("Franchise found: {}", fr.getName()))
-                .flatMapMany(franchise -> Flux.fromIterable(franchise.getBranches()))
-                .map(branch -> {
-                    Optional<ProductDocument> top = branch.getProducts().stream()
-                            .max(Comparator.comparingInt(ProductDocument::getStock));
-                    return top.map(productDoc -> new BranchTopProduct(branch.getName(),
-                            franchiseDocumentMapper.toProduct(productDoc)));
-                })
-                .filter(Optional::isPresent)
-                .map(Optional::get)
-                .doOnComplete(() -> log.info("Completed top product aggregation for franchise {}", franchiseId))
-                .doOnError(e -> log.error("Error retrieving top products: {}", e.getMessage()));
+    public Mono<Product> adjustProductStock(String franchiseId, String branchName, String productName, int delta) {
+        if (delta == 0) {
+            return Mono.error(new AppException(AppErrorCode.BAD_REQUEST, "Delta cannot be 0"));
+        }
+        // A stock set still buffered for the product must land first, or it would overwrite the adjustment
+        Mono<Void> settled = stockWriteBehind.isEnabled()
+                ? stockWriteBehind.settle(franchiseId, branchName, productName)
+                : Mono.empty();
+        // The stock bounds live in the filter, so a rejected adjustment writes nothing
+        return settled.then(Mono.defer(() -> applyStockUpdate(franchiseId, branchName, productName,
+                        StockTargets.adjustable(productName, delta), StockTargets.adjustStock(branchName, productName, delta),
+                        delta < 0 ? AppErrorCode.INSUFFICIENT_STOCK : AppErrorCode.BAD_REQUEST)))
+                .doOnNext(p -> log.info("Stock of product '{}' adjusted by {} to {}", productName, delta, p.getStock()))
+                .doOnError(e -> log.error("Error adjusting product stock: {}", e.getMessage()))
+                .contextWrite(CommandOrigin.of("adjustProductStock"));
     }
 
     @Override
-    public Mono<Franchise> updateFranchiseName(String franchiseId, String newName) {
-        return repository.findAll()
-                .filter(doc -> doc.getName().equalsIgnoreCase(newName) && !doc.getId().equals(franchiseId))
-                .hasElements()
-                .flatMap(exists -> {
-                    if (Boolean.TRUE.equals(exists)) {
-                        return Mono.error(new AppException(AppErrorCode.DUPLICATE_FRANCHISE_NAME));
-                    }
-                    return repository.findById(franchiseId)
-                            .switchIfEmpty(Mono.error(new AppException(AppErrorCode.FRANCHISE_NOT_FOUND)))
-                            .flatMap(doc -> {
-                                doc.setName(newName);
-                                log.info("Franchise name updated to '{}'", newName);
-                                return repository.save(doc);
-                            })
-                            .map(franchiseDocumentMapper::toEntity);
-                })
-                .doOnError(e -> log.error("Error updating franchise name: {}", e.getMessage()));
+    public Flux<StockUpdateResult> updateProductStocks(Flux<StockUpdate> updates) {
+        return stockBulkWriter.write(updates)
+                .doOnComplete(() -> log.info("Completed bulk stock update"))
+                .doOnError(e -> log.error("Error in bulk stock update: {}", e.getMessage()))
+                .contextWrite(CommandOrigin.of("updateProductStocks"));
     }
 
-    @Override
-    public Mono<Franchise> updateBranchName(String franchiseId, String currentBranchName, String newBranchName) {
+    /**
+     * Applies a stock update as a single findAndModify rewriting the branch/product array element
+     * together with the branch's top products summary. Only the matched branch is projected back,
+     * and the full document is read again only when nothing matched, to tell which part of the path
+     * is missing.
+     */
+    private Mono<Product> applyStockUpdate(String franchiseId, String branchName, String productName,
+                                           Criteria productCriteria, AggregationUpdate update) {
+        return applyStockUpdate(franchiseId, branchName, productName, productCriteria, update, AppErrorCode.INSUFFICIENT_STOCK);
+    }
+
+    /**
+     * @param rejection reported when the product exists but {@code productCriteria} rejected its stock
+     */
+    private Mono<Product> applyStockUpdate(String franchiseId, String branchName, String productName,
+                                           Criteria productCriteria, AggregationUpdate update, AppErrorCode rejection) {
+        Query query = StockTargets.productQuery(franchiseId, branchName, productCriteria);
+        query.fields().elemMatch(BRANCHES, Criteria.where(NAME).regex(ignoreCase(branchName)));
+
+        return serialized(franchiseId, () -> mongoTemplate.findAndModify(query, update,
+                        FindAndModifyOptions.options().returnNew(true), FranchiseDocument.class))
+                .flatMap(doc -> Mono.justOrEmpty(findProduct(doc, branchName, productName)))
+                .map(franchiseDocumentMapper::toProduct)
+                .switchIfEmpty(Mono.defer(() -> resolveStockUpdateFailure(franchiseId, branchName, productName, rejection)));
+    }
+
+    private Mono<Product> resolveStockUpdateFailure(String franchiseId, String branchName, String productName,
+                                                     AppErrorCode rejection) {
         return repository.findById(franchiseId)
                 .switchIfEmpty(Mono.error(new AppException(AppErrorCode.FRANCHISE_NOT_FOUND)))
                 .flatMap(doc -> {
-                    boolean nameExists = doc.getBranches().stream()
-                            .anyMatch(b -> b.getName().equalsIgnoreCase(newBranchName) &&
-                                    !b.getName().equalsIgnoreCase(currentBranchName));
-                    if (nameExists) {
-                        return Mono.error(new AppException(AppErrorCode.DUPLICATE_BRANCH_NAME));
+                    boolean branchExists = findBranch(doc, branchName).isPresent();
+                    if (!branchExists) {
+                        return Mono.error(new AppException(AppErrorCode.BRANCH_NOT_FOUND));
+                    }
+                    if (findProduct(doc, branchName, productName).isEmpty()) {
+                        return Mono.error(new AppException(AppErrorCode.PRODUCT_NOT_FOUND));
                     }
+                    return Mono.error(new AppException(rejection));
+                });
+    }
 
-                    BranchDocument branch = doc.getBranches().stream()
-                            .filter(b -> b.getName().equalsIgnoreCase(currentBranchName))
-                            .findFirst()
-                            .orElseThrow(() -> new AppException(AppErrorCode.BRANCH_NOT_FOUND));
-                    branch.setName(newBranchName);
-                    log.info("Branch name updated from '{}' to '{}'", currentBranchName, newBranchName);
-                    return repository.save(doc);
-                })
-                .map(franchiseDocumentMapper::toEntity)
-                .doOnError(e -> log.error("Error updating branch name: {}", e.getMessage()));
+    /**
+     * Applies a change to the branches or products of a franchise as a single findAndModify whose
+     * filter only matches when the change is valid. When nothing matched, the franchise is read
+     * again to tell which outcome it was, since a write that does not match carries no reason.
+     */
+    private Mono<Franchise> applyStructureChange(String franchiseId, Query guard, UpdateDefinition update,
+                                                 Function<FranchiseDocument, AppErrorCode> rejection) {
+        return serialized(franchiseId, () -> mongoTemplate.findAndModify(guard, update,
+                        FindAndModifyOptions.options().returnNew(true), FranchiseDocument.class))
+                .switchIfEmpty(Mono.defer(() -> repository.findById(franchiseId)
+                        .switchIfEmpty(Mono.error(new AppException(AppErrorCode.FRANCHISE_NOT_FOUND)))
+                        .flatMap(doc -> Mono.error(new AppException(rejection.apply(doc))))))
+                .map(franchiseDocumentMapper::toEntity);
+    }
+
+    /**
+     * Sends the {@link FranchiseDiff} between the document as read and its updated form, guarded by
+     * the version that was read, in place of a replacement of the whole document. Nothing is written
+     * when nothing changed. A version mismatch surfaces as the same optimistic locking failure a
+     * replacement would raise.
+     */
+    private Mono<FranchiseDocument> writeChanges(FranchiseDocument read, FranchiseDocument updated) {
+        return FranchiseDiff.between(read, updated)
+                .map(update -> mongoTemplate.updateFirst(
+                                new Query(Criteria.where(ID).is(read.getId()).and(VERSION).is(read.getVersion())),
+                                update.inc(VERSION, 1), FranchiseDocument.class)
+                        .flatMap(result -> result.getMatchedCount() == 0
+                                ? Mono.<FranchiseDocument>error(new OptimisticLockingFailureException(
+                                        "Franchise " + read.getId() + " was modified since version " + read.getVersion()))
+                                : Mono.just(withVersion(updated, read.getVersion() == null ? 1L : read.getVersion() + 1))))
+                .orElseGet(() -> Mono.just(updated));
+    }
+
+    private <T> Mono<T> serialized(String franchiseId, Supplier<Mono<T>> write) {
+        // A franchise without id is being created and has nothing to be ordered against yet
+        return franchiseId == null ? Mono.defer(write) : serialExecutor.submit(franchiseId, write);
+    }
+
+    private static FranchiseDocument withVersionOf(FranchiseDocument updated, FranchiseDocument read) {
+        return withVersion(updated, read.getVersion());
+    }
+
+    private static FranchiseDocument withVersion(FranchiseDocument updated, Long version) {
+        updated.setVersion(version);
+        return updated;
+    }
+
+    private static boolean isDuplicateName(Throwable e) {
+        return e instanceof DuplicateKeyException
+                && e.getMessage() != null
+                && e.getMessage().contains(FranchiseDocument.NAME_KEY_INDEX);
+    }
+
+    private Optional<BranchDocument> findBranch(FranchiseDocument doc, String branchName) {
+        if (doc.getBranches() == null) return Optional.empty();
+        return doc.getBranches().stream()
+                .filter(b -> b.getName().equalsIgnoreCase(branchName))
+                .findFirst();
+    }
+
+    private Optional<ProductDocument> findProduct(FranchiseDocument doc, String branchName, String productName) {
+        return findBranch(doc, branchName)
+                .filter(b -> b.getProducts() != null)
+                .flatMap(b -> b.getProducts().stream()
+                        .filter(p -> p.getName().equalsIgnoreCase(productName))
+                        .findFirst());
     }
 
     @Override
-    public Mono<Franchise> updateProductName(String franchiseId, String branchName, String currentProductName, String newProductName) {
-        return repository.findById(franchiseId)
+    public Flux<BranchTopProduct> getTopProductsPerBranch(String franchiseId, int limit, boolean withTies) {
+        if (limit < 1) {
+            return Flux.error(new AppException(AppErrorCode.BAD_REQUEST, "Limit must be greater than 0"));
+        }
+        return (limit > TopProductSummaries.SIZE
+                        ? rankTopProducts(franchiseId, limit, withTies)
+                        : summarizedTopProducts(franchiseId, limit, withTies))
+                .doOnComplete(() -> log.info("Completed top product lookup for franchise {}", franchiseId))
+                .doOnError(e -> log.error("Error retrieving top products: {}", e.getMessage()))
+                .contextWrite(CommandOrigin.of("getTopProductsPerBranch"));
+    }
+
+    /**
+     * Reads the winners off the maintained summaries: a summary holds every product ranked
+     * {@link TopProductSummaries#SIZE} or better, so it also holds every product within a smaller
+     * limit, with or without ties. Franchises still lacking summaries, or asking for ties past a
+     * truncated summary, are ranked by the aggregation.
+     */
+    private Flux<BranchTopProduct> summarizedTopProducts(String franchiseId, int limit, boolean withTies) {
+        Query query = readOnly(new Query(Criteria.where(ID).is(franchiseId)));
+        query.fields().include(BRANCHES + "." + NAME, BRANCHES + "." + TOP_PRODUCTS);
+        return mongoTemplate.findOne(query, FranchiseDocument.class)
+                .flatMapMany(doc -> TopProductSummaries.isMaintained(doc) && !(withTies && hasTruncatedSummary(doc))
+                        ? Flux.fromIterable(Optional.ofNullable(doc.getBranches()).orElse(List.of()))
+                                .concatMapIterable(branch -> TopProductSummaries.top(branch.getTopProducts(), limit, withTies).stream()
+                                        .map(product -> new BranchTopProduct(branch.getName(),
+                                                franchiseDocumentMapper.toProduct(product)))
+                                        .toList())
+                        : rankTopProducts(franchiseId, limit, withTies));
+    }
+
+    private static boolean hasTruncatedSummary(FranchiseDocument franchise) {
+        return franchise.getBranches() != null && franchise.getBranches().stream()
+                .anyMatch(branch -> TopProductSummaries.isTruncated(branch.getTopProducts()));
+    }
+
+    private Flux<BranchTopProduct> rankTopProducts(String franchiseId, int limit, boolean withTies) {
+        return mongoTemplate.aggregate(readOnly(TopProductsAggregation.of(franchiseId, limit, withTies)),
+                        BranchTopProductDocument.class)
+                .map(top -> new BranchTopProduct(top.getBranchName(), franchiseDocumentMapper.toProduct(top.getProduct())));
+    }
+
+    @Override
+    public Mono<Franchise> updateFranchiseName(String franchiseId, String newName) {
+        Update update = new Update()
+                .set(NAME, newName)
+                .set(NAME_KEY, FranchiseDocument.nameKeyOf(newName))
+                .inc(VERSION, 1);
+        return serialized(franchiseId, () -> mongoTemplate.findAndModify(new Query(Criteria.where(ID).is(franchiseId)),
+                        update, FindAndModifyOptions.options().returnNew(true), FranchiseDocument.class))
                 .switchIfEmpty(Mono.error(new AppException(AppErrorCode.FRANCHISE_NOT_FOUND)))
-                .flatMap(franchise -> {
-                    BranchDocument branch = franchise.getBranches().stream()
-                            .filter(b -> b.getName().equalsIgnoreCase(branchName))
-                            .findFirst()
-                            .orElseThrow(() -> new AppException(AppErrorCode.BRANCH_NOT_FOUND));
-
-                    boolean productExists = branch.getProducts().stream()
-                            .anyMatch(p -> p.getName().equalsIgnoreCase(newProductName) &&
-                                    !p.getName().equalsIgnoreCase(currentProductName));
-                    if (productExists) {
-                        return Mono.error(new AppException(AppErrorCode.DUPLICATE_PRODUCT_NAME));
-                    }
+                .onErrorMap(MongoRepositoryAdapter::isDuplicateName,
+                        e -> new AppException(AppErrorCode.DUPLICATE_FRANCHISE_NAME, e))
+                .doOnNext(doc -> log.info("Franchise name updated to '{}'", newName))
+                .map(franchiseDocumentMapper::toEntity)
+                .doOnError(e -> log.error("Error updating franchise name: {}", e.getMessage()))
+                .contextWrite(CommandOrigin.of("updateFranchiseName"));
+    }
 
-                    ProductDocument product = branch.getProducts().stream()
-                            .filter(p -> p.getName().equalsIgnoreCase(currentProductName))
-                            .findFirst()
-                            .orElseThrow(() -> new AppException(AppErrorCode.PRODUCT_NOT_FOUND));
+    @Override
+    public Mono<Franchise> updateBranchName(String franchiseId, String currentBranchName, String newBranchName) {
+        return applyStructureChange(franchiseId,
+                StructureTargets.branchRenamable(franchiseId, currentBranchName, newBranchName),
+                StructureTargets.renameBranch(currentBranchName, newBranchName),
+                doc -> findBranch(doc, newBranchName).filter(b -> !b.getName().equalsIgnoreCase(currentBranchName))
+                        .isPresent()
+                        ? AppErrorCode.DUPLICATE_BRANCH_NAME
+                        : AppErrorCode.BRANCH_NOT_FOUND)
+                .doOnNext(f -> log.info("Branch name updated from '{}' to '{}'", currentBranchName, newBranchName))
+                .doOnError(e -> log.error("Error updating branch name: {}", e.getMessage()))
+                .contextWrite(CommandOrigin.of("updateBranchName"));
+    }
 
-                    product.setName(newProductName);
-                    log.info("Product name updated from '{}' to '{}' in branch '{}'", currentProductName, newProductName, branchName);
-                    return repository.save(franchise)
-                            .map(franchiseDocumentMapper::toEntity);
+    @Override
+    public Mono<Franchise> updateProductName(String franchiseId, String branchName, String currentProductName, String newProductName) {
+        return applyStructureChange(franchiseId,
+                StructureTargets.productRenamable(franchiseId, branchName, currentProductName, newProductName),
+                StructureTargets.renameProduct(branchName, currentProductName, newProductName),
+                doc -> {
+                    if (findBranch(doc, branchName).isEmpty()) {
+                        return AppErrorCode.BRANCH_NOT_FOUND;
+                    }
+                    boolean productExists = findProduct(doc, branchName, newProductName)
+                            .filter(p -> !p.getName().equalsIgnoreCase(currentProductName))
+                            .isPresent();
+                    return productExists ? AppErrorCode.DUPLICATE_PRODUCT_NAME : AppErrorCode.PRODUCT_NOT_FOUND;
                 })
-                .doOnError(e -> log.error("Error updating product name: {}", e.getMessage()));
+                .doOnNext(f -> log.info("Product name updated from '{}' to '{}' in branch '{}'",
+                        currentProductName, newProductName, branchName))
+                .doOnError(e -> log.error("Error updating product name: {}", e.getMessage()))
+                .contextWrite(CommandOrigin.of("updateProductName"));
     }
 }
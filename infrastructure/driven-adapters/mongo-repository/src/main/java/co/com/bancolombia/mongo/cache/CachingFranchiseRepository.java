@@ -0,0 +1,179 @@
+package co.com.bancolombia.mongo.cache;
+
+import co.com.bancolombia.model.branch.Branch;
+import co.com.bancolombia.model.branchtopproduct.BranchTopProduct;
+import co.com.bancolombia.model.franchise.Franchise;
+import co.com.bancolombia.model.franchise.gateways.FranchiseRepository;
+import co.com.bancolombia.model.franchiseimport.FranchiseImportResult;
+import co.com.bancolombia.model.franchisesummary.FranchiseSummary;
+import co.com.bancolombia.model.page.PageResult;
+import co.com.bancolombia.model.product.Product;
+import co.com.bancolombia.model.productlocation.ProductLocation;
+import co.com.bancolombia.model.stock.StockUpdate;
+import co.com.bancolombia.model.stock.StockUpdateResult;
+import co.com.bancolombia.mongo.config.MongoAdapterProperties;
+import co.com.bancolombia.mongo.helper.bulk.StockWriteBehindBuffer;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Read-through cache of franchises by id in front of the Mongo adapter of the active storage
+ * layout. Caffeine bounds it by size with a frequency-aware (W-TinyLFU) eviction policy and by age.
+ * Concurrent lookups of the same id share a single load.
+ * <p>
+ * Every mutation invalidates the entry of the franchise it touched once it terminates, whatever
+ * the outcome, so the next read goes to the database. A load that was already in flight during the
+ * write can still store the previous state; the write TTL bounds how long that lasts. Cached
+ * franchises are shared between callers and must be treated as read-only.
+ */
+@Primary
+@Component
+@Profile("!in-memory")
+public class CachingFranchiseRepository implements FranchiseRepository {
+
+    public static final String CACHE_NAME = "franchises";
+    /**
+     * Qualifier of the storage adapter behind the cache, which is itself the primary repository.
+     */
+    public static final String DELEGATE = "franchiseStore";
+
+    private final FranchiseRepository delegate;
+    private final AsyncCache<String, Franchise> cache;
+
+    public CachingFranchiseRepository(@Qualifier(DELEGATE) FranchiseRepository delegate, StockWriteBehindBuffer stockWriteBehind,
+                                      MongoAdapterProperties properties, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getCache().getMaximumSize())
+                .expireAfterWrite(properties.getCache().getExpireAfterWrite())
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME, List.of());
+        // Buffered stock updates reach the database after the call returned, evict again once written
+        stockWriteBehind.written().subscribe(result -> invalidate(result.getUpdate().getFranchiseId()));
+    }
+
+    @Override
+    public Mono<Franchise> findById(String id) {
+        // An empty result completes the load with null, which Caffeine does not store.
+        // Cancelling one subscriber must not cancel the load shared with other callers.
+        return Mono.fromFuture(() -> cache.get(id, (key, executor) -> delegate.findById(key).toFuture()), true);
+    }
+
+    @Override
+    public Mono<Franchise> save(Franchise franchise) {
+        return delegate.save(franchise)
+                .doFinally(signal -> invalidate(franchise.getId()));
+    }
+
+    @Override
+    public Flux<Franchise> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public Mono<PageResult<Franchise>> findPage(String pageToken, int size) {
+        return delegate.findPage(pageToken, size);
+    }
+
+    @Override
+    public Mono<PageResult<FranchiseSummary>> findSummaryPage(String pageToken, int size) {
+        return delegate.findSummaryPage(pageToken, size);
+    }
+
+    @Override
+    public Mono<PageResult<ProductLocation>> findLowStockPage(int threshold, String pageToken, int size) {
+        return delegate.findLowStockPage(threshold, pageToken, size);
+    }
+
+    @Override
+    public Flux<ProductLocation> findProductsByNamePrefix(String prefix) {
+        return delegate.findProductsByNamePrefix(prefix);
+    }
+
+    @Override
+    public Flux<FranchiseImportResult> importFranchises(Flux<Franchise> franchises) {
+        // Absent ids are never cached, so newly inserted franchises need no invalidation
+        return delegate.importFranchises(franchises);
+    }
+
+    @Override
+    public Mono<Franchise> addBranchToFranchise(String franchiseId, Branch newBranch) {
+        return delegate.addBranchToFranchise(franchiseId, newBranch)
+                .doFinally(signal -> invalidate(franchiseId));
+    }
+
+    @Override
+    public Mono<Franchise> addProductToBranch(String franchiseId, String branchName, Product product) {
+        return delegate.addProductToBranch(franchiseId, branchName, product)
+                .doFinally(signal -> invalidate(franchiseId));
+    }
+
+    @Override
+    public Mono<Franchise> removeProductFromBranch(String franchiseId, String branchName, String productName) {
+        return delegate.removeProductFromBranch(franchiseId, branchName, productName)
+                .doFinally(signal -> invalidate(franchiseId));
+    }
+
+    @Override
+    public Mono<Product> updateProductStock(String franchiseId, String branchName, String productName, int newStock) {
+        return delegate.updateProductStock(franchiseId, branchName, productName, newStock)
+                .doFinally(signal -> invalidate(franchiseId));
+    }
+
+    @Override
+    public Mono<Product> adjustProductStock(String franchiseId, String branchName, String productName, int delta) {
+        return delegate.adjustProductStock(franchiseId, branchName, productName, delta)
+                .doFinally(signal -> invalidate(franchiseId));
+    }
+
+    @Override
+    public Flux<StockUpdateResult> updateProductStocks(Flux<StockUpdate> updates) {
+        return delegate.updateProductStocks(updates)
+                .doOnNext(result -> invalidate(result.getUpdate().getFranchiseId()));
+    }
+
+    @Override
+    public Flux<BranchTopProduct> getTopProductsPerBranch(String franchiseId, int limit, boolean withTies) {
+        return delegate.getTopProductsPerBranch(franchiseId, limit, withTies);
+    }
+
+    @Override
+    public Mono<Franchise> updateFranchiseName(String franchiseId, String newName) {
+        return delegate.updateFranchiseName(franchiseId, newName)
+                .doFinally(signal -> invalidate(franchiseId));
+    }
+
+    @Override
+    public Mono<Franchise> updateBranchName(String franchiseId, String currentBranchName, String newBranchName) {
+        return delegate.updateBranchName(franchiseId, currentBranchName, newBranchName)
+                .doFinally(signal -> invalidate(franchiseId));
+    }
+
+    @Override
+    public Mono<Franchise> updateProductName(String franchiseId, String branchName, String currentProductName,
+                                             String newProductName) {
+        return delegate.updateProductName(franchiseId, branchName, currentProductName, newProductName)
+                .doFinally(signal -> invalidate(franchiseId));
+    }
+
+    public void invalidate(String franchiseId) {
+        if (franchiseId != null) {
+            cache.synchronous().invalidate(franchiseId);
+        }
+    }
+
+    public void invalidateAll() {
+        cache.synchronous().invalidateAll();
+    }
+}
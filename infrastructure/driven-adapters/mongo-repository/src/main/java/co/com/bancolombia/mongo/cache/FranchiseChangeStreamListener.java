@@ -0,0 +1,173 @@
+package co.com.bancolombia.mongo.cache;
+
+import co.com.bancolombia.mongo.config.MongoAdapterProperties;
+import co.com.bancolombia.mongo.helper.document.FranchiseBranchDocument;
+import co.com.bancolombia.mongo.metrics.CommandOrigin;
+import com.mongodb.MongoException;
+import com.mongodb.client.model.changestream.OperationType;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.ChangeStreamOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Follows the changes of the franchise collection and of the branch collection of the
+ * branch-per-document layout, and invalidates the local cache entry of every franchise written by
+ * any instance, this one included. Both are followed in a single database-level stream filtered by
+ * collection, so one resume token covers them; branch ids lead to their franchise.
+ * <p>
+ * The resume token of the last event is kept so a dropped connection resumes where it stopped and
+ * no write is skipped. Dropping or renaming either collection flushes the whole cache. When resuming
+ * is no longer possible (the oplog rolled past the token or the database was dropped) events may
+ * have been missed, so the whole cache is flushed and the stream starts over from the present. A
+ * deployment without change streams (standalone server) falls back to the cache TTL alone.
+ */
+@Slf4j
+@Component
+@Profile("!in-memory")
+public class FranchiseChangeStreamListener {
+
+    static final String COLLECTION = "franchise";
+    static final List<String> COLLECTIONS = List.of(COLLECTION, FranchiseBranchDocument.COLLECTION);
+    private static final String ID = "_id";
+    private static final String OPERATION_TYPE = "operationType";
+    private static final String DOCUMENT_KEY = "documentKey";
+    private static final String NAMESPACE = "ns";
+
+    private static final Set<Integer> RESUME_FAILED_CODES = Set.of(
+            260, // InvalidResumeToken
+            280, // ChangeStreamFatalError
+            286  // ChangeStreamHistoryLost
+    );
+    private static final Set<Integer> UNSUPPORTED_CODES = Set.of(
+            40573 // $changeStream is only supported on replica sets
+    );
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final CachingFranchiseRepository cache;
+    private final MongoAdapterProperties.ChangeStream properties;
+
+    private volatile BsonValue resumeToken;
+    private Disposable subscription;
+
+    public FranchiseChangeStreamListener(ReactiveMongoTemplate mongoTemplate, CachingFranchiseRepository cache,
+                                         MongoAdapterProperties properties) {
+        this.mongoTemplate = mongoTemplate;
+        this.cache = cache;
+        this.properties = properties.getCache().getChangeStream();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!properties.isEnabled()) {
+            log.info("Franchise change stream disabled, cached franchises expire by TTL only");
+            return;
+        }
+        subscription = listen().subscribe(
+                null,
+                e -> log.warn("Franchise change stream unavailable, cached franchises expire by TTL only: {}",
+                        e.getMessage()));
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+
+    /**
+     * Applies events until cancelled. Completes with an error only when the deployment does not
+     * support change streams.
+     */
+    public Mono<Void> listen() {
+        return Flux.defer(() -> open(resumeToken))
+                .doOnSubscribe(s -> log.info("Listening to franchise changes{}",
+                        resumeToken == null ? "" : " from the last seen event"))
+                .doOnNext(this::apply)
+                // The server ends the stream after an invalidate event, start a new one
+                .repeat()
+                .doOnError(this::onStreamError)
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, properties.getMinBackoff())
+                        .maxBackoff(properties.getMaxBackoff())
+                        .transientErrors(true)
+                        .filter(e -> !hasCode(e, UNSUPPORTED_CODES)))
+                .then()
+                .contextWrite(CommandOrigin.of("changeStream"));
+    }
+
+    Flux<ChangeStreamEvent<Document>> open(BsonValue token) {
+        // Only the collection, the key and the operation are needed, leave the documents on the server
+        ChangeStreamOptions.ChangeStreamOptionsBuilder options = ChangeStreamOptions.builder()
+                .filter(Aggregation.newAggregation(
+                        context -> new Document("$match",
+                                new Document(NAMESPACE + ".coll", new Document("$in", COLLECTIONS))),
+                        context -> new Document("$project", new Document(OPERATION_TYPE, 1)
+                                .append(NAMESPACE, 1)
+                                .append(DOCUMENT_KEY, 1))));
+        if (token != null) {
+            options.resumeAfter(token);
+        }
+        // Without a collection name the template watches the whole database
+        return mongoTemplate.changeStream(null, options.build(), Document.class);
+    }
+
+    void apply(ChangeStreamEvent<Document> event) {
+        OperationType operation = event.getOperationType();
+        if (operation == OperationType.INSERT || operation == OperationType.UPDATE
+                || operation == OperationType.REPLACE || operation == OperationType.DELETE) {
+            String id = idOf(event.getRaw().getDocumentKey());
+            boolean branch = FranchiseBranchDocument.COLLECTION.equals(event.getRaw().getNamespace().getCollectionName());
+            cache.invalidate(branch ? FranchiseBranchDocument.franchiseIdOf(id) : id);
+            resumeToken = event.getResumeToken();
+        } else {
+            // The database-level stream goes on after a drop or rename; dropDatabase and invalidate
+            // end it, leaving nothing to resume
+            log.info("Franchise or branch collection {} event, flushing the franchise cache", operation);
+            cache.invalidateAll();
+            resumeToken = operation == OperationType.DROP || operation == OperationType.RENAME
+                    ? event.getResumeToken()
+                    : null;
+        }
+    }
+
+    private void onStreamError(Throwable e) {
+        if (hasCode(e, RESUME_FAILED_CODES)) {
+            log.warn("Franchise change stream cannot be resumed, flushing the franchise cache: {}", e.getMessage());
+            cache.invalidateAll();
+            resumeToken = null;
+        } else if (!hasCode(e, UNSUPPORTED_CODES)) {
+            log.warn("Franchise change stream interrupted, reconnecting: {}", e.getMessage());
+        }
+    }
+
+    private static String idOf(BsonDocument documentKey) {
+        BsonValue id = documentKey.get(ID);
+        return id.isObjectId() ? id.asObjectId().getValue().toHexString() : id.asString().getValue();
+    }
+
+    private static boolean hasCode(Throwable error, Set<Integer> codes) {
+        for (Throwable e = error; e != null; e = e.getCause()) {
+            if (e instanceof MongoException mongoException && codes.contains(mongoException.getCode())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,167 @@
+package co.com.bancolombia.mongo.config;
+
+import co.com.bancolombia.mongo.helper.document.FranchiseBranchDocument;
+import co.com.bancolombia.mongo.helper.document.FranchiseDocument;
+import co.com.bancolombia.mongo.helper.mapper.FranchiseDocumentMapper;
+import co.com.bancolombia.mongo.helper.query.BranchAggregations;
+import com.mongodb.client.result.UpdateResult;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Prepares the branch collection of the branch-per-document layout: creates its indexes and moves
+ * the branches still embedded in franchise documents, written by the embedded layout, into
+ * documents of their own. Branch names are kept unique by the unique name key index alone, and a
+ * franchise not migrated yet would read as having no branches, so both the index and the migration
+ * complete before the application takes traffic and startup fails without them. The read indexes
+ * run in the background once the application is up, each on its own.
+ */
+@Slf4j
+@Component
+@Profile("branch-per-document & !in-memory")
+@RequiredArgsConstructor
+public class BranchCollectionInitializer implements SmartInitializingSingleton {
+
+    private static final String ID = "_id";
+    private static final String NAME = "name";
+    private static final String NAME_KEY = "nameKey";
+    private static final String FRANCHISE_ID = "franchiseId";
+    private static final String PRODUCTS = "products";
+    private static final String TOP_PRODUCTS = "topProducts";
+    private static final String VERSION = "version";
+    private static final String BRANCHES = "branches";
+    private static final int MIGRATION_CONCURRENCY = 8;
+    static final String LOW_STOCK_INDEX = "franchise_branch_product_stock";
+    static final String PRODUCT_NAME_KEY_INDEX = "franchise_branch_product_name_key";
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final FranchiseDocumentMapper mapper;
+
+    /**
+     * Runs once every bean is created, before the web server starts. The migration relies on the
+     * unique index to never duplicate a branch.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        ensureNameKeyIndex()
+                .onErrorMap(e -> new IllegalStateException("Branch names cannot be enforced unique", e))
+                .then(Mono.defer(this::migrateEmbeddedBranches))
+                .then(Mono.defer(this::ensureNothingLeftEmbedded))
+                .block();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        initialize().subscribe(
+                null,
+                e -> log.error("Branch collection initialization failed: {}", e.getMessage()),
+                () -> log.info("Branch collection initialized"));
+    }
+
+    public Mono<Void> initialize() {
+        return Flux.concat(
+                        independently("Branch product stock index", ensureLowStockIndex()),
+                        independently("Branch product name index", ensureProductNameKeyIndex()))
+                .then();
+    }
+
+    private static Mono<Void> independently(String step, Mono<?> work) {
+        return work.then()
+                .onErrorResume(e -> {
+                    log.error("{} failed, retrying on the next start: {}", step, e.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * Copies the embedded branches of every franchise that still has them, in their order, then
+     * drops the embedded array. Branches are inserted by franchise id and name key only when
+     * missing, so a migration interrupted halfway resumes on the next start without duplicating or
+     * overwriting branches written since. The array is dropped only if the franchise was not
+     * modified in the meantime; otherwise it is left behind and startup fails.
+     */
+    Mono<Long> migrateEmbeddedBranches() {
+        return mongoTemplate.find(new Query(Criteria.where(BRANCHES).exists(true)), FranchiseDocument.class)
+                .flatMap(this::migrate, MIGRATION_CONCURRENCY)
+                .reduce(0L, Long::sum)
+                .doOnNext(count -> log.info("Moved the branches of {} franchises to their own documents", count));
+    }
+
+    private Mono<Long> migrate(FranchiseDocument franchise) {
+        return Flux.defer(() -> Flux.fromIterable(
+                        mapper.toBranchDocuments(franchise.getId(), mapper.toEntity(franchise).getBranches())))
+                .concatMap(branch -> mongoTemplate.upsert(
+                                new Query(Criteria.where(FRANCHISE_ID).is(branch.getFranchiseId())
+                                        .and(NAME_KEY).is(branch.getNameKey())),
+                                new Update()
+                                        .setOnInsert(ID, branch.getId())
+                                        .setOnInsert(NAME, branch.getName())
+                                        .setOnInsert(PRODUCTS, branch.getProducts())
+                                        .setOnInsert(TOP_PRODUCTS, branch.getTopProducts())
+                                        .setOnInsert(VERSION, 0L),
+                                FranchiseBranchDocument.class)
+                        // Another instance migrating the same franchise inserted it first
+                        .onErrorResume(DuplicateKeyException.class, e -> Mono.empty()))
+                .then(Mono.defer(() -> mongoTemplate.updateFirst(
+                        new Query(Criteria.where(ID).is(franchise.getId()).and(VERSION).is(franchise.getVersion())),
+                        new Update().unset(BRANCHES).inc(VERSION, 1),
+                        FranchiseDocument.class)))
+                .map(UpdateResult::getModifiedCount)
+                .onErrorResume(e -> {
+                    log.warn("Branches of franchise {} not migrated: {}",
+                            franchise.getId(), e.getMessage());
+                    return Mono.just(0L);
+                });
+    }
+
+    /**
+     * Fails when a franchise kept its embedded branches, because migrating it failed or it was
+     * modified meanwhile; the next start resumes the migration.
+     */
+    Mono<Void> ensureNothingLeftEmbedded() {
+        return mongoTemplate.count(new Query(Criteria.where(BRANCHES).exists(true)), FranchiseDocument.class)
+                .flatMap(left -> left == 0
+                        ? Mono.<Void>empty()
+                        : Mono.error(new IllegalStateException(left + " franchises still hold embedded branches")));
+    }
+
+    Mono<String> ensureNameKeyIndex() {
+        Index index = new Index()
+                .on(FRANCHISE_ID, Sort.Direction.ASC)
+                .on(NAME_KEY, Sort.Direction.ASC)
+                .unique()
+                .named(FranchiseBranchDocument.NAME_KEY_INDEX);
+        return ensureIndex(index, "Unique branch name");
+    }
+
+    Mono<String> ensureLowStockIndex() {
+        return ensureIndex(new Index().on(BranchAggregations.STOCK_PATH, Sort.Direction.ASC).named(LOW_STOCK_INDEX),
+                "Branch product stock");
+    }
+
+    Mono<String> ensureProductNameKeyIndex() {
+        return ensureIndex(new Index().on(BranchAggregations.NAME_KEY_PATH, Sort.Direction.ASC)
+                .named(PRODUCT_NAME_KEY_INDEX), "Branch product name");
+    }
+
+    private Mono<String> ensureIndex(Index index, String description) {
+        return mongoTemplate.indexOps(FranchiseBranchDocument.class)
+                .ensureIndex(index)
+                .doOnNext(name -> log.info("Index {} ready", name))
+                .doOnError(e -> log.error("{} index could not be created: {}", description, e.getMessage()));
+    }
+}
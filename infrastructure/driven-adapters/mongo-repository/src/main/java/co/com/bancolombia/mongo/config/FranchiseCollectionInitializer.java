@@ -0,0 +1,176 @@
+package co.com.bancolombia.mongo.config;
+
+import co.com.bancolombia.mongo.helper.document.FranchiseDocument;
+import co.com.bancolombia.mongo.helper.query.LowStockAggregation;
+import co.com.bancolombia.mongo.helper.query.ProductSearchAggregation;
+import com.mongodb.client.result.UpdateResult;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.PartialIndexFilter;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Prepares the franchise collection: backfills the fields the adapter relies on for documents
+ * written by older versions and creates the supporting indexes. Franchise names are kept unique by
+ * the unique name key index alone, so the name key backfill and that index are in place before the
+ * application takes traffic, and startup fails if the index cannot be built. The remaining steps
+ * only serve reads; they run in the background once the application is up, each on its own so a
+ * failing one does not skip the others.
+ */
+@Slf4j
+@Component
+@Profile("!in-memory")
+@RequiredArgsConstructor
+public class FranchiseCollectionInitializer implements SmartInitializingSingleton {
+
+    private static final String ID = "_id";
+    private static final String NAME = "name";
+    private static final String NAME_KEY = "nameKey";
+    private static final String VERSION = "version";
+    private static final String BRANCHES = "branches";
+    private static final String BRANCHES_PRODUCTS = "branches.products";
+    private static final int BACKFILL_CONCURRENCY = 8;
+    static final String LOW_STOCK_INDEX = "franchise_product_stock";
+    static final String PRODUCT_NAME_KEY_INDEX = "franchise_product_name_key";
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    /**
+     * Runs once every bean is created, before the web server starts.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        ensureUniqueNames().block();
+        log.info("Franchise names are enforced unique");
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        initialize().subscribe(
+                null,
+                e -> log.error("Franchise collection initialization failed: {}", e.getMessage()),
+                () -> log.info("Franchise collection initialized"));
+    }
+
+    public Mono<Void> ensureUniqueNames() {
+        return backfillNameKeys()
+                .then(backfillVersions())
+                .then(ensureNameKeyIndex())
+                .onErrorMap(e -> new IllegalStateException("Franchise names cannot be enforced unique", e))
+                .then();
+    }
+
+    public Mono<Void> initialize() {
+        return Flux.concat(
+                        independently("Product name key backfill", backfillProductNameKeys()),
+                        independently("Product stock index", ensureLowStockIndex()),
+                        independently("Product name index", ensureProductNameKeyIndex()))
+                .then();
+    }
+
+    private static Mono<Void> independently(String step, Mono<?> work) {
+        return work.then()
+                .onErrorResume(e -> {
+                    log.error("{} failed, retrying on the next start: {}", step, e.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * Computes the key in the JVM rather than with {@code $toLower}, which only folds ASCII, so the
+     * backfilled keys match the ones the mapper writes for names such as "Ñandú".
+     */
+    Mono<Long> backfillNameKeys() {
+        Query missingKey = new Query(Criteria.where(NAME_KEY).exists(false));
+        missingKey.fields().include(NAME);
+        return mongoTemplate.find(missingKey, FranchiseDocument.class)
+                .flatMap(doc -> mongoTemplate.updateFirst(
+                        new Query(Criteria.where(ID).is(doc.getId()).and(NAME_KEY).exists(false)),
+                        Update.update(NAME_KEY, FranchiseDocument.nameKeyOf(doc.getName())),
+                        FranchiseDocument.class), BACKFILL_CONCURRENCY)
+                .count()
+                .doOnNext(count -> log.info("Backfilled name key on {} franchises", count));
+    }
+
+    /**
+     * Documents without a version would be taken as new by the repository and inserted instead of
+     * conditionally replaced, so they start at version 0.
+     */
+    Mono<Long> backfillVersions() {
+        return mongoTemplate.updateMulti(new Query(Criteria.where(VERSION).exists(false)),
+                        Update.update(VERSION, 0L), FranchiseDocument.class)
+                .map(UpdateResult::getModifiedCount)
+                .doOnNext(count -> log.info("Backfilled version on {} franchises", count));
+    }
+
+    /**
+     * Rewrites the branches of franchises holding products without a name key, computed in the JVM
+     * like {@link #backfillNameKeys()}. The write is conditioned on the version read, so a franchise
+     * changed in the meantime is left for the next start, and bumps it like any other change.
+     */
+    Mono<Long> backfillProductNameKeys() {
+        Query missingKey = new Query(Criteria.where(BRANCHES_PRODUCTS).elemMatch(Criteria.where(NAME_KEY).exists(false)));
+        missingKey.fields().include(BRANCHES).include(VERSION);
+        return mongoTemplate.find(missingKey, FranchiseDocument.class)
+                .flatMap(doc -> {
+                    doc.getBranches().stream()
+                            .filter(branch -> branch.getProducts() != null)
+                            .flatMap(branch -> branch.getProducts().stream())
+                            .forEach(product -> product.setNameKey(FranchiseDocument.nameKeyOf(product.getName())));
+                    return mongoTemplate.updateFirst(
+                            new Query(Criteria.where(ID).is(doc.getId()).and(VERSION).is(doc.getVersion())),
+                            new Update().set(BRANCHES, doc.getBranches()).inc(VERSION, 1),
+                            FranchiseDocument.class);
+                }, BACKFILL_CONCURRENCY)
+                .map(UpdateResult::getModifiedCount)
+                .reduce(0L, Long::sum)
+                .doOnNext(count -> log.info("Backfilled product name keys on {} franchises", count));
+    }
+
+    Mono<String> ensureNameKeyIndex() {
+        Index index = new Index()
+                .on(NAME_KEY, Sort.Direction.ASC)
+                .unique()
+                .named(FranchiseDocument.NAME_KEY_INDEX)
+                .partial(PartialIndexFilter.of(Criteria.where(NAME_KEY).exists(true)));
+        return mongoTemplate.indexOps(FranchiseDocument.class)
+                .ensureIndex(index)
+                .doOnNext(name -> log.info("Index {} ready", name))
+                .doOnError(e -> log.error("Unique franchise name index could not be created, "
+                        + "check for franchises whose names differ only in case: {}", e.getMessage()));
+    }
+
+    /**
+     * Multikey index over every product stock, used by the low-stock report to skip franchises that
+     * have nothing below the threshold.
+     */
+    Mono<String> ensureLowStockIndex() {
+        Index index = new Index()
+                .on(LowStockAggregation.STOCK_PATH, Sort.Direction.ASC)
+                .named(LOW_STOCK_INDEX);
+        return mongoTemplate.indexOps(FranchiseDocument.class)
+                .ensureIndex(index)
+                .doOnNext(name -> log.info("Index {} ready", name));
+    }
+
+    Mono<String> ensureProductNameKeyIndex() {
+        Index index = new Index()
+                .on(ProductSearchAggregation.NAME_KEY_PATH, Sort.Direction.ASC)
+                .named(PRODUCT_NAME_KEY_INDEX);
+        return mongoTemplate.indexOps(FranchiseDocument.class)
+                .ensureIndex(index)
+                .doOnNext(name -> log.info("Index {} ready", name));
+    }
+}
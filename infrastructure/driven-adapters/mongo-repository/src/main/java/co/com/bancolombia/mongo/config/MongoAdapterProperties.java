@@ -0,0 +1,144 @@
+package co.com.bancolombia.mongo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "adapters.mongo")
+public class MongoAdapterProperties {
+
+    private OptimisticRetry optimisticRetry = new OptimisticRetry();
+    private Bulk bulk = new Bulk();
+    private Cache cache = new Cache();
+    private WriteBehind writeBehind = new WriteBehind();
+    private Pool pool = new Pool();
+    private Socket socket = new Socket();
+    private Commands commands = new Commands();
+    private Reads reads = new Reads();
+    private TopProducts topProducts = new TopProducts();
+    private Export export = new Export();
+
+    /**
+     * Bounds for re-applying a franchise mutation after a version conflict.
+     */
+    @Data
+    public static class OptimisticRetry {
+        private int maxRetries = 5;
+        private Duration minBackoff = Duration.ofMillis(10);
+        private Duration maxBackoff = Duration.ofMillis(200);
+        private double jitter = 0.5;
+    }
+
+    /**
+     * Size of each unordered bulk write and how many of them may be in flight at once. A batch that
+     * is not full is still written once {@code batchWindow} passes, so a slow upstream keeps getting
+     * results.
+     */
+    @Data
+    public static class Bulk {
+        private int batchSize = 1000;
+        private Duration batchWindow = Duration.ofMillis(200);
+        private int maxInFlightBatches = 2;
+    }
+
+    /**
+     * Bounds of the in-process franchise cache. Entries older than {@code expireAfterWrite} are
+     * reloaded, which also caps how long a read racing a write can serve stale data.
+     */
+    @Data
+    public static class Cache {
+        private long maximumSize = 10_000;
+        private Duration expireAfterWrite = Duration.ofSeconds(30);
+        private ChangeStream changeStream = new ChangeStream();
+    }
+
+    /**
+     * Change stream that propagates writes made by other instances to the local cache. Reconnect
+     * attempts back off between the two bounds.
+     */
+    @Data
+    public static class ChangeStream {
+        private boolean enabled = true;
+        private Duration minBackoff = Duration.ofSeconds(1);
+        private Duration maxBackoff = Duration.ofSeconds(30);
+    }
+
+    /**
+     * Optional buffering of absolute stock updates: readings of the same product within one window
+     * collapse into a single bulk write.
+     */
+    @Data
+    public static class WriteBehind {
+        private boolean enabled = false;
+        private Duration window = Duration.ofMillis(500);
+        private Duration shutdownTimeout = Duration.ofSeconds(10);
+    }
+
+    /**
+     * Connection pool of each server. Only the values set here are applied, over the URI options;
+     * anything left unset keeps what the URI says or the driver's default. A zero idle or life time
+     * means connections are never closed for that reason.
+     */
+    @Data
+    public static class Pool {
+        private Integer maxSize;
+        private Integer minSize;
+        private Integer maxConnecting;
+        private Duration maxWaitTime;
+        private Duration maxConnectionIdleTime;
+        private Duration maxConnectionLifeTime;
+    }
+
+    /**
+     * Socket timeouts, applied like {@link Pool} only when set. A zero read timeout waits for a
+     * reply indefinitely.
+     */
+    @Data
+    public static class Socket {
+        private Duration connectTimeout;
+        private Duration readTimeout;
+    }
+
+    /**
+     * Logging of commands slower than {@code slowThreshold}. The log shows the filter shape, never
+     * the values in it.
+     */
+    @Data
+    public static class Commands {
+        private boolean slowLogEnabled = true;
+        private Duration slowThreshold = Duration.ofMillis(200);
+    }
+
+    /**
+     * Where the read-only gateway methods that bypass the franchise cache read from, e.g.
+     * {@code secondaryPreferred}. Mutations and {@code findById}, which loads the cache, always read
+     * from the primary. An optional {@code maxStaleness} (90s at least) keeps lagging
+     * secondaries out; it is not allowed with {@code primary}.
+     */
+    @Data
+    public static class Reads {
+        private String readPreference = "primary";
+        private Duration maxStaleness;
+    }
+
+    /**
+     * Periodic recomputation of the top products summaries that drifted from their products, off
+     * unless enabled.
+     */
+    @Data
+    public static class TopProducts {
+        private boolean repairEnabled = false;
+        private Duration repairInterval = Duration.ofHours(1);
+    }
+
+    /**
+     * Cursor batch size of the full catalog stream behind the export endpoint: documents held in
+     * memory per round trip.
+     */
+    @Data
+    public static class Export {
+        private int batchSize = 500;
+    }
+}
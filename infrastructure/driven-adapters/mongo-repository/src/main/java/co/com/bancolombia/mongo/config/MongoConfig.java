@@ -1,14 +1,26 @@
 package co.com.bancolombia.mongo.config;
 
+import co.com.bancolombia.mongo.metrics.CommandOrigin;
+import co.com.bancolombia.mongo.metrics.CommandTimer;
+import co.com.bancolombia.mongo.metrics.PoolCheckoutTimer;
+import com.mongodb.ReadPreference;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
 import org.springframework.boot.autoconfigure.mongo.MongoConnectionDetails;
 import org.springframework.boot.autoconfigure.mongo.MongoProperties;
 import org.springframework.boot.autoconfigure.mongo.PropertiesMongoConnectionDetails;
 import org.springframework.boot.ssl.SslBundles;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 @Configuration
+@Profile("!in-memory")
 public class MongoConfig {
 
     @Bean
@@ -18,6 +30,67 @@ public class MongoConfig {
                 .build();
     }
 
+    /**
+     * Applies the pool and socket tuning set in {@code adapters.mongo} and times connection
+     * checkouts. Runs after the URI has been applied, so only the values explicitly set override the
+     * URI options; the others keep what the URI or the driver defaults say.
+     */
+    @Bean
+    public MongoClientSettingsBuilderCustomizer mongoPoolCustomizer(MongoAdapterProperties properties,
+                                                                    MeterRegistry meterRegistry) {
+        MongoAdapterProperties.Pool pool = properties.getPool();
+        MongoAdapterProperties.Socket socket = properties.getSocket();
+        return builder -> builder
+                .applyToConnectionPoolSettings(settings -> {
+                    ifSet(pool.getMaxSize(), settings::maxSize);
+                    ifSet(pool.getMinSize(), settings::minSize);
+                    ifSet(pool.getMaxConnecting(), settings::maxConnecting);
+                    ifSet(pool.getMaxWaitTime(), time -> settings.maxWaitTime(time.toMillis(), TimeUnit.MILLISECONDS));
+                    ifSet(pool.getMaxConnectionIdleTime(),
+                            time -> settings.maxConnectionIdleTime(time.toMillis(), TimeUnit.MILLISECONDS));
+                    ifSet(pool.getMaxConnectionLifeTime(),
+                            time -> settings.maxConnectionLifeTime(time.toMillis(), TimeUnit.MILLISECONDS));
+                    settings.addConnectionPoolListener(new PoolCheckoutTimer(meterRegistry));
+                })
+                .applyToSocketSettings(settings -> {
+                    ifSet(socket.getConnectTimeout(),
+                            time -> settings.connectTimeout(Math.toIntExact(time.toMillis()), TimeUnit.MILLISECONDS));
+                    ifSet(socket.getReadTimeout(),
+                            time -> settings.readTimeout(Math.toIntExact(time.toMillis()), TimeUnit.MILLISECONDS));
+                });
+    }
+
+    private static <T> void ifSet(T value, Consumer<T> apply) {
+        if (value != null) {
+            apply.accept(value);
+        }
+    }
+
+    /**
+     * Times every command per repository method and logs the slow ones. The context provider hands
+     * the origin set with {@link CommandOrigin#of(String)} over to the listener.
+     */
+    @Bean
+    public MongoClientSettingsBuilderCustomizer mongoCommandCustomizer(MongoAdapterProperties properties,
+                                                                       MeterRegistry meterRegistry) {
+        return builder -> builder
+                .addCommandListener(new CommandTimer(meterRegistry, properties.getCommands()))
+                .contextProvider(CommandOrigin.contextProvider());
+    }
+
+    /**
+     * Read preference of the read-only gateway methods, see {@link MongoAdapterProperties.Reads}.
+     */
+    @Bean
+    public ReadPreference readOnlyReadPreference(MongoAdapterProperties properties) {
+        MongoAdapterProperties.Reads reads = properties.getReads();
+        if (reads.getMaxStaleness() == null) {
+            return ReadPreference.valueOf(reads.getReadPreference());
+        }
+        return ReadPreference.valueOf(reads.getReadPreference(), List.of(),
+                reads.getMaxStaleness().toMillis(), TimeUnit.MILLISECONDS);
+    }
+
     @Bean
     public MongoConnectionDetails mongoProperties(MongoDBSecret secret, SslBundles sslBundles) {
         MongoProperties properties = new MongoProperties();
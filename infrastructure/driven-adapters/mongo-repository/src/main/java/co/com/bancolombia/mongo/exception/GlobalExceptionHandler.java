@@ -1,5 +1,7 @@
 package co.com.bancolombia.mongo.exception;
 
+import co.com.bancolombia.commons.exception.AppErrorCode;
+import co.com.bancolombia.commons.exception.AppException;
 import co.com.bancolombia.model.exceptions.DomainValidationException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
@@ -11,6 +13,7 @@ import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.bind.support.WebExchangeBindException;
 import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.ServerWebInputException;
 import reactor.core.publisher.Mono;
 
 import java.nio.charset.StandardCharsets;
@@ -39,6 +42,9 @@ public class GlobalExceptionHandler implements ErrorWebExceptionHandler {
                     .map(error -> error.getField() + ": " + error.getDefaultMessage())
                     .reduce((a, b) -> a + ", " + b)
                     .orElse("Validation error");
+        } else if (ex instanceof ServerWebInputException inputEx) {
+            errorCode = AppErrorCode.BAD_REQUEST;
+            message = inputEx.getReason();
         } else if (ex instanceof IllegalArgumentException) {
             errorCode = AppErrorCode.VALIDATION_ERROR;
             message = ex.getMessage();
@@ -0,0 +1,112 @@
+package co.com.bancolombia.mongo.helper.bulk;
+
+import co.com.bancolombia.model.franchise.Franchise;
+import co.com.bancolombia.model.franchiseimport.FranchiseImportResult;
+import co.com.bancolombia.model.franchiseimport.FranchiseImportStatus;
+import co.com.bancolombia.mongo.config.MongoAdapterProperties;
+import co.com.bancolombia.mongo.helper.document.FranchiseDocument;
+import co.com.bancolombia.mongo.helper.mapper.FranchiseDocumentMapper;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * Inserts franchises in unordered batches, one round trip per batch. Duplicates and other write
+ * errors are reported per franchise and never abort the rest of the stream. Batches are requested
+ * from upstream only as in-flight ones complete, so a large import is consumed at the pace the
+ * database accepts it. A batch is cut early once the batch window passes, so the results of a slow
+ * upload keep streaming instead of waiting for a full batch.
+ */
+@Slf4j
+@Component
+@Profile("!in-memory")
+public class FranchiseBulkImporter {
+
+    private static final int DUPLICATE_KEY = 11000;
+    private static final long INITIAL_VERSION = 0L;
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final FranchiseDocumentMapper mapper;
+    private final MongoAdapterProperties.Bulk properties;
+
+    public FranchiseBulkImporter(ReactiveMongoTemplate mongoTemplate, FranchiseDocumentMapper mapper,
+                                 MongoAdapterProperties properties) {
+        this.mongoTemplate = mongoTemplate;
+        this.mapper = mapper;
+        this.properties = properties.getBulk();
+    }
+
+    public Flux<FranchiseImportResult> insert(Flux<Franchise> franchises) {
+        return insert(franchises, mapper::toDocument);
+    }
+
+    /**
+     * Same as {@link #insert(Flux)}, storing each franchise as the document {@code toDocument} builds.
+     */
+    public Flux<FranchiseImportResult> insert(Flux<Franchise> franchises,
+                                              Function<Franchise, FranchiseDocument> toDocument) {
+        return franchises.bufferTimeout(properties.getBatchSize(), properties.getBatchWindow(), true)
+                .flatMapSequential(batch -> insertBatch(batch, toDocument), properties.getMaxInFlightBatches());
+    }
+
+    Flux<FranchiseImportResult> insertBatch(List<Franchise> batch) {
+        return insertBatch(batch, mapper::toDocument);
+    }
+
+    private Flux<FranchiseImportResult> insertBatch(List<Franchise> batch,
+                                                    Function<Franchise, FranchiseDocument> toDocument) {
+        // Bulk inserts bypass the template's version handling, so documents start at version 0 here
+        List<FranchiseDocument> documents = batch.stream()
+                .map(franchise -> toDocument.apply(franchise).toBuilder().version(INITIAL_VERSION).build())
+                .toList();
+
+        return mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, FranchiseDocument.class)
+                .insert(documents)
+                .execute()
+                .map(result -> Map.<Integer, FranchiseImportStatus>of())
+                .onErrorResume(BulkOperationException.class, e -> Mono.just(statusesOf(e.getErrors())))
+                .onErrorResume(MongoBulkWriteException.class, e -> Mono.just(statusesOf(e.getWriteErrors())))
+                .onErrorResume(e -> {
+                    log.error("Import batch of {} franchises failed: {}", batch.size(), e.getMessage());
+                    return Mono.just(allFailed(batch.size()));
+                })
+                .doOnNext(errors -> log.info("Imported {} of {} franchises", batch.size() - errors.size(), batch.size()))
+                .flatMapMany(errors -> Flux.range(0, batch.size())
+                        .map(i -> FranchiseImportResult.of(batch.get(i),
+                                errors.getOrDefault(i, FranchiseImportStatus.IMPORTED))));
+    }
+
+    private static Map<Integer, FranchiseImportStatus> statusesOf(List<BulkWriteError> errors) {
+        Map<Integer, FranchiseImportStatus> statuses = new HashMap<>();
+        errors.forEach(error -> statuses.put(error.getIndex(), statusOf(error)));
+        return statuses;
+    }
+
+    private static FranchiseImportStatus statusOf(BulkWriteError error) {
+        if (error.getCode() != DUPLICATE_KEY) {
+            return FranchiseImportStatus.FAILED;
+        }
+        return error.getMessage() != null && error.getMessage().contains(FranchiseDocument.NAME_KEY_INDEX)
+                ? FranchiseImportStatus.DUPLICATE_NAME
+                : FranchiseImportStatus.DUPLICATE_ID;
+    }
+
+    private static Map<Integer, FranchiseImportStatus> allFailed(int size) {
+        Map<Integer, FranchiseImportStatus> statuses = new HashMap<>();
+        IntStream.range(0, size).forEach(i -> statuses.put(i, FranchiseImportStatus.FAILED));
+        return statuses;
+    }
+}
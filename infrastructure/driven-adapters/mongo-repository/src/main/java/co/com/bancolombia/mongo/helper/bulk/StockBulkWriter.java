@@ -0,0 +1,151 @@
+package co.com.bancolombia.mongo.helper.bulk;
+
+import co.com.bancolombia.model.stock.StockUpdate;
+import co.com.bancolombia.model.stock.StockUpdateResult;
+import co.com.bancolombia.model.stock.StockUpdateStatus;
+import co.com.bancolombia.mongo.config.MongoAdapterProperties;
+import co.com.bancolombia.mongo.helper.document.BranchDocument;
+import co.com.bancolombia.mongo.helper.document.FranchiseDocument;
+import co.com.bancolombia.mongo.helper.query.StockTargets;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Applies stock updates as unordered bulk writes of targeted stock updates, one round trip per
+ * batch. Bulk results only carry aggregate counts, so the per-item outcome is resolved with a
+ * single projected read of the batch franchises, and only when some update did not match.
+ */
+@Slf4j
+@Component
+@Profile("!in-memory")
+public class StockBulkWriter {
+
+    private static final String ID = "_id";
+    private static final String BRANCH_NAMES = "branches.name";
+    private static final String PRODUCT_NAMES = "branches.products.name";
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final MongoAdapterProperties.Bulk properties;
+
+    public StockBulkWriter(ReactiveMongoTemplate mongoTemplate, MongoAdapterProperties properties) {
+        this.mongoTemplate = mongoTemplate;
+        this.properties = properties.getBulk();
+    }
+
+    /**
+     * Results are emitted in input order. Within a batch only the last update of a given product is
+     * written, since an unordered bulk would not keep their order; every entry for that product
+     * gets the outcome of that write. A batch that does not fill up is written once the batch
+     * window passes.
+     */
+    public Flux<StockUpdateResult> write(Flux<StockUpdate> updates) {
+        return updates.bufferTimeout(properties.getBatchSize(), properties.getBatchWindow(), true)
+                .flatMapSequential(this::writeBatch, properties.getMaxInFlightBatches());
+    }
+
+    Flux<StockUpdateResult> writeBatch(List<StockUpdate> batch) {
+        Map<List<String>, StockUpdate> latest = new LinkedHashMap<>();
+        batch.stream()
+                .filter(StockUpdate::isValid)
+                .forEach(update -> latest.put(keyOf(update), update));
+        if (latest.isEmpty()) {
+            return Flux.fromIterable(batch).map(update -> StockUpdateResult.of(update, StockUpdateStatus.INVALID));
+        }
+
+        List<StockUpdate> writes = latest.values().stream()
+                .sorted(Comparator.comparing(StockUpdate::getFranchiseId))
+                .toList();
+        ReactiveBulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED,
+                FranchiseDocument.class);
+        writes.forEach(update -> operations.updateOne(
+                StockTargets.productQuery(update.getFranchiseId(), update.getBranchName(),
+                        StockTargets.productNamed(update.getProductName())),
+                StockTargets.setStock(update.getBranchName(), update.getProductName(), update.getStock())));
+
+        return operations.execute()
+                .map(result -> new BatchOutcome(result.getMatchedCount(), Set.<Integer>of()))
+                .onErrorResume(BulkOperationException.class, e -> Mono.just(new BatchOutcome(
+                        e.getResult().getMatchedCount(),
+                        e.getErrors().stream().map(BulkWriteError::getIndex).collect(Collectors.toSet()))))
+                .onErrorResume(MongoBulkWriteException.class, e -> Mono.just(new BatchOutcome(
+                        e.getWriteResult().getMatchedCount(),
+                        e.getWriteErrors().stream().map(BulkWriteError::getIndex).collect(Collectors.toSet()))))
+                .flatMap(outcome -> resolveStatuses(writes, outcome))
+                .doOnNext(statuses -> log.info("Bulk stock write of {} entries applied", writes.size()))
+                .flatMapMany(statuses -> Flux.fromIterable(batch)
+                        .map(update -> StockUpdateResult.of(update, update.isValid()
+                                ? statuses.get(keyOf(update))
+                                : StockUpdateStatus.INVALID)));
+    }
+
+    private Mono<Map<List<String>, StockUpdateStatus>> resolveStatuses(List<StockUpdate> writes, BatchOutcome outcome) {
+        Map<List<String>, StockUpdateStatus> statuses = new HashMap<>();
+        for (int i = 0; i < writes.size(); i++) {
+            statuses.put(keyOf(writes.get(i)),
+                    outcome.failed().contains(i) ? StockUpdateStatus.FAILED : StockUpdateStatus.UPDATED);
+        }
+        if (outcome.matched() + outcome.failed().size() >= writes.size()) {
+            return Mono.just(statuses);
+        }
+
+        Set<String> franchiseIds = writes.stream().map(StockUpdate::getFranchiseId).collect(Collectors.toSet());
+        Query query = new Query(Criteria.where(ID).in(franchiseIds));
+        query.fields().include(BRANCH_NAMES, PRODUCT_NAMES);
+        return mongoTemplate.find(query, FranchiseDocument.class)
+                .collectMap(FranchiseDocument::getId, Function.identity())
+                .map(franchises -> {
+                    writes.stream()
+                            .filter(update -> statuses.get(keyOf(update)) == StockUpdateStatus.UPDATED)
+                            .forEach(update -> statuses.put(keyOf(update),
+                                    locate(franchises.get(update.getFranchiseId()), update)));
+                    return statuses;
+                });
+    }
+
+    private static StockUpdateStatus locate(FranchiseDocument franchise, StockUpdate update) {
+        if (franchise == null) {
+            return StockUpdateStatus.FRANCHISE_NOT_FOUND;
+        }
+        Optional<BranchDocument> branch = Optional.ofNullable(franchise.getBranches()).orElse(List.of()).stream()
+                .filter(b -> b.getName().equalsIgnoreCase(update.getBranchName()))
+                .findFirst();
+        if (branch.isEmpty()) {
+            return StockUpdateStatus.BRANCH_NOT_FOUND;
+        }
+        boolean productExists = Optional.ofNullable(branch.get().getProducts()).orElse(List.of()).stream()
+                .anyMatch(p -> p.getName().equalsIgnoreCase(update.getProductName()));
+        return productExists ? StockUpdateStatus.UPDATED : StockUpdateStatus.PRODUCT_NOT_FOUND;
+    }
+
+    static List<String> keyOf(StockUpdate update) {
+        return keyOf(update.getFranchiseId(), update.getBranchName(), update.getProductName());
+    }
+
+    static List<String> keyOf(String franchiseId, String branchName, String productName) {
+        return List.of(franchiseId, FranchiseDocument.nameKeyOf(branchName), FranchiseDocument.nameKeyOf(productName));
+    }
+
+    private record BatchOutcome(int matched, Set<Integer> failed) {
+    }
+}
@@ -0,0 +1,204 @@
+package co.com.bancolombia.mongo.helper.bulk;
+
+import co.com.bancolombia.model.product.Product;
+import co.com.bancolombia.model.stock.StockUpdate;
+import co.com.bancolombia.model.stock.StockUpdateResult;
+import co.com.bancolombia.model.stock.StockUpdateStatus;
+import co.com.bancolombia.mongo.config.MongoAdapterProperties;
+import co.com.bancolombia.mongo.metrics.CommandOrigin;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Write-behind buffer for absolute stock updates. Updates are kept per product, the latest one
+ * replacing any earlier reading still pending, and the buffer is drained into a single bulk write
+ * every window and once more on shutdown.
+ * <p>
+ * Drained updates are written one batch after another, so a later reading of a product never lands
+ * before an earlier one. Writes that bypass the buffer for the same product call {@link #settle}
+ * first, so they apply on top of every reading accepted before them.
+ * <p>
+ * A buffered update is acknowledged before it reaches the database, so a missing franchise, branch
+ * or product is only logged when the batch is written, and updates still pending when the process
+ * dies are lost.
+ */
+@Slf4j
+@Component
+@Profile("!in-memory")
+public class StockWriteBehindBuffer {
+
+    public static final String RECEIVED_METRIC = "stock.writebehind.received";
+    public static final String WRITTEN_METRIC = "stock.writebehind.written";
+    public static final String DEPTH_METRIC = "stock.writebehind.depth";
+    public static final String FLUSH_METRIC = "stock.writebehind.flush";
+
+    private final StockBulkWriter writer;
+    private final MongoAdapterProperties.WriteBehind properties;
+    private final Map<List<String>, StockUpdate> pending = new ConcurrentHashMap<>();
+    private final Sinks.Many<StockUpdateResult> written = Sinks.many().multicast().directBestEffort();
+    private final Counter receivedCounter;
+    private final Counter writtenCounter;
+    private final Timer flushTimer;
+
+    // Completion of the last write started, every write chains after it
+    private Mono<Void> inFlight = Mono.empty();
+    private Disposable schedule;
+
+    public StockWriteBehindBuffer(StockBulkWriter writer, MongoAdapterProperties properties,
+                                  MeterRegistry meterRegistry) {
+        this.writer = writer;
+        this.properties = properties.getWriteBehind();
+        this.receivedCounter = Counter.builder(RECEIVED_METRIC)
+                .description("Stock updates accepted into the write-behind buffer")
+                .register(meterRegistry);
+        this.writtenCounter = Counter.builder(WRITTEN_METRIC)
+                .description("Stock updates written after coalescing")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder(FLUSH_METRIC)
+                .description("Time to write one drained buffer")
+                .register(meterRegistry);
+        Gauge.builder(DEPTH_METRIC, pending, Map::size)
+                .description("Products with a stock update waiting to be written")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!isEnabled()) {
+            return;
+        }
+        // A flush slower than the window skips ticks instead of queueing them
+        schedule = Flux.interval(properties.getWindow())
+                .onBackpressureDrop()
+                .concatMap(tick -> flush(), 1)
+                .subscribe();
+        log.info("Stock write-behind enabled with a {} window", properties.getWindow());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (schedule != null) {
+            schedule.dispose();
+        }
+        if (!pending.isEmpty()) {
+            log.info("Flushing {} buffered stock updates before shutdown", pending.size());
+        }
+        // Also waits for a flush the schedule left running
+        flush().block(properties.getShutdownTimeout());
+    }
+
+    /**
+     * Buffers the update and answers with the product as it will be once written.
+     */
+    public Mono<Product> submit(StockUpdate update) {
+        return Mono.fromSupplier(() -> {
+            Product product = Product.create(update.getProductName(), update.getStock());
+            pending.put(StockBulkWriter.keyOf(update), update);
+            receivedCounter.increment();
+            return product;
+        });
+    }
+
+    /**
+     * Outcomes of the buffered updates as they are written, for listeners that must react after
+     * the database has the change rather than when the update was accepted.
+     */
+    public Flux<StockUpdateResult> written() {
+        return written.asFlux();
+    }
+
+    /**
+     * Writes everything buffered so far. Updates arriving meanwhile wait for the next flush.
+     */
+    public Mono<Void> flush() {
+        return Mono.defer(() -> {
+            synchronized (this) {
+                return write(drain());
+            }
+        });
+    }
+
+    /**
+     * Writes the reading still buffered for the product, if any, and completes once every reading
+     * of it accepted so far is in the database.
+     */
+    public Mono<Void> settle(String franchiseId, String branchName, String productName) {
+        List<String> key = StockBulkWriter.keyOf(franchiseId, branchName, productName);
+        return Mono.defer(() -> {
+            synchronized (this) {
+                StockUpdate update = pending.remove(key);
+                return write(update == null ? List.of() : List.of(update));
+            }
+        });
+    }
+
+    /**
+     * Starts writing {@code updates} once the previous write ends and answers with its completion.
+     * With nothing to write it answers with the previous write, which may still carry the updates
+     * a caller is waiting for.
+     */
+    private Mono<Void> write(List<StockUpdate> updates) {
+        if (updates.isEmpty()) {
+            return inFlight;
+        }
+        Sinks.Empty<Void> done = Sinks.empty();
+        Mono<Void> previous = inFlight;
+        inFlight = done.asMono();
+        // Started here rather than by the caller, so a cancelled caller does not hold back the writes
+        // chained after it; the sink keeps no reference to the writes before it
+        previous.then(Mono.defer(() -> {
+                    Timer.Sample sample = Timer.start();
+                    return writer.write(Flux.fromIterable(updates))
+                            .doOnNext(this::onWritten)
+                            .then()
+                            .doOnSuccess(v -> writtenCounter.increment(updates.size()))
+                            .doFinally(signal -> sample.stop(flushTimer))
+                            .doOnError(e -> log.error("Write-behind flush of {} stock updates failed: {}",
+                                    updates.size(), e.getMessage()))
+                            .onErrorResume(e -> Mono.empty());
+                }))
+                .doFinally(signal -> done.tryEmitEmpty())
+                .contextWrite(CommandOrigin.of("stockWriteBehind"))
+                .subscribe();
+        return inFlight;
+    }
+
+    private List<StockUpdate> drain() {
+        List<StockUpdate> drained = new ArrayList<>(pending.size());
+        for (List<String> key : pending.keySet()) {
+            StockUpdate update = pending.remove(key);
+            if (update != null) {
+                drained.add(update);
+            }
+        }
+        return drained;
+    }
+
+    private void onWritten(StockUpdateResult result) {
+        if (result.getStatus() != StockUpdateStatus.UPDATED) {
+            log.warn("Buffered stock update {} was not applied: {}", result.getUpdate(), result.getStatus());
+        }
+        written.tryEmitNext(result);
+    }
+}
@@ -0,0 +1,155 @@
+package co.com.bancolombia.mongo.helper.concurrency;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs operations that share a key one after another, in submission order, while operations on
+ * different keys run in parallel. Each active key owns a lock-free queue; the operation at its head
+ * is started on the parallel scheduler once the previous one terminates, and the queue is dropped
+ * as soon as it runs empty so idle keys hold no memory.
+ * <p>
+ * An operation cancelled while still queued is skipped. Once started it is left to finish, so the
+ * next operation never overlaps it. An operation the scheduler refuses to run, as on shutdown,
+ * fails with the rejection and the queue moves on to the next one.
+ */
+@Component
+public class KeyedSerialExecutor {
+
+    public static final String ACTIVE_KEYS_METRIC = "franchise.mutation.active.keys";
+
+    private final Map<String, KeyQueue> queues = new ConcurrentHashMap<>();
+    private final Scheduler scheduler;
+
+    public KeyedSerialExecutor(MeterRegistry meterRegistry) {
+        this(meterRegistry, Schedulers.parallel());
+    }
+
+    KeyedSerialExecutor(MeterRegistry meterRegistry, Scheduler scheduler) {
+        this.scheduler = scheduler;
+        Gauge.builder(ACTIVE_KEYS_METRIC, queues, Map::size)
+                .description("Franchises with mutations queued or running")
+                .register(meterRegistry);
+    }
+
+    public <T> Mono<T> submit(String key, Supplier<Mono<T>> operation) {
+        return Mono.create(sink -> {
+            Task<T> task = new Task<>(operation, sink);
+            sink.onCancel(task::cancel);
+            enqueue(key, task);
+        });
+    }
+
+    int activeKeys() {
+        return queues.size();
+    }
+
+    private void enqueue(String key, Task<?> task) {
+        while (true) {
+            KeyQueue queue = queues.computeIfAbsent(key, KeyQueue::new);
+            if (queue.offer(task)) {
+                return;
+            }
+            // Retired between lookup and offer: drop it so the next lookup creates a fresh queue
+            queues.remove(key, queue);
+        }
+    }
+
+    private final class KeyQueue {
+
+        private static final int RETIRED = -1;
+
+        private final String key;
+        private final Queue<Task<?>> tasks = new ConcurrentLinkedQueue<>();
+        // Tasks queued or running, RETIRED once the queue has been emptied for good
+        private final AtomicInteger size = new AtomicInteger();
+
+        private KeyQueue(String key) {
+            this.key = key;
+        }
+
+        boolean offer(Task<?> task) {
+            int previous;
+            do {
+                previous = size.get();
+                if (previous == RETIRED) {
+                    return false;
+                }
+            } while (!size.compareAndSet(previous, previous + 1));
+            tasks.offer(task);
+            if (previous == 0) {
+                startNext();
+            }
+            return true;
+        }
+
+        private void startNext() {
+            Task<?> next;
+            // The submitter counted its task before adding it, wait for the add to land
+            while ((next = tasks.poll()) == null) {
+                Thread.onSpinWait();
+            }
+            Task<?> task = next;
+            try {
+                scheduler.schedule(() -> task.run(this::onTaskDone));
+            } catch (RejectedExecutionException e) {
+                task.fail(e);
+                onTaskDone();
+            }
+        }
+
+        private void onTaskDone() {
+            if (size.decrementAndGet() > 0) {
+                startNext();
+            } else if (size.compareAndSet(0, RETIRED)) {
+                queues.remove(key, this);
+            }
+        }
+    }
+
+    private static final class Task<T> {
+
+        private final Supplier<Mono<T>> operation;
+        private final MonoSink<T> sink;
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+
+        private Task(Supplier<Mono<T>> operation, MonoSink<T> sink) {
+            this.operation = operation;
+            this.sink = sink;
+        }
+
+        void cancel() {
+            cancelled.set(true);
+        }
+
+        void fail(Throwable error) {
+            sink.error(error);
+        }
+
+        void run(Runnable onDone) {
+            if (cancelled.get()) {
+                onDone.run();
+                return;
+            }
+            Mono.defer(operation)
+                    // Keep the submitter's context, the operation is subscribed from another chain
+                    .contextWrite(sink.contextView())
+                    .doFinally(signal -> onDone.run())
+                    .subscribe(sink::success, sink::error, sink::success);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package co.com.bancolombia.mongo.helper.concurrency;
+
+import co.com.bancolombia.commons.exception.AppErrorCode;
+import co.com.bancolombia.commons.exception.AppException;
+import co.com.bancolombia.mongo.config.MongoAdapterProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.util.function.Supplier;
+
+/**
+ * Re-runs a read-modify-write attempt when the conditional replace loses against a concurrent
+ * writer. Each attempt must read the document again so the mutation is applied on fresh state.
+ * Only the branch-per-document layout writes this way; the embedded layout applies its mutations
+ * as single conditional updates.
+ */
+@Slf4j
+@Component
+@Profile("branch-per-document & !in-memory")
+public class OptimisticRetry {
+
+    public static final String CONFLICTS_METRIC = "franchise.mutation.conflicts";
+    public static final String RETRIES_METRIC = "franchise.mutation.retries";
+    public static final String EXHAUSTED_METRIC = "franchise.mutation.retries.exhausted";
+    private static final String OPERATION_TAG = "operation";
+
+    private final MongoAdapterProperties.OptimisticRetry properties;
+    private final MeterRegistry meterRegistry;
+
+    public OptimisticRetry(MongoAdapterProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties.getOptimisticRetry();
+        this.meterRegistry = meterRegistry;
+    }
+
+    public <T> Mono<T> execute(String operation, Supplier<Mono<T>> attempt) {
+        Counter conflicts = counter(CONFLICTS_METRIC, operation);
+        Counter retries = counter(RETRIES_METRIC, operation);
+        Counter exhausted = counter(EXHAUSTED_METRIC, operation);
+
+        return Mono.defer(attempt)
+                .doOnError(OptimisticLockingFailureException.class, e -> conflicts.increment())
+                .retryWhen(Retry.backoff(properties.getMaxRetries(), properties.getMinBackoff())
+                        .maxBackoff(properties.getMaxBackoff())
+                        .jitter(properties.getJitter())
+                        .filter(OptimisticLockingFailureException.class::isInstance)
+                        .doBeforeRetry(signal -> {
+                            retries.increment();
+                            log.debug("Version conflict on {}, retry #{}", operation, signal.totalRetries() + 1);
+                        })
+                        .onRetryExhaustedThrow((spec, signal) -> {
+                            exhausted.increment();
+                            log.warn("Giving up {} after {} version conflicts", operation, signal.totalRetries() + 1);
+                            return new AppException(AppErrorCode.CONCURRENT_MODIFICATION, signal.failure());
+                        }));
+    }
+
+    private Counter counter(String name, String operation) {
+        return Counter.builder(name)
+                .tag(OPERATION_TAG, operation)
+                .register(meterRegistry);
+    }
+}
@@ -14,4 +14,8 @@ import java.util.List;
 public class BranchDocument {
     private String name;
     private List<ProductDocument> products;
+    /**
+     * Maintained by every write, see {@code TopProductSummaries}.
+     */
+    private List<ProductDocument> topProducts;
 }
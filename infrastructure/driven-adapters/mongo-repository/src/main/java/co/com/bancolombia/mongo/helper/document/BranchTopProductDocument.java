@@ -0,0 +1,15 @@
+package co.com.bancolombia.mongo.helper.document;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BranchTopProductDocument {
+    private String branchName;
+    private ProductDocument product;
+}
@@ -0,0 +1,49 @@
+package co.com.bancolombia.mongo.helper.document;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.bson.types.ObjectId;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.List;
+
+/**
+ * A branch stored on its own in the branch-per-document layout, where the franchise document keeps
+ * only its header. Ids start with the franchise id, so a branch is traced back to its franchise from
+ * the id alone (e.g. from a change stream delete) and branches sort in creation order within it.
+ */
+@Document(collection = FranchiseBranchDocument.COLLECTION)
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class FranchiseBranchDocument {
+    public static final String COLLECTION = "franchise_branch";
+    public static final String NAME_KEY_INDEX = "franchise_branch_name_key_unique";
+    private static final char ID_SEPARATOR = ':';
+
+    @Id
+    private String id;
+    private String franchiseId;
+    private String name;
+    private String nameKey;
+    private List<ProductDocument> products;
+    /**
+     * Maintained by every write, see {@code TopProductSummaries}.
+     */
+    private List<ProductDocument> topProducts;
+    @Version
+    private Long version;
+
+    public static String newId(String franchiseId) {
+        return franchiseId + ID_SEPARATOR + new ObjectId().toHexString();
+    }
+
+    public static String franchiseIdOf(String id) {
+        return id.substring(0, id.lastIndexOf(ID_SEPARATOR));
+    }
+}
@@ -5,9 +5,11 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.util.List;
+import java.util.Locale;
 
 @Document(collection = "franchise")
 @Data
@@ -15,8 +17,20 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 public class FranchiseDocument {
+    public static final String NAME_KEY_INDEX = "franchise_name_key_unique";
+
     @Id
     private String id;
     private String name;
+    private String nameKey;
     private List<BranchDocument> branches;
+    @Version
+    private Long version;
+
+    /**
+     * Normalized form of a franchise or product name backing the case-insensitive indexes.
+     */
+    public static String nameKeyOf(String name) {
+        return name == null ? null : name.toLowerCase(Locale.ROOT);
+    }
 }
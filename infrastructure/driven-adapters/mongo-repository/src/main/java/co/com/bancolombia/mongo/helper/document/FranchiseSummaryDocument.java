@@ -0,0 +1,19 @@
+package co.com.bancolombia.mongo.helper.document;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class FranchiseSummaryDocument {
+    @Id
+    private String id;
+    private String name;
+    private int branchCount;
+    private int productCount;
+}
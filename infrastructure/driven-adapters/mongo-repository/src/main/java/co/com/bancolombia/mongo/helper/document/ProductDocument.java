@@ -11,5 +11,9 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 public class ProductDocument {
     private String name;
+    /**
+     * Lower-cased name backing the case-insensitive product search index.
+     */
+    private String nameKey;
     private int stock;
 }
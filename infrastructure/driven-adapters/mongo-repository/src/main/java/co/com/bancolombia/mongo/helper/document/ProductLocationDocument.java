@@ -0,0 +1,18 @@
+package co.com.bancolombia.mongo.helper.document;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductLocationDocument {
+    private String franchiseId;
+    private String franchiseName;
+    private String branchName;
+    private String productName;
+    private int stock;
+}
@@ -2,10 +2,16 @@ package co.com.bancolombia.mongo.helper.mapper;
 
 import co.com.bancolombia.model.branch.Branch;
 import co.com.bancolombia.model.franchise.Franchise;
+import co.com.bancolombia.model.franchisesummary.FranchiseSummary;
 import co.com.bancolombia.model.product.Product;
+import co.com.bancolombia.model.productlocation.ProductLocation;
 import co.com.bancolombia.mongo.helper.document.BranchDocument;
+import co.com.bancolombia.mongo.helper.document.FranchiseBranchDocument;
 import co.com.bancolombia.mongo.helper.document.FranchiseDocument;
+import co.com.bancolombia.mongo.helper.document.FranchiseSummaryDocument;
 import co.com.bancolombia.mongo.helper.document.ProductDocument;
+import co.com.bancolombia.mongo.helper.document.ProductLocationDocument;
+import co.com.bancolombia.mongo.helper.query.TopProductSummaries;
 import org.springframework.stereotype.Component;
 
 import java.util.Collections;
@@ -17,10 +23,44 @@ public class FranchiseDocumentMapper {
         return FranchiseDocument.builder()
                 .id(franchise.getId())
                 .name(franchise.getName())
+                .nameKey(FranchiseDocument.nameKeyOf(franchise.getName()))
                 .branches(toBranchDocuments(franchise.getBranches()))
                 .build();
     }
 
+    /**
+     * The franchise document of the branch-per-document layout, without its branches.
+     */
+    public FranchiseDocument toHeaderDocument(Franchise franchise) {
+        return FranchiseDocument.builder()
+                .id(franchise.getId())
+                .name(franchise.getName())
+                .nameKey(FranchiseDocument.nameKeyOf(franchise.getName()))
+                .build();
+    }
+
+    /**
+     * The branches of a franchise as documents of their own, with ids issued in list order.
+     */
+    public List<FranchiseBranchDocument> toBranchDocuments(String franchiseId, List<Branch> branches) {
+        if (branches == null) return Collections.emptyList();
+        return branches.stream()
+                .map(branch -> toBranchDocument(franchiseId, branch))
+                .toList();
+    }
+
+    public FranchiseBranchDocument toBranchDocument(String franchiseId, Branch branch) {
+        List<ProductDocument> products = toProductDocuments(branch.getProducts());
+        return FranchiseBranchDocument.builder()
+                .id(FranchiseBranchDocument.newId(franchiseId))
+                .franchiseId(franchiseId)
+                .name(branch.getName())
+                .nameKey(FranchiseDocument.nameKeyOf(branch.getName()))
+                .products(products)
+                .topProducts(TopProductSummaries.summarize(products))
+                .build();
+    }
+
     private List<BranchDocument> toBranchDocuments(List<Branch> branches) {
         if (branches == null) return Collections.emptyList();
         return branches.stream()
@@ -28,31 +68,47 @@ public class FranchiseDocumentMapper {
                 .toList();
     }
 
-    private BranchDocument toBranchDocument(Branch branch) {
+    public BranchDocument toBranchDocument(Branch branch) {
+        List<ProductDocument> products = toProductDocuments(branch.getProducts());
         return BranchDocument.builder()
                 .name(branch.getName())
-                .products(toProductDocuments(branch.getProducts()))
+                .products(products)
+                .topProducts(TopProductSummaries.summarize(products))
                 .build();
     }
 
     private List<ProductDocument> toProductDocuments(List<Product> products) {
         if (products == null) return Collections.emptyList();
         return products.stream()
-                .map(p -> ProductDocument.builder()
-                        .name(p.getName())
-                        .stock(p.getStock())
-                        .build())
+                .map(this::toProductDocument)
                 .toList();
     }
 
-    public Franchise toEntity(FranchiseDocument document) {
-        return Franchise.builder()
-                .id(document.getId())
-                .name(document.getName())
-                .branches(toBranches(document.getBranches()))
+    public ProductDocument toProductDocument(Product product) {
+        return ProductDocument.builder()
+                .name(product.getName())
+                .nameKey(FranchiseDocument.nameKeyOf(product.getName()))
+                .stock(product.getStock())
                 .build();
     }
 
+    /**
+     * Stored documents were validated when written, so entities are restored from them without
+     * validating again or copying the lists built here.
+     */
+    public Franchise toEntity(FranchiseDocument document) {
+        return Franchise.restore(document.getId(), document.getName(), toBranches(document.getBranches()));
+    }
+
+    /**
+     * Reassembles a franchise of the branch-per-document layout from its header and its branches.
+     */
+    public Franchise toEntity(FranchiseDocument header, List<FranchiseBranchDocument> branches) {
+        return Franchise.restore(header.getId(), header.getName(), branches.stream()
+                .map(branch -> Branch.restore(branch.getName(), toProducts(branch.getProducts())))
+                .toList());
+    }
+
     private List<Branch> toBranches(List<BranchDocument> documents) {
         if (documents == null) return Collections.emptyList();
         return documents.stream()
@@ -61,26 +117,36 @@ public class FranchiseDocumentMapper {
     }
 
     private Branch toBranch(BranchDocument doc) {
-        return Branch.builder()
-                .name(doc.getName())
-                .products(toProducts(doc.getProducts()))
-                .build();
+        return Branch.restore(doc.getName(), toProducts(doc.getProducts()));
     }
 
     private List<Product> toProducts(List<ProductDocument> docs) {
         if (docs == null) return Collections.emptyList();
         return docs.stream()
-                .map(p -> Product.builder()
-                        .name(p.getName())
-                        .stock(p.getStock())
-                        .build())
+                .map(p -> Product.restore(p.getName(), p.getStock()))
                 .toList();
     }
 
     public Product toProduct(ProductDocument doc) {
         if (doc == null) return null;
-        return Product.builder()
+        return Product.restore(doc.getName(), doc.getStock());
+    }
+
+    public FranchiseSummary toSummary(FranchiseSummaryDocument doc) {
+        return FranchiseSummary.builder()
+                .id(doc.getId())
                 .name(doc.getName())
+                .branchCount(doc.getBranchCount())
+                .productCount(doc.getProductCount())
+                .build();
+    }
+
+    public ProductLocation toProductLocation(ProductLocationDocument doc) {
+        return ProductLocation.builder()
+                .franchiseId(doc.getFranchiseId())
+                .franchiseName(doc.getFranchiseName())
+                .branchName(doc.getBranchName())
+                .productName(doc.getProductName())
                 .stock(doc.getStock())
                 .build();
     }
@@ -0,0 +1,102 @@
+package co.com.bancolombia.mongo.helper.query;
+
+import co.com.bancolombia.mongo.helper.document.FranchiseBranchDocument;
+import co.com.bancolombia.mongo.helper.document.FranchiseDocument;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Counterparts of {@link LowStockAggregation}, {@link ProductSearchAggregation} and
+ * {@link FranchiseSummaryAggregation} over the branch collection of the branch-per-document layout.
+ * Product rows only carry the franchise id; the adapter fills in the franchise names.
+ */
+public final class BranchAggregations {
+
+    public static final String STOCK_PATH = "products.stock";
+    public static final String NAME_KEY_PATH = "products.nameKey";
+    private static final String FRANCHISE_ID = "franchiseId";
+    private static final String NAME = "name";
+    private static final String PRODUCT_NAME = "products.name";
+
+    private BranchAggregations() {
+    }
+
+    /**
+     * Rows are ordered by franchise id, branch name and product name, which is also the
+     * continuation key. Like {@link LowStockAggregation}, the page is cut to {@code limit} branches
+     * before their products are unwound.
+     *
+     * @param after franchise id, branch name and product name of the last row of the previous page,
+     *              or {@code null} for the first page
+     * @param limit maximum number of rows returned
+     */
+    public static TypedAggregation<FranchiseBranchDocument> lowStock(int threshold, List<String> after, int limit) {
+        Document lowStock = new Document(STOCK_PATH, new Document("$lt", threshold));
+        List<AggregationOperation> stages = new ArrayList<>();
+        stages.add(stage("$match", after == null
+                ? lowStock
+                : new Document(lowStock).append("$or", List.of(
+                        new Document(FRANCHISE_ID, new Document("$gt", after.get(0))),
+                        new Document(FRANCHISE_ID, after.get(0)).append(NAME, new Document("$gte", after.get(1)))))));
+        stages.add(stage("$sort", new Document(FRANCHISE_ID, 1).append(NAME, 1)));
+        // When resuming, the first branch may have no rows left after the previous page
+        stages.add(Aggregation.limit(after == null ? limit : limit + 1L));
+        stages.add(stage("$unwind", "$products"));
+        Document rowFilter = new Document(lowStock);
+        if (after != null) {
+            rowFilter.append("$or", List.of(
+                    new Document(FRANCHISE_ID, new Document("$gt", after.get(0))),
+                    new Document(FRANCHISE_ID, after.get(0)).append(NAME, new Document("$gt", after.get(1))),
+                    new Document(FRANCHISE_ID, after.get(0)).append(NAME, after.get(1))
+                            .append(PRODUCT_NAME, new Document("$gt", after.get(2)))));
+        }
+        stages.add(stage("$match", rowFilter));
+        stages.add(stage("$sort", new Document(FRANCHISE_ID, 1)
+                .append(NAME, 1)
+                .append(PRODUCT_NAME, 1)));
+        stages.add(Aggregation.limit(limit));
+        stages.add(productRow());
+        return Aggregation.newAggregation(FranchiseBranchDocument.class, stages);
+    }
+
+    public static TypedAggregation<FranchiseBranchDocument> productSearch(String prefix) {
+        Pattern pattern = NameMatchers.prefix(FranchiseDocument.nameKeyOf(prefix));
+        return Aggregation.newAggregation(FranchiseBranchDocument.class, List.of(
+                stage("$match", new Document(NAME_KEY_PATH, pattern)),
+                stage("$unwind", "$products"),
+                stage("$match", new Document(NAME_KEY_PATH, pattern)),
+                productRow()));
+    }
+
+    /**
+     * Branch and product counts of the given franchises, one {@code {_id: franchiseId, branchCount,
+     * productCount}} row per franchise holding branches.
+     */
+    public static TypedAggregation<FranchiseBranchDocument> counts(Collection<String> franchiseIds) {
+        return Aggregation.newAggregation(FranchiseBranchDocument.class, List.of(
+                stage("$match", new Document(FRANCHISE_ID, new Document("$in", List.copyOf(franchiseIds)))),
+                stage("$group", new Document("_id", "$" + FRANCHISE_ID)
+                        .append("branchCount", new Document("$sum", 1))
+                        .append("productCount", new Document("$sum",
+                                new Document("$size", new Document("$ifNull", List.of("$products", List.of()))))))));
+    }
+
+    private static AggregationOperation productRow() {
+        return stage("$project", new Document("_id", 0)
+                .append(FRANCHISE_ID, 1)
+                .append("branchName", "$" + NAME)
+                .append("productName", "$" + PRODUCT_NAME)
+                .append("stock", "$" + STOCK_PATH));
+    }
+
+    private static AggregationOperation stage(String operator, Object definition) {
+        return context -> new Document(operator, definition);
+    }
+}
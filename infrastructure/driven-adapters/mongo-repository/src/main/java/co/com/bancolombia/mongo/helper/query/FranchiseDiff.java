@@ -0,0 +1,132 @@
+package co.com.bancolombia.mongo.helper.query;
+
+import co.com.bancolombia.mongo.helper.document.BranchDocument;
+import co.com.bancolombia.mongo.helper.document.FranchiseDocument;
+import co.com.bancolombia.mongo.helper.document.ProductDocument;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Minimal update turning a franchise document, as read, into its mutated form, so a write sends
+ * only what changed instead of the whole document.
+ * <p>
+ * Fields are {@code $set} one by one down to the product. An array that only grew at its end is
+ * {@code $push}ed to, one that only lost elements is {@code $pull}ed from by name, and one that kept
+ * its length is diffed element by element. MongoDB rejects an update touching both an array and
+ * paths inside it, so any other change replaces the array as a whole.
+ */
+public final class FranchiseDiff {
+
+    private static final String NAME = "name";
+    private static final String NAME_KEY = "nameKey";
+    private static final String STOCK = "stock";
+    private static final String BRANCHES = "branches";
+    private static final String PRODUCTS = "products";
+    private static final String TOP_PRODUCTS = "topProducts";
+
+    private FranchiseDiff() {
+    }
+
+    /**
+     * Update operators leading from {@code before} to {@code after}, or empty when they are equal.
+     * The version is left to the caller.
+     */
+    public static Optional<Update> between(FranchiseDocument before, FranchiseDocument after) {
+        Update update = new Update();
+        setIfChanged(update, NAME, before.getName(), after.getName());
+        setIfChanged(update, NAME_KEY, before.getNameKey(), after.getNameKey());
+        diffArray(update, BRANCHES, before.getBranches(), after.getBranches(),
+                BranchDocument::getName, FranchiseDiff::diffBranch);
+        return update.getUpdateObject().isEmpty() ? Optional.empty() : Optional.of(update);
+    }
+
+    private static void diffBranch(Update update, String path, BranchDocument before, BranchDocument after) {
+        setIfChanged(update, path + "." + NAME, before.getName(), after.getName());
+        diffArray(update, path + "." + PRODUCTS, before.getProducts(), after.getProducts(),
+                ProductDocument::getName, FranchiseDiff::diffProduct);
+        // The summary holds at most a handful of products, rewriting it is cheaper than diffing it
+        setIfChanged(update, path + "." + TOP_PRODUCTS, before.getTopProducts(), after.getTopProducts());
+    }
+
+    private static void diffProduct(Update update, String path, ProductDocument before, ProductDocument after) {
+        setIfChanged(update, path + "." + NAME, before.getName(), after.getName());
+        setIfChanged(update, path + "." + NAME_KEY, before.getNameKey(), after.getNameKey());
+        setIfChanged(update, path + "." + STOCK, before.getStock(), after.getStock());
+    }
+
+    private static <T> void diffArray(Update update, String path, List<T> before, List<T> after,
+                                      Function<T, String> nameOf, ElementDiff<T> elementDiff) {
+        if (Objects.equals(before, after)) {
+            return;
+        }
+        if (before == null || after == null) {
+            update.set(path, after);
+            return;
+        }
+        if (after.size() > before.size() && after.subList(0, before.size()).equals(before)) {
+            update.push(path).each(after.subList(before.size(), after.size()).toArray());
+            return;
+        }
+        List<String> removed = removedNames(before, after, nameOf);
+        if (!removed.isEmpty()) {
+            update.pull(path, new Document(NAME, new Document("$in", removed)));
+            return;
+        }
+        if (after.size() == before.size()) {
+            for (int i = 0; i < after.size(); i++) {
+                if (!Objects.equals(before.get(i), after.get(i))) {
+                    elementDiff.apply(update, path + "." + i, before.get(i), after.get(i));
+                }
+            }
+            return;
+        }
+        update.set(path, after);
+    }
+
+    /**
+     * Names of the elements dropped from {@code before} when {@code after} is {@code before} minus
+     * some elements, in the same order, and those names identify them unambiguously; otherwise an
+     * empty list.
+     */
+    private static <T> List<String> removedNames(List<T> before, List<T> after, Function<T, String> nameOf) {
+        if (after.size() >= before.size()) {
+            return List.of();
+        }
+        List<String> removed = new ArrayList<>();
+        int kept = 0;
+        for (T element : before) {
+            if (kept < after.size() && Objects.equals(element, after.get(kept))) {
+                kept++;
+            } else if (nameOf.apply(element) == null) {
+                return List.of();
+            } else {
+                removed.add(nameOf.apply(element));
+            }
+        }
+        if (kept < after.size()) {
+            return List.of();
+        }
+        Set<String> removedSet = new HashSet<>(removed);
+        boolean ambiguous = after.stream().map(nameOf).anyMatch(removedSet::contains);
+        return ambiguous ? List.of() : removed;
+    }
+
+    private static void setIfChanged(Update update, String path, Object before, Object after) {
+        if (!Objects.equals(before, after)) {
+            update.set(path, after);
+        }
+    }
+
+    @FunctionalInterface
+    private interface ElementDiff<T> {
+        void apply(Update update, String path, T before, T after);
+    }
+}
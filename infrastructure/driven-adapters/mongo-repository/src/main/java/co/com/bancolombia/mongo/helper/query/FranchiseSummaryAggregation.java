@@ -0,0 +1,46 @@
+package co.com.bancolombia.mongo.helper.query;
+
+import co.com.bancolombia.mongo.helper.document.FranchiseDocument;
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds a keyset page of franchise summaries. Branch and product counts are computed by the server
+ * in {@code $project}, so the {@code branches} array never leaves the database.
+ */
+public final class FranchiseSummaryAggregation {
+
+    private static final String BRANCHES = "$branches";
+
+    private FranchiseSummaryAggregation() {
+    }
+
+    /**
+     * @param after keyset condition of the page, or {@code null} for the first page
+     * @param limit maximum number of summaries returned
+     */
+    public static TypedAggregation<FranchiseDocument> of(Criteria after, int limit) {
+        List<AggregationOperation> stages = new ArrayList<>();
+        if (after != null) {
+            stages.add(Aggregation.match(after));
+        }
+        stages.add(Aggregation.sort(Sort.Direction.ASC, "_id"));
+        stages.add(Aggregation.limit(limit));
+        stages.add(context -> new Document("$project", new Document("name", 1)
+                .append("branchCount", new Document("$size", orEmpty(BRANCHES)))
+                .append("productCount", new Document("$sum", new Document("$map", new Document("input", orEmpty(BRANCHES))
+                        .append("in", new Document("$size", orEmpty("$$this.products"))))))));
+        return Aggregation.newAggregation(FranchiseDocument.class, stages);
+    }
+
+    private static Document orEmpty(String field) {
+        return new Document("$ifNull", List.of(field, List.of()));
+    }
+}
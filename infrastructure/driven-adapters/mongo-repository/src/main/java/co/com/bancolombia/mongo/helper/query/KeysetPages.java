@@ -0,0 +1,47 @@
+package co.com.bancolombia.mongo.helper.query;
+
+import org.bson.BsonType;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+public final class KeysetPages {
+
+    private static final String ID = "_id";
+
+    private KeysetPages() {
+    }
+
+    /**
+     * Ids that look like ObjectIds are stored as ObjectIds, the rest as strings, and MongoDB orders
+     * every string before every ObjectId. Range operators only compare values of the same type, so
+     * after a string id the ObjectId ids still to come have to be included explicitly.
+     */
+    public static Criteria afterId(String lastId) {
+        if (ObjectId.isValid(lastId)) {
+            return Criteria.where(ID).gt(new ObjectId(lastId));
+        }
+        return new Criteria().orOperator(
+                Criteria.where(ID).gt(lastId),
+                Criteria.where(ID).type(BsonType.OBJECT_ID.getValue()));
+    }
+
+    /**
+     * Same as {@link #afterId(String)} but keeps the last id itself, for pages that can stop in the
+     * middle of a document.
+     */
+    public static Criteria fromId(String lastId) {
+        if (ObjectId.isValid(lastId)) {
+            return Criteria.where(ID).gte(new ObjectId(lastId));
+        }
+        return new Criteria().orOperator(
+                Criteria.where(ID).gte(lastId),
+                Criteria.where(ID).type(BsonType.OBJECT_ID.getValue()));
+    }
+
+    /**
+     * The stored value of an id, for comparisons written directly in a pipeline stage.
+     */
+    public static Object idValue(String id) {
+        return ObjectId.isValid(id) ? new ObjectId(id) : id;
+    }
+}
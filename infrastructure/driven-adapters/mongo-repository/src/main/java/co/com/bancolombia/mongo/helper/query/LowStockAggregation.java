@@ -0,0 +1,74 @@
+package co.com.bancolombia.mongo.helper.query;
+
+import co.com.bancolombia.mongo.helper.document.FranchiseDocument;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds a keyset page of products whose stock is below a threshold, across every franchise, as
+ * {@code {franchiseId, franchiseName, branchName, productName, stock}} rows.
+ * <p>
+ * The first {@code $match} runs on the multikey {@code branches.products.stock} index, so only
+ * franchises holding at least one low-stock product are read. Every such franchise yields at least
+ * one row, so the page is cut to {@code limit} franchises in id order before unwinding, and only
+ * their products are unwound, filtered and sorted; the cost of a page does not grow with the number
+ * of low-stock products in the collection. Rows are ordered by franchise id, branch name and product
+ * name, which is also the continuation key.
+ */
+public final class LowStockAggregation {
+
+    public static final String STOCK_PATH = "branches.products.stock";
+    private static final String BRANCH_NAME = "branches.name";
+    private static final String PRODUCT_NAME = "branches.products.name";
+
+    private LowStockAggregation() {
+    }
+
+    /**
+     * @param after franchise id, branch name and product name of the last row of the previous page,
+     *              or {@code null} for the first page
+     * @param limit maximum number of rows returned
+     */
+    public static TypedAggregation<FranchiseDocument> of(int threshold, List<String> after, int limit) {
+        Criteria lowStock = Criteria.where(STOCK_PATH).lt(threshold);
+        List<AggregationOperation> stages = new ArrayList<>();
+        stages.add(Aggregation.match(after == null
+                ? lowStock
+                : new Criteria().andOperator(lowStock, KeysetPages.fromId(after.get(0)))));
+        stages.add(stage("$sort", new Document("_id", 1)));
+        // When resuming, the first franchise may have no rows left after the previous page
+        stages.add(Aggregation.limit(after == null ? limit : limit + 1L));
+        stages.add(stage("$unwind", "$branches"));
+        stages.add(stage("$unwind", "$branches.products"));
+        Document rowFilter = new Document(STOCK_PATH, new Document("$lt", threshold));
+        if (after != null) {
+            rowFilter.append("$or", List.of(
+                    new Document("_id", new Document("$ne", KeysetPages.idValue(after.get(0)))),
+                    new Document(BRANCH_NAME, new Document("$gt", after.get(1))),
+                    new Document(BRANCH_NAME, after.get(1))
+                            .append(PRODUCT_NAME, new Document("$gt", after.get(2)))));
+        }
+        stages.add(stage("$match", rowFilter));
+        stages.add(stage("$sort", new Document("_id", 1)
+                .append(BRANCH_NAME, 1)
+                .append(PRODUCT_NAME, 1)));
+        stages.add(Aggregation.limit(limit));
+        stages.add(stage("$project", new Document("_id", 0)
+                .append("franchiseId", new Document("$toString", "$_id"))
+                .append("franchiseName", "$name")
+                .append("branchName", "$" + BRANCH_NAME)
+                .append("productName", "$" + PRODUCT_NAME)
+                .append("stock", "$" + STOCK_PATH)));
+        return Aggregation.newAggregation(FranchiseDocument.class, stages);
+    }
+
+    private static AggregationOperation stage(String operator, Object definition) {
+        return context -> new Document(operator, definition);
+    }
+}
@@ -0,0 +1,35 @@
+package co.com.bancolombia.mongo.helper.query;
+
+import java.util.regex.Pattern;
+
+public final class NameMatchers {
+
+    private static final String REGEX_METACHARACTERS = "\\^$.|?*+()[]{}";
+
+    private NameMatchers() {
+    }
+
+    /**
+     * Anchored, quoted and case-insensitive pattern, so names are matched on the server
+     * with the same semantics the adapter used in memory ({@code equalsIgnoreCase}).
+     */
+    public static Pattern ignoreCase(String name) {
+        return Pattern.compile("^" + Pattern.quote(name) + "$", Pattern.CASE_INSENSITIVE);
+    }
+
+    /**
+     * Anchored, case-sensitive prefix pattern for a lower-cased name key. MongoDB only turns a regex
+     * into index bounds when it is a plain prefix, so metacharacters are escaped one by one instead
+     * of wrapping the prefix in {@code \Q...\E}.
+     */
+    public static Pattern prefix(String key) {
+        StringBuilder pattern = new StringBuilder("^");
+        for (char c : key.toCharArray()) {
+            if (REGEX_METACHARACTERS.indexOf(c) >= 0) {
+                pattern.append('\\');
+            }
+            pattern.append(c);
+        }
+        return Pattern.compile(pattern.toString());
+    }
+}
@@ -0,0 +1,47 @@
+package co.com.bancolombia.mongo.helper.query;
+
+import co.com.bancolombia.mongo.helper.document.FranchiseDocument;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Builds the pipeline returning every product whose name starts with a prefix, ignoring case, as
+ * {@code {franchiseId, franchiseName, branchName, productName, stock}} rows.
+ * <p>
+ * The prefix is matched against the lower-cased {@code branches.products.nameKey}, so the first
+ * {@code $match} is a range scan on its multikey index; the second one drops the other products once
+ * the arrays are unwound. There is no {@code $sort}, so rows are returned as the cursor produces them.
+ */
+public final class ProductSearchAggregation {
+
+    public static final String NAME_KEY_PATH = "branches.products.nameKey";
+
+    private ProductSearchAggregation() {
+    }
+
+    public static TypedAggregation<FranchiseDocument> of(String prefix) {
+        Pattern pattern = NameMatchers.prefix(FranchiseDocument.nameKeyOf(prefix));
+        List<AggregationOperation> stages = List.of(
+                stage("$match", new Document(NAME_KEY_PATH, pattern)),
+                stage("$unwind", "$branches"),
+                stage("$unwind", "$branches.products"),
+                stage("$match", new Document(NAME_KEY_PATH, pattern)),
+                stage("$project", new Document("_id", 0)
+                        .append("franchiseId", new Document("$toString", "$_id"))
+                        .append("franchiseName", "$name")
+                        .append("branchName", "$branches.name")
+                        .append("productName", "$branches.products.name")
+                        .append("stock", "$branches.products.stock"))
+        );
+        return Aggregation.newAggregation(FranchiseDocument.class, stages);
+    }
+
+    private static AggregationOperation stage(String operator, Object definition) {
+        return context -> new Document(operator, definition);
+    }
+}
@@ -0,0 +1,131 @@
+package co.com.bancolombia.mongo.helper.query;
+
+import org.bson.Document;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.List;
+
+import static co.com.bancolombia.mongo.helper.query.NameMatchers.ignoreCase;
+
+/**
+ * Query and update fragments addressing the stock of a single product inside the nested
+ * {@code branches.products} arrays, shared by the single and the bulk stock writes, and their
+ * counterparts for a branch stored as a document of its own.
+ * <p>
+ * Stock writes are update pipelines rather than {@code $set}s on array filters, so the branch's
+ * {@link TopProductSummaries top products summary} is recomputed in the same atomic update.
+ */
+public final class StockTargets {
+
+    private static final String ID = "_id";
+    private static final String NAME = "name";
+    private static final String BRANCHES = "branches";
+    private static final String PRODUCTS = "products";
+    private static final String STOCK = "stock";
+    private static final String VERSION = "version";
+    private static final String TOP_PRODUCTS = "topProducts";
+
+    private StockTargets() {
+    }
+
+    public static Criteria productNamed(String productName) {
+        return Criteria.where(NAME).regex(ignoreCase(productName));
+    }
+
+    /**
+     * Matches the product only when adding {@code delta} keeps its stock between 0 and
+     * {@link Integer#MAX_VALUE}, so the {@code $add} never leaves a negative or overflowing stock
+     * behind. The bounds are computed in {@code long}, where negating {@link Integer#MIN_VALUE} fits.
+     */
+    public static Criteria adjustable(String productName, int delta) {
+        return delta < 0
+                ? productNamed(productName).and(STOCK).gte(-(long) delta)
+                : productNamed(productName).and(STOCK).lte((long) Integer.MAX_VALUE - delta);
+    }
+
+    /**
+     * Matches the franchise only when the branch holds a product satisfying {@code productCriteria}.
+     */
+    public static Query productQuery(String franchiseId, String branchName, Criteria productCriteria) {
+        return new Query(Criteria.where(ID).is(franchiseId)
+                .and(BRANCHES).elemMatch(Criteria.where(NAME).regex(ignoreCase(branchName))
+                        .and(PRODUCTS).elemMatch(productCriteria)));
+    }
+
+    public static AggregationUpdate setStock(String branchName, String productName, int stock) {
+        return stockUpdate(branchName, productName, stock);
+    }
+
+    public static AggregationUpdate adjustStock(String branchName, String productName, int delta) {
+        return stockUpdate(branchName, productName, new Document("$add", List.of("$$product." + STOCK, delta)));
+    }
+
+    public static AggregationUpdate setBranchStock(String productName, int stock) {
+        return branchStockUpdate(productName, stock);
+    }
+
+    public static AggregationUpdate adjustBranchStock(String productName, int delta) {
+        return branchStockUpdate(productName, new Document("$add", List.of("$$product." + STOCK, delta)));
+    }
+
+    /**
+     * Rewrites the matching branch with the product's stock set to {@code stock}, an expression that
+     * may refer to the product as {@code $$product}, refreshes its summary and bumps the version.
+     */
+    private static AggregationUpdate stockUpdate(String branchName, String productName, Object stock) {
+        return rewriteBranch(branchName, productsWithStock("$$branch." + PRODUCTS, productName, stock));
+    }
+
+    /**
+     * Replaces the products of the matching branch with {@code products}, an expression that may
+     * refer to the branch as {@code $$branch}, refreshes its summary and bumps the version.
+     */
+    static AggregationUpdate rewriteBranch(String branchName, Object products) {
+        Document branch = new Document("$let", new Document("vars", new Document(PRODUCTS, products))
+                .append("in", new Document("$mergeObjects", List.of("$$branch", new Document(PRODUCTS, "$$products")
+                        .append(TOP_PRODUCTS, TopProductSummaries.of("$$products"))))));
+        Document branches = new Document("$map", new Document("input", "$" + BRANCHES)
+                .append("as", "branch")
+                .append("in", new Document("$cond", List.of(nameMatches("$$branch." + NAME, branchName),
+                        branch, "$$branch"))));
+        return AggregationUpdate.from(List.of(
+                context -> new Document("$set", new Document(BRANCHES, branches).append(VERSION, nextVersion()))));
+    }
+
+    /**
+     * Same as {@link #stockUpdate} on a branch document, whose products are at the root. The summary
+     * is recomputed by a second stage, which sees the products written by the first.
+     */
+    private static AggregationUpdate branchStockUpdate(String productName, Object stock) {
+        return AggregationUpdate.from(List.of(
+                context -> new Document("$set", new Document(PRODUCTS,
+                        productsWithStock("$" + PRODUCTS, productName, stock)).append(VERSION, nextVersion())),
+                context -> new Document("$set", new Document(TOP_PRODUCTS, TopProductSummaries.of("$" + PRODUCTS)))));
+    }
+
+    private static Document productsWithStock(String products, String productName, Object stock) {
+        return productsMerging(products, productName, new Document(STOCK, stock));
+    }
+
+    /**
+     * The products {@code products} evaluates to, with {@code fields} merged into the one named
+     * {@code productName}, which is available to them as {@code $$product}.
+     */
+    static Document productsMerging(String products, String productName, Document fields) {
+        return new Document("$map", new Document("input", products)
+                .append("as", "product")
+                .append("in", new Document("$cond", List.of(nameMatches("$$product." + NAME, productName),
+                        new Document("$mergeObjects", List.of("$$product", fields)),
+                        "$$product"))));
+    }
+
+    private static Document nextVersion() {
+        return new Document("$add", List.of(new Document("$ifNull", List.of("$" + VERSION, 0L)), 1L));
+    }
+
+    static Document nameMatches(String field, String name) {
+        return new Document("$regexMatch", new Document("input", field).append("regex", ignoreCase(name)));
+    }
+}
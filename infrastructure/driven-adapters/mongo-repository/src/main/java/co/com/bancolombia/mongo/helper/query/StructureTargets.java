@@ -0,0 +1,134 @@
+package co.com.bancolombia.mongo.helper.query;
+
+import co.com.bancolombia.mongo.helper.document.BranchDocument;
+import co.com.bancolombia.mongo.helper.document.FranchiseDocument;
+import co.com.bancolombia.mongo.helper.document.ProductDocument;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.List;
+
+import static co.com.bancolombia.mongo.helper.query.NameMatchers.ignoreCase;
+
+/**
+ * Guarded filters and updates adding, removing and renaming the branches and products of a
+ * franchise in a single conditional write. Each filter only matches when the change is valid, so a
+ * write that matches nothing means the franchise is missing or the change was rejected, and no
+ * concurrent write can slip in between the check and the change.
+ * <p>
+ * Changes to the products of a branch are update pipelines, like the {@link StockTargets stock
+ * writes}, so the branch's {@link TopProductSummaries top products summary} is recomputed in the
+ * same update.
+ */
+public final class StructureTargets {
+
+    private static final String ID = "_id";
+    private static final String NAME = "name";
+    private static final String NAME_KEY = "nameKey";
+    private static final String STOCK = "stock";
+    private static final String BRANCHES = "branches";
+    private static final String PRODUCTS = "products";
+    private static final String VERSION = "version";
+    private static final String BRANCH_NAMES = BRANCHES + "." + NAME;
+    private static final String PRODUCT_NAMES = PRODUCTS + "." + NAME;
+
+    private StructureTargets() {
+    }
+
+    /**
+     * Matches the franchise only when none of its branches is named {@code branchName}.
+     */
+    public static Query branchAbsent(String franchiseId, String branchName) {
+        return new Query(Criteria.where(ID).is(franchiseId)
+                .and(BRANCH_NAMES).not().regex(ignoreCase(branchName)));
+    }
+
+    public static Update addBranch(BranchDocument branch) {
+        return new Update().push(BRANCHES, branch).inc(VERSION, 1);
+    }
+
+    /**
+     * Matches the franchise only when it has the branch and the branch has no product named
+     * {@code productName}.
+     */
+    public static Query productAbsent(String franchiseId, String branchName, String productName) {
+        return new Query(Criteria.where(ID).is(franchiseId)
+                .and(BRANCHES).elemMatch(Criteria.where(NAME).regex(ignoreCase(branchName))
+                        .and(PRODUCT_NAMES).not().regex(ignoreCase(productName))));
+    }
+
+    public static AggregationUpdate addProduct(String branchName, ProductDocument product) {
+        Document added = new Document(NAME, product.getName())
+                .append(NAME_KEY, product.getNameKey())
+                .append(STOCK, product.getStock());
+        // A literal, so a name starting with '$' is not read as a field path
+        return StockTargets.rewriteBranch(branchName, new Document("$concatArrays", List.of(
+                currentProducts(), List.of(new Document("$literal", added)))));
+    }
+
+    /**
+     * Matches the franchise only when the branch holds the product; see
+     * {@link StockTargets#productQuery}.
+     */
+    public static Query productPresent(String franchiseId, String branchName, String productName) {
+        return StockTargets.productQuery(franchiseId, branchName, StockTargets.productNamed(productName));
+    }
+
+    public static AggregationUpdate removeProduct(String branchName, String productName) {
+        return StockTargets.rewriteBranch(branchName, new Document("$filter", new Document("input", currentProducts())
+                .append("as", "product")
+                .append("cond", new Document("$not", List.of(
+                        StockTargets.nameMatches("$$product." + NAME, productName))))));
+    }
+
+    /**
+     * Matches the franchise only when it has a branch named {@code currentName} and no other branch
+     * is already named {@code newName}. A change of case only is always allowed.
+     */
+    public static Query branchRenamable(String franchiseId, String currentName, String newName) {
+        Criteria criteria = Criteria.where(ID).is(franchiseId)
+                .and(BRANCHES).elemMatch(Criteria.where(NAME).regex(ignoreCase(currentName)));
+        if (!newName.equalsIgnoreCase(currentName)) {
+            criteria = criteria.and(BRANCH_NAMES).not().regex(ignoreCase(newName));
+        }
+        return new Query(criteria);
+    }
+
+    /**
+     * Renames the branch in place through an array filter; the summary does not carry the branch
+     * name, so it is left untouched.
+     */
+    public static Update renameBranch(String currentName, String newName) {
+        return new Update()
+                .set(BRANCHES + ".$[branch]." + NAME, newName)
+                .inc(VERSION, 1)
+                .filterArray(Criteria.where("branch." + NAME).regex(ignoreCase(currentName)));
+    }
+
+    /**
+     * Matches the franchise only when the branch holds a product named {@code currentName} and no
+     * other product of the branch is already named {@code newName}.
+     */
+    public static Query productRenamable(String franchiseId, String branchName, String currentName, String newName) {
+        Criteria branch = Criteria.where(NAME).regex(ignoreCase(branchName))
+                .and(PRODUCTS).elemMatch(StockTargets.productNamed(currentName));
+        if (!newName.equalsIgnoreCase(currentName)) {
+            branch = branch.and(PRODUCT_NAMES).not().regex(ignoreCase(newName));
+        }
+        return new Query(Criteria.where(ID).is(franchiseId).and(BRANCHES).elemMatch(branch));
+    }
+
+    public static AggregationUpdate renameProduct(String branchName, String currentName, String newName) {
+        Document renamed = new Document(NAME, new Document("$literal", newName))
+                .append(NAME_KEY, new Document("$literal", FranchiseDocument.nameKeyOf(newName)));
+        return StockTargets.rewriteBranch(branchName,
+                StockTargets.productsMerging("$$branch." + PRODUCTS, currentName, renamed));
+    }
+
+    private static Document currentProducts() {
+        return new Document("$ifNull", List.of("$$branch." + PRODUCTS, List.of()));
+    }
+}
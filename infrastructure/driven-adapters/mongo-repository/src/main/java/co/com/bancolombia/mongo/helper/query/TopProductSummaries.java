@@ -0,0 +1,117 @@
+package co.com.bancolombia.mongo.helper.query;
+
+import co.com.bancolombia.mongo.helper.document.BranchDocument;
+import co.com.bancolombia.mongo.helper.document.FranchiseDocument;
+import co.com.bancolombia.mongo.helper.document.ProductDocument;
+import org.bson.Document;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Top products summary kept on every branch as {@code topProducts}, so the top products endpoint
+ * reads it instead of ranking all products on each request.
+ * <p>
+ * The summary holds every product ranked {@value #SIZE} or better by stock, ties included, ordered by
+ * stock descending then name: the products and order {@link TopProductsAggregation} returns for
+ * that limit. Ties are kept up to {@value #CAPACITY} products, so a branch where most products share
+ * a stock does not carry a second copy of them; a summary that reached that size is
+ * {@link #isTruncated truncated} and cannot answer for ties. Writes built in the adapter recompute
+ * it with {@link #refresh}; writes applied on the server embed {@link #of(Object)} in their update
+ * pipeline, so the summary always changes in the same atomic update as the products. Requires MongoDB 5.2+ for {@code $sortArray}.
+ */
+public final class TopProductSummaries {
+
+    public static final int SIZE = 5;
+    public static final int CAPACITY = SIZE * 2;
+
+    private static final String STOCK = "stock";
+    private static final String NAME = "name";
+    private static final Comparator<ProductDocument> RANKING = Comparator
+            .comparingInt(ProductDocument::getStock).reversed()
+            .thenComparing(ProductDocument::getName);
+
+    private TopProductSummaries() {
+    }
+
+    /**
+     * Products ranked {@code limit} or better, ties at the cut-off included.
+     */
+    public static List<ProductDocument> top(List<ProductDocument> products, int limit) {
+        if (products == null || products.isEmpty()) {
+            return List.of();
+        }
+        List<ProductDocument> ranked = products.stream().sorted(RANKING).toList();
+        int cutoff = ranked.size() >= limit ? ranked.get(limit - 1).getStock() : Integer.MIN_VALUE;
+        return ranked.stream().filter(product -> product.getStock() >= cutoff).toList();
+    }
+
+    /**
+     * Products ranked {@code limit} or better, either with every tie at the cut-off or cut to exactly
+     * {@code limit} products by name. A summary holds either result for any limit up to {@link #SIZE}.
+     */
+    public static List<ProductDocument> top(List<ProductDocument> products, int limit, boolean withTies) {
+        List<ProductDocument> top = top(products, limit);
+        return withTies || top.size() <= limit ? top : top.subList(0, limit);
+    }
+
+    /**
+     * The summary of {@code products}: those ranked {@link #SIZE} or better, at most {@link #CAPACITY}.
+     */
+    public static List<ProductDocument> summarize(List<ProductDocument> products) {
+        List<ProductDocument> top = top(products, SIZE);
+        return top.size() > CAPACITY ? top.subList(0, CAPACITY) : top;
+    }
+
+    /**
+     * Whether ties may have been left out of {@code summary} by the {@link #CAPACITY} cap.
+     */
+    public static boolean isTruncated(List<ProductDocument> summary) {
+        return summary != null && summary.size() >= CAPACITY;
+    }
+
+    public static FranchiseDocument refresh(FranchiseDocument franchise) {
+        if (franchise.getBranches() != null) {
+            franchise.getBranches().forEach(branch -> branch.setTopProducts(summarize(branch.getProducts())));
+        }
+        return franchise;
+    }
+
+    /**
+     * Whether every branch carries a summary. Documents written before summaries existed have none
+     * until the repair job reaches them.
+     */
+    public static boolean isMaintained(FranchiseDocument franchise) {
+        return franchise.getBranches() == null || franchise.getBranches().stream()
+                .map(BranchDocument::getTopProducts)
+                .allMatch(Objects::nonNull);
+    }
+
+    /**
+     * Server-side equivalent of {@link #summarize}, for the products array {@code products}
+     * evaluates to.
+     */
+    public static Document of(Object products) {
+        Document ranked = new Document("$sortArray", new Document("input", new Document("$ifNull", List.of(products, List.of())))
+                .append("sortBy", new Document(STOCK, -1).append(NAME, 1)));
+        Document cutoff = new Document("$ifNull", List.of(
+                new Document("$arrayElemAt", List.of("$$ranked." + STOCK, SIZE - 1)), Integer.MIN_VALUE));
+        Document ties = new Document("$filter", new Document("input", "$$ranked")
+                .append("as", "candidate")
+                .append("cond", new Document("$gte", List.of("$$candidate." + STOCK, "$$cutoff"))));
+        return new Document("$let", new Document("vars", new Document("ranked", ranked))
+                .append("in", new Document("$let", new Document("vars", new Document("cutoff", cutoff))
+                        .append("in", new Document("$slice", List.of(ties, CAPACITY))))));
+    }
+
+    /**
+     * The {@code branches} array with every summary recomputed from its products.
+     */
+    public static Document recomputedBranches() {
+        return new Document("$map", new Document("input", "$branches")
+                .append("as", "branch")
+                .append("in", new Document("$mergeObjects", List.of("$$branch",
+                        new Document("topProducts", of("$$branch.products"))))));
+    }
+}
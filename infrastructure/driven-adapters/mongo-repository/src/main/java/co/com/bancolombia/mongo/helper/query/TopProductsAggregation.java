@@ -0,0 +1,57 @@
+package co.com.bancolombia.mongo.helper.query;
+
+import co.com.bancolombia.mongo.helper.document.FranchiseDocument;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.util.List;
+
+/**
+ * Builds the pipeline returning the top products of every branch of a franchise as
+ * {@code {branchName, product}} tuples, so only the winners travel over the wire.
+ * <p>
+ * Products are numbered by stock then name with {@code $documentNumber}, so a limit of N returns
+ * exactly N products per branch. With ties they are ranked by stock alone with {@code $rank}, which
+ * gives tied products the same rank: every product whose rank is at most N is returned, so ties at
+ * the cut-off are all included. Requires MongoDB 5.0+ for {@code $setWindowFields}.
+ */
+public final class TopProductsAggregation {
+
+    private static final String BRANCH_INDEX = "branchIndex";
+    private static final String RANK = "rank";
+    private static final String STOCK = "branches.products.stock";
+    private static final String NAME = "branches.products.name";
+
+    private TopProductsAggregation() {
+    }
+
+    public static TypedAggregation<FranchiseDocument> of(String franchiseId, int limit, boolean withTies) {
+        Document sortBy = withTies
+                ? new Document(STOCK, -1)
+                : new Document(STOCK, -1).append(NAME, 1);
+        List<AggregationOperation> stages = List.of(
+                Aggregation.match(Criteria.where("id").is(franchiseId)),
+                stage("$unwind", new Document("path", "$branches").append("includeArrayIndex", BRANCH_INDEX)),
+                stage("$unwind", "$branches.products"),
+                stage("$setWindowFields", new Document("partitionBy", "$" + BRANCH_INDEX)
+                        .append("sortBy", sortBy)
+                        .append("output", new Document(RANK,
+                                new Document(withTies ? "$rank" : "$documentNumber", new Document())))),
+                stage("$match", new Document(RANK, new Document("$lte", limit))),
+                stage("$sort", new Document(BRANCH_INDEX, 1)
+                        .append(RANK, 1)
+                        .append(NAME, 1)),
+                stage("$project", new Document("_id", 0)
+                        .append("branchName", "$branches.name")
+                        .append("product", "$branches.products"))
+        );
+        return Aggregation.newAggregation(FranchiseDocument.class, stages);
+    }
+
+    private static AggregationOperation stage(String operator, Object definition) {
+        return context -> new Document(operator, definition);
+    }
+}
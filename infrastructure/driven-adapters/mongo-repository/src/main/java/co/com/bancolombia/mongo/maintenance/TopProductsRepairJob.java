@@ -0,0 +1,139 @@
+package co.com.bancolombia.mongo.maintenance;
+
+import co.com.bancolombia.mongo.config.MongoAdapterProperties;
+import co.com.bancolombia.mongo.helper.document.FranchiseDocument;
+import co.com.bancolombia.mongo.helper.query.TopProductSummaries;
+import co.com.bancolombia.mongo.metrics.CommandOrigin;
+import com.mongodb.client.result.UpdateResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.BasicQuery;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Recomputes the top products summaries of franchises whose stored summaries no longer match their
+ * products, e.g. documents written before summaries existed or edited outside the adapter. Off by
+ * default; when enabled it runs every {@code repairInterval}, the first run one interval after startup.
+ * <p>
+ * Only one instance repairs at a time: each run first takes a lease on a lock document in
+ * {@value #LOCKS_COLLECTION}, held for one interval and renewed by the same instance on its next run.
+ * Other instances skip their runs until the lease expires, e.g. because its holder stopped.
+ * <p>
+ * Drifted documents are found and rewritten by a single server-side update, so nothing is read
+ * back; the version is left alone since no product changes. Only the embedded layout is repaired:
+ * branch documents get their summary from the same writes as their products.
+ */
+@Slf4j
+@Component
+@Profile("!in-memory & !branch-per-document")
+public class TopProductsRepairJob {
+
+    public static final String REPAIRED_METRIC = "top.products.repaired";
+    public static final String LOCKS_COLLECTION = "maintenance_locks";
+    private static final String LOCK_ID = "topProductsRepair";
+    private static final String BRANCHES = "branches";
+    private static final String LOCKED_UNTIL = "lockedUntil";
+    private static final String OWNER = "owner";
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final MongoAdapterProperties.TopProducts properties;
+    private final Counter repairedCounter;
+    private final String owner = UUID.randomUUID().toString();
+
+    private Disposable schedule;
+
+    public TopProductsRepairJob(ReactiveMongoTemplate mongoTemplate, MongoAdapterProperties properties,
+                                MeterRegistry meterRegistry) {
+        this.mongoTemplate = mongoTemplate;
+        this.properties = properties.getTopProducts();
+        this.repairedCounter = Counter.builder(REPAIRED_METRIC)
+                .description("Franchises whose top products summaries were recomputed")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!properties.isRepairEnabled()) {
+            return;
+        }
+        schedule = Flux.interval(properties.getRepairInterval())
+                .onBackpressureDrop()
+                .concatMap(tick -> repairIfLeaseHeld().onErrorResume(e -> Mono.empty()), 1)
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (schedule != null) {
+            schedule.dispose();
+        }
+    }
+
+    /**
+     * Repairs only if this instance takes or renews the lease; empty otherwise.
+     */
+    public Mono<Long> repairIfLeaseHeld() {
+        return acquireLease()
+                .filter(Boolean::booleanValue)
+                .flatMap(acquired -> repair());
+    }
+
+    /**
+     * The lease is free when it expired or this instance holds it. A held lease makes the upsert
+     * insert a second document with the same id, which the unique {@code _id} index rejects.
+     */
+    private Mono<Boolean> acquireLease() {
+        Instant now = Instant.now();
+        Query free = new Query(Criteria.where("_id").is(LOCK_ID)
+                .orOperator(Criteria.where(LOCKED_UNTIL).lt(now), Criteria.where(OWNER).is(owner)));
+        Update lease = new Update()
+                .set(LOCKED_UNTIL, now.plus(properties.getRepairInterval()))
+                .set(OWNER, owner);
+        return mongoTemplate.upsert(free, lease, LOCKS_COLLECTION)
+                .thenReturn(true)
+                .onErrorResume(DuplicateKeyException.class, e -> {
+                    log.debug("Top products repair lease held by another instance");
+                    return Mono.just(false);
+                })
+                .contextWrite(CommandOrigin.of("topProductsRepairLease"));
+    }
+
+    /**
+     * @return how many franchises had their summaries rewritten
+     */
+    public Mono<Long> repair() {
+        Query drifted = new BasicQuery(new Document(BRANCHES, new Document("$type", "array"))
+                .append("$expr", new Document("$ne", List.of("$" + BRANCHES, TopProductSummaries.recomputedBranches()))));
+        AggregationUpdate update = AggregationUpdate.from(List.of(
+                context -> new Document("$set", new Document(BRANCHES, TopProductSummaries.recomputedBranches()))));
+        return mongoTemplate.updateMulti(drifted, update, FranchiseDocument.class)
+                .map(UpdateResult::getModifiedCount)
+                .doOnNext(repaired -> {
+                    repairedCounter.increment(repaired);
+                    if (repaired > 0) {
+                        log.info("Recomputed top products summaries of {} franchises", repaired);
+                    }
+                })
+                .doOnError(e -> log.error("Top products summary repair failed: {}", e.getMessage()))
+                .contextWrite(CommandOrigin.of("topProductsRepair"));
+    }
+}
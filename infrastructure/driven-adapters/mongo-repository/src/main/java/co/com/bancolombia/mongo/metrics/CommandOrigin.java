@@ -0,0 +1,94 @@
+package co.com.bancolombia.mongo.metrics;
+
+import com.mongodb.ContextProvider;
+import com.mongodb.RequestContext;
+import com.mongodb.reactivestreams.client.ReactiveContextProvider;
+import reactor.core.CoreSubscriber;
+import reactor.util.context.Context;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Carries the repository method that issued a Mongo command from the Reactor context down to the
+ * driver, so command listeners can tell which method a command belongs to.
+ */
+public final class CommandOrigin {
+
+    public static final String UNKNOWN = "unknown";
+    private static final String KEY = CommandOrigin.class.getName();
+
+    private CommandOrigin() {
+    }
+
+    /**
+     * Marks every command issued upstream of the {@code contextWrite} as coming from {@code operation}.
+     */
+    public static Function<Context, Context> of(String operation) {
+        return context -> context.put(KEY, operation);
+    }
+
+    public static String from(RequestContext requestContext) {
+        if (requestContext == null) {
+            return UNKNOWN;
+        }
+        return requestContext.getOrDefault(KEY, UNKNOWN);
+    }
+
+    /**
+     * Copies the origin of the subscribing Reactor pipeline into the driver's request context.
+     */
+    public static ContextProvider contextProvider() {
+        return (ReactiveContextProvider) subscriber -> {
+            OriginRequestContext requestContext = new OriginRequestContext();
+            if (subscriber instanceof CoreSubscriber<?> coreSubscriber) {
+                coreSubscriber.currentContext().getOrEmpty(KEY)
+                        .ifPresent(operation -> requestContext.put(KEY, operation));
+            }
+            return requestContext;
+        };
+    }
+
+    private static final class OriginRequestContext implements RequestContext {
+
+        private final Map<Object, Object> values = new ConcurrentHashMap<>();
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T get(Object key) {
+            return (T) values.get(key);
+        }
+
+        @Override
+        public boolean hasKey(Object key) {
+            return values.containsKey(key);
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return values.isEmpty();
+        }
+
+        @Override
+        public void put(Object key, Object value) {
+            values.put(key, value);
+        }
+
+        @Override
+        public void delete(Object key) {
+            values.remove(key);
+        }
+
+        @Override
+        public int size() {
+            return values.size();
+        }
+
+        @Override
+        public Stream<Map.Entry<Object, Object>> stream() {
+            return values.entrySet().stream();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package co.com.bancolombia.mongo.metrics;
+
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Reduces the filter of a command to its shape: field names and operators are kept, every value is
+ * replaced by {@code ?}, so a slow-command log never carries franchise data.
+ */
+public final class CommandShapes {
+
+    private static final BsonString MASK = new BsonString("?");
+    private static final List<String> FILTER_FIELDS = List.of("filter", "query", "pipeline");
+    // Write commands carry one filter per statement
+    private static final Map<String, String> STATEMENT_FIELDS = Map.of("updates", "q", "deletes", "q");
+
+    private CommandShapes() {
+    }
+
+    public static String filterOf(BsonDocument command) {
+        BsonDocument shape = new BsonDocument();
+        FILTER_FIELDS.stream()
+                .filter(command::containsKey)
+                .forEach(field -> shape.put(field, mask(command.get(field))));
+        STATEMENT_FIELDS.forEach((field, filter) -> {
+            if (command.isArray(field)) {
+                BsonArray filters = new BsonArray();
+                command.getArray(field).stream()
+                        .filter(BsonValue::isDocument)
+                        .map(statement -> statement.asDocument().get(filter))
+                        .filter(Objects::nonNull)
+                        .forEach(value -> filters.add(mask(value)));
+                shape.put(field, filters);
+            }
+        });
+        return shape.toJson();
+    }
+
+    private static BsonValue mask(BsonValue value) {
+        if (value.isDocument()) {
+            BsonDocument masked = new BsonDocument();
+            value.asDocument().forEach((key, nested) -> masked.put(key, mask(nested)));
+            return masked;
+        }
+        // Arrays of sub-filters ($or, $and, pipelines) keep their structure; lists of values collapse
+        if (value.isArray() && !value.asArray().isEmpty()
+                && value.asArray().stream().allMatch(BsonValue::isDocument)) {
+            BsonArray masked = new BsonArray();
+            value.asArray().forEach(nested -> masked.add(mask(nested)));
+            return masked;
+        }
+        return MASK;
+    }
+}
@@ -0,0 +1,99 @@
+package co.com.bancolombia.mongo.metrics;
+
+import co.com.bancolombia.mongo.config.MongoAdapterProperties;
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every Mongo command by command name, collection and the repository method that issued it
+ * (see {@link CommandOrigin}), with percentile histograms. Commands slower than the configured
+ * threshold are logged along with the shape of their filter.
+ * <p>
+ * The command document is only readable while the started event is being handled, so what the
+ * later events need is captured then, keyed by request id.
+ */
+@Slf4j
+public class CommandTimer implements CommandListener {
+
+    public static final String COMMAND_METRIC = "mongodb.adapter.commands";
+    private static final String NO_COLLECTION = "none";
+
+    private final MeterRegistry meterRegistry;
+    private final boolean slowLogEnabled;
+    private final long slowThresholdNanos;
+    private final Map<Integer, Started> inFlight = new ConcurrentHashMap<>();
+
+    public CommandTimer(MeterRegistry meterRegistry, MongoAdapterProperties.Commands properties) {
+        this.meterRegistry = meterRegistry;
+        this.slowLogEnabled = properties.isSlowLogEnabled();
+        this.slowThresholdNanos = properties.getSlowThreshold().toNanos();
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        BsonDocument command = event.getCommand();
+        inFlight.put(event.getRequestId(), new Started(
+                collectionOf(command, event.getCommandName()),
+                CommandOrigin.from(event.getRequestContext()),
+                slowLogEnabled ? CommandShapes.filterOf(command) : null));
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        complete(event.getRequestId(), event.getCommandName(), "success", event.getElapsedTime(TimeUnit.NANOSECONDS));
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        complete(event.getRequestId(), event.getCommandName(), "failed", event.getElapsedTime(TimeUnit.NANOSECONDS));
+    }
+
+    int inFlight() {
+        return inFlight.size();
+    }
+
+    private void complete(int requestId, String commandName, String status, long nanos) {
+        Started started = inFlight.remove(requestId);
+        if (started == null) {
+            return;
+        }
+        Timer.builder(COMMAND_METRIC)
+                .description("Latency of Mongo commands issued by the franchise adapter")
+                .tag("command", commandName)
+                .tag("collection", started.collection())
+                .tag("operation", started.operation())
+                .tag("status", status)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        if (slowLogEnabled && nanos >= slowThresholdNanos) {
+            log.warn("Slow Mongo command {} on '{}' from {} took {} ms ({}), filter shape: {}", commandName,
+                    started.collection(), started.operation(), TimeUnit.NANOSECONDS.toMillis(nanos), status,
+                    started.filterShape());
+        }
+    }
+
+    private static String collectionOf(BsonDocument command, String commandName) {
+        // Most commands name the collection as their value; getMore names it in a separate field
+        BsonValue target = command.get(commandName);
+        if (target != null && target.isString()) {
+            return target.asString().getValue();
+        }
+        BsonValue collection = command.get("collection");
+        return collection != null && collection.isString() ? collection.asString().getValue() : NO_COLLECTION;
+    }
+
+    private record Started(String collection, String operation, String filterShape) {
+    }
+}
@@ -0,0 +1,49 @@
+package co.com.bancolombia.mongo.metrics;
+
+import com.mongodb.event.ConnectionCheckOutFailedEvent;
+import com.mongodb.event.ConnectionCheckedOutEvent;
+import com.mongodb.event.ConnectionPoolListener;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times how long requests wait for a pooled connection, per server. Pool size, connections in use
+ * and wait queue depth are already published as {@code mongodb.driver.pool.*} gauges by Spring
+ * Boot; this adds the wait itself, which is where a saturated pool shows up first.
+ */
+public class PoolCheckoutTimer implements ConnectionPoolListener {
+
+    public static final String CHECKOUT_METRIC = "mongodb.driver.pool.checkout";
+    private static final String SERVER_TAG = "server.address";
+    private static final String OUTCOME_TAG = "outcome";
+
+    private final MeterRegistry meterRegistry;
+
+    public PoolCheckoutTimer(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void connectionCheckedOut(ConnectionCheckedOutEvent event) {
+        record(event.getConnectionId().getServerId().getAddress().toString(), "success",
+                event.getElapsedTime(TimeUnit.NANOSECONDS));
+    }
+
+    @Override
+    public void connectionCheckOutFailed(ConnectionCheckOutFailedEvent event) {
+        record(event.getServerId().getAddress().toString(), event.getReason().name().toLowerCase(Locale.ROOT),
+                event.getElapsedTime(TimeUnit.NANOSECONDS));
+    }
+
+    private void record(String server, String outcome, long nanos) {
+        Timer.builder(CHECKOUT_METRIC)
+                .description("Time spent waiting to check out a pooled connection")
+                .tag(SERVER_TAG, server)
+                .tag(OUTCOME_TAG, outcome)
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,319 @@
+package co.com.bancolombia.mongo;
+
+import co.com.bancolombia.commons.exception.AppErrorCode;
+import co.com.bancolombia.commons.exception.AppException;
+import co.com.bancolombia.model.branch.Branch;
+import co.com.bancolombia.model.franchise.Franchise;
+import co.com.bancolombia.model.franchisesummary.FranchiseSummary;
+import co.com.bancolombia.model.product.Product;
+import co.com.bancolombia.model.productlocation.ProductLocation;
+import co.com.bancolombia.model.stock.StockUpdate;
+import co.com.bancolombia.model.stock.StockUpdateStatus;
+import co.com.bancolombia.mongo.config.MongoAdapterProperties;
+import co.com.bancolombia.mongo.helper.bulk.FranchiseBulkImporter;
+import co.com.bancolombia.mongo.helper.concurrency.KeyedSerialExecutor;
+import co.com.bancolombia.mongo.helper.concurrency.OptimisticRetry;
+import co.com.bancolombia.mongo.helper.document.FranchiseBranchDocument;
+import co.com.bancolombia.mongo.helper.document.FranchiseDocument;
+import co.com.bancolombia.mongo.helper.document.FranchiseSummaryDocument;
+import co.com.bancolombia.mongo.helper.document.ProductDocument;
+import co.com.bancolombia.mongo.helper.document.ProductLocationDocument;
+import co.com.bancolombia.mongo.helper.mapper.FranchiseDocumentMapper;
+import co.com.bancolombia.mongo.helper.query.TopProductSummaries;
+import com.mongodb.ReadPreference;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.UpdateResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BranchPerDocumentRepositoryAdapterTest {
+
+    private static final String FRANCHISE_ID = "f-1";
+
+    @Mock
+    private ReactiveMongoTemplate mongoTemplate;
+
+    @Mock
+    private FranchiseBulkImporter franchiseBulkImporter;
+
+    private BranchPerDocumentRepositoryAdapter adapter;
+    private FranchiseDocument header;
+    private FranchiseBranchDocument centro;
+    private FranchiseBranchDocument norte;
+
+    @BeforeEach
+    void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        adapter = new BranchPerDocumentRepositoryAdapter(new FranchiseDocumentMapper(), mongoTemplate,
+                new OptimisticRetry(new MongoAdapterProperties(), meterRegistry), franchiseBulkImporter,
+                new KeyedSerialExecutor(meterRegistry), ReadPreference.primary(), new MongoAdapterProperties());
+
+        header = FranchiseDocument.builder().id(FRANCHISE_ID).name("Café").nameKey("café").version(3L).build();
+        centro = branch("Centro", new ArrayList<>(List.of(product("Pan", 4), product("Leche", 9))));
+        norte = branch("Norte", new ArrayList<>(List.of(product("Queso", 1))));
+    }
+
+    @Test
+    void shouldReassembleTheFranchiseFromItsHeaderAndBranches() {
+        when(mongoTemplate.findOne(any(Query.class), eq(FranchiseDocument.class))).thenReturn(Mono.just(header));
+        when(mongoTemplate.find(any(Query.class), eq(FranchiseBranchDocument.class))).thenReturn(Flux.just(centro, norte));
+
+        StepVerifier.create(adapter.findById(FRANCHISE_ID))
+                .assertNext(franchise -> {
+                    assertEquals("Café", franchise.getName());
+                    assertEquals(List.of("Centro", "Norte"),
+                            franchise.getBranches().stream().map(Branch::getName).toList());
+                    assertEquals(2, franchise.getBranches().get(0).getProducts().size());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldNotReadBranchesOfMissingFranchise() {
+        when(mongoTemplate.findOne(any(Query.class), eq(FranchiseDocument.class))).thenReturn(Mono.empty());
+
+        StepVerifier.create(adapter.findById(FRANCHISE_ID)).verifyComplete();
+
+        verify(mongoTemplate, never()).find(any(Query.class), eq(FranchiseBranchDocument.class));
+    }
+
+    @Test
+    void shouldUpdateStockOnTheBranchDocumentOnly() {
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        when(mongoTemplate.findAndModify(query.capture(), any(UpdateDefinition.class), any(FindAndModifyOptions.class),
+                eq(FranchiseBranchDocument.class)))
+                .thenReturn(Mono.just(FranchiseBranchDocument.builder().products(List.of(product("Pan", 20))).build()));
+
+        StepVerifier.create(adapter.updateProductStock(FRANCHISE_ID, "CENTRO", "pan", 20))
+                .assertNext(product -> assertEquals(20, product.getStock()))
+                .verifyComplete();
+
+        Document filter = query.getValue().getQueryObject();
+        assertEquals(FRANCHISE_ID, filter.get("franchiseId"));
+        assertEquals("centro", filter.get("nameKey"));
+        verify(mongoTemplate, never()).findAndModify(any(Query.class), any(UpdateDefinition.class),
+                any(FindAndModifyOptions.class), eq(FranchiseDocument.class));
+    }
+
+    @Test
+    void shouldTellMissingBranchFromMissingFranchise() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class),
+                eq(FranchiseBranchDocument.class))).thenReturn(Mono.empty());
+        when(mongoTemplate.findOne(any(Query.class), eq(FranchiseBranchDocument.class))).thenReturn(Mono.empty());
+        when(mongoTemplate.findById(FRANCHISE_ID, FranchiseDocument.class)).thenReturn(Mono.just(header));
+
+        StepVerifier.create(adapter.updateProductStock(FRANCHISE_ID, "Sur", "Pan", 1))
+                .expectErrorMatches(e -> e instanceof AppException app
+                        && app.getErrorCode() == AppErrorCode.BRANCH_NOT_FOUND)
+                .verify();
+    }
+
+    @Test
+    void shouldRejectDuplicateBranchThroughTheUniqueIndex() {
+        when(mongoTemplate.findById(FRANCHISE_ID, FranchiseDocument.class)).thenReturn(Mono.just(header));
+        when(mongoTemplate.insert(any(FranchiseBranchDocument.class))).thenReturn(Mono.error(new DuplicateKeyException(
+                "E11000 duplicate key error index: " + FranchiseBranchDocument.NAME_KEY_INDEX)));
+
+        StepVerifier.create(adapter.addBranchToFranchise(FRANCHISE_ID, Branch.builder().name("centro").build()))
+                .expectErrorMatches(e -> e instanceof AppException app
+                        && app.getErrorCode() == AppErrorCode.DUPLICATE_BRANCH_NAME)
+                .verify();
+    }
+
+    @Test
+    void shouldSaveOnlyTheMutatedBranchWithItsSummaryRefreshed() {
+        ArgumentCaptor<FranchiseBranchDocument> saved = ArgumentCaptor.forClass(FranchiseBranchDocument.class);
+        when(mongoTemplate.findOne(any(Query.class), eq(FranchiseBranchDocument.class))).thenReturn(Mono.just(norte));
+        when(mongoTemplate.save(saved.capture())).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        when(mongoTemplate.findById(FRANCHISE_ID, FranchiseDocument.class)).thenReturn(Mono.just(header));
+        when(mongoTemplate.find(any(Query.class), eq(FranchiseBranchDocument.class))).thenReturn(Flux.just(centro, norte));
+
+        StepVerifier.create(adapter.addProductToBranch(FRANCHISE_ID, "Norte",
+                        Product.builder().name("Vino").stock(7).build()))
+                .assertNext(franchise -> assertEquals(2, franchise.getBranches().size()))
+                .verifyComplete();
+
+        assertEquals(List.of("Queso", "Vino"), saved.getValue().getProducts().stream().map(ProductDocument::getName).toList());
+        assertEquals("Vino", saved.getValue().getTopProducts().get(0).getName());
+        assertEquals("vino", saved.getValue().getProducts().get(1).getNameKey());
+    }
+
+    @Test
+    void shouldUpsertKeptBranchesBeforeRemovingTheOthersAndLeaveTheRestOfTheHeader() {
+        ReactiveBulkOperations bulk = mock(ReactiveBulkOperations.class);
+        ArgumentCaptor<Update> headerUpdate = ArgumentCaptor.forClass(Update.class);
+        ArgumentCaptor<Query> removed = ArgumentCaptor.forClass(Query.class);
+        when(mongoTemplate.findById(FRANCHISE_ID, FranchiseDocument.class)).thenReturn(Mono.just(header));
+        when(mongoTemplate.updateFirst(any(Query.class), headerUpdate.capture(), eq(FranchiseDocument.class)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(1, 1L, null)));
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.ORDERED, FranchiseBranchDocument.class)).thenReturn(bulk);
+        when(bulk.upsert(any(Query.class), any(UpdateDefinition.class))).thenReturn(bulk);
+        when(bulk.execute()).thenReturn(Mono.just(BulkWriteResult.unacknowledged()));
+        when(mongoTemplate.remove(removed.capture(), eq(FranchiseBranchDocument.class)))
+                .thenReturn(Mono.just(DeleteResult.acknowledged(1)));
+        when(mongoTemplate.find(any(Query.class), eq(FranchiseBranchDocument.class))).thenReturn(Flux.just(centro));
+
+        Franchise franchise = Franchise.builder().id(FRANCHISE_ID).name("Café Sur")
+                .branches(List.of(Branch.builder().name("Centro").build())).build();
+        StepVerifier.create(adapter.save(franchise))
+                .assertNext(saved -> assertEquals(1, saved.getBranches().size()))
+                .verifyComplete();
+
+        InOrder order = inOrder(mongoTemplate, bulk);
+        order.verify(mongoTemplate).updateFirst(any(Query.class), any(Update.class), eq(FranchiseDocument.class));
+        order.verify(bulk).execute();
+        order.verify(mongoTemplate).remove(any(Query.class), eq(FranchiseBranchDocument.class));
+        assertEquals(Set.of("$set", "$inc"), headerUpdate.getValue().getUpdateObject().keySet());
+        assertEquals(new Document("$nin", List.of("centro")), removed.getValue().getQueryObject().get("nameKey"));
+        verify(mongoTemplate, never()).save(any(FranchiseDocument.class));
+    }
+
+    @Test
+    void shouldNotTouchBranchesWhenTheHeaderChangedConcurrently() {
+        when(mongoTemplate.findById(FRANCHISE_ID, FranchiseDocument.class)).thenReturn(Mono.just(header));
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(FranchiseDocument.class)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(0, 0L, null)));
+
+        StepVerifier.create(adapter.save(Franchise.builder().id(FRANCHISE_ID).name("Café").build()))
+                .expectErrorMatches(e -> e instanceof AppException app
+                        && app.getErrorCode() == AppErrorCode.CONCURRENT_MODIFICATION)
+                .verify();
+
+        verify(mongoTemplate, never()).remove(any(Query.class), eq(FranchiseBranchDocument.class));
+    }
+
+    @Test
+    void shouldCountBranchesAndProductsFromTheBranchCollection() {
+        FranchiseDocument empty = FranchiseDocument.builder().id("f-2").name("Vacía").build();
+        when(mongoTemplate.find(any(Query.class), eq(FranchiseDocument.class))).thenReturn(Flux.just(header, empty));
+        when(mongoTemplate.aggregate(any(TypedAggregation.class), eq(FranchiseSummaryDocument.class)))
+                .thenReturn(Flux.just(FranchiseSummaryDocument.builder().id(FRANCHISE_ID).branchCount(2).productCount(3).build()));
+
+        StepVerifier.create(adapter.findSummaryPage(null, 10))
+                .assertNext(page -> {
+                    FranchiseSummary first = page.getItems().get(0);
+                    assertEquals("Café", first.getName());
+                    assertEquals(2, first.getBranchCount());
+                    assertEquals(3, first.getProductCount());
+                    assertEquals(0, page.getItems().get(1).getBranchCount());
+                    assertNull(page.getNextPageToken());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldFillInFranchiseNamesOfLowStockRows() {
+        when(mongoTemplate.aggregate(any(TypedAggregation.class), eq(ProductLocationDocument.class)))
+                .thenReturn(Flux.just(ProductLocationDocument.builder()
+                        .franchiseId(FRANCHISE_ID).branchName("Norte").productName("Queso").stock(1).build()));
+        when(mongoTemplate.find(any(Query.class), eq(FranchiseDocument.class))).thenReturn(Flux.just(header));
+
+        StepVerifier.create(adapter.findLowStockPage(5, null, 10))
+                .assertNext(page -> {
+                    ProductLocation row = page.getItems().get(0);
+                    assertEquals("Café", row.getFranchiseName());
+                    assertEquals("Queso", row.getProductName());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldReportEachStockUpdateOutcomeInInputOrder() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class),
+                eq(FranchiseBranchDocument.class)))
+                .thenReturn(Mono.just(FranchiseBranchDocument.builder().products(List.of(product("Pan", 2))).build()))
+                .thenReturn(Mono.empty());
+        when(mongoTemplate.findOne(any(Query.class), eq(FranchiseBranchDocument.class))).thenReturn(Mono.just(centro));
+
+        StepVerifier.create(adapter.updateProductStocks(Flux.just(
+                        new StockUpdate(FRANCHISE_ID, "Centro", "Pan", 2),
+                        new StockUpdate(FRANCHISE_ID, "Centro", "Vino", 2),
+                        new StockUpdate(FRANCHISE_ID, "Centro", "Pan", -1))))
+                .expectNextMatches(result -> result.getStatus() == StockUpdateStatus.UPDATED)
+                .expectNextMatches(result -> result.getStatus() == StockUpdateStatus.PRODUCT_NOT_FOUND)
+                .expectNextMatches(result -> result.getStatus() == StockUpdateStatus.INVALID)
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldRankProductsPastTheSummarySize() {
+        when(mongoTemplate.find(any(Query.class), eq(FranchiseBranchDocument.class))).thenReturn(Flux.just(centro));
+
+        StepVerifier.create(adapter.getTopProductsPerBranch(FRANCHISE_ID, 10))
+                .assertNext(top -> assertEquals("Leche", top.getProduct().getName()))
+                .assertNext(top -> assertEquals("Pan", top.getProduct().getName()))
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldRankTiesFromProducts_WhenSummaryIsTruncated() {
+        List<ProductDocument> tied = new ArrayList<>();
+        for (int i = 0; i < TopProductSummaries.CAPACITY + 2; i++) {
+            tied.add(product("Producto " + (char) ('A' + i), 3));
+        }
+        FranchiseBranchDocument summarized = branch("Sur", null);
+        summarized.setTopProducts(TopProductSummaries.summarize(tied));
+        FranchiseBranchDocument full = branch("Sur", tied);
+        when(mongoTemplate.find(any(Query.class), eq(FranchiseBranchDocument.class))).thenReturn(Flux.just(summarized));
+        when(mongoTemplate.findOne(any(Query.class), eq(FranchiseBranchDocument.class))).thenReturn(Mono.just(full));
+
+        StepVerifier.create(adapter.getTopProductsPerBranch(FRANCHISE_ID, 1, true))
+                .expectNextCount(tied.size())
+                .verifyComplete();
+        StepVerifier.create(adapter.getTopProductsPerBranch(FRANCHISE_ID, 1, false))
+                .assertNext(top -> assertEquals("Producto A", top.getProduct().getName()))
+                .verifyComplete();
+
+        verify(mongoTemplate).findOne(any(Query.class), eq(FranchiseBranchDocument.class));
+    }
+
+    private static FranchiseBranchDocument branch(String name, List<ProductDocument> products) {
+        return FranchiseBranchDocument.builder()
+                .id(FranchiseBranchDocument.newId(FRANCHISE_ID))
+                .franchiseId(FRANCHISE_ID)
+                .name(name)
+                .nameKey(FranchiseDocument.nameKeyOf(name))
+                .products(products)
+                .version(0L)
+                .build();
+    }
+
+    private static ProductDocument product(String name, int stock) {
+        return ProductDocument.builder().name(name).nameKey(FranchiseDocument.nameKeyOf(name)).stock(stock).build();
+    }
+}
@@ -1,28 +1,69 @@
 package co.com.bancolombia.mongo;
 
+import co.com.bancolombia.commons.exception.AppErrorCode;
+import co.com.bancolombia.commons.exception.AppException;
+import co.com.bancolombia.commons.page.PageTokens;
 import co.com.bancolombia.model.branch.Branch;
 import co.com.bancolombia.model.franchise.Franchise;
+import co.com.bancolombia.model.franchiseimport.FranchiseImportResult;
+import co.com.bancolombia.model.franchiseimport.FranchiseImportStatus;
+import co.com.bancolombia.model.franchisesummary.FranchiseSummary;
 import co.com.bancolombia.model.product.Product;
-import co.com.bancolombia.mongo.exception.AppErrorCode;
-import co.com.bancolombia.mongo.exception.AppException;
+import co.com.bancolombia.model.productlocation.ProductLocation;
+import co.com.bancolombia.model.stock.StockUpdate;
+import co.com.bancolombia.model.stock.StockUpdateResult;
+import co.com.bancolombia.model.stock.StockUpdateStatus;
+import co.com.bancolombia.mongo.config.MongoAdapterProperties;
+import co.com.bancolombia.mongo.helper.bulk.FranchiseBulkImporter;
+import co.com.bancolombia.mongo.helper.bulk.StockBulkWriter;
+import co.com.bancolombia.mongo.helper.bulk.StockWriteBehindBuffer;
+import co.com.bancolombia.mongo.helper.concurrency.KeyedSerialExecutor;
 import co.com.bancolombia.mongo.helper.document.BranchDocument;
+import co.com.bancolombia.mongo.helper.document.BranchTopProductDocument;
 import co.com.bancolombia.mongo.helper.document.FranchiseDocument;
+import co.com.bancolombia.mongo.helper.document.FranchiseSummaryDocument;
 import co.com.bancolombia.mongo.helper.document.ProductDocument;
+import co.com.bancolombia.mongo.helper.document.ProductLocationDocument;
 import co.com.bancolombia.mongo.helper.mapper.FranchiseDocumentMapper;
+import co.com.bancolombia.mongo.helper.query.TopProductSummaries;
+import com.mongodb.ReadPreference;
+import com.mongodb.client.result.UpdateResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.reactivecommons.utils.ObjectMapper;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 import reactor.test.StepVerifier;
 
 import java.util.Arrays;
 import java.util.Collections;
-
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -32,12 +73,22 @@ class MongoRepositoryAdapterTest {
     private MongoDBRepository repository;
 
     @Mock
-    private ObjectMapper objectMapper;
+    private FranchiseDocumentMapper franchiseDocumentMapper;
 
     @Mock
-    private FranchiseDocumentMapper franchiseDocumentMapper;
+    private ReactiveMongoTemplate mongoTemplate;
+
+    @Mock
+    private StockBulkWriter stockBulkWriter;
+
+    @Mock
+    private FranchiseBulkImporter franchiseBulkImporter;
+
+    @Mock
+    private StockWriteBehindBuffer stockWriteBehind;
 
     private MongoRepositoryAdapter adapter;
+    private SimpleMeterRegistry meterRegistry;
 
     private FranchiseDocument franchiseDocument;
     private Franchise franchise;
@@ -48,7 +99,10 @@ class MongoRepositoryAdapterTest {
 
     @BeforeEach
     void setUp() {
-        adapter = new MongoRepositoryAdapter(repository, objectMapper, franchiseDocumentMapper);
+        meterRegistry = new SimpleMeterRegistry();
+        adapter = new MongoRepositoryAdapter(repository, franchiseDocumentMapper, mongoTemplate,
+                stockBulkWriter, franchiseBulkImporter, stockWriteBehind, new KeyedSerialExecutor(meterRegistry),
+                ReadPreference.secondaryPreferred(), new MongoAdapterProperties());
 
         productDocument = ProductDocument.builder()
                 .name("Test Product")
@@ -95,14 +149,39 @@ class MongoRepositoryAdapterTest {
                 .build();
 
         when(repository.findById("franchise-id")).thenReturn(Mono.empty());
-        when(repository.findAll()).thenReturn(Flux.empty());
         when(franchiseDocumentMapper.toDocument(franchise)).thenReturn(document);
-        when(repository.save(document)).thenReturn(Mono.just(document));
+        when(repository.insert(document)).thenReturn(Mono.just(document));
         when(franchiseDocumentMapper.toEntity(document)).thenReturn(franchise);
 
         StepVerifier.create(adapter.save(franchise))
                 .expectNext(franchise)
                 .verifyComplete();
+
+        verify(repository, never()).findAll();
+    }
+
+    @Test
+    void save_ShouldWriteOnlyChangedFields_WhenFranchiseExists() {
+        FranchiseDocument existing = franchiseDocument.toBuilder().version(3L).build();
+        FranchiseDocument renamed = franchiseDocument.toBuilder().name("Renamed").nameKey("renamed").build();
+        Franchise renamedFranchise = franchise.toBuilder().name("Renamed").build();
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<UpdateDefinition> update = ArgumentCaptor.forClass(UpdateDefinition.class);
+
+        when(repository.findById("franchise-id")).thenReturn(Mono.just(existing));
+        when(franchiseDocumentMapper.toDocument(renamedFranchise)).thenReturn(renamed);
+        when(mongoTemplate.updateFirst(query.capture(), update.capture(), eq(FranchiseDocument.class)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(1, 1L, null)));
+        when(franchiseDocumentMapper.toEntity(renamed)).thenReturn(renamedFranchise);
+
+        StepVerifier.create(adapter.save(renamedFranchise))
+                .expectNext(renamedFranchise)
+                .verifyComplete();
+
+        assertEquals(3L, query.getValue().getQueryObject().get("version"));
+        assertEquals(new Document("name", "Renamed").append("nameKey", "renamed"),
+                update.getValue().getUpdateObject().get("$set"));
+        verify(repository, never()).save(any(FranchiseDocument.class));
     }
 
     @Test
@@ -112,13 +191,17 @@ class MongoRepositoryAdapterTest {
                 .name("Test Franchise")
                 .build();
 
-        FranchiseDocument existing = FranchiseDocument.builder()
-                .id("existing-id")
+        FranchiseDocument document = FranchiseDocument.builder()
+                .id("franchise-id")
                 .name("Test Franchise")
+                .nameKey("test franchise")
                 .build();
 
         when(repository.findById("franchise-id")).thenReturn(Mono.empty());
-        when(repository.findAll()).thenReturn(Flux.just(existing));
+        when(franchiseDocumentMapper.toDocument(franchise)).thenReturn(document);
+        when(repository.insert(document)).thenReturn(Mono.error(new DuplicateKeyException(
+                "E11000 duplicate key error collection: test.franchise index: franchise_name_key_unique "
+                        + "dup key: { nameKey: \"test franchise\" }")));
 
         StepVerifier.create(adapter.save(franchise))
                 .expectErrorMatches(e -> e instanceof AppException &&
@@ -128,66 +211,246 @@ class MongoRepositoryAdapterTest {
 
     @Test
     void findById_ShouldReturnFranchise_WhenExists() {
-        when(repository.findById("franchise-id")).thenReturn(Mono.just(franchiseDocument));
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        when(mongoTemplate.findOne(query.capture(), eq(FranchiseDocument.class))).thenReturn(Mono.just(franchiseDocument));
         when(franchiseDocumentMapper.toEntity(franchiseDocument)).thenReturn(franchise);
 
         StepVerifier.create(adapter.findById("franchise-id"))
                 .expectNext(franchise)
                 .verifyComplete();
 
-        verify(repository).findById("franchise-id");
+        assertEquals("franchise-id", query.getValue().getQueryObject().get("_id"));
+        // Loads the cache, so it stays on the primary whatever the read-only preference
+        assertNull(query.getValue().getReadPreference());
+        verify(repository, never()).findById(anyString());
         verify(franchiseDocumentMapper).toEntity(franchiseDocument);
     }
 
     @Test
     void findById_ShouldReturnEmpty_WhenNotExists() {
-        when(repository.findById("non-existent-id")).thenReturn(Mono.empty());
+        when(mongoTemplate.findOne(any(Query.class), eq(FranchiseDocument.class))).thenReturn(Mono.empty());
 
         StepVerifier.create(adapter.findById("non-existent-id"))
                 .verifyComplete();
 
-        verify(repository).findById("non-existent-id");
         verify(franchiseDocumentMapper, never()).toEntity(any());
     }
 
     @Test
     void findAll_ShouldReturnAllFranchises() {
-        when(repository.findAll()).thenReturn(Flux.just(franchiseDocument));
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        when(mongoTemplate.find(query.capture(), eq(FranchiseDocument.class))).thenReturn(Flux.just(franchiseDocument));
         when(franchiseDocumentMapper.toEntity(franchiseDocument)).thenReturn(franchise);
 
         StepVerifier.create(adapter.findAll())
                 .expectNext(franchise)
                 .verifyComplete();
 
-        verify(repository).findAll();
+        assertEquals(ReadPreference.secondaryPreferred(), query.getValue().getReadPreference());
+        assertEquals(500, query.getValue().getMeta().getCursorBatchSize());
+        verify(repository, never()).findAll();
         verify(franchiseDocumentMapper).toEntity(franchiseDocument);
     }
 
+    @Test
+    void findPage_ShouldReturnNextToken_WhenMoreDocumentsExist() {
+        FranchiseDocument second = franchiseDocument.toBuilder().id("franchise-id-2").build();
+        FranchiseDocument third = franchiseDocument.toBuilder().id("franchise-id-3").build();
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+
+        when(mongoTemplate.find(query.capture(), eq(FranchiseDocument.class)))
+                .thenReturn(Flux.just(franchiseDocument, second, third));
+        when(franchiseDocumentMapper.toEntity(any(FranchiseDocument.class))).thenReturn(franchise);
+
+        StepVerifier.create(adapter.findPage(null, 2))
+                .expectNextMatches(page -> page.getItems().size() == 2
+                        && PageTokens.decode(page.getNextToken()).equals("franchise-id-2"))
+                .verifyComplete();
+
+        assertEquals(3, query.getValue().getLimit());
+        assertEquals(new Document("_id", 1), query.getValue().getSortObject());
+        assertEquals(ReadPreference.secondaryPreferred(), query.getValue().getReadPreference());
+    }
+
+    @Test
+    void findPage_ShouldContinueAfterTokenId_AndEndWithoutToken() {
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+
+        when(mongoTemplate.find(query.capture(), eq(FranchiseDocument.class))).thenReturn(Flux.just(franchiseDocument));
+        when(franchiseDocumentMapper.toEntity(franchiseDocument)).thenReturn(franchise);
+
+        StepVerifier.create(adapter.findPage(PageTokens.encode("507f1f77bcf86cd799439011"), 2))
+                .expectNextMatches(page -> page.getItems().size() == 1 && !page.hasNext())
+                .verifyComplete();
+
+        Document id = (Document) query.getValue().getQueryObject().get("_id");
+        assertEquals(new ObjectId("507f1f77bcf86cd799439011"), id.get("$gt"));
+    }
+
+    @Test
+    void findPage_ShouldIncludeObjectIds_AfterAStringId() {
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+
+        when(mongoTemplate.find(query.capture(), eq(FranchiseDocument.class))).thenReturn(Flux.empty());
+
+        StepVerifier.create(adapter.findPage(PageTokens.encode("franchise-id"), 2))
+                .expectNextMatches(page -> page.getItems().isEmpty() && !page.hasNext())
+                .verifyComplete();
+
+        assertTrue(query.getValue().getQueryObject().containsKey("$or"));
+    }
+
+    @Test
+    void findPage_ShouldRejectInvalidSizeOrToken() {
+        StepVerifier.create(adapter.findPage(null, 0))
+                .expectErrorMatches(e -> e instanceof AppException &&
+                        ((AppException) e).getErrorCode() == AppErrorCode.BAD_REQUEST)
+                .verify();
+
+        StepVerifier.create(adapter.findPage("not-a-token", 10))
+                .expectErrorMatches(e -> e instanceof AppException &&
+                        ((AppException) e).getErrorCode() == AppErrorCode.BAD_REQUEST)
+                .verify();
+
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    void findSummaryPage_ShouldAggregateSummaries_AndReturnNextToken() {
+        FranchiseSummaryDocument first = new FranchiseSummaryDocument("franchise-id", "Franchise", 2, 5);
+        FranchiseSummaryDocument second = new FranchiseSummaryDocument("franchise-id-2", "Other", 0, 0);
+        FranchiseSummary summary = FranchiseSummary.builder().id("franchise-id").name("Franchise")
+                .branchCount(2).productCount(5).build();
+
+        ArgumentCaptor<TypedAggregation> aggregation = ArgumentCaptor.forClass(TypedAggregation.class);
+        when(mongoTemplate.aggregate(aggregation.capture(), eq(FranchiseSummaryDocument.class)))
+                .thenReturn(Flux.just(first, second));
+        when(franchiseDocumentMapper.toSummary(first)).thenReturn(summary);
+
+        StepVerifier.create(adapter.findSummaryPage(null, 1))
+                .expectNextMatches(page -> page.getItems().equals(List.of(summary))
+                        && PageTokens.decode(page.getNextToken()).equals("franchise-id"))
+                .verifyComplete();
+
+        assertEquals(ReadPreference.secondaryPreferred(), aggregation.getValue().getOptions().getReadPreference());
+    }
+
+    @Test
+    void findSummaryPage_ShouldRejectInvalidSize() {
+        StepVerifier.create(adapter.findSummaryPage(null, 101))
+                .expectErrorMatches(e -> e instanceof AppException &&
+                        ((AppException) e).getErrorCode() == AppErrorCode.BAD_REQUEST)
+                .verify();
+
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    void findLowStockPage_ShouldAggregateRows_AndReturnCompositeNextToken() {
+        ProductLocationDocument first = new ProductLocationDocument("franchise-id", "Franchise", "Branch", "Product", 2);
+        ProductLocationDocument second = new ProductLocationDocument("franchise-id", "Franchise", "Branch", "Tea", 0);
+        ProductLocation lowStock = ProductLocation.builder().franchiseId("franchise-id").franchiseName("Franchise")
+                .branchName("Branch").productName("Product").stock(2).build();
+
+        ArgumentCaptor<TypedAggregation> aggregation = ArgumentCaptor.forClass(TypedAggregation.class);
+        when(mongoTemplate.aggregate(aggregation.capture(), eq(ProductLocationDocument.class)))
+                .thenReturn(Flux.just(first, second));
+        when(franchiseDocumentMapper.toProductLocation(first)).thenReturn(lowStock);
+
+        StepVerifier.create(adapter.findLowStockPage(5, null, 1))
+                .expectNextMatches(page -> page.getItems().equals(List.of(lowStock))
+                        && PageTokens.decodeKey(page.getNextToken(), 3)
+                        .equals(List.of("franchise-id", "Branch", "Product")))
+                .verifyComplete();
+
+        assertEquals(ReadPreference.secondaryPreferred(), aggregation.getValue().getOptions().getReadPreference());
+    }
+
+    @Test
+    void findLowStockPage_ShouldRejectNonPositiveThreshold() {
+        StepVerifier.create(adapter.findLowStockPage(0, null, 20))
+                .expectErrorMatches(e -> e instanceof AppException &&
+                        ((AppException) e).getErrorCode() == AppErrorCode.BAD_REQUEST)
+                .verify();
+
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    void findProductsByNamePrefix_ShouldStreamAggregatedLocations() {
+        ProductLocationDocument document = new ProductLocationDocument("franchise-id", "Franchise", "Branch", "Product", 4);
+        ProductLocation location = ProductLocation.builder().franchiseId("franchise-id").franchiseName("Franchise")
+                .branchName("Branch").productName("Product").stock(4).build();
+
+        ArgumentCaptor<TypedAggregation> aggregation = ArgumentCaptor.forClass(TypedAggregation.class);
+        when(mongoTemplate.aggregate(aggregation.capture(), eq(ProductLocationDocument.class)))
+                .thenReturn(Flux.just(document));
+        when(franchiseDocumentMapper.toProductLocation(document)).thenReturn(location);
+
+        StepVerifier.create(adapter.findProductsByNamePrefix("PRO"))
+                .expectNext(location)
+                .verifyComplete();
+
+        assertEquals(ReadPreference.secondaryPreferred(), aggregation.getValue().getOptions().getReadPreference());
+    }
+
+    @Test
+    void findProductsByNamePrefix_ShouldRejectBlankPrefix() {
+        StepVerifier.create(adapter.findProductsByNamePrefix(" "))
+                .expectErrorMatches(e -> e instanceof AppException &&
+                        ((AppException) e).getErrorCode() == AppErrorCode.BAD_REQUEST)
+                .verify();
+
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    void importFranchises_ShouldDelegateToBulkImporter() {
+        Flux<Franchise> franchises = Flux.just(franchise);
+        FranchiseImportResult result = FranchiseImportResult.of(franchise, FranchiseImportStatus.IMPORTED);
+
+        when(franchiseBulkImporter.insert(franchises)).thenReturn(Flux.just(result));
+
+        StepVerifier.create(adapter.importFranchises(franchises))
+                .expectNext(result)
+                .verifyComplete();
+    }
+
     @Test
     void addBranchToFranchise_ShouldAddBranch_WhenBranchNameIsUnique() {
         Branch newBranch = Branch.builder().name("New Branch").products(Collections.emptyList()).build();
+        BranchDocument newBranchDocument = BranchDocument.builder().name("New Branch").products(List.of())
+                .topProducts(List.of()).build();
         Franchise updatedFranchise = franchise.toBuilder()
                 .branches(Arrays.asList(branch, newBranch))
                 .build();
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<UpdateDefinition> update = ArgumentCaptor.forClass(UpdateDefinition.class);
 
-        when(repository.findById("franchise-id")).thenReturn(Mono.just(franchiseDocument));
-
-        when(franchiseDocumentMapper.toEntity(franchiseDocument))
-                .thenReturn(franchise)
-                .thenReturn(updatedFranchise);
-
-        when(franchiseDocumentMapper.toDocument(any(Franchise.class))).thenReturn(franchiseDocument);
-        when(repository.save(any(FranchiseDocument.class))).thenReturn(Mono.just(franchiseDocument));
-        when(repository.findAll()).thenReturn(Flux.empty());
+        when(franchiseDocumentMapper.toBranchDocument(newBranch)).thenReturn(newBranchDocument);
+        when(mongoTemplate.findAndModify(query.capture(), update.capture(), any(FindAndModifyOptions.class),
+                eq(FranchiseDocument.class)))
+                .thenReturn(Mono.just(franchiseDocument));
+        when(franchiseDocumentMapper.toEntity(franchiseDocument)).thenReturn(updatedFranchise);
 
         StepVerifier.create(adapter.addBranchToFranchise("franchise-id", newBranch))
                 .expectNext(updatedFranchise)
                 .verifyComplete();
+
+        Document guard = (Document) query.getValue().getQueryObject().get("branches.name");
+        assertTrue(guard.containsKey("$not"));
+        assertEquals(new Document("branches", newBranchDocument), update.getValue().getUpdateObject().get("$push"));
+        assertEquals(new Document("version", 1), update.getValue().getUpdateObject().get("$inc"));
+        verify(repository, never()).findById(anyString());
+        verify(repository, never()).save(any(FranchiseDocument.class));
     }
 
     @Test
     void addBranchToFranchise_ShouldThrowException_WhenFranchiseNotFound() {
         Branch newBranch = Branch.builder().name("New Branch").build();
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class),
+                eq(FranchiseDocument.class)))
+                .thenReturn(Mono.empty());
         when(repository.findById("non-existent-id")).thenReturn(Mono.empty());
 
         StepVerifier.create(adapter.addBranchToFranchise("non-existent-id", newBranch))
@@ -200,8 +463,10 @@ class MongoRepositoryAdapterTest {
     @Test
     void addBranchToFranchise_ShouldThrowException_WhenBranchNameAlreadyExists() {
         Branch duplicateBranch = Branch.builder().name("Test Branch").build();
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class),
+                eq(FranchiseDocument.class)))
+                .thenReturn(Mono.empty());
         when(repository.findById("franchise-id")).thenReturn(Mono.just(franchiseDocument));
-        when(franchiseDocumentMapper.toEntity(franchiseDocument)).thenReturn(franchise);
 
         StepVerifier.create(adapter.addBranchToFranchise("franchise-id", duplicateBranch))
                 .expectErrorMatches(throwable ->
@@ -213,39 +478,48 @@ class MongoRepositoryAdapterTest {
     @Test
     void addProductToBranch_ShouldAddProduct_WhenProductNameIsUnique() {
         Product newProduct = Product.builder().name("New Product").stock(5).build();
-        when(repository.findById("franchise-id")).thenReturn(Mono.just(franchiseDocument));
+        ProductDocument newProductDocument = ProductDocument.builder().name("New Product").nameKey("new product")
+                .stock(5).build();
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<UpdateDefinition> update = ArgumentCaptor.forClass(UpdateDefinition.class);
+
+        when(franchiseDocumentMapper.toProductDocument(newProduct)).thenReturn(newProductDocument);
+        when(mongoTemplate.findAndModify(query.capture(), update.capture(), any(FindAndModifyOptions.class),
+                eq(FranchiseDocument.class)))
+                .thenReturn(Mono.just(franchiseDocument));
         when(franchiseDocumentMapper.toEntity(franchiseDocument)).thenReturn(franchise);
-        when(franchiseDocumentMapper.toDocument(any(Franchise.class))).thenReturn(franchiseDocument);
-        when(repository.save(any(FranchiseDocument.class))).thenReturn(Mono.just(franchiseDocument));
-        when(repository.findAll()).thenReturn(Flux.empty());
 
         StepVerifier.create(adapter.addProductToBranch("franchise-id", "Test Branch", newProduct))
                 .expectNext(franchise)
                 .verifyComplete();
+
+        Document branchGuard = (Document) ((Document) query.getValue().getQueryObject().get("branches")).get("$elemMatch");
+        assertTrue(((Document) branchGuard.get("products.name")).containsKey("$not"));
+        Document set = pipelineSet(update.getValue());
+        assertTrue(set.containsKey("branches"));
+        assertTrue(set.containsKey("version"));
+        verify(repository, never()).findById(anyString());
     }
 
     @Test
     void addProductToBranch_ShouldThrowException_WhenBranchNotFound() {
-        Franchise franchise = Franchise.builder()
-                .id("franchise-id")
-                .name("Test Franchise")
-                .branches(Collections.emptyList())
-                .build();
-
         FranchiseDocument document = FranchiseDocument.builder()
                 .id("franchise-id")
                 .name("Test Franchise")
                 .branches(Collections.emptyList())
                 .build();
-
-        when(repository.findById("franchise-id")).thenReturn(Mono.just(document));
-        when(franchiseDocumentMapper.toEntity(document)).thenReturn(franchise);
-
         Product newProduct = Product.builder()
                 .name("New Product")
                 .stock(20)
                 .build();
 
+        when(franchiseDocumentMapper.toProductDocument(newProduct)).thenReturn(ProductDocument.builder()
+                .name("New Product").nameKey("new product").stock(20).build());
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class),
+                eq(FranchiseDocument.class)))
+                .thenReturn(Mono.empty());
+        when(repository.findById("franchise-id")).thenReturn(Mono.just(document));
+
         StepVerifier.create(adapter.addProductToBranch("franchise-id", "Non-existent Branch", newProduct))
                 .expectErrorMatches(e -> e instanceof AppException &&
                         ((AppException) e).getErrorCode() == AppErrorCode.BRANCH_NOT_FOUND)
@@ -254,70 +528,50 @@ class MongoRepositoryAdapterTest {
 
     @Test
     void addProductToBranch_ShouldThrowException_WhenProductNameAlreadyExists() {
-        Product existingProduct = Product.builder()
-                .name("Test Product")
-                .stock(10)
-                .build();
-
-        Branch branch = Branch.builder()
-                .name("Test Branch")
-                .products(Collections.singletonList(existingProduct))
-                .build();
-
-        Franchise franchise = Franchise.builder()
-                .id("franchise-id")
-                .name("Test Franchise")
-                .branches(Collections.singletonList(branch))
-                .build();
-
-        ProductDocument productDoc = ProductDocument.builder()
-                .name("Test Product")
-                .stock(10)
-                .build();
-
-        BranchDocument branchDoc = BranchDocument.builder()
-                .name("Test Branch")
-                .products(Collections.singletonList(productDoc))
-                .build();
-
-        FranchiseDocument document = FranchiseDocument.builder()
-                .id("franchise-id")
-                .name("Test Franchise")
-                .branches(Collections.singletonList(branchDoc))
-                .build();
-
-        when(repository.findById("franchise-id")).thenReturn(Mono.just(document));
-        when(franchiseDocumentMapper.toEntity(document)).thenReturn(franchise);
-
         Product newProduct = Product.builder()
                 .name("Test Product")
                 .stock(5)
                 .build();
 
+        when(franchiseDocumentMapper.toProductDocument(newProduct)).thenReturn(ProductDocument.builder()
+                .name("Test Product").nameKey("test product").stock(5).build());
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class),
+                eq(FranchiseDocument.class)))
+                .thenReturn(Mono.empty());
+        when(repository.findById("franchise-id")).thenReturn(Mono.just(franchiseDocument));
+
         StepVerifier.create(adapter.addProductToBranch("franchise-id", "Test Branch", newProduct))
                 .expectErrorMatches(e -> e instanceof AppException &&
                         ((AppException) e).getErrorCode() == AppErrorCode.DUPLICATE_PRODUCT_NAME)
                 .verify();
     }
 
-
     @Test
     void removeProductFromBranch_ShouldRemoveProduct_WhenProductExists() {
-        when(repository.findById("franchise-id")).thenReturn(Mono.just(franchiseDocument));
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<UpdateDefinition> update = ArgumentCaptor.forClass(UpdateDefinition.class);
+
+        when(mongoTemplate.findAndModify(query.capture(), update.capture(), any(FindAndModifyOptions.class),
+                eq(FranchiseDocument.class)))
+                .thenReturn(Mono.just(franchiseDocument));
         when(franchiseDocumentMapper.toEntity(franchiseDocument)).thenReturn(franchise);
-        when(franchiseDocumentMapper.toDocument(any(Franchise.class))).thenReturn(franchiseDocument);
-        when(repository.save(any(FranchiseDocument.class))).thenReturn(Mono.just(franchiseDocument));
-        when(repository.findAll()).thenReturn(Flux.empty());
 
         StepVerifier.create(adapter.removeProductFromBranch("franchise-id", "Test Branch", "Test Product"))
                 .expectNext(franchise)
                 .verifyComplete();
+
+        assertEquals("franchise-id", query.getValue().getQueryObject().get("_id"));
+        assertTrue(query.getValue().getQueryObject().containsKey("branches"));
+        assertTrue(pipelineSet(update.getValue()).containsKey("branches"));
+        verify(repository, never()).findById(anyString());
     }
 
     @Test
     void removeProductFromBranch_ShouldThrowException_WhenProductNotFound() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class),
+                eq(FranchiseDocument.class)))
+                .thenReturn(Mono.empty());
         when(repository.findById("franchise-id")).thenReturn(Mono.just(franchiseDocument));
-        when(franchiseDocumentMapper.toEntity(franchiseDocument)).thenReturn(franchise);
 
         StepVerifier.create(adapter.removeProductFromBranch("franchise-id", "Test Branch", "Non-existent Product"))
                 .expectErrorMatches(throwable ->
@@ -328,21 +582,76 @@ class MongoRepositoryAdapterTest {
 
     @Test
     void updateProductStock_ShouldUpdateStock_WhenProductExists() {
-        when(repository.findById("franchise-id")).thenReturn(Mono.just(franchiseDocument));
-        when(franchiseDocumentMapper.toEntity(franchiseDocument)).thenReturn(franchise);
-        when(franchiseDocumentMapper.toDocument(any(Franchise.class))).thenReturn(franchiseDocument);
-        when(repository.save(any(FranchiseDocument.class))).thenReturn(Mono.just(franchiseDocument));
-        when(repository.findAll()).thenReturn(Flux.empty());
+        ProductDocument updatedDoc = ProductDocument.builder().name("Test Product").stock(20).build();
+        FranchiseDocument projected = franchiseDocument.toBuilder()
+                .branches(List.of(BranchDocument.builder().name("Test Branch").products(List.of(updatedDoc)).build()))
+                .build();
+        Product updated = Product.builder().name("Test Product").stock(20).build();
+
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class),
+                any(FindAndModifyOptions.class), eq(FranchiseDocument.class))).thenReturn(Mono.just(projected));
+        when(franchiseDocumentMapper.toProduct(updatedDoc)).thenReturn(updated);
+
+        StepVerifier.create(adapter.updateProductStock("franchise-id", "test branch", "TEST PRODUCT", 20))
+                .expectNext(updated)
+                .verifyComplete();
+
+        verify(repository, never()).findById(anyString());
+        verify(repository, never()).save(any(FranchiseDocument.class));
+    }
+
+    @Test
+    void updateProductStock_ShouldBufferUpdate_WhenWriteBehindIsEnabled() {
+        ArgumentCaptor<StockUpdate> buffered = ArgumentCaptor.forClass(StockUpdate.class);
+        when(stockWriteBehind.isEnabled()).thenReturn(true);
+        when(stockWriteBehind.submit(buffered.capture())).thenReturn(Mono.just(product));
 
         StepVerifier.create(adapter.updateProductStock("franchise-id", "Test Branch", "Test Product", 20))
-                .expectNext(franchise)
+                .expectNext(product)
+                .verifyComplete();
+
+        assertEquals(20, buffered.getValue().getStock());
+        assertEquals("Test Branch", buffered.getValue().getBranchName());
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    void updateProductStock_ShouldIssueSingleTargetedUpdate() {
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<UpdateDefinition> update = ArgumentCaptor.forClass(UpdateDefinition.class);
+
+        when(mongoTemplate.findAndModify(query.capture(), update.capture(),
+                any(FindAndModifyOptions.class), eq(FranchiseDocument.class))).thenReturn(Mono.just(franchiseDocument));
+        when(franchiseDocumentMapper.toProduct(productDocument)).thenReturn(product);
+
+        StepVerifier.create(adapter.updateProductStock("franchise-id", "Test Branch", "Test Product", 20))
+                .expectNext(product)
                 .verifyComplete();
+
+        assertEquals("franchise-id", query.getValue().getQueryObject().get("_id"));
+        assertTrue(query.getValue().getFieldsObject().containsKey("branches"));
+        Document set = pipelineSet(update.getValue());
+        assertTrue(set.containsKey("branches"));
+        assertTrue(set.containsKey("version"));
+        assertTrue(set.toJson().contains("topProducts"));
+    }
+
+    @Test
+    void updateProductStock_ShouldRejectNegativeStock() {
+        StepVerifier.create(adapter.updateProductStock("franchise-id", "Test Branch", "Test Product", -1))
+                .expectErrorMatches(throwable ->
+                        throwable instanceof AppException &&
+                                ((AppException) throwable).getErrorCode() == AppErrorCode.BAD_REQUEST)
+                .verify();
+
+        verifyNoInteractions(mongoTemplate);
     }
 
     @Test
     void updateProductStock_ShouldThrowException_WhenProductNotFound() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class),
+                any(FindAndModifyOptions.class), eq(FranchiseDocument.class))).thenReturn(Mono.empty());
         when(repository.findById("franchise-id")).thenReturn(Mono.just(franchiseDocument));
-        when(franchiseDocumentMapper.toEntity(franchiseDocument)).thenReturn(franchise);
 
         StepVerifier.create(adapter.updateProductStock("franchise-id", "Test Branch", "Non-existent Product", 20))
                 .expectErrorMatches(throwable ->
@@ -352,23 +661,159 @@ class MongoRepositoryAdapterTest {
     }
 
     @Test
-    void getTopProductsPerBranch_ShouldReturnTopProducts() {
-        ProductDocument product1 = ProductDocument.builder().name("Product 1").stock(5).build();
-        ProductDocument product2 = ProductDocument.builder().name("Product 2").stock(15).build();
+    void updateProductStock_ShouldThrowException_WhenBranchNotFound() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class),
+                any(FindAndModifyOptions.class), eq(FranchiseDocument.class))).thenReturn(Mono.empty());
+        when(repository.findById("franchise-id")).thenReturn(Mono.just(franchiseDocument));
 
-        BranchDocument branch1 = BranchDocument.builder()
-                .name("Branch 1")
-                .products(Arrays.asList(product1, product2))
+        StepVerifier.create(adapter.updateProductStock("franchise-id", "Non-existent Branch", "Test Product", 20))
+                .expectErrorMatches(throwable ->
+                        throwable instanceof AppException &&
+                                ((AppException) throwable).getErrorCode() == AppErrorCode.BRANCH_NOT_FOUND)
+                .verify();
+    }
+
+    @Test
+    void updateProductStock_ShouldThrowException_WhenFranchiseNotFound() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class),
+                any(FindAndModifyOptions.class), eq(FranchiseDocument.class))).thenReturn(Mono.empty());
+        when(repository.findById("non-existent-id")).thenReturn(Mono.empty());
+
+        StepVerifier.create(adapter.updateProductStock("non-existent-id", "Test Branch", "Test Product", 20))
+                .expectErrorMatches(throwable ->
+                        throwable instanceof AppException &&
+                                ((AppException) throwable).getErrorCode() == AppErrorCode.FRANCHISE_NOT_FOUND)
+                .verify();
+    }
+
+    @Test
+    void adjustProductStock_ShouldIncrementStock() {
+        ArgumentCaptor<UpdateDefinition> update = ArgumentCaptor.forClass(UpdateDefinition.class);
+        ProductDocument updatedDoc = ProductDocument.builder().name("Test Product").stock(15).build();
+        FranchiseDocument projected = franchiseDocument.toBuilder()
+                .branches(List.of(BranchDocument.builder().name("Test Branch").products(List.of(updatedDoc)).build()))
                 .build();
+        Product updated = Product.builder().name("Test Product").stock(15).build();
+
+        when(mongoTemplate.findAndModify(any(Query.class), update.capture(),
+                any(FindAndModifyOptions.class), eq(FranchiseDocument.class))).thenReturn(Mono.just(projected));
+        when(franchiseDocumentMapper.toProduct(updatedDoc)).thenReturn(updated);
+
+        StepVerifier.create(adapter.adjustProductStock("franchise-id", "Test Branch", "Test Product", 5))
+                .expectNext(updated)
+                .verifyComplete();
 
-        FranchiseDocument franchiseWithMultipleProducts = franchiseDocument.toBuilder()
-                .branches(Arrays.asList(branch1))
+        assertTrue(pipelineSet(update.getValue()).toJson().contains("{\"$add\": [\"$$product.stock\", 5]}"));
+    }
+
+    @Test
+    void adjustProductStock_ShouldApplyAfterBufferedStockSetIsWritten_WhenWriteBehindIsEnabled() {
+        ProductDocument updatedDoc = ProductDocument.builder().name("Test Product").stock(7).build();
+        FranchiseDocument projected = franchiseDocument.toBuilder()
+                .branches(List.of(BranchDocument.builder().name("Test Branch").products(List.of(updatedDoc)).build()))
                 .build();
+        Product updated = Product.builder().name("Test Product").stock(7).build();
+        Sinks.Empty<Void> settled = Sinks.empty();
+
+        when(stockWriteBehind.isEnabled()).thenReturn(true);
+        when(stockWriteBehind.settle("franchise-id", "Test Branch", "Test Product")).thenReturn(settled.asMono());
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class),
+                any(FindAndModifyOptions.class), eq(FranchiseDocument.class))).thenReturn(Mono.just(projected));
+        when(franchiseDocumentMapper.toProduct(updatedDoc)).thenReturn(updated);
+
+        StepVerifier.create(adapter.adjustProductStock("franchise-id", "Test Branch", "Test Product", -3))
+                .then(() -> verifyNoInteractions(mongoTemplate))
+                .then(settled::tryEmitEmpty)
+                .expectNext(updated)
+                .verifyComplete();
+    }
 
-        Product expectedProduct = Product.builder().name("Product 2").stock(15).build();
+    @Test
+    void adjustProductStock_ShouldThrowException_WhenStockIsInsufficient() {
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
 
-        when(repository.findById("franchise-id")).thenReturn(Mono.just(franchiseWithMultipleProducts));
-        when(franchiseDocumentMapper.toProduct(product2)).thenReturn(expectedProduct);
+        when(mongoTemplate.findAndModify(query.capture(), any(UpdateDefinition.class),
+                any(FindAndModifyOptions.class), eq(FranchiseDocument.class))).thenReturn(Mono.empty());
+        when(repository.findById("franchise-id")).thenReturn(Mono.just(franchiseDocument));
+
+        StepVerifier.create(adapter.adjustProductStock("franchise-id", "Test Branch", "Test Product", -50))
+                .expectErrorMatches(throwable ->
+                        throwable instanceof AppException &&
+                                ((AppException) throwable).getErrorCode() == AppErrorCode.INSUFFICIENT_STOCK)
+                .verify();
+
+        assertTrue(query.getValue().getQueryObject().toJson().contains("\"$gte\": 50"));
+    }
+
+    @Test
+    void adjustProductStock_ShouldRejectAnIncrementPastTheIntRange() {
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+
+        when(mongoTemplate.findAndModify(query.capture(), any(UpdateDefinition.class),
+                any(FindAndModifyOptions.class), eq(FranchiseDocument.class))).thenReturn(Mono.empty());
+        when(repository.findById("franchise-id")).thenReturn(Mono.just(franchiseDocument));
+
+        StepVerifier.create(adapter.adjustProductStock("franchise-id", "Test Branch", "Test Product", Integer.MAX_VALUE))
+                .expectErrorMatches(throwable ->
+                        throwable instanceof AppException &&
+                                ((AppException) throwable).getErrorCode() == AppErrorCode.BAD_REQUEST)
+                .verify();
+
+        assertTrue(query.getValue().getQueryObject().toJson().contains("\"$lte\": 0"));
+    }
+
+    @Test
+    void adjustProductStock_ShouldGuardTheSmallestDeltaWithoutOverflow() {
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+
+        when(mongoTemplate.findAndModify(query.capture(), any(UpdateDefinition.class),
+                any(FindAndModifyOptions.class), eq(FranchiseDocument.class))).thenReturn(Mono.empty());
+        when(repository.findById("franchise-id")).thenReturn(Mono.just(franchiseDocument));
+
+        StepVerifier.create(adapter.adjustProductStock("franchise-id", "Test Branch", "Test Product", Integer.MIN_VALUE))
+                .expectErrorMatches(throwable ->
+                        throwable instanceof AppException &&
+                                ((AppException) throwable).getErrorCode() == AppErrorCode.INSUFFICIENT_STOCK)
+                .verify();
+
+        assertTrue(query.getValue().getQueryObject().toJson().contains("\"$gte\": 2147483648"));
+    }
+
+    @Test
+    void adjustProductStock_ShouldRejectZeroDelta() {
+        StepVerifier.create(adapter.adjustProductStock("franchise-id", "Test Branch", "Test Product", 0))
+                .expectErrorMatches(throwable ->
+                        throwable instanceof AppException &&
+                                ((AppException) throwable).getErrorCode() == AppErrorCode.BAD_REQUEST)
+                .verify();
+
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    void updateProductStocks_ShouldDelegateToBulkWriter() {
+        StockUpdate update = new StockUpdate("franchise-id", "Test Branch", "Test Product", 30);
+        Flux<StockUpdate> updates = Flux.just(update);
+        StockUpdateResult result = StockUpdateResult.of(update, StockUpdateStatus.UPDATED);
+
+        when(stockBulkWriter.write(updates)).thenReturn(Flux.just(result));
+
+        StepVerifier.create(adapter.updateProductStocks(updates))
+                .expectNext(result)
+                .verifyComplete();
+    }
+
+    @Test
+    void getTopProductsPerBranch_ShouldReadMaintainedSummaries() {
+        ProductDocument product2 = ProductDocument.builder().name("Product 2").stock(15).build();
+        ProductDocument product1 = ProductDocument.builder().name("Product 1").stock(5).build();
+        FranchiseDocument summarized = FranchiseDocument.builder().id("franchise-id")
+                .branches(List.of(BranchDocument.builder().name("Branch 1").topProducts(List.of(product2, product1)).build()))
+                .build();
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+
+        when(mongoTemplate.findOne(query.capture(), eq(FranchiseDocument.class))).thenReturn(Mono.just(summarized));
+        when(franchiseDocumentMapper.toProduct(product2)).thenReturn(Product.builder().name("Product 2").stock(15).build());
 
         StepVerifier.create(adapter.getTopProductsPerBranch("franchise-id"))
                 .expectNextMatches(result ->
@@ -377,35 +822,128 @@ class MongoRepositoryAdapterTest {
                                 result.getProduct().getStock().equals(15)
                 )
                 .verifyComplete();
+
+        assertEquals(Set.of("branches.name", "branches.topProducts"), query.getValue().getFieldsObject().keySet());
+        verify(mongoTemplate, never()).aggregate(any(TypedAggregation.class), eq(BranchTopProductDocument.class));
+        verify(repository, never()).findById(anyString());
+    }
+
+    @Test
+    void getTopProductsPerBranch_ShouldReturnTiedProductsOnlyWhenAsked() {
+        ProductDocument first = ProductDocument.builder().name("Product 1").stock(15).build();
+        ProductDocument second = ProductDocument.builder().name("Product 2").stock(15).build();
+        ProductDocument third = ProductDocument.builder().name("Product 3").stock(4).build();
+        FranchiseDocument summarized = FranchiseDocument.builder().id("franchise-id")
+                .branches(List.of(BranchDocument.builder().name("Branch 1")
+                        .topProducts(List.of(first, second, third)).build()))
+                .build();
+
+        when(mongoTemplate.findOne(any(Query.class), eq(FranchiseDocument.class))).thenReturn(Mono.just(summarized));
+        when(franchiseDocumentMapper.toProduct(any(ProductDocument.class)))
+                .thenAnswer(invocation -> {
+                    ProductDocument doc = invocation.getArgument(0);
+                    return Product.builder().name(doc.getName()).stock(doc.getStock()).build();
+                });
+
+        StepVerifier.create(adapter.getTopProductsPerBranch("franchise-id", 1, true))
+                .expectNextMatches(result -> result.getProduct().getName().equals("Product 1"))
+                .expectNextMatches(result -> result.getProduct().getName().equals("Product 2"))
+                .verifyComplete();
+        StepVerifier.create(adapter.getTopProductsPerBranch("franchise-id"))
+                .expectNextMatches(result -> result.getProduct().getName().equals("Product 1"))
+                .verifyComplete();
+    }
+
+    @Test
+    void getTopProductsPerBranch_ShouldRankWithAggregation_WhenSummariesAreMissing() {
+        ProductDocument product2 = ProductDocument.builder().name("Product 2").stock(15).build();
+        Product expectedProduct = Product.builder().name("Product 2").stock(15).build();
+
+        when(mongoTemplate.findOne(any(Query.class), eq(FranchiseDocument.class))).thenReturn(Mono.just(franchiseDocument));
+        when(mongoTemplate.aggregate(any(TypedAggregation.class), eq(BranchTopProductDocument.class)))
+                .thenReturn(Flux.just(new BranchTopProductDocument("Branch 1", product2)));
+        when(franchiseDocumentMapper.toProduct(product2)).thenReturn(expectedProduct);
+
+        StepVerifier.create(adapter.getTopProductsPerBranch("franchise-id"))
+                .expectNextMatches(result -> result.getProduct().getName().equals("Product 2"))
+                .verifyComplete();
+    }
+
+    @Test
+    void getTopProductsPerBranch_ShouldRankTiesWithAggregation_WhenSummaryIsTruncated() {
+        List<ProductDocument> tied = IntStream.range(0, TopProductSummaries.CAPACITY + 2)
+                .mapToObj(i -> ProductDocument.builder().name("Product " + (char) ('A' + i)).stock(15).build())
+                .toList();
+        FranchiseDocument summarized = FranchiseDocument.builder().id("franchise-id")
+                .branches(List.of(BranchDocument.builder().name("Branch 1")
+                        .topProducts(TopProductSummaries.summarize(tied)).build()))
+                .build();
+
+        when(mongoTemplate.findOne(any(Query.class), eq(FranchiseDocument.class))).thenReturn(Mono.just(summarized));
+        when(mongoTemplate.aggregate(any(TypedAggregation.class), eq(BranchTopProductDocument.class)))
+                .thenReturn(Flux.fromIterable(tied).map(product -> new BranchTopProductDocument("Branch 1", product)));
+        when(franchiseDocumentMapper.toProduct(any(ProductDocument.class)))
+                .thenAnswer(invocation -> Product.builder().name(invocation.<ProductDocument>getArgument(0).getName()).build());
+
+        StepVerifier.create(adapter.getTopProductsPerBranch("franchise-id", 1, true))
+                .expectNextCount(tied.size())
+                .verifyComplete();
+        StepVerifier.create(adapter.getTopProductsPerBranch("franchise-id", 1, false))
+                .expectNextMatches(result -> result.getProduct().getName().equals("Product A"))
+                .verifyComplete();
+
+        verify(mongoTemplate).aggregate(any(TypedAggregation.class), eq(BranchTopProductDocument.class));
+    }
+
+    @Test
+    void getTopProductsPerBranch_ShouldRankWithAggregation_WhenLimitExceedsSummary() {
+        when(mongoTemplate.aggregate(any(TypedAggregation.class), eq(BranchTopProductDocument.class)))
+                .thenReturn(Flux.empty());
+
+        StepVerifier.create(adapter.getTopProductsPerBranch("franchise-id", TopProductSummaries.SIZE + 1))
+                .verifyComplete();
+
+        verify(mongoTemplate, never()).findOne(any(Query.class), eq(FranchiseDocument.class));
+    }
+
+    @Test
+    void getTopProductsPerBranch_ShouldRejectNonPositiveLimit() {
+        StepVerifier.create(adapter.getTopProductsPerBranch("franchise-id", 0))
+                .expectErrorMatches(throwable ->
+                        throwable instanceof AppException &&
+                                ((AppException) throwable).getErrorCode() == AppErrorCode.BAD_REQUEST)
+                .verify();
+
+        verifyNoInteractions(mongoTemplate);
     }
 
     @Test
     void updateFranchiseName_ShouldUpdateName_WhenNameIsUnique() {
         String newName = "New Franchise Name";
+        ArgumentCaptor<UpdateDefinition> update = ArgumentCaptor.forClass(UpdateDefinition.class);
 
-        FranchiseDocument mockFranchiseDocument = mock(FranchiseDocument.class);
-
-        when(repository.findAll()).thenReturn(Flux.just(franchiseDocument));
-        when(repository.findById("franchise-id")).thenReturn(Mono.just(mockFranchiseDocument));
-        when(repository.save(any(FranchiseDocument.class))).thenReturn(Mono.just(mockFranchiseDocument));
-        when(franchiseDocumentMapper.toEntity(mockFranchiseDocument)).thenReturn(franchise);
+        when(mongoTemplate.findAndModify(any(Query.class), update.capture(),
+                any(FindAndModifyOptions.class), eq(FranchiseDocument.class))).thenReturn(Mono.just(franchiseDocument));
+        when(franchiseDocumentMapper.toEntity(franchiseDocument)).thenReturn(franchise);
 
         StepVerifier.create(adapter.updateFranchiseName("franchise-id", newName))
                 .expectNext(franchise)
                 .verifyComplete();
 
-        verify(mockFranchiseDocument).setName(newName);
+        Document set = (Document) update.getValue().getUpdateObject().get("$set");
+        assertEquals(newName, set.get("name"));
+        assertEquals("new franchise name", set.get("nameKey"));
+        verify(repository, never()).findAll();
     }
 
     @Test
     void updateFranchiseName_ShouldThrowException_WhenNameAlreadyExists() {
         String duplicateName = "Existing Name";
-        FranchiseDocument existingFranchise = FranchiseDocument.builder()
-                .id("other-id")
-                .name(duplicateName)
-                .build();
 
-        when(repository.findAll()).thenReturn(Flux.just(franchiseDocument, existingFranchise));
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class),
+                any(FindAndModifyOptions.class), eq(FranchiseDocument.class)))
+                .thenReturn(Mono.error(new DuplicateKeyException(
+                        "E11000 duplicate key error collection: test.franchise index: franchise_name_key_unique")));
 
         StepVerifier.create(adapter.updateFranchiseName("franchise-id", duplicateName))
                 .expectErrorMatches(throwable ->
@@ -415,31 +953,61 @@ class MongoRepositoryAdapterTest {
     }
 
     @Test
-    void updateBranchName_ShouldUpdateName_WhenNameIsUnique() {
-        String newBranchName = "New Branch Name";
+    void updateFranchiseName_ShouldThrowException_WhenFranchiseNotFound() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class),
+                any(FindAndModifyOptions.class), eq(FranchiseDocument.class))).thenReturn(Mono.empty());
 
-        BranchDocument mockBranchDocument = mock(BranchDocument.class);
-        FranchiseDocument franchiseDocumentWithMockBranch = FranchiseDocument.builder()
-                .id("franchise-id")
-                .name("Test Franchise")
-                .branches(Arrays.asList(mockBranchDocument))
-                .build();
+        StepVerifier.create(adapter.updateFranchiseName("non-existent-id", "Name"))
+                .expectErrorMatches(throwable ->
+                        throwable instanceof AppException &&
+                                ((AppException) throwable).getErrorCode() == AppErrorCode.FRANCHISE_NOT_FOUND)
+                .verify();
+    }
 
-        when(mockBranchDocument.getName()).thenReturn("Test Branch");
+    @Test
+    void updateBranchName_ShouldUpdateName_WhenNameIsUnique() {
+        String newBranchName = "New Branch Name";
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<UpdateDefinition> update = ArgumentCaptor.forClass(UpdateDefinition.class);
 
-        when(repository.findById("franchise-id")).thenReturn(Mono.just(franchiseDocumentWithMockBranch));
-        when(repository.save(any(FranchiseDocument.class))).thenReturn(Mono.just(franchiseDocumentWithMockBranch));
-        when(franchiseDocumentMapper.toEntity(franchiseDocumentWithMockBranch)).thenReturn(franchise);
+        when(mongoTemplate.findAndModify(query.capture(), update.capture(), any(FindAndModifyOptions.class),
+                eq(FranchiseDocument.class)))
+                .thenReturn(Mono.just(franchiseDocument));
+        when(franchiseDocumentMapper.toEntity(franchiseDocument)).thenReturn(franchise);
 
         StepVerifier.create(adapter.updateBranchName("franchise-id", "Test Branch", newBranchName))
                 .expectNext(franchise)
                 .verifyComplete();
 
-        verify(mockBranchDocument).setName(newBranchName);
+        assertTrue(query.getValue().getQueryObject().containsKey("branches.name"));
+        assertEquals(new Document("branches.$[branch].name", newBranchName),
+                update.getValue().getUpdateObject().get("$set"));
+        assertEquals(1, update.getValue().getArrayFilters().size());
+        verify(repository, never()).findById(anyString());
+    }
+
+    @Test
+    void updateBranchName_ShouldThrowException_WhenNameBelongsToAnotherBranch() {
+        FranchiseDocument twoBranches = franchiseDocument.toBuilder()
+                .branches(List.of(branchDocument, BranchDocument.builder().name("Other Branch").build()))
+                .build();
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class),
+                eq(FranchiseDocument.class)))
+                .thenReturn(Mono.empty());
+        when(repository.findById("franchise-id")).thenReturn(Mono.just(twoBranches));
+
+        StepVerifier.create(adapter.updateBranchName("franchise-id", "Test Branch", "OTHER BRANCH"))
+                .expectErrorMatches(throwable ->
+                        throwable instanceof AppException &&
+                                ((AppException) throwable).getErrorCode() == AppErrorCode.DUPLICATE_BRANCH_NAME)
+                .verify();
     }
 
     @Test
     void updateBranchName_ShouldThrowException_WhenBranchNotFound() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class),
+                eq(FranchiseDocument.class)))
+                .thenReturn(Mono.empty());
         when(repository.findById("franchise-id")).thenReturn(Mono.just(franchiseDocument));
 
         StepVerifier.create(adapter.updateBranchName("franchise-id", "Non-existent Branch", "New Name"))
@@ -452,32 +1020,31 @@ class MongoRepositoryAdapterTest {
     @Test
     void updateProductName_ShouldUpdateName_WhenNameIsUnique() {
         String newProductName = "New Product Name";
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<UpdateDefinition> update = ArgumentCaptor.forClass(UpdateDefinition.class);
 
-        ProductDocument mockProductDocument = mock(ProductDocument.class);
-        BranchDocument mockBranchDocument = mock(BranchDocument.class);
-        FranchiseDocument franchiseDocumentWithMocks = FranchiseDocument.builder()
-                .id("franchise-id")
-                .name("Test Franchise")
-                .branches(Arrays.asList(mockBranchDocument))
-                .build();
-
-        when(mockBranchDocument.getName()).thenReturn("Test Branch");
-        when(mockBranchDocument.getProducts()).thenReturn(Arrays.asList(mockProductDocument));
-        when(mockProductDocument.getName()).thenReturn("Test Product");
-
-        when(repository.findById("franchise-id")).thenReturn(Mono.just(franchiseDocumentWithMocks));
-        when(repository.save(any(FranchiseDocument.class))).thenReturn(Mono.just(franchiseDocumentWithMocks));
-        when(franchiseDocumentMapper.toEntity(franchiseDocumentWithMocks)).thenReturn(franchise);
+        when(mongoTemplate.findAndModify(query.capture(), update.capture(), any(FindAndModifyOptions.class),
+                eq(FranchiseDocument.class)))
+                .thenReturn(Mono.just(franchiseDocument));
+        when(franchiseDocumentMapper.toEntity(franchiseDocument)).thenReturn(franchise);
 
         StepVerifier.create(adapter.updateProductName("franchise-id", "Test Branch", "Test Product", newProductName))
                 .expectNext(franchise)
                 .verifyComplete();
 
-        verify(mockProductDocument).setName(newProductName);
+        Document branchGuard = (Document) ((Document) query.getValue().getQueryObject().get("branches")).get("$elemMatch");
+        assertTrue(branchGuard.containsKey("products"));
+        assertTrue(((Document) branchGuard.get("products.name")).containsKey("$not"));
+        String pipeline = pipelineSet(update.getValue()).toJson();
+        assertTrue(pipeline.contains(newProductName.toLowerCase(Locale.ROOT)));
+        verify(repository, never()).findById(anyString());
     }
 
     @Test
     void updateProductName_ShouldThrowException_WhenProductNotFound() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class),
+                eq(FranchiseDocument.class)))
+                .thenReturn(Mono.empty());
         when(repository.findById("franchise-id")).thenReturn(Mono.just(franchiseDocument));
 
         StepVerifier.create(adapter.updateProductName("franchise-id", "Test Branch", "Non-existent Product", "New Name"))
@@ -486,4 +1053,27 @@ class MongoRepositoryAdapterTest {
                                 ((AppException) throwable).getErrorCode() == AppErrorCode.PRODUCT_NOT_FOUND)
                 .verify();
     }
-}
\ No newline at end of file
+
+    @Test
+    void updateProductName_ShouldThrowException_WhenNameBelongsToAnotherProduct() {
+        FranchiseDocument twoProducts = franchiseDocument.toBuilder()
+                .branches(List.of(BranchDocument.builder().name("Test Branch")
+                        .products(List.of(productDocument, ProductDocument.builder().name("Other Product").build()))
+                        .build()))
+                .build();
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class),
+                eq(FranchiseDocument.class)))
+                .thenReturn(Mono.empty());
+        when(repository.findById("franchise-id")).thenReturn(Mono.just(twoProducts));
+
+        StepVerifier.create(adapter.updateProductName("franchise-id", "Test Branch", "Test Product", "other product"))
+                .expectErrorMatches(throwable ->
+                        throwable instanceof AppException &&
+                                ((AppException) throwable).getErrorCode() == AppErrorCode.DUPLICATE_PRODUCT_NAME)
+                .verify();
+    }
+
+    private static Document pipelineSet(UpdateDefinition update) {
+        return (Document) ((AggregationUpdate) update).toPipeline(Aggregation.DEFAULT_CONTEXT).get(0).get("$set");
+    }
+}
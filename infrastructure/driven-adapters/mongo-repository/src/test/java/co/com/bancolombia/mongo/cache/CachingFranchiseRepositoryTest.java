@@ -0,0 +1,151 @@
+package co.com.bancolombia.mongo.cache;
+
+import co.com.bancolombia.model.franchise.Franchise;
+import co.com.bancolombia.model.product.Product;
+import co.com.bancolombia.model.stock.StockUpdate;
+import co.com.bancolombia.model.stock.StockUpdateResult;
+import co.com.bancolombia.model.stock.StockUpdateStatus;
+import co.com.bancolombia.mongo.MongoRepositoryAdapter;
+import co.com.bancolombia.mongo.config.MongoAdapterProperties;
+import co.com.bancolombia.mongo.helper.bulk.StockWriteBehindBuffer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CachingFranchiseRepositoryTest {
+
+    @Mock
+    private MongoRepositoryAdapter delegate;
+
+    @Mock
+    private StockWriteBehindBuffer stockWriteBehind;
+
+    private Sinks.Many<StockUpdateResult> written;
+
+    private SimpleMeterRegistry meterRegistry;
+    private CachingFranchiseRepository repository;
+    private Franchise franchise;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        written = Sinks.many().multicast().directBestEffort();
+        when(stockWriteBehind.written()).thenReturn(written.asFlux());
+        repository = new CachingFranchiseRepository(delegate, stockWriteBehind, new MongoAdapterProperties(),
+                meterRegistry);
+        franchise = Franchise.builder().id("franchise-id").name("Franchise").branches(List.of()).build();
+    }
+
+    @Test
+    void findById_ShouldLoadOnce_AndServeRepeatedReadsFromCache() {
+        when(delegate.findById("franchise-id")).thenReturn(Mono.just(franchise));
+
+        StepVerifier.create(repository.findById("franchise-id")).expectNext(franchise).verifyComplete();
+        StepVerifier.create(repository.findById("franchise-id")).expectNext(franchise).verifyComplete();
+
+        verify(delegate, times(1)).findById("franchise-id");
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", CachingFranchiseRepository.CACHE_NAME)
+                .tag("result", "hit").functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", CachingFranchiseRepository.CACHE_NAME)
+                .tag("result", "miss").functionCounter().count());
+    }
+
+    @Test
+    void findById_ShouldNotCacheMissingFranchise() {
+        when(delegate.findById("missing")).thenReturn(Mono.empty());
+
+        StepVerifier.create(repository.findById("missing")).verifyComplete();
+        StepVerifier.create(repository.findById("missing")).verifyComplete();
+
+        verify(delegate, times(2)).findById("missing");
+    }
+
+    @Test
+    void findById_ShouldNotCacheFailedLoad() {
+        when(delegate.findById("franchise-id"))
+                .thenReturn(Mono.error(new IllegalStateException("boom")))
+                .thenReturn(Mono.just(franchise));
+
+        StepVerifier.create(repository.findById("franchise-id")).expectError(IllegalStateException.class).verify();
+        StepVerifier.create(repository.findById("franchise-id")).expectNext(franchise).verifyComplete();
+    }
+
+    @Test
+    void mutation_ShouldInvalidateCachedFranchise() {
+        Franchise renamed = franchise.toBuilder().name("Renamed").build();
+        when(delegate.findById("franchise-id")).thenReturn(Mono.just(franchise), Mono.just(renamed));
+        when(delegate.updateFranchiseName("franchise-id", "Renamed")).thenReturn(Mono.just(renamed));
+
+        StepVerifier.create(repository.findById("franchise-id")).expectNext(franchise).verifyComplete();
+        StepVerifier.create(repository.updateFranchiseName("franchise-id", "Renamed")).expectNext(renamed).verifyComplete();
+        StepVerifier.create(repository.findById("franchise-id")).expectNext(renamed).verifyComplete();
+
+        verify(delegate, times(2)).findById("franchise-id");
+    }
+
+    @Test
+    void failedMutation_ShouldStillInvalidate() {
+        when(delegate.findById("franchise-id")).thenReturn(Mono.just(franchise));
+        when(delegate.updateProductStock("franchise-id", "Branch", "Product", 3))
+                .thenReturn(Mono.error(new IllegalStateException("timeout")));
+
+        StepVerifier.create(repository.findById("franchise-id")).expectNextCount(1).verifyComplete();
+        StepVerifier.create(repository.updateProductStock("franchise-id", "Branch", "Product", 3))
+                .expectError(IllegalStateException.class).verify();
+        StepVerifier.create(repository.findById("franchise-id")).expectNextCount(1).verifyComplete();
+
+        verify(delegate, times(2)).findById("franchise-id");
+    }
+
+    @Test
+    void bulkStockUpdate_ShouldInvalidateEveryTouchedFranchise() {
+        StockUpdate update = new StockUpdate("franchise-id", "Branch", "Product", 4);
+        Flux<StockUpdate> updates = Flux.just(update);
+        when(delegate.findById("franchise-id")).thenReturn(Mono.just(franchise));
+        when(delegate.updateProductStocks(updates))
+                .thenReturn(Flux.just(StockUpdateResult.of(update, StockUpdateStatus.UPDATED)));
+
+        StepVerifier.create(repository.findById("franchise-id")).expectNextCount(1).verifyComplete();
+        StepVerifier.create(repository.updateProductStocks(updates)).expectNextCount(1).verifyComplete();
+        StepVerifier.create(repository.findById("franchise-id")).expectNextCount(1).verifyComplete();
+
+        verify(delegate, times(2)).findById("franchise-id");
+    }
+
+    @Test
+    void bufferedStockWrite_ShouldInvalidateOnceWritten() {
+        when(delegate.findById("franchise-id")).thenReturn(Mono.just(franchise));
+
+        StepVerifier.create(repository.findById("franchise-id")).expectNextCount(1).verifyComplete();
+        written.tryEmitNext(StockUpdateResult.of(new StockUpdate("franchise-id", "Branch", "Product", 2),
+                StockUpdateStatus.UPDATED));
+        StepVerifier.create(repository.findById("franchise-id")).expectNextCount(1).verifyComplete();
+
+        verify(delegate, times(2)).findById("franchise-id");
+    }
+
+    @Test
+    void reads_ShouldPassThroughToDelegate() {
+        Product product = Product.builder().name("Product").stock(1).build();
+        when(delegate.adjustProductStock("franchise-id", "Branch", "Product", 1)).thenReturn(Mono.just(product));
+        when(delegate.findAll()).thenReturn(Flux.just(franchise));
+
+        StepVerifier.create(repository.findAll()).expectNext(franchise).verifyComplete();
+        StepVerifier.create(repository.adjustProductStock("franchise-id", "Branch", "Product", 1))
+                .expectNext(product)
+                .verifyComplete();
+    }
+}
@@ -0,0 +1,176 @@
+package co.com.bancolombia.mongo.cache;
+
+import co.com.bancolombia.mongo.config.MongoAdapterProperties;
+import co.com.bancolombia.mongo.helper.document.FranchiseBranchDocument;
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoNamespace;
+import com.mongodb.ServerAddress;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonObjectId;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.UncategorizedMongoDbException;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.ChangeStreamOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FranchiseChangeStreamListenerTest {
+
+    private static final BsonDocument TOKEN = new BsonDocument("_data", new BsonString("8263"));
+
+    @Mock
+    private ReactiveMongoTemplate mongoTemplate;
+
+    @Mock
+    private CachingFranchiseRepository cache;
+
+    private FranchiseChangeStreamListener listener;
+
+    @BeforeEach
+    void setUp() {
+        MongoAdapterProperties properties = new MongoAdapterProperties();
+        properties.getCache().getChangeStream().setMinBackoff(Duration.ofMillis(1));
+        properties.getCache().getChangeStream().setMaxBackoff(Duration.ofMillis(2));
+        listener = new FranchiseChangeStreamListener(mongoTemplate, cache, properties);
+    }
+
+    @Test
+    void shouldInvalidateWrittenFranchises() {
+        ObjectId id = new ObjectId();
+        listener.apply(event(OperationType.UPDATE, new BsonObjectId(id)));
+        listener.apply(event(OperationType.DELETE, new BsonString("legacy-id")));
+
+        verify(cache).invalidate(id.toHexString());
+        verify(cache).invalidate("legacy-id");
+        verify(cache, never()).invalidateAll();
+    }
+
+    @Test
+    void shouldInvalidateTheFranchiseOfWrittenBranches() {
+        listener.apply(event(FranchiseBranchDocument.COLLECTION, OperationType.DELETE,
+                new BsonString(FranchiseBranchDocument.newId("f-1"))));
+
+        verify(cache).invalidate("f-1");
+    }
+
+    @Test
+    void shouldFollowBothCollectionsInOneStream() {
+        ArgumentCaptor<ChangeStreamOptions> options = ArgumentCaptor.forClass(ChangeStreamOptions.class);
+        when(mongoTemplate.changeStream(isNull(), options.capture(), eq(Document.class))).thenReturn(Flux.empty());
+
+        listener.open(null).blockLast();
+
+        Aggregation filter = (Aggregation) options.getValue().getFilter().orElseThrow();
+        Document match = filter.toPipeline(Aggregation.DEFAULT_CONTEXT).get(0).get("$match", Document.class);
+        assertEquals(new Document("$in", FranchiseChangeStreamListener.COLLECTIONS), match.get("ns.coll"));
+    }
+
+    @Test
+    void shouldFlushOnCollectionLevelEvents() {
+        ChangeStreamEvent<Document> drop = mock(ChangeStreamEvent.class);
+        when(drop.getOperationType()).thenReturn(OperationType.DROP);
+
+        listener.apply(drop);
+
+        verify(cache).invalidateAll();
+    }
+
+    @Test
+    void shouldResumeFromLastTokenAfterTransientError() {
+        ChangeStreamEvent<Document> update = event(OperationType.UPDATE, new BsonString("f-1"));
+        ArgumentCaptor<ChangeStreamOptions> options = ArgumentCaptor.forClass(ChangeStreamOptions.class);
+        when(mongoTemplate.changeStream(isNull(), options.capture(),
+                eq(Document.class)))
+                .thenReturn(Flux.concat(Flux.just(update), Flux.error(new IllegalStateException("socket closed"))))
+                .thenReturn(Flux.never());
+
+        StepVerifier.create(listener.listen())
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMillis(100))
+                .thenCancel()
+                .verify();
+
+        assertTrue(options.getAllValues().get(0).getResumeToken().isEmpty());
+        assertEquals(TOKEN, options.getAllValues().get(1).getResumeToken().orElseThrow());
+        verify(cache).invalidate("f-1");
+        verify(cache, never()).invalidateAll();
+    }
+
+    @Test
+    void shouldFlushAndStartOverWhenHistoryIsLost() {
+        ChangeStreamEvent<Document> update = event(OperationType.UPDATE, new BsonString("f-1"));
+        ArgumentCaptor<ChangeStreamOptions> options = ArgumentCaptor.forClass(ChangeStreamOptions.class);
+        when(mongoTemplate.changeStream(isNull(), options.capture(),
+                eq(Document.class)))
+                .thenReturn(Flux.concat(Flux.just(update), Flux.error(commandError(286))))
+                .thenReturn(Flux.never());
+
+        StepVerifier.create(listener.listen())
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMillis(100))
+                .thenCancel()
+                .verify();
+
+        verify(cache).invalidateAll();
+        assertTrue(options.getAllValues().get(1).getResumeToken().isEmpty());
+    }
+
+    @Test
+    void shouldStopWhenChangeStreamsAreNotSupported() {
+        when(mongoTemplate.changeStream(isNull(), any(ChangeStreamOptions.class),
+                eq(Document.class)))
+                .thenReturn(Flux.error(new UncategorizedMongoDbException("standalone", commandError(40573))));
+
+        StepVerifier.create(listener.listen())
+                .expectError(UncategorizedMongoDbException.class)
+                .verify();
+
+        verify(mongoTemplate, times(1)).changeStream(isNull(), any(ChangeStreamOptions.class),
+                eq(Document.class));
+    }
+
+    private static ChangeStreamEvent<Document> event(OperationType operation, org.bson.BsonValue id) {
+        return event(FranchiseChangeStreamListener.COLLECTION, operation, id);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ChangeStreamEvent<Document> event(String collection, OperationType operation, org.bson.BsonValue id) {
+        ChangeStreamEvent<Document> event = mock(ChangeStreamEvent.class);
+        ChangeStreamDocument<Document> raw = mock(ChangeStreamDocument.class);
+        when(event.getOperationType()).thenReturn(operation);
+        when(event.getRaw()).thenReturn(raw);
+        when(event.getResumeToken()).thenReturn(TOKEN);
+        when(raw.getDocumentKey()).thenReturn(new BsonDocument("_id", id));
+        when(raw.getNamespace()).thenReturn(new MongoNamespace("test", collection));
+        return event;
+    }
+
+    private static MongoCommandException commandError(int code) {
+        return new MongoCommandException(new BsonDocument("ok", new BsonInt32(0))
+                .append("code", new BsonInt32(code))
+                .append("errmsg", new BsonString("error " + code)), new ServerAddress());
+    }
+}
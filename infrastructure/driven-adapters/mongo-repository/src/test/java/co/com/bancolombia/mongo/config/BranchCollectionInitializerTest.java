@@ -0,0 +1,166 @@
+package co.com.bancolombia.mongo.config;
+
+import co.com.bancolombia.mongo.helper.document.BranchDocument;
+import co.com.bancolombia.mongo.helper.document.FranchiseBranchDocument;
+import co.com.bancolombia.mongo.helper.document.FranchiseDocument;
+import co.com.bancolombia.mongo.helper.document.ProductDocument;
+import co.com.bancolombia.mongo.helper.mapper.FranchiseDocumentMapper;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.ReactiveIndexOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BranchCollectionInitializerTest {
+
+    @Mock
+    private ReactiveMongoTemplate mongoTemplate;
+
+    @Mock
+    private ReactiveIndexOperations indexOperations;
+
+    private BranchCollectionInitializer initializer;
+
+    @BeforeEach
+    void setUp() {
+        initializer = new BranchCollectionInitializer(mongoTemplate, new FranchiseDocumentMapper());
+    }
+
+    @Test
+    void shouldInsertMissingBranchesThenDropTheEmbeddedArray() {
+        FranchiseDocument embedded = FranchiseDocument.builder().id("f-1").name("Franquicia").version(3L)
+                .branches(List.of(
+                        BranchDocument.builder().name("Centro")
+                                .products(List.of(ProductDocument.builder().name("Pan").stock(2).build()))
+                                .build(),
+                        BranchDocument.builder().name("Norte").products(List.of()).build()))
+                .build();
+        ArgumentCaptor<Query> branchQuery = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<UpdateDefinition> branchUpdate = ArgumentCaptor.forClass(UpdateDefinition.class);
+        ArgumentCaptor<Query> franchiseQuery = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<UpdateDefinition> franchiseUpdate = ArgumentCaptor.forClass(UpdateDefinition.class);
+
+        when(mongoTemplate.find(any(Query.class), eq(FranchiseDocument.class))).thenReturn(Flux.just(embedded));
+        when(mongoTemplate.upsert(branchQuery.capture(), branchUpdate.capture(), eq(FranchiseBranchDocument.class)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(0, 0L, null)))
+                .thenReturn(Mono.error(new DuplicateKeyException("already migrated")));
+        when(mongoTemplate.updateFirst(franchiseQuery.capture(), franchiseUpdate.capture(), eq(FranchiseDocument.class)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(1, 1L, null)));
+
+        StepVerifier.create(initializer.migrateEmbeddedBranches())
+                .expectNext(1L)
+                .verifyComplete();
+
+        assertEquals(new Document("franchiseId", "f-1").append("nameKey", "centro"),
+                branchQuery.getAllValues().getFirst().getQueryObject());
+        Document setOnInsert = (Document) branchUpdate.getAllValues().getFirst().getUpdateObject().get("$setOnInsert");
+        assertEquals("Centro", setOnInsert.get("name"));
+        assertEquals(0L, setOnInsert.get("version"));
+        assertEquals(3L, franchiseQuery.getValue().getQueryObject().get("version"));
+        assertEquals(new Document("branches", 1), franchiseUpdate.getValue().getUpdateObject().get("$unset"));
+    }
+
+    @Test
+    void shouldLeaveTheFranchiseForTheNextStartWhenTheMigrationFails() {
+        FranchiseDocument embedded = FranchiseDocument.builder().id("f-1").name("Franquicia").version(0L)
+                .branches(List.of(BranchDocument.builder().name("Centro").products(List.of()).build()))
+                .build();
+
+        when(mongoTemplate.find(any(Query.class), eq(FranchiseDocument.class))).thenReturn(Flux.just(embedded));
+        when(mongoTemplate.upsert(any(Query.class), any(UpdateDefinition.class), eq(FranchiseBranchDocument.class)))
+                .thenReturn(Mono.error(new IllegalStateException("network")));
+
+        StepVerifier.create(initializer.migrateEmbeddedBranches())
+                .expectNext(0L)
+                .verifyComplete();
+
+        verify(mongoTemplate, times(0))
+                .updateFirst(any(Query.class), any(UpdateDefinition.class), eq(FranchiseDocument.class));
+    }
+
+    @Test
+    void shouldCreateUniqueBranchNameKeyIndex() {
+        ArgumentCaptor<IndexDefinition> index = ArgumentCaptor.forClass(IndexDefinition.class);
+
+        when(mongoTemplate.indexOps(FranchiseBranchDocument.class)).thenReturn(indexOperations);
+        when(indexOperations.ensureIndex(index.capture())).thenReturn(Mono.just(FranchiseBranchDocument.NAME_KEY_INDEX));
+
+        StepVerifier.create(initializer.ensureNameKeyIndex())
+                .expectNext(FranchiseBranchDocument.NAME_KEY_INDEX)
+                .verifyComplete();
+
+        assertEquals(new Document("franchiseId", 1).append("nameKey", 1), index.getValue().getIndexKeys());
+        assertEquals(true, index.getValue().getIndexOptions().get("unique"));
+    }
+
+    @Test
+    void shouldFailStartupWithoutTheUniqueIndex() {
+        when(mongoTemplate.indexOps(FranchiseBranchDocument.class)).thenReturn(indexOperations);
+        when(indexOperations.ensureIndex(any(IndexDefinition.class)))
+                .thenReturn(Mono.error(new IllegalArgumentException("E11000 duplicate key")));
+
+        assertThrows(IllegalStateException.class, initializer::afterSingletonsInstantiated);
+    }
+
+    @Test
+    void shouldMigrateBeforeTakingTraffic() {
+        when(mongoTemplate.indexOps(FranchiseBranchDocument.class)).thenReturn(indexOperations);
+        when(indexOperations.ensureIndex(any(IndexDefinition.class)))
+                .thenReturn(Mono.just(FranchiseBranchDocument.NAME_KEY_INDEX));
+        when(mongoTemplate.find(any(Query.class), eq(FranchiseDocument.class))).thenReturn(Flux.empty());
+        when(mongoTemplate.count(any(Query.class), eq(FranchiseDocument.class))).thenReturn(Mono.just(0L));
+
+        initializer.afterSingletonsInstantiated();
+
+        verify(mongoTemplate).find(any(Query.class), eq(FranchiseDocument.class));
+    }
+
+    @Test
+    void shouldFailStartupWhileFranchisesStillHoldEmbeddedBranches() {
+        when(mongoTemplate.indexOps(FranchiseBranchDocument.class)).thenReturn(indexOperations);
+        when(indexOperations.ensureIndex(any(IndexDefinition.class)))
+                .thenReturn(Mono.just(FranchiseBranchDocument.NAME_KEY_INDEX));
+        when(mongoTemplate.find(any(Query.class), eq(FranchiseDocument.class))).thenReturn(Flux.empty());
+        when(mongoTemplate.count(any(Query.class), eq(FranchiseDocument.class))).thenReturn(Mono.just(2L));
+
+        assertThrows(IllegalStateException.class, initializer::afterSingletonsInstantiated);
+    }
+
+    @Test
+    void shouldCreateTheReadIndexesIndependently() {
+        when(mongoTemplate.indexOps(FranchiseBranchDocument.class)).thenReturn(indexOperations);
+        when(indexOperations.ensureIndex(any(IndexDefinition.class)))
+                .thenReturn(Mono.error(new IllegalStateException("timeout")))
+                .thenReturn(Mono.just(BranchCollectionInitializer.PRODUCT_NAME_KEY_INDEX));
+
+        StepVerifier.create(initializer.initialize())
+                .verifyComplete();
+
+        verify(indexOperations, times(2)).ensureIndex(any(IndexDefinition.class));
+        verify(mongoTemplate, never()).find(any(Query.class), eq(FranchiseDocument.class));
+    }
+}
@@ -0,0 +1,199 @@
+package co.com.bancolombia.mongo.config;
+
+import co.com.bancolombia.mongo.helper.document.BranchDocument;
+import co.com.bancolombia.mongo.helper.document.FranchiseDocument;
+import co.com.bancolombia.mongo.helper.document.ProductDocument;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.ReactiveIndexOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class FranchiseCollectionInitializerTest {
+
+    @Mock
+    private ReactiveMongoTemplate mongoTemplate;
+
+    @Mock
+    private ReactiveIndexOperations indexOperations;
+
+    private FranchiseCollectionInitializer initializer;
+
+    @BeforeEach
+    void setUp() {
+        initializer = new FranchiseCollectionInitializer(mongoTemplate);
+    }
+
+    @Test
+    void shouldBackfillNameKeysComputedInTheJvm() {
+        FranchiseDocument legacy = FranchiseDocument.builder().id("f-1").name("Ñandú Express").build();
+        ArgumentCaptor<UpdateDefinition> update = ArgumentCaptor.forClass(UpdateDefinition.class);
+
+        when(mongoTemplate.find(any(Query.class), eq(FranchiseDocument.class))).thenReturn(Flux.just(legacy));
+        when(mongoTemplate.updateFirst(any(Query.class), update.capture(), eq(FranchiseDocument.class)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(1, 1L, null)));
+
+        StepVerifier.create(initializer.backfillNameKeys())
+                .expectNext(1L)
+                .verifyComplete();
+
+        Document set = (Document) update.getValue().getUpdateObject().get("$set");
+        assertEquals("ñandú express", set.get("nameKey"));
+    }
+
+    @Test
+    void shouldBackfillMissingVersionsWithZero() {
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<UpdateDefinition> update = ArgumentCaptor.forClass(UpdateDefinition.class);
+
+        when(mongoTemplate.updateMulti(query.capture(), update.capture(), eq(FranchiseDocument.class)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(3, 3L, null)));
+
+        StepVerifier.create(initializer.backfillVersions())
+                .expectNext(3L)
+                .verifyComplete();
+
+        assertEquals(new Document("$exists", false), query.getValue().getQueryObject().get("version"));
+        Document set = (Document) update.getValue().getUpdateObject().get("$set");
+        assertEquals(0L, set.get("version"));
+    }
+
+    @Test
+    void shouldCreateUniquePartialNameKeyIndex() {
+        ArgumentCaptor<IndexDefinition> index = ArgumentCaptor.forClass(IndexDefinition.class);
+
+        when(mongoTemplate.indexOps(FranchiseDocument.class)).thenReturn(indexOperations);
+        when(indexOperations.ensureIndex(index.capture())).thenReturn(Mono.just(FranchiseDocument.NAME_KEY_INDEX));
+
+        StepVerifier.create(initializer.ensureNameKeyIndex())
+                .expectNext(FranchiseDocument.NAME_KEY_INDEX)
+                .verifyComplete();
+
+        Document options = index.getValue().getIndexOptions();
+        assertEquals(FranchiseDocument.NAME_KEY_INDEX, options.get("name"));
+        assertEquals(true, options.get("unique"));
+        assertTrue(options.containsKey("partialFilterExpression"));
+    }
+
+    @Test
+    void shouldBackfillProductNameKeysConditionedOnVersion() {
+        FranchiseDocument legacy = FranchiseDocument.builder().id("f-1").version(4L)
+                .branches(List.of(BranchDocument.builder().name("Centro")
+                        .products(List.of(ProductDocument.builder().name("Ñame").stock(2).build()))
+                        .build()))
+                .build();
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<UpdateDefinition> update = ArgumentCaptor.forClass(UpdateDefinition.class);
+
+        when(mongoTemplate.find(any(Query.class), eq(FranchiseDocument.class))).thenReturn(Flux.just(legacy));
+        when(mongoTemplate.updateFirst(query.capture(), update.capture(), eq(FranchiseDocument.class)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(1, 1L, null)));
+
+        StepVerifier.create(initializer.backfillProductNameKeys())
+                .expectNext(1L)
+                .verifyComplete();
+
+        assertEquals("ñame", legacy.getBranches().getFirst().getProducts().getFirst().getNameKey());
+        assertEquals(4L, query.getValue().getQueryObject().get("version"));
+        assertEquals(new Document("version", 1), update.getValue().getUpdateObject().get("$inc"));
+    }
+
+    @Test
+    void shouldCreateProductStockIndex() {
+        ArgumentCaptor<IndexDefinition> index = ArgumentCaptor.forClass(IndexDefinition.class);
+
+        when(mongoTemplate.indexOps(FranchiseDocument.class)).thenReturn(indexOperations);
+        when(indexOperations.ensureIndex(index.capture()))
+                .thenReturn(Mono.just(FranchiseCollectionInitializer.LOW_STOCK_INDEX));
+
+        StepVerifier.create(initializer.ensureLowStockIndex())
+                .expectNext(FranchiseCollectionInitializer.LOW_STOCK_INDEX)
+                .verifyComplete();
+
+        assertEquals(new Document("branches.products.stock", 1), index.getValue().getIndexKeys());
+        assertEquals(FranchiseCollectionInitializer.LOW_STOCK_INDEX, index.getValue().getIndexOptions().get("name"));
+    }
+
+    @Test
+    void shouldCreateProductNameKeyIndex() {
+        ArgumentCaptor<IndexDefinition> index = ArgumentCaptor.forClass(IndexDefinition.class);
+
+        when(mongoTemplate.indexOps(FranchiseDocument.class)).thenReturn(indexOperations);
+        when(indexOperations.ensureIndex(index.capture()))
+                .thenReturn(Mono.just(FranchiseCollectionInitializer.PRODUCT_NAME_KEY_INDEX));
+
+        StepVerifier.create(initializer.ensureProductNameKeyIndex())
+                .expectNext(FranchiseCollectionInitializer.PRODUCT_NAME_KEY_INDEX)
+                .verifyComplete();
+
+        assertEquals(new Document("branches.products.nameKey", 1), index.getValue().getIndexKeys());
+    }
+
+    @Test
+    void shouldBackfillBeforeCreatingTheUniqueIndex() {
+        when(mongoTemplate.find(any(Query.class), eq(FranchiseDocument.class))).thenReturn(Flux.empty());
+        when(mongoTemplate.updateMulti(any(Query.class), any(UpdateDefinition.class), eq(FranchiseDocument.class)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(0, 0L, null)));
+        when(mongoTemplate.indexOps(FranchiseDocument.class)).thenReturn(indexOperations);
+        when(indexOperations.ensureIndex(any(IndexDefinition.class))).thenReturn(Mono.just(FranchiseDocument.NAME_KEY_INDEX));
+
+        StepVerifier.create(initializer.ensureUniqueNames())
+                .verifyComplete();
+
+        InOrder order = inOrder(mongoTemplate, indexOperations);
+        order.verify(mongoTemplate).updateMulti(any(Query.class), any(UpdateDefinition.class), eq(FranchiseDocument.class));
+        order.verify(indexOperations).ensureIndex(any(IndexDefinition.class));
+    }
+
+    @Test
+    void shouldFailStartupWhenTheUniqueIndexCannotBeBuilt() {
+        when(mongoTemplate.find(any(Query.class), eq(FranchiseDocument.class))).thenReturn(Flux.empty());
+        when(mongoTemplate.updateMulti(any(Query.class), any(UpdateDefinition.class), eq(FranchiseDocument.class)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(0, 0L, null)));
+        when(mongoTemplate.indexOps(FranchiseDocument.class)).thenReturn(indexOperations);
+        when(indexOperations.ensureIndex(any(IndexDefinition.class)))
+                .thenReturn(Mono.error(new IllegalArgumentException("E11000 duplicate key")));
+
+        assertThrows(IllegalStateException.class, initializer::afterSingletonsInstantiated);
+    }
+
+    @Test
+    void shouldRunTheRemainingStepsIndependently() {
+        when(mongoTemplate.find(any(Query.class), eq(FranchiseDocument.class)))
+                .thenReturn(Flux.error(new IllegalStateException("timeout")));
+        when(mongoTemplate.indexOps(FranchiseDocument.class)).thenReturn(indexOperations);
+        when(indexOperations.ensureIndex(any(IndexDefinition.class)))
+                .thenReturn(Mono.error(new IllegalStateException("timeout")))
+                .thenReturn(Mono.just(FranchiseCollectionInitializer.PRODUCT_NAME_KEY_INDEX));
+
+        StepVerifier.create(initializer.initialize())
+                .verifyComplete();
+
+        verify(indexOperations, times(2)).ensureIndex(any(IndexDefinition.class));
+    }
+}
@@ -1,11 +1,18 @@
 package co.com.bancolombia.mongo.config;
 
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.ReadPreference;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.MockitoAnnotations;
 import org.springframework.boot.autoconfigure.mongo.MongoConnectionDetails;
 import org.springframework.boot.ssl.SslBundles;
 
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.mockito.Mockito.mock;
@@ -39,4 +46,70 @@ class MongoConfigTest {
 
         assertNotNull(result);
     }
+
+    @Test
+    void poolCustomizerShouldApplyConfiguredPoolAndSocketSettings() {
+        MongoAdapterProperties properties = new MongoAdapterProperties();
+        properties.getPool().setMaxSize(20);
+        properties.getPool().setMinSize(5);
+        properties.getPool().setMaxWaitTime(Duration.ofMillis(500));
+        properties.getPool().setMaxConnectionIdleTime(Duration.ofMinutes(1));
+        properties.getSocket().setConnectTimeout(Duration.ofSeconds(2));
+        MongoClientSettings.Builder builder = MongoClientSettings.builder();
+
+        mongoConfigUnderTest.mongoPoolCustomizer(properties, new SimpleMeterRegistry()).customize(builder);
+        MongoClientSettings settings = builder.build();
+
+        assertEquals(20, settings.getConnectionPoolSettings().getMaxSize());
+        assertEquals(5, settings.getConnectionPoolSettings().getMinSize());
+        assertEquals(500, settings.getConnectionPoolSettings().getMaxWaitTime(TimeUnit.MILLISECONDS));
+        assertEquals(60_000, settings.getConnectionPoolSettings().getMaxConnectionIdleTime(TimeUnit.MILLISECONDS));
+        assertEquals(2_000, settings.getSocketSettings().getConnectTimeout(TimeUnit.MILLISECONDS));
+        assertEquals(1, settings.getConnectionPoolSettings().getConnectionPoolListeners().size());
+    }
+
+    @Test
+    void poolCustomizerShouldKeepUriOptionsThatAreNotConfigured() {
+        MongoAdapterProperties properties = new MongoAdapterProperties();
+        properties.getPool().setMinSize(5);
+        MongoClientSettings.Builder builder = MongoClientSettings.builder()
+                .applyConnectionString(new ConnectionString(
+                        "mongodb://localhost/db?maxPoolSize=7&waitQueueTimeoutMS=300&connectTimeoutMS=900"));
+
+        mongoConfigUnderTest.mongoPoolCustomizer(properties, new SimpleMeterRegistry()).customize(builder);
+        MongoClientSettings settings = builder.build();
+
+        assertEquals(7, settings.getConnectionPoolSettings().getMaxSize());
+        assertEquals(5, settings.getConnectionPoolSettings().getMinSize());
+        assertEquals(300, settings.getConnectionPoolSettings().getMaxWaitTime(TimeUnit.MILLISECONDS));
+        assertEquals(900, settings.getSocketSettings().getConnectTimeout(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void commandCustomizerShouldRegisterCommandTimerAndContextProvider() {
+        MongoClientSettings.Builder builder = MongoClientSettings.builder();
+
+        mongoConfigUnderTest.mongoCommandCustomizer(new MongoAdapterProperties(), new SimpleMeterRegistry())
+                .customize(builder);
+        MongoClientSettings settings = builder.build();
+
+        assertEquals(1, settings.getCommandListeners().size());
+        assertNotNull(settings.getContextProvider());
+    }
+
+    @Test
+    void readOnlyReadPreferenceShouldDefaultToPrimary() {
+        assertEquals(ReadPreference.primary(), mongoConfigUnderTest.readOnlyReadPreference(new MongoAdapterProperties()));
+    }
+
+    @Test
+    void readOnlyReadPreferenceShouldApplyModeAndMaxStaleness() {
+        MongoAdapterProperties properties = new MongoAdapterProperties();
+        properties.getReads().setReadPreference("secondaryPreferred");
+        properties.getReads().setMaxStaleness(Duration.ofSeconds(120));
+
+        ReadPreference readPreference = mongoConfigUnderTest.readOnlyReadPreference(properties);
+
+        assertEquals(ReadPreference.secondaryPreferred(120, TimeUnit.SECONDS), readPreference);
+    }
 }
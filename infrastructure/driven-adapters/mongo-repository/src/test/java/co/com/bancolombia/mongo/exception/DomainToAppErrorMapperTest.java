@@ -1,5 +1,6 @@
 package co.com.bancolombia.mongo.exception;
 
+import co.com.bancolombia.commons.exception.AppErrorCode;
 import co.com.bancolombia.model.exceptions.DomainErrorCode;
 import org.junit.jupiter.api.Test;
 
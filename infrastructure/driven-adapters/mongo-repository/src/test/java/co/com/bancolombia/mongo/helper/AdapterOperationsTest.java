@@ -3,19 +3,30 @@ package co.com.bancolombia.mongo.helper;
 import co.com.bancolombia.model.franchise.Franchise;
 import co.com.bancolombia.mongo.MongoDBRepository;
 import co.com.bancolombia.mongo.MongoRepositoryAdapter;
+import co.com.bancolombia.mongo.config.MongoAdapterProperties;
+import co.com.bancolombia.mongo.helper.bulk.FranchiseBulkImporter;
+import co.com.bancolombia.mongo.helper.bulk.StockBulkWriter;
+import co.com.bancolombia.mongo.helper.bulk.StockWriteBehindBuffer;
+import co.com.bancolombia.mongo.helper.concurrency.KeyedSerialExecutor;
 import co.com.bancolombia.mongo.helper.document.FranchiseDocument;
 import co.com.bancolombia.mongo.helper.mapper.FranchiseDocumentMapper;
+import com.mongodb.ReadPreference;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
-import org.reactivecommons.utils.ObjectMapper;
+import org.springframework.data.domain.Example;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
 import java.util.Collections;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
 
 class AdapterOperationsTest {
@@ -24,10 +35,10 @@ class AdapterOperationsTest {
     private MongoDBRepository repository;
 
     @Mock
-    private ObjectMapper objectMapper;
+    private FranchiseDocumentMapper franchiseDocumentMapper;
 
     @Mock
-    private FranchiseDocumentMapper franchiseDocumentMapper;
+    private ReactiveMongoTemplate mongoTemplate;
 
     private MongoRepositoryAdapter adapter;
 
@@ -38,7 +49,13 @@ class AdapterOperationsTest {
     void setUp() {
         MockitoAnnotations.openMocks(this);
 
-        adapter = new MongoRepositoryAdapter(repository, objectMapper, franchiseDocumentMapper);
+        adapter = new MongoRepositoryAdapter(repository, franchiseDocumentMapper, mongoTemplate,
+                new StockBulkWriter(mongoTemplate, new MongoAdapterProperties()),
+                new FranchiseBulkImporter(mongoTemplate, franchiseDocumentMapper, new MongoAdapterProperties()),
+                new StockWriteBehindBuffer(new StockBulkWriter(mongoTemplate, new MongoAdapterProperties()),
+                        new MongoAdapterProperties(), new SimpleMeterRegistry()),
+                new KeyedSerialExecutor(new SimpleMeterRegistry()), ReadPreference.primary(),
+                new MongoAdapterProperties());
 
         franchise = Franchise.builder()
                 .id("1")
@@ -52,18 +69,14 @@ class AdapterOperationsTest {
                 .branches(Collections.emptyList())
                 .build();
 
-        when(objectMapper.mapBuilder(document, Franchise.FranchiseBuilder.class)).thenReturn(franchise.toBuilder());
-        when(objectMapper.map(franchise, FranchiseDocument.class)).thenReturn(document);
-
         when(franchiseDocumentMapper.toEntity(document)).thenReturn(franchise);
         when(franchiseDocumentMapper.toDocument(franchise)).thenReturn(document);
     }
 
     @Test
     void testSave() {
-        when(repository.findAll()).thenReturn(Flux.empty());
         when(repository.findById("1")).thenReturn(Mono.empty());
-        when(repository.save(document)).thenReturn(Mono.just(document));
+        when(repository.insert(document)).thenReturn(Mono.just(document));
 
         StepVerifier.create(adapter.save(franchise))
                 .expectNext(franchise)
@@ -72,7 +85,7 @@ class AdapterOperationsTest {
 
     @Test
     void testFindById() {
-        when(repository.findById("1")).thenReturn(Mono.just(document));
+        when(mongoTemplate.findOne(any(Query.class), eq(FranchiseDocument.class))).thenReturn(Mono.just(document));
 
         StepVerifier.create(adapter.findById("1"))
                 .expectNext(franchise)
@@ -81,10 +94,28 @@ class AdapterOperationsTest {
 
     @Test
     void testFindAll() {
-        when(repository.findAll()).thenReturn(Flux.just(document));
+        when(mongoTemplate.find(any(Query.class), eq(FranchiseDocument.class))).thenReturn(Flux.just(document));
 
         StepVerifier.create(adapter.findAll())
                 .expectNext(franchise)
                 .verifyComplete();
     }
-}
\ No newline at end of file
+
+    @Test
+    void testSaveAllMapsThroughTheDocumentMapper() {
+        when(repository.saveAll(any(Flux.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        StepVerifier.create(adapter.saveAll(Flux.just(franchise)))
+                .expectNext(franchise)
+                .verifyComplete();
+    }
+
+    @Test
+    void testFindByExampleMapsThroughTheDocumentMapper() {
+        when(repository.findAll(any(Example.class))).thenReturn(Flux.just(document));
+
+        StepVerifier.create(adapter.findByExample(franchise))
+                .expectNext(franchise)
+                .verifyComplete();
+    }
+}
@@ -0,0 +1,129 @@
+package co.com.bancolombia.mongo.helper.bulk;
+
+import co.com.bancolombia.model.franchise.Franchise;
+import co.com.bancolombia.model.franchiseimport.FranchiseImportStatus;
+import co.com.bancolombia.mongo.config.MongoAdapterProperties;
+import co.com.bancolombia.mongo.helper.document.FranchiseDocument;
+import co.com.bancolombia.mongo.helper.mapper.FranchiseDocumentMapper;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class FranchiseBulkImporterTest {
+
+    private static final Duration WINDOW = Duration.ofMillis(100);
+
+    @Mock
+    private ReactiveMongoTemplate mongoTemplate;
+
+    @Mock
+    private ReactiveBulkOperations bulkOperations;
+
+    private FranchiseBulkImporter importer;
+
+    @BeforeEach
+    void setUp() {
+        MongoAdapterProperties properties = new MongoAdapterProperties();
+        properties.getBulk().setBatchSize(2);
+        properties.getBulk().setBatchWindow(WINDOW);
+        importer = new FranchiseBulkImporter(mongoTemplate, new FranchiseDocumentMapper(), properties);
+    }
+
+    @Test
+    void shouldInsertEachBatchAsOneUnorderedBulkStartingAtVersionZero() {
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<FranchiseDocument>> inserted = ArgumentCaptor.forClass(List.class);
+
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, FranchiseDocument.class)).thenReturn(bulkOperations);
+        when(bulkOperations.insert(inserted.capture())).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenReturn(Mono.just(BulkWriteResult.acknowledged(2, 0, 0, 0, List.of(), List.of())))
+                .thenReturn(Mono.just(BulkWriteResult.acknowledged(1, 0, 0, 0, List.of(), List.of())));
+
+        StepVerifier.create(importer.insert(Flux.just(franchise("1"), franchise("2"), franchise("3"))))
+                .expectNextMatches(result -> result.getStatus() == FranchiseImportStatus.IMPORTED
+                        && result.getFranchise().getId().equals("1"))
+                .expectNextMatches(result -> result.getFranchise().getId().equals("2"))
+                .expectNextMatches(result -> result.getFranchise().getId().equals("3"))
+                .verifyComplete();
+
+        verify(bulkOperations, times(2)).execute();
+        assertEquals(0L, inserted.getAllValues().getFirst().getFirst().getVersion());
+        assertEquals("franchise 1", inserted.getAllValues().getFirst().getFirst().getNameKey());
+    }
+
+    @Test
+    void shouldWriteAPartialBatchOnceTheWindowPasses() {
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, FranchiseDocument.class)).thenReturn(bulkOperations);
+        when(bulkOperations.insert(anyList())).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenReturn(Mono.just(BulkWriteResult.acknowledged(1, 0, 0, 0, List.of(), List.of())));
+
+        StepVerifier.withVirtualTime(() -> importer.insert(Flux.just(franchise("1")).concatWith(Flux.never())))
+                .expectSubscription()
+                .expectNoEvent(WINDOW.minusMillis(1))
+                .thenAwait(Duration.ofMillis(1))
+                .expectNextMatches(result -> result.getFranchise().getId().equals("1"))
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void shouldReportDuplicatesPerFranchiseAndKeepTheRest() {
+        MongoBulkWriteException source = new MongoBulkWriteException(
+                BulkWriteResult.acknowledged(1, 0, 0, 0, List.of(), List.of()),
+                List.of(new BulkWriteError(11000, "E11000 duplicate key error index: "
+                                + FranchiseDocument.NAME_KEY_INDEX, new BsonDocument(), 1),
+                        new BulkWriteError(11000, "E11000 duplicate key error index: _id_", new BsonDocument(), 2)),
+                null, new ServerAddress(), Set.of());
+
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, FranchiseDocument.class)).thenReturn(bulkOperations);
+        when(bulkOperations.insert(anyList())).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenReturn(Mono.error(new BulkOperationException("bulk failed", source)));
+
+        StepVerifier.create(importer.insertBatch(List.of(franchise("1"), franchise("2"), franchise("3"))))
+                .expectNextMatches(result -> result.getStatus() == FranchiseImportStatus.IMPORTED)
+                .expectNextMatches(result -> result.getStatus() == FranchiseImportStatus.DUPLICATE_NAME)
+                .expectNextMatches(result -> result.getStatus() == FranchiseImportStatus.DUPLICATE_ID)
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldMarkTheWholeBatchFailed_WhenTheWriteFails() {
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, FranchiseDocument.class)).thenReturn(bulkOperations);
+        when(bulkOperations.insert(anyList())).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenReturn(Mono.error(new IllegalStateException("connection reset")));
+
+        StepVerifier.create(importer.insertBatch(List.of(franchise("1"))))
+                .expectNextMatches(result -> result.getStatus() == FranchiseImportStatus.FAILED)
+                .verifyComplete();
+    }
+
+    private static Franchise franchise(String id) {
+        return Franchise.builder().id(id).name("Franchise " + id).build();
+    }
+}
@@ -0,0 +1,171 @@
+package co.com.bancolombia.mongo.helper.bulk;
+
+import co.com.bancolombia.model.stock.StockUpdate;
+import co.com.bancolombia.model.stock.StockUpdateStatus;
+import co.com.bancolombia.mongo.config.MongoAdapterProperties;
+import co.com.bancolombia.mongo.helper.document.BranchDocument;
+import co.com.bancolombia.mongo.helper.document.FranchiseDocument;
+import co.com.bancolombia.mongo.helper.document.ProductDocument;
+import com.mongodb.bulk.BulkWriteResult;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class StockBulkWriterTest {
+
+    private static final Duration WINDOW = Duration.ofMillis(100);
+
+    @Mock
+    private ReactiveMongoTemplate mongoTemplate;
+
+    @Mock
+    private ReactiveBulkOperations bulkOperations;
+
+    private StockBulkWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        MongoAdapterProperties properties = new MongoAdapterProperties();
+        properties.getBulk().setBatchSize(2);
+        properties.getBulk().setBatchWindow(WINDOW);
+        writer = new StockBulkWriter(mongoTemplate, properties);
+    }
+
+    @Test
+    void shouldWriteEachBatchAsOneUnorderedBulk() {
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, FranchiseDocument.class)).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenReturn(Mono.just(BulkWriteResult.acknowledged(0, 2, 0, 2, List.of(), List.of())))
+                .thenReturn(Mono.just(BulkWriteResult.acknowledged(0, 1, 0, 1, List.of(), List.of())));
+
+        StepVerifier.create(writer.write(Flux.just(
+                        new StockUpdate("f-1", "Branch", "A", 1),
+                        new StockUpdate("f-1", "Branch", "B", 2),
+                        new StockUpdate("f-2", "Branch", "C", 3))))
+                .expectNextMatches(result -> result.getStatus() == StockUpdateStatus.UPDATED
+                        && result.getUpdate().getProductName().equals("A"))
+                .expectNextMatches(result -> result.getUpdate().getProductName().equals("B"))
+                .expectNextMatches(result -> result.getUpdate().getProductName().equals("C"))
+                .verifyComplete();
+
+        verify(bulkOperations, times(2)).execute();
+        verify(mongoTemplate, never()).find(any(Query.class), eq(FranchiseDocument.class));
+    }
+
+    @Test
+    void shouldWriteAPartialBatchOnceTheWindowPasses() {
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, FranchiseDocument.class)).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenReturn(Mono.just(BulkWriteResult.acknowledged(0, 1, 0, 1, List.of(), List.of())));
+
+        StepVerifier.withVirtualTime(() -> writer.write(Flux.just(new StockUpdate("f-1", "Branch", "A", 1))
+                        .concatWith(Flux.never())))
+                .expectSubscription()
+                .expectNoEvent(WINDOW.minusMillis(1))
+                .thenAwait(Duration.ofMillis(1))
+                .expectNextMatches(result -> result.getStatus() == StockUpdateStatus.UPDATED
+                        && result.getUpdate().getProductName().equals("A"))
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void shouldTargetProductStockWithPipelineUpdate() {
+        ArgumentCaptor<UpdateDefinition> update = ArgumentCaptor.forClass(UpdateDefinition.class);
+
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, FranchiseDocument.class)).thenReturn(bulkOperations);
+        when(bulkOperations.updateOne(any(Query.class), update.capture())).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenReturn(Mono.just(BulkWriteResult.acknowledged(0, 1, 0, 1, List.of(), List.of())));
+
+        StepVerifier.create(writer.writeBatch(List.of(new StockUpdate("f-1", "Branch", "A", 7))))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        Document set = (Document) ((AggregationUpdate) update.getValue())
+                .toPipeline(Aggregation.DEFAULT_CONTEXT).get(0).get("$set");
+        assertTrue(set.containsKey("branches"));
+        assertTrue(set.toJson().contains("{\"stock\": 7}"));
+    }
+
+    @Test
+    void shouldReportInvalidEntriesWithoutWriting() {
+        StepVerifier.create(writer.writeBatch(List.of(new StockUpdate("f-1", "Branch", "A", -1))))
+                .expectNextMatches(result -> result.getStatus() == StockUpdateStatus.INVALID)
+                .verifyComplete();
+
+        verify(mongoTemplate, never()).bulkOps(any(BulkOperations.BulkMode.class), eq(FranchiseDocument.class));
+    }
+
+    @Test
+    void shouldWriteOnlyTheLastUpdateOfAProductInABatch() {
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, FranchiseDocument.class)).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenReturn(Mono.just(BulkWriteResult.acknowledged(0, 1, 0, 1, List.of(), List.of())));
+
+        StepVerifier.create(writer.writeBatch(List.of(
+                        new StockUpdate("f-1", "Branch", "A", 1),
+                        new StockUpdate("f-1", "branch", "a", 2))))
+                .expectNextMatches(result -> result.getStatus() == StockUpdateStatus.UPDATED)
+                .expectNextMatches(result -> result.getStatus() == StockUpdateStatus.UPDATED)
+                .verifyComplete();
+
+        verify(bulkOperations, times(1)).updateOne(any(Query.class), any(UpdateDefinition.class));
+    }
+
+    @Test
+    void shouldResolveWhichPartIsMissing_WhenSomeUpdatesDidNotMatch() {
+        FranchiseDocument franchise = FranchiseDocument.builder()
+                .id("f-1")
+                .branches(List.of(BranchDocument.builder()
+                        .name("Branch")
+                        .products(List.of(ProductDocument.builder().name("A").build()))
+                        .build()))
+                .build();
+
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, FranchiseDocument.class)).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenReturn(Mono.just(BulkWriteResult.acknowledged(0, 1, 0, 1, List.of(), List.of())));
+        when(mongoTemplate.find(any(Query.class), eq(FranchiseDocument.class))).thenReturn(Flux.just(franchise));
+
+        StepVerifier.create(writer.writeBatch(List.of(
+                        new StockUpdate("f-1", "Branch", "A", 1),
+                        new StockUpdate("f-1", "Branch", "Missing", 1),
+                        new StockUpdate("f-1", "Other", "A", 1),
+                        new StockUpdate("f-9", "Branch", "A", 1))))
+                .expectNextMatches(result -> result.getStatus() == StockUpdateStatus.UPDATED)
+                .expectNextMatches(result -> result.getStatus() == StockUpdateStatus.PRODUCT_NOT_FOUND)
+                .expectNextMatches(result -> result.getStatus() == StockUpdateStatus.BRANCH_NOT_FOUND)
+                .expectNextMatches(result -> result.getStatus() == StockUpdateStatus.FRANCHISE_NOT_FOUND)
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldEmitNothingForAnEmptyStream() {
+        StepVerifier.create(writer.write(Flux.<StockUpdate>fromIterable(Collections.emptyList())))
+                .verifyComplete();
+    }
+}
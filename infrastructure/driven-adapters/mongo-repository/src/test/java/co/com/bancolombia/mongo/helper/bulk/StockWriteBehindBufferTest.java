@@ -0,0 +1,154 @@
+package co.com.bancolombia.mongo.helper.bulk;
+
+import co.com.bancolombia.model.stock.StockUpdate;
+import co.com.bancolombia.model.stock.StockUpdateResult;
+import co.com.bancolombia.model.stock.StockUpdateStatus;
+import co.com.bancolombia.mongo.config.MongoAdapterProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class StockWriteBehindBufferTest {
+
+    @Mock
+    private StockBulkWriter writer;
+
+    private SimpleMeterRegistry meterRegistry;
+    private StockWriteBehindBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        buffer = new StockWriteBehindBuffer(writer, new MongoAdapterProperties(), meterRegistry);
+    }
+
+    @Test
+    void shouldCoalesceUpdatesOfTheSameProductIntoTheLatest() {
+        AtomicReference<List<StockUpdate>> writes = new AtomicReference<>();
+        when(writer.write(any())).thenAnswer(invocation -> {
+            Flux<StockUpdate> updates = invocation.getArgument(0);
+            return updates.collectList()
+                    .doOnNext(writes::set)
+                    .flatMapMany(Flux::fromIterable)
+                    .map(update -> StockUpdateResult.of(update, StockUpdateStatus.UPDATED));
+        });
+
+        StepVerifier.create(buffer.submit(new StockUpdate("f-1", "Branch", "Product", 1)))
+                .expectNextMatches(product -> product.getStock() == 1)
+                .verifyComplete();
+        buffer.submit(new StockUpdate("f-1", "BRANCH", "product", 2)).block();
+        buffer.submit(new StockUpdate("f-1", "Branch", "Product", 3)).block();
+        buffer.submit(new StockUpdate("f-1", "Branch", "Other", 9)).block();
+
+        assertEquals(2.0, meterRegistry.get(StockWriteBehindBuffer.DEPTH_METRIC).gauge().value());
+
+        StepVerifier.create(buffer.flush()).verifyComplete();
+
+        assertEquals(2, writes.get().size());
+        assertEquals(3, writes.get().stream().filter(u -> u.getProductName().equals("Product"))
+                .findFirst().orElseThrow().getStock());
+        assertEquals(4.0, meterRegistry.get(StockWriteBehindBuffer.RECEIVED_METRIC).counter().count());
+        assertEquals(2.0, meterRegistry.get(StockWriteBehindBuffer.WRITTEN_METRIC).counter().count());
+        assertEquals(1, meterRegistry.get(StockWriteBehindBuffer.FLUSH_METRIC).timer().count());
+        assertEquals(0.0, meterRegistry.get(StockWriteBehindBuffer.DEPTH_METRIC).gauge().value());
+    }
+
+    @Test
+    void shouldPublishWrittenOutcomes() {
+        StockUpdate update = new StockUpdate("f-1", "Branch", "Missing", 1);
+        StockUpdateResult notFound = StockUpdateResult.of(update, StockUpdateStatus.PRODUCT_NOT_FOUND);
+        when(writer.write(any())).thenReturn(Flux.just(notFound));
+
+        buffer.submit(update).block();
+
+        StepVerifier.create(buffer.written().take(1))
+                .then(() -> buffer.flush().block())
+                .expectNext(notFound)
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldSettleTheBufferedSetOfOneProductOnly() {
+        AtomicReference<List<StockUpdate>> writes = new AtomicReference<>();
+        when(writer.write(any())).thenAnswer(invocation -> {
+            Flux<StockUpdate> updates = invocation.getArgument(0);
+            return updates.collectList()
+                    .doOnNext(writes::set)
+                    .flatMapMany(Flux::fromIterable)
+                    .map(update -> StockUpdateResult.of(update, StockUpdateStatus.UPDATED));
+        });
+
+        buffer.submit(new StockUpdate("f-1", "Branch", "Product", 10)).block();
+        buffer.submit(new StockUpdate("f-1", "Branch", "Other", 4)).block();
+
+        StepVerifier.create(buffer.settle("f-1", "BRANCH", "product")).verifyComplete();
+
+        assertEquals(1, writes.get().size());
+        assertEquals(10, writes.get().get(0).getStock());
+        assertEquals(1.0, meterRegistry.get(StockWriteBehindBuffer.DEPTH_METRIC).gauge().value());
+    }
+
+    @Test
+    void shouldSettleOnlyOnceAFlushCarryingTheProductIsWritten() {
+        Sinks.Many<StockUpdateResult> firstWrite = Sinks.many().unicast().onBackpressureBuffer();
+        when(writer.write(any())).thenReturn(firstWrite.asFlux(), Flux.empty());
+
+        buffer.submit(new StockUpdate("f-1", "Branch", "Product", 10)).block();
+        buffer.flush().subscribe();
+        buffer.submit(new StockUpdate("f-1", "Branch", "Product", 12)).block();
+
+        StepVerifier.create(buffer.settle("f-1", "Branch", "Product"))
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMillis(50))
+                .then(() -> verify(writer, times(1)).write(any()))
+                .then(firstWrite::tryEmitComplete)
+                .verifyComplete();
+
+        verify(writer, times(2)).write(any());
+    }
+
+    @Test
+    void shouldNotWriteWhenNothingIsBuffered() {
+        StepVerifier.create(buffer.flush()).verifyComplete();
+
+        verify(writer, never()).write(any());
+    }
+
+    @Test
+    void shouldFlushPendingUpdatesOnShutdown() {
+        when(writer.write(any())).thenReturn(Flux.empty());
+
+        buffer.submit(new StockUpdate("f-1", "Branch", "Product", 5)).block();
+        buffer.stop();
+
+        verify(writer).write(any());
+        assertEquals(0.0, meterRegistry.get(StockWriteBehindBuffer.DEPTH_METRIC).gauge().value());
+    }
+
+    @Test
+    void shouldRejectNegativeStockBeforeBuffering() {
+        StepVerifier.create(buffer.submit(new StockUpdate("f-1", "Branch", "Product", -1)))
+                .expectError()
+                .verify();
+
+        assertEquals(0.0, meterRegistry.get(StockWriteBehindBuffer.DEPTH_METRIC).gauge().value());
+    }
+}
@@ -0,0 +1,154 @@
+package co.com.bancolombia.mongo.helper.concurrency;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KeyedSerialExecutorTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private KeyedSerialExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        executor = new KeyedSerialExecutor(meterRegistry, Schedulers.immediate());
+    }
+
+    @Test
+    void shouldStartNextOperationOfSameKeyOnlyAfterPreviousTerminates() {
+        Sinks.One<String> first = Sinks.one();
+        AtomicBoolean secondStarted = new AtomicBoolean();
+
+        Mono<String> firstResult = executor.submit("f-1", first::asMono).cache();
+        firstResult.subscribe();
+        Mono<String> secondResult = executor.submit("f-1", () -> {
+            secondStarted.set(true);
+            return Mono.just("second");
+        }).cache();
+        secondResult.subscribe();
+
+        assertFalse(secondStarted.get());
+        assertEquals(1.0, meterRegistry.get(KeyedSerialExecutor.ACTIVE_KEYS_METRIC).gauge().value());
+
+        first.tryEmitValue("first");
+
+        assertTrue(secondStarted.get());
+        StepVerifier.create(firstResult).expectNext("first").verifyComplete();
+        StepVerifier.create(secondResult).expectNext("second").verifyComplete();
+        assertEquals(0, executor.activeKeys());
+    }
+
+    @Test
+    void shouldRunOperationWithSubmitterContext() {
+        Mono<String> submitted = executor.submit("f-1",
+                () -> Mono.deferContextual(context -> Mono.just(context.<String>get("origin"))));
+
+        StepVerifier.create(submitted.contextWrite(context -> context.put("origin", "save")))
+                .expectNext("save")
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldRunDifferentKeysIndependently() {
+        Sinks.One<String> blocked = Sinks.one();
+        executor.submit("f-1", blocked::asMono).subscribe();
+
+        StepVerifier.create(executor.submit("f-2", () -> Mono.just("other")))
+                .expectNext("other")
+                .verifyComplete();
+
+        assertEquals(1, executor.activeKeys());
+    }
+
+    @Test
+    void shouldContinueWithQueueAfterAnError() {
+        StepVerifier.create(executor.submit("f-1", () -> Mono.error(new IllegalStateException("boom"))))
+                .expectError(IllegalStateException.class)
+                .verify();
+        StepVerifier.create(executor.submit("f-1", Mono::empty)).verifyComplete();
+
+        assertEquals(0, executor.activeKeys());
+    }
+
+    @Test
+    void shouldSkipOperationCancelledWhileQueued() {
+        Sinks.One<String> first = Sinks.one();
+        AtomicBoolean skippedStarted = new AtomicBoolean();
+        executor.submit("f-1", first::asMono).subscribe();
+        Disposable queued = executor.submit("f-1", () -> {
+            skippedStarted.set(true);
+            return Mono.just("never");
+        }).subscribe();
+
+        queued.dispose();
+        first.tryEmitValue("done");
+
+        assertFalse(skippedStarted.get());
+        assertEquals(0, executor.activeKeys());
+    }
+
+    @Test
+    void shouldFailRejectedOperationsAndMoveOnToTheNext() {
+        Scheduler disposed = Schedulers.newSingle("disposed");
+        disposed.dispose();
+        KeyedSerialExecutor rejecting = new KeyedSerialExecutor(meterRegistry, disposed);
+        AtomicBoolean started = new AtomicBoolean();
+
+        StepVerifier.create(rejecting.submit("f-1", () -> {
+                    started.set(true);
+                    return Mono.just("never");
+                }))
+                .expectError(RejectedExecutionException.class)
+                .verify(Duration.ofSeconds(1));
+        StepVerifier.create(rejecting.submit("f-1", () -> Mono.just("never")))
+                .expectError(RejectedExecutionException.class)
+                .verify(Duration.ofSeconds(1));
+
+        assertFalse(started.get());
+        assertEquals(0, rejecting.activeKeys());
+    }
+
+    @Test
+    void shouldKeepSubmissionOrderUnderConcurrency() {
+        KeyedSerialExecutor parallel = new KeyedSerialExecutor(meterRegistry, Schedulers.parallel());
+        List<Integer> applied = new CopyOnWriteArrayList<>();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        List<Mono<Integer>> submitted = IntStream.range(0, 50)
+                .mapToObj(i -> parallel.submit("f-1", () -> Mono.fromSupplier(() -> {
+                            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                            return i;
+                        })
+                        .delayElement(Duration.ofMillis(1))
+                        .doOnNext(applied::add)
+                        .doFinally(signal -> running.decrementAndGet())))
+                .toList();
+
+        // Subscription order is submission order
+        StepVerifier.create(Mono.when(submitted.stream().map(Mono::cache).peek(Mono::subscribe).toList()))
+                .verifyComplete();
+
+        assertEquals(IntStream.range(0, 50).boxed().toList(), applied);
+        assertEquals(1, maxRunning.get());
+    }
+}
@@ -0,0 +1,96 @@
+package co.com.bancolombia.mongo.helper.concurrency;
+
+import co.com.bancolombia.commons.exception.AppErrorCode;
+import co.com.bancolombia.commons.exception.AppException;
+import co.com.bancolombia.mongo.config.MongoAdapterProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class OptimisticRetryTest {
+
+    private static final Duration MIN_BACKOFF = Duration.ofMillis(10);
+
+    private SimpleMeterRegistry meterRegistry;
+    private OptimisticRetry retry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        MongoAdapterProperties properties = new MongoAdapterProperties();
+        properties.getOptimisticRetry().setMaxRetries(2);
+        properties.getOptimisticRetry().setMinBackoff(MIN_BACKOFF);
+        properties.getOptimisticRetry().setMaxBackoff(Duration.ofMillis(100));
+        properties.getOptimisticRetry().setJitter(0);
+        retry = new OptimisticRetry(properties, meterRegistry);
+    }
+
+    @Test
+    void shouldRetryConflictsAfterBackoffWithFreshAttempts() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        StepVerifier.withVirtualTime(() -> retry.execute("addBranch", () -> attempts.incrementAndGet() < 3
+                        ? Mono.error(new OptimisticLockingFailureException("version changed"))
+                        : Mono.just("saved")))
+                .expectSubscription()
+                // Backoffs of 10ms then 20ms, the second doubling the first
+                .expectNoEvent(MIN_BACKOFF.multipliedBy(3).minusMillis(1))
+                .thenAwait(Duration.ofMillis(1))
+                .expectNext("saved")
+                .verifyComplete();
+
+        assertEquals(3, attempts.get());
+        assertEquals(2.0, count(OptimisticRetry.CONFLICTS_METRIC, "addBranch"));
+        assertEquals(2.0, count(OptimisticRetry.RETRIES_METRIC, "addBranch"));
+        assertEquals(0.0, count(OptimisticRetry.EXHAUSTED_METRIC, "addBranch"));
+    }
+
+    @Test
+    void shouldReportConcurrentModificationOnceRetriesAreExhausted() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        StepVerifier.withVirtualTime(() -> retry.execute("renameBranch", () -> {
+                    attempts.incrementAndGet();
+                    return Mono.error(new OptimisticLockingFailureException("version changed"));
+                }))
+                .expectSubscription()
+                .thenAwait(Duration.ofSeconds(1))
+                .expectErrorMatches(e -> e instanceof AppException app
+                        && app.getErrorCode() == AppErrorCode.CONCURRENT_MODIFICATION
+                        && e.getCause() instanceof OptimisticLockingFailureException)
+                .verify();
+
+        assertEquals(3, attempts.get());
+        assertEquals(3.0, count(OptimisticRetry.CONFLICTS_METRIC, "renameBranch"));
+        assertEquals(2.0, count(OptimisticRetry.RETRIES_METRIC, "renameBranch"));
+        assertEquals(1.0, count(OptimisticRetry.EXHAUSTED_METRIC, "renameBranch"));
+    }
+
+    @Test
+    void shouldNotRetryOtherErrors() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        StepVerifier.create(retry.execute("addProduct", () -> {
+                    attempts.incrementAndGet();
+                    return Mono.error(new AppException(AppErrorCode.BRANCH_NOT_FOUND));
+                }))
+                .expectErrorMatches(e -> e instanceof AppException app && app.getErrorCode() == AppErrorCode.BRANCH_NOT_FOUND)
+                .verify();
+
+        assertEquals(1, attempts.get());
+        assertEquals(0.0, count(OptimisticRetry.CONFLICTS_METRIC, "addProduct"));
+        assertEquals(0.0, count(OptimisticRetry.RETRIES_METRIC, "addProduct"));
+    }
+
+    private double count(String metric, String operation) {
+        return meterRegistry.get(metric).tag("operation", operation).counter().count();
+    }
+}
@@ -4,6 +4,7 @@ import co.com.bancolombia.model.branch.Branch;
 import co.com.bancolombia.model.franchise.Franchise;
 import co.com.bancolombia.model.product.Product;
 import co.com.bancolombia.mongo.helper.document.BranchDocument;
+import co.com.bancolombia.mongo.helper.document.FranchiseBranchDocument;
 import co.com.bancolombia.mongo.helper.document.FranchiseDocument;
 import co.com.bancolombia.mongo.helper.document.ProductDocument;
 import org.junit.jupiter.api.BeforeEach;
@@ -45,6 +46,7 @@ class FranchiseDocumentMapperTest {
         assertNotNull(doc);
         assertEquals("f-001", doc.getId());
         assertEquals("Franchise Test", doc.getName());
+        assertEquals("franchise test", doc.getNameKey());
         assertEquals(1, doc.getBranches().size());
 
         BranchDocument branchDoc = doc.getBranches().get(0);
@@ -53,7 +55,9 @@ class FranchiseDocumentMapperTest {
 
         ProductDocument productDoc = branchDoc.getProducts().get(0);
         assertEquals("Product A", productDoc.getName());
+        assertEquals("product a", productDoc.getNameKey());
         assertEquals(10, productDoc.getStock());
+        assertEquals(List.of(productDoc), branchDoc.getTopProducts());
     }
 
     @Test
@@ -131,4 +135,43 @@ class FranchiseDocumentMapperTest {
         assertNotNull(entity);
         assertTrue(entity.getBranches().isEmpty());
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldSplitBranchesIntoDocumentsOrderedByTheirIds() {
+        Franchise franchise = Franchise.builder()
+                .id("f-001")
+                .name("Franchise Test")
+                .branches(List.of(
+                        Branch.builder().name("Centro")
+                                .products(List.of(Product.builder().name("Pan").stock(3).build()))
+                                .build(),
+                        Branch.builder().name("Norte").products(List.of()).build()))
+                .build();
+
+        FranchiseDocument header = mapper.toHeaderDocument(franchise);
+        List<FranchiseBranchDocument> branches = mapper.toBranchDocuments("f-001", franchise.getBranches());
+
+        assertNull(header.getBranches());
+        assertEquals("franchise test", header.getNameKey());
+        assertEquals(2, branches.size());
+        assertEquals("centro", branches.get(0).getNameKey());
+        assertEquals("f-001", FranchiseBranchDocument.franchiseIdOf(branches.get(0).getId()));
+        assertTrue(branches.get(0).getId().compareTo(branches.get(1).getId()) < 0);
+        assertEquals(branches.get(0).getProducts(), branches.get(0).getTopProducts());
+    }
+
+    @Test
+    void shouldReassembleAFranchiseFromItsHeaderAndBranches() {
+        FranchiseDocument header = FranchiseDocument.builder().id("f-001").name("Franchise Test").build();
+        FranchiseBranchDocument branch = FranchiseBranchDocument.builder()
+                .id("f-001:1").franchiseId("f-001").name("Centro")
+                .products(List.of(ProductDocument.builder().name("Pan").stock(3).build()))
+                .build();
+
+        Franchise franchise = mapper.toEntity(header, List.of(branch));
+
+        assertEquals("Franchise Test", franchise.getName());
+        assertEquals("Centro", franchise.getBranches().get(0).getName());
+        assertEquals(3, franchise.getBranches().get(0).getProducts().get(0).getStock());
+    }
+}
@@ -0,0 +1,64 @@
+package co.com.bancolombia.mongo.helper.query;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class BranchAggregationsTest {
+
+    @Test
+    void shouldMatchOnIndexedStockBeforeUnwindingTheProducts() {
+        List<Document> pipeline = BranchAggregations.lowStock(5, null, 21).toPipeline(Aggregation.DEFAULT_CONTEXT);
+
+        assertEquals(8, pipeline.size());
+        assertEquals(new Document("products.stock", new Document("$lt", 5)), pipeline.get(0).get("$match"));
+        assertEquals(new Document("franchiseId", 1).append("name", 1), pipeline.get(1).get("$sort"));
+        assertEquals(21L, ((Number) pipeline.get(2).get("$limit")).longValue());
+        assertEquals("$products", pipeline.get(3).get("$unwind"));
+        assertFalse(pipeline.get(4).get("$match", Document.class).containsKey("$or"));
+        assertEquals(new Document("franchiseId", 1).append("name", 1).append("products.name", 1),
+                pipeline.get(5).get("$sort"));
+        assertEquals(21L, ((Number) pipeline.get(6).get("$limit")).longValue());
+        assertEquals("$name", pipeline.get(7).get("$project", Document.class).get("branchName"));
+    }
+
+    @Test
+    void shouldResumeAfterTheLastRowOfThePreviousPage() {
+        List<Document> pipeline = BranchAggregations.lowStock(5, List.of("f-1", "Centro", "Pan"), 11)
+                .toPipeline(Aggregation.DEFAULT_CONTEXT);
+
+        List<?> branches = pipeline.get(0).get("$match", Document.class).get("$or", List.class);
+        assertEquals(new Document("franchiseId", "f-1").append("name", new Document("$gte", "Centro")), branches.get(1));
+        assertEquals(12L, ((Number) pipeline.get(2).get("$limit")).longValue());
+        List<?> resume = pipeline.get(4).get("$match", Document.class).get("$or", List.class);
+        assertEquals(new Document("franchiseId", new Document("$gt", "f-1")), resume.get(0));
+        assertEquals(new Document("franchiseId", "f-1").append("name", new Document("$gt", "Centro")), resume.get(1));
+        assertEquals(new Document("franchiseId", "f-1").append("name", "Centro")
+                .append("products.name", new Document("$gt", "Pan")), resume.get(2));
+    }
+
+    @Test
+    void shouldSearchTheLowerCasedProductNameKey() {
+        List<Document> pipeline = BranchAggregations.productSearch("PA").toPipeline(Aggregation.DEFAULT_CONTEXT);
+
+        Pattern pattern = (Pattern) pipeline.get(0).get("$match", Document.class).get("products.nameKey");
+        assertEquals(NameMatchers.prefix("pa").pattern(), pattern.pattern());
+        assertEquals("$products", pipeline.get(1).get("$unwind"));
+    }
+
+    @Test
+    void shouldCountBranchesAndProductsPerFranchise() {
+        List<Document> pipeline = BranchAggregations.counts(List.of("f-1", "f-2")).toPipeline(Aggregation.DEFAULT_CONTEXT);
+
+        assertEquals(new Document("franchiseId", new Document("$in", List.of("f-1", "f-2"))), pipeline.get(0).get("$match"));
+        Document group = pipeline.get(1).get("$group", Document.class);
+        assertEquals("$franchiseId", group.get("_id"));
+        assertEquals(new Document("$sum", 1), group.get("branchCount"));
+    }
+}
@@ -0,0 +1,98 @@
+package co.com.bancolombia.mongo.helper.query;
+
+import co.com.bancolombia.mongo.helper.document.BranchDocument;
+import co.com.bancolombia.mongo.helper.document.FranchiseDocument;
+import co.com.bancolombia.mongo.helper.document.ProductDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FranchiseDiffTest {
+
+    @Test
+    void shouldWriteNothingWhenUnchanged() {
+        FranchiseDocument read = franchise();
+
+        assertTrue(FranchiseDiff.between(read, franchise()).isEmpty());
+    }
+
+    @Test
+    void shouldSetOnlyTheChangedProductFields() {
+        FranchiseDocument before = franchise();
+        FranchiseDocument read = franchise();
+        read.getBranches().get(1).getProducts().getFirst().setStock(7);
+
+        Document update = updateObject(before, read);
+
+        assertEquals(new Document("$set", new Document("branches.1.products.0.stock", 7)), update);
+    }
+
+    @Test
+    void shouldPushAppendedElements() {
+        FranchiseDocument before = franchise();
+        FranchiseDocument read = franchise();
+        read.getBranches().add(branch("Sur"));
+
+        Document update = updateObject(before, read);
+
+        assertEquals(Set.of("$push"), update.keySet());
+        assertEquals(Set.of("branches"), update.get("$push", Document.class).keySet());
+    }
+
+    @Test
+    void shouldPullRemovedElementsByName() {
+        FranchiseDocument before = franchise();
+        FranchiseDocument read = franchise();
+        read.getBranches().getFirst().getProducts().removeFirst();
+
+        Document update = updateObject(before, read);
+
+        assertEquals(new Document("branches.0.products", new Document("name", new Document("$in", List.of("Pan")))),
+                update.get("$pull"));
+    }
+
+    @Test
+    void shouldReplaceArraysChangedInConflictingWays() {
+        FranchiseDocument before = franchise();
+        FranchiseDocument read = franchise();
+        List<ProductDocument> products = read.getBranches().getFirst().getProducts();
+        products.removeFirst();
+        products.add(product("Vino", 4));
+        products.add(product("Queso", 1));
+
+        Document update = updateObject(before, read);
+
+        assertEquals(Set.of("branches.0.products"), update.get("$set", Document.class).keySet());
+    }
+
+    private static Document updateObject(FranchiseDocument before, FranchiseDocument after) {
+        return FranchiseDiff.between(before, after).map(Update::getUpdateObject).orElseThrow();
+    }
+
+    private static FranchiseDocument franchise() {
+        return FranchiseDocument.builder()
+                .id("f-1")
+                .name("Franquicia")
+                .nameKey("franquicia")
+                .branches(new ArrayList<>(List.of(branch("Centro"), branch("Norte"))))
+                .build();
+    }
+
+    private static BranchDocument branch(String name) {
+        return BranchDocument.builder()
+                .name(name)
+                .products(new ArrayList<>(List.of(product("Pan", 3), product("Leche", 5))))
+                .build();
+    }
+
+    private static ProductDocument product(String name, int stock) {
+        return ProductDocument.builder().name(name).nameKey(FranchiseDocument.nameKeyOf(name)).stock(stock).build();
+    }
+}
@@ -0,0 +1,38 @@
+package co.com.bancolombia.mongo.helper.query;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FranchiseSummaryAggregationTest {
+
+    @Test
+    void shouldCountBranchesAndProductsWithoutReturningBranches() {
+        List<Document> pipeline = FranchiseSummaryAggregation.of(null, 21).toPipeline(Aggregation.DEFAULT_CONTEXT);
+
+        assertEquals(3, pipeline.size());
+        assertEquals(new Document("_id", 1), pipeline.get(0).get("$sort"));
+        assertEquals(21L, ((Number) pipeline.get(1).get("$limit")).longValue());
+        Document project = (Document) pipeline.get(2).get("$project");
+        assertEquals(1, project.get("name"));
+        assertFalse(project.containsKey("branches"));
+        assertTrue(project.get("branchCount", Document.class).containsKey("$size"));
+        assertTrue(project.get("productCount", Document.class).containsKey("$sum"));
+    }
+
+    @Test
+    void shouldMatchKeysetConditionFirst() {
+        List<Document> pipeline = FranchiseSummaryAggregation.of(Criteria.where("_id").gt("a"), 5)
+                .toPipeline(Aggregation.DEFAULT_CONTEXT);
+
+        assertEquals(4, pipeline.size());
+        assertTrue(pipeline.get(0).containsKey("$match"));
+    }
+}
@@ -0,0 +1,57 @@
+package co.com.bancolombia.mongo.helper.query;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LowStockAggregationTest {
+
+    @Test
+    void shouldMatchOnIndexedStockBeforeUnwinding() {
+        List<Document> pipeline = LowStockAggregation.of(5, null, 21).toPipeline(Aggregation.DEFAULT_CONTEXT);
+
+        assertEquals(9, pipeline.size());
+        assertEquals(new Document("$lt", 5), pipeline.get(0).get("$match", Document.class).get("branches.products.stock"));
+        assertEquals("$branches", pipeline.get(3).get("$unwind"));
+        assertEquals("$branches.products", pipeline.get(4).get("$unwind"));
+        Document rowFilter = pipeline.get(5).get("$match", Document.class);
+        assertEquals(new Document("$lt", 5), rowFilter.get("branches.products.stock"));
+        assertFalse(rowFilter.containsKey("$or"));
+        assertEquals(new Document("_id", 1).append("branches.name", 1).append("branches.products.name", 1),
+                pipeline.get(6).get("$sort"));
+        assertEquals(21L, ((Number) pipeline.get(7).get("$limit")).longValue());
+        Document project = pipeline.get(8).get("$project", Document.class);
+        assertEquals(0, project.get("_id"));
+        assertEquals("$branches.products.stock", project.get("stock"));
+    }
+
+    @Test
+    void shouldLimitFranchisesBeforeUnwinding() {
+        List<Document> pipeline = LowStockAggregation.of(5, null, 21).toPipeline(Aggregation.DEFAULT_CONTEXT);
+
+        assertEquals(new Document("_id", 1), pipeline.get(1).get("$sort"));
+        assertEquals(21L, ((Number) pipeline.get(2).get("$limit")).longValue());
+    }
+
+    @Test
+    void shouldResumeAfterTheLastRowOfThePreviousPage() {
+        String lastId = new ObjectId().toHexString();
+        List<Document> pipeline = LowStockAggregation.of(5, List.of(lastId, "Centro", "Pan"), 11)
+                .toPipeline(Aggregation.DEFAULT_CONTEXT);
+
+        assertTrue(pipeline.get(0).get("$match", Document.class).containsKey("$and"));
+        assertEquals(12L, ((Number) pipeline.get(2).get("$limit")).longValue());
+        List<?> resume = pipeline.get(5).get("$match", Document.class).get("$or", List.class);
+        assertEquals(new Document("_id", new Document("$ne", new ObjectId(lastId))), resume.get(0));
+        assertEquals(new Document("branches.name", new Document("$gt", "Centro")), resume.get(1));
+        assertEquals(new Document("branches.name", "Centro")
+                .append("branches.products.name", new Document("$gt", "Pan")), resume.get(2));
+    }
+}
@@ -0,0 +1,39 @@
+package co.com.bancolombia.mongo.helper.query;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProductSearchAggregationTest {
+
+    @Test
+    void shouldMatchLowerCasedPrefixOnNameKeyBeforeUnwinding() {
+        List<Document> pipeline = ProductSearchAggregation.of("Ñan").toPipeline(Aggregation.DEFAULT_CONTEXT);
+
+        assertEquals(5, pipeline.size());
+        Pattern first = (Pattern) pipeline.get(0).get("$match", Document.class).get("branches.products.nameKey");
+        assertEquals("^ñan", first.pattern());
+        assertEquals(0, first.flags());
+        assertEquals("$branches", pipeline.get(1).get("$unwind"));
+        assertEquals("$branches.products", pipeline.get(2).get("$unwind"));
+        assertTrue(pipeline.get(3).get("$match", Document.class).containsKey("branches.products.nameKey"));
+        assertFalse(pipeline.stream().anyMatch(stage -> stage.containsKey("$sort")));
+        assertEquals("$branches.products.name", pipeline.get(4).get("$project", Document.class).get("productName"));
+    }
+
+    @Test
+    void shouldEscapeRegexMetacharactersInPrefix() {
+        Pattern pattern = NameMatchers.prefix("c++ (v1.0)");
+
+        assertEquals("^c\\+\\+ \\(v1\\.0\\)", pattern.pattern());
+        assertTrue(pattern.matcher("c++ (v1.0) pro").lookingAt());
+        assertFalse(pattern.matcher("cc (v1x0)").lookingAt());
+    }
+}
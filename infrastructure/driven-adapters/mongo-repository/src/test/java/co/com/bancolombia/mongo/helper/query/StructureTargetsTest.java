@@ -0,0 +1,72 @@
+package co.com.bancolombia.mongo.helper.query;
+
+import co.com.bancolombia.mongo.helper.document.ProductDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StructureTargetsTest {
+
+    @Test
+    void shouldOnlyMatchFranchisesWithoutTheBranch() {
+        Document query = StructureTargets.branchAbsent("f-1", "Centro").getQueryObject();
+
+        Pattern excluded = (Pattern) ((Document) query.get("branches.name")).get("$not");
+        assertTrue(excluded.matcher("CENTRO").matches());
+        assertFalse(excluded.matcher("Centro Sur").matches());
+    }
+
+    @Test
+    void shouldRequireTheBranchAndRejectDuplicateProducts() {
+        Document query = StructureTargets.productAbsent("f-1", "Centro", "Pan").getQueryObject();
+
+        Document branch = (Document) ((Document) query.get("branches")).get("$elemMatch");
+        assertTrue(((Pattern) branch.get("name")).matcher("centro").matches());
+        assertTrue(((Pattern) ((Document) branch.get("products.name")).get("$not")).matcher("PAN").matches());
+    }
+
+    @Test
+    void shouldAppendTheProductAsALiteral() {
+        ProductDocument product = ProductDocument.builder().name("$price").nameKey("$price").stock(2).build();
+
+        Document set = (Document) StructureTargets.addProduct("Centro", product)
+                .toPipeline(Aggregation.DEFAULT_CONTEXT).getFirst().get("$set");
+
+        assertTrue(set.toJson().contains("\"$literal\": {\"name\": \"$price\""));
+        assertTrue(set.containsKey("version"));
+    }
+
+    @Test
+    void shouldAllowRenamingABranchToAnotherCase() {
+        Document query = StructureTargets.branchRenamable("f-1", "Centro", "CENTRO").getQueryObject();
+
+        assertFalse(query.containsKey("branches.name"));
+        assertTrue(query.containsKey("branches"));
+    }
+
+    @Test
+    void shouldRenameTheBranchThroughAnArrayFilter() {
+        Update update = StructureTargets.renameBranch("Centro", "Norte");
+
+        assertEquals(new Document("branches.$[branch].name", "Norte"), update.getUpdateObject().get("$set"));
+        assertEquals(1, update.getArrayFilters().size());
+        Document filter = update.getArrayFilters().getFirst().asDocument();
+        assertTrue(((Pattern) filter.get("branch.name")).matcher("CENTRO").matches());
+    }
+
+    @Test
+    void shouldRejectProductRenamesOntoAnotherProduct() {
+        Document query = StructureTargets.productRenamable("f-1", "Centro", "Pan", "Leche").getQueryObject();
+
+        Document branch = (Document) ((Document) query.get("branches")).get("$elemMatch");
+        assertEquals(List.of("name", "products", "products.name"), List.copyOf(branch.keySet()));
+    }
+}
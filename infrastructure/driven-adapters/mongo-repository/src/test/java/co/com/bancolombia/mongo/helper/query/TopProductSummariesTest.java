@@ -0,0 +1,88 @@
+package co.com.bancolombia.mongo.helper.query;
+
+import co.com.bancolombia.mongo.helper.document.BranchDocument;
+import co.com.bancolombia.mongo.helper.document.FranchiseDocument;
+import co.com.bancolombia.mongo.helper.document.ProductDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TopProductSummariesTest {
+
+    @Test
+    void shouldKeepProductsWithinLimitOrderedByStockThenName() {
+        List<ProductDocument> products = List.of(product("B", 5), product("A", 9), product("C", 5), product("D", 1));
+
+        List<ProductDocument> top = TopProductSummaries.top(products, 2);
+
+        assertEquals(List.of("A", "B", "C"), top.stream().map(ProductDocument::getName).toList());
+    }
+
+    @Test
+    void shouldCutTiesByNameUnlessAsked() {
+        List<ProductDocument> products = List.of(product("B", 5), product("A", 9), product("C", 5), product("D", 1));
+
+        assertEquals(List.of("A", "B"), TopProductSummaries.top(products, 2, false).stream().map(ProductDocument::getName).toList());
+        assertEquals(3, TopProductSummaries.top(products, 2, true).size());
+    }
+
+    @Test
+    void shouldKeepEveryProductWhenFewerThanLimit() {
+        assertEquals(2, TopProductSummaries.top(List.of(product("A", 1), product("B", 2)), 5).size());
+        assertTrue(TopProductSummaries.top(null, 5).isEmpty());
+    }
+
+    @Test
+    void shouldRefreshEveryBranchWithSummarySize() {
+        List<ProductDocument> products = new ArrayList<>();
+        IntStream.range(0, TopProductSummaries.SIZE + 3).forEach(i -> products.add(product("P" + i, i)));
+        FranchiseDocument franchise = FranchiseDocument.builder()
+                .branches(List.of(BranchDocument.builder().name("Branch").products(products).build()))
+                .build();
+
+        assertFalse(TopProductSummaries.isMaintained(franchise));
+
+        TopProductSummaries.refresh(franchise);
+
+        List<ProductDocument> top = franchise.getBranches().get(0).getTopProducts();
+        assertEquals(TopProductSummaries.SIZE, top.size());
+        assertEquals(TopProductSummaries.SIZE + 2, top.get(0).getStock());
+        assertTrue(TopProductSummaries.isMaintained(franchise));
+    }
+
+    @Test
+    void shouldCapTiedProductsAndMarkSummaryTruncated() {
+        List<ProductDocument> products = new ArrayList<>();
+        IntStream.range(0, TopProductSummaries.CAPACITY + 3).forEach(i -> products.add(product("P" + (char) ('A' + i), 7)));
+
+        List<ProductDocument> summary = TopProductSummaries.summarize(products);
+
+        assertEquals(TopProductSummaries.CAPACITY, summary.size());
+        assertEquals("PA", summary.get(0).getName());
+        assertTrue(TopProductSummaries.isTruncated(summary));
+        assertEquals(TopProductSummaries.SIZE, TopProductSummaries.top(summary, TopProductSummaries.SIZE, false).size());
+        assertFalse(TopProductSummaries.isTruncated(TopProductSummaries.summarize(products.subList(0, TopProductSummaries.SIZE + 1))));
+    }
+
+    @Test
+    void shouldBuildServerSideRankingWithSameCutoff() {
+        Document expression = TopProductSummaries.of("$$branch.products");
+
+        Document ranked = (Document) ((Document) expression.get("$let", Document.class).get("vars")).get("ranked");
+        Document sortArray = ranked.get("$sortArray", Document.class);
+        assertEquals(new Document("stock", -1).append("name", 1), sortArray.get("sortBy"));
+        assertTrue(expression.toJson().contains("{\"$arrayElemAt\": [\"$$ranked.stock\", " + (TopProductSummaries.SIZE - 1) + "]}"));
+        assertTrue(expression.toJson().endsWith(", " + TopProductSummaries.CAPACITY + "]}}}}}"));
+    }
+
+    private static ProductDocument product(String name, int stock) {
+        return ProductDocument.builder().name(name).stock(stock).build();
+    }
+}
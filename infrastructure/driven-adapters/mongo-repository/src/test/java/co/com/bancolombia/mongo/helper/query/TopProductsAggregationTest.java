@@ -0,0 +1,50 @@
+package co.com.bancolombia.mongo.helper.query;
+
+import co.com.bancolombia.mongo.helper.document.FranchiseDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TopProductsAggregationTest {
+
+    @Test
+    void shouldNumberProductsPerBranchBreakingTiesByName() {
+        List<Document> pipeline = TopProductsAggregation.of("f-1", 1, false).toPipeline(Aggregation.DEFAULT_CONTEXT);
+
+        Document window = (Document) pipeline.get(3).get("$setWindowFields");
+        assertEquals(new Document("branches.products.stock", -1).append("branches.products.name", 1), window.get("sortBy"));
+        assertTrue(((Document) window.get("output")).get("rank", Document.class).containsKey("$documentNumber"));
+        assertEquals(1, ((Document) pipeline.get(4).get("$match")).get("rank", Document.class).get("$lte"));
+    }
+
+    @Test
+    void shouldRankProductsPerBranchAndKeepTiesWithinLimit() {
+        TypedAggregation<FranchiseDocument> aggregation = TopProductsAggregation.of("f-1", 3, true);
+
+        List<Document> pipeline = aggregation.toPipeline(Aggregation.DEFAULT_CONTEXT);
+
+        assertEquals(7, pipeline.size());
+        assertTrue(pipeline.get(0).containsKey("$match"));
+        Document window = (Document) pipeline.get(3).get("$setWindowFields");
+        assertEquals("$branchIndex", window.get("partitionBy"));
+        assertEquals(new Document("branches.products.stock", -1), window.get("sortBy"));
+        assertTrue(((Document) window.get("output")).get("rank", Document.class).containsKey("$rank"));
+        assertEquals(3, ((Document) pipeline.get(4).get("$match")).get("rank", Document.class).get("$lte"));
+    }
+
+    @Test
+    void shouldProjectOnlyBranchNameAndProduct() {
+        List<Document> pipeline = TopProductsAggregation.of("f-1", 1, false).toPipeline(Aggregation.DEFAULT_CONTEXT);
+
+        Document project = (Document) pipeline.get(pipeline.size() - 1).get("$project");
+        assertEquals(0, project.get("_id"));
+        assertEquals("$branches.name", project.get("branchName"));
+        assertEquals("$branches.products", project.get("product"));
+    }
+}
@@ -0,0 +1,110 @@
+package co.com.bancolombia.mongo.maintenance;
+
+import co.com.bancolombia.mongo.config.MongoAdapterProperties;
+import co.com.bancolombia.mongo.helper.document.FranchiseDocument;
+import com.mongodb.client.result.UpdateResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TopProductsRepairJobTest {
+
+    @Mock
+    private ReactiveMongoTemplate mongoTemplate;
+
+    private SimpleMeterRegistry meterRegistry;
+    private MongoAdapterProperties properties;
+    private TopProductsRepairJob job;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        properties = new MongoAdapterProperties();
+        job = new TopProductsRepairJob(mongoTemplate, properties, meterRegistry);
+    }
+
+    @Test
+    void shouldRewriteOnlyDriftedFranchisesAndCountThem() {
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<UpdateDefinition> update = ArgumentCaptor.forClass(UpdateDefinition.class);
+        when(mongoTemplate.updateMulti(query.capture(), update.capture(), eq(FranchiseDocument.class)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(3, 2L, null)));
+
+        StepVerifier.create(job.repair())
+                .expectNext(2L)
+                .verifyComplete();
+
+        assertTrue(query.getValue().getQueryObject().containsKey("$expr"));
+        Document set = (Document) ((AggregationUpdate) update.getValue())
+                .toPipeline(Aggregation.DEFAULT_CONTEXT).get(0).get("$set");
+        assertTrue(set.toJson().contains("topProducts"));
+        assertEquals(2.0, meterRegistry.get(TopProductsRepairJob.REPAIRED_METRIC).counter().count());
+    }
+
+    @Test
+    void shouldRepairOnceTheLeaseIsTaken() {
+        ArgumentCaptor<Query> lease = ArgumentCaptor.forClass(Query.class);
+        when(mongoTemplate.upsert(lease.capture(), any(UpdateDefinition.class), eq(TopProductsRepairJob.LOCKS_COLLECTION)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(0, 0L, new BsonString("topProductsRepair"))));
+        when(mongoTemplate.updateMulti(any(Query.class), any(UpdateDefinition.class), eq(FranchiseDocument.class)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(1, 1L, null)));
+
+        StepVerifier.create(job.repairIfLeaseHeld())
+                .expectNext(1L)
+                .verifyComplete();
+
+        assertEquals("topProductsRepair", lease.getValue().getQueryObject().get("_id"));
+        assertTrue(lease.getValue().getQueryObject().containsKey("$or"));
+    }
+
+    @Test
+    void shouldSkipTheRepairWhileAnotherInstanceHoldsTheLease() {
+        when(mongoTemplate.upsert(any(Query.class), any(UpdateDefinition.class), eq(TopProductsRepairJob.LOCKS_COLLECTION)))
+                .thenReturn(Mono.error(new DuplicateKeyException("E11000 duplicate key error")));
+
+        StepVerifier.create(job.repairIfLeaseHeld())
+                .verifyComplete();
+
+        verify(mongoTemplate, never()).updateMulti(any(Query.class), any(UpdateDefinition.class), eq(FranchiseDocument.class));
+    }
+
+    @Test
+    void shouldBeDisabledByDefault() {
+        assertFalse(properties.getTopProducts().isRepairEnabled());
+    }
+
+    @Test
+    void shouldNotScheduleWhenDisabled() {
+        properties.getTopProducts().setRepairEnabled(false);
+
+        job.start();
+        job.stop();
+
+        verifyNoInteractions(mongoTemplate);
+    }
+}
@@ -0,0 +1,41 @@
+package co.com.bancolombia.mongo.metrics;
+
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class CommandShapesTest {
+
+    @Test
+    void shouldMaskValuesButKeepFieldsAndOperators() {
+        BsonDocument command = BsonDocument.parse("{findAndModify: 'franchise', "
+                + "query: {_id: 'f-1', $or: [{'branches.name': 'Centro'}, {stock: {$gte: 5}}], tags: {$in: ['a', 'b']}}, "
+                + "update: {$set: {name: 'Secret'}}}");
+
+        String shape = CommandShapes.filterOf(command);
+
+        assertEquals(BsonDocument.parse("{query: {_id: '?', $or: [{'branches.name': '?'}, {stock: {$gte: '?'}}], "
+                + "tags: {$in: '?'}}}"), BsonDocument.parse(shape));
+        assertFalse(shape.contains("Secret"));
+    }
+
+    @Test
+    void shouldShapeEveryStatementOfWriteCommands() {
+        BsonDocument command = BsonDocument.parse("{update: 'franchise', updates: ["
+                + "{q: {_id: 'f-1'}, u: {$set: {stock: 3}}}, {q: {_id: 'f-2'}, u: {$set: {stock: 4}}}]}");
+
+        assertEquals(BsonDocument.parse("{updates: [{_id: '?'}, {_id: '?'}]}"),
+                BsonDocument.parse(CommandShapes.filterOf(command)));
+    }
+
+    @Test
+    void shouldKeepPipelineStagesOfAggregations() {
+        BsonDocument command = BsonDocument.parse("{aggregate: 'franchise', "
+                + "pipeline: [{$match: {_id: 'f-1'}}, {$limit: 10}], cursor: {}}");
+
+        assertEquals(BsonDocument.parse("{pipeline: [{$match: {_id: '?'}}, {$limit: '?'}]}"),
+                BsonDocument.parse(CommandShapes.filterOf(command)));
+    }
+}
@@ -0,0 +1,110 @@
+package co.com.bancolombia.mongo.metrics;
+
+import co.com.bancolombia.mongo.config.MongoAdapterProperties;
+import com.mongodb.RequestContext;
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import com.mongodb.reactivestreams.client.ReactiveContextProvider;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.CoreSubscriber;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.util.context.Context;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CommandTimerTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private CommandTimer commandTimer;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        commandTimer = new CommandTimer(meterRegistry, new MongoAdapterProperties.Commands());
+    }
+
+    @Test
+    void shouldTimeCommandsByCollectionAndOrigin() {
+        commandTimer.commandStarted(started(1, "find",
+                BsonDocument.parse("{find: 'franchise', filter: {_id: 'f-1'}}"), originContext("findById")));
+        commandTimer.commandSucceeded(succeeded(1, "find", 5));
+
+        Timer timer = meterRegistry.get(CommandTimer.COMMAND_METRIC)
+                .tag("command", "find")
+                .tag("collection", "franchise")
+                .tag("operation", "findById")
+                .tag("status", "success")
+                .timer();
+        assertEquals(1, timer.count());
+        assertEquals(5.0, timer.totalTime(TimeUnit.MILLISECONDS));
+        assertEquals(0, commandTimer.inFlight());
+    }
+
+    @Test
+    void shouldTagFailuresAndCommandsWithoutOrigin() {
+        commandTimer.commandStarted(started(2, "getMore",
+                BsonDocument.parse("{getMore: {$numberLong: '42'}, collection: 'franchise'}"), null));
+        CommandFailedEvent failed = mock(CommandFailedEvent.class);
+        when(failed.getRequestId()).thenReturn(2);
+        when(failed.getCommandName()).thenReturn("getMore");
+        when(failed.getElapsedTime(TimeUnit.NANOSECONDS)).thenReturn(TimeUnit.MILLISECONDS.toNanos(1));
+        commandTimer.commandFailed(failed);
+
+        Timer timer = meterRegistry.get(CommandTimer.COMMAND_METRIC)
+                .tag("collection", "franchise")
+                .tag("operation", CommandOrigin.UNKNOWN)
+                .tag("status", "failed")
+                .timer();
+        assertEquals(1, timer.count());
+    }
+
+    @Test
+    void shouldIgnoreCompletionWithoutStart() {
+        commandTimer.commandSucceeded(succeeded(3, "find", 1));
+
+        assertEquals(0, meterRegistry.find(CommandTimer.COMMAND_METRIC).timers().size());
+    }
+
+    @Test
+    void shouldCopyOriginFromSubscriberContext() {
+        assertEquals("updateProductStock", CommandOrigin.from(originContext("updateProductStock")));
+    }
+
+    private static RequestContext originContext(String operation) {
+        CoreSubscriber<Object> subscriber = new BaseSubscriber<>() {
+            @Override
+            public Context currentContext() {
+                return CommandOrigin.of(operation).apply(Context.empty());
+            }
+        };
+        return ((ReactiveContextProvider) CommandOrigin.contextProvider())
+                .getContext(subscriber);
+    }
+
+    private static CommandStartedEvent started(int requestId, String commandName, BsonDocument command,
+                                               RequestContext requestContext) {
+        CommandStartedEvent event = mock(CommandStartedEvent.class);
+        when(event.getRequestId()).thenReturn(requestId);
+        when(event.getCommandName()).thenReturn(commandName);
+        when(event.getCommand()).thenReturn(command);
+        when(event.getRequestContext()).thenReturn(requestContext);
+        return event;
+    }
+
+    private static CommandSucceededEvent succeeded(int requestId, String commandName, long millis) {
+        CommandSucceededEvent event = mock(CommandSucceededEvent.class);
+        when(event.getRequestId()).thenReturn(requestId);
+        when(event.getCommandName()).thenReturn(commandName);
+        when(event.getElapsedTime(TimeUnit.NANOSECONDS)).thenReturn(TimeUnit.MILLISECONDS.toNanos(millis));
+        return event;
+    }
+}
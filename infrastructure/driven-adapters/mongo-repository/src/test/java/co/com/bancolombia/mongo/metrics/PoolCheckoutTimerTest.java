@@ -0,0 +1,38 @@
+package co.com.bancolombia.mongo.metrics;
+
+import com.mongodb.ServerAddress;
+import com.mongodb.connection.ClusterId;
+import com.mongodb.connection.ConnectionId;
+import com.mongodb.connection.ServerId;
+import com.mongodb.event.ConnectionCheckOutFailedEvent;
+import com.mongodb.event.ConnectionCheckedOutEvent;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PoolCheckoutTimerTest {
+
+    private final ServerId serverId = new ServerId(new ClusterId(), new ServerAddress("db-1", 27017));
+
+    @Test
+    void shouldTimeCheckoutsPerServerAndOutcome() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        PoolCheckoutTimer timer = new PoolCheckoutTimer(meterRegistry);
+
+        timer.connectionCheckedOut(new ConnectionCheckedOutEvent(new ConnectionId(serverId), 1,
+                TimeUnit.MILLISECONDS.toNanos(3)));
+        timer.connectionCheckOutFailed(new ConnectionCheckOutFailedEvent(serverId, 2,
+                ConnectionCheckOutFailedEvent.Reason.TIMEOUT, TimeUnit.MILLISECONDS.toNanos(500)));
+
+        Timer success = meterRegistry.get(PoolCheckoutTimer.CHECKOUT_METRIC)
+                .tag("server.address", "db-1:27017").tag("outcome", "success").timer();
+        Timer timeout = meterRegistry.get(PoolCheckoutTimer.CHECKOUT_METRIC)
+                .tag("outcome", "timeout").timer();
+        assertEquals(3.0, success.totalTime(TimeUnit.MILLISECONDS));
+        assertEquals(1, timeout.count());
+    }
+}
@@ -1,21 +1,38 @@
 package co.com.bancolombia.api;
 
 import co.com.bancolombia.api.dto.request.FranchiseRequestDTO;
+import co.com.bancolombia.api.dto.request.StockUpdateRequestDTO;
 import co.com.bancolombia.api.dto.response.BranchTopProductDTO;
+import co.com.bancolombia.api.dto.response.FranchiseImportLineDTO;
 import co.com.bancolombia.api.dto.response.FranchiseResponseDTO;
+import co.com.bancolombia.api.dto.response.ProductLocationDTO;
 import co.com.bancolombia.api.dto.response.ProductResponseDTO;
+import co.com.bancolombia.api.dto.response.StockUpdateResultDTO;
 import co.com.bancolombia.api.enums.VariablesNames;
+import co.com.bancolombia.api.mapper.FranchiseCsv;
 import co.com.bancolombia.api.mapper.FranchiseDTOMapper;
 import co.com.bancolombia.model.branch.Branch;
+import co.com.bancolombia.model.franchise.Franchise;
+import co.com.bancolombia.model.franchiseimport.FranchiseImportResult;
 import co.com.bancolombia.model.product.Product;
 import co.com.bancolombia.usecase.franchise.FranchiseUseCase;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Optional;
+
 @Slf4j
 @Component
 @RequiredArgsConstructor
@@ -23,15 +40,84 @@ public class HandlerV1 {
 
     private final FranchiseUseCase franchiseUseCase;
     private final FranchiseDTOMapper mapper;
+    private final ObjectMapper objectMapper;
+
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int DEFAULT_LOW_STOCK_THRESHOLD = 10;
+    private static final String NDJSON_FORMAT = "ndjson";
+    private static final String CSV_FORMAT = "csv";
+    private static final MediaType TEXT_CSV = new MediaType("text", "csv", StandardCharsets.UTF_8);
 
     public Mono<ServerResponse> findAll(ServerRequest request) {
-        log.info("GET /franchises - Request to find all franchises");
-        return ServerResponse.ok().body(
-                franchiseUseCase.findAll()
-                        .doOnComplete(() -> log.info("Completed fetching all franchises"))
-                        .map(mapper::toResponse),
-                FranchiseResponseDTO.class
-        );
+        int size = Integer.parseInt(request.queryParam("size").orElse(String.valueOf(DEFAULT_PAGE_SIZE)));
+        String pageToken = request.queryParam("pageToken").orElse(null);
+        log.info("GET /franchises - Request to find a page of {} franchises", size);
+
+        return franchiseUseCase.findPage(pageToken, size)
+                .map(mapper::toResponse)
+                .doOnSuccess(page -> log.info("Fetched page of {} franchises", page.getItems().size()))
+                .flatMap(page -> ServerResponse.ok().bodyValue(page));
+    }
+
+    public Mono<ServerResponse> findSummaries(ServerRequest request) {
+        int size = Integer.parseInt(request.queryParam("size").orElse(String.valueOf(DEFAULT_PAGE_SIZE)));
+        String pageToken = request.queryParam("pageToken").orElse(null);
+        log.info("GET /franchises/summaries - Request to find a page of {} franchise summaries", size);
+
+        return franchiseUseCase.findSummaryPage(pageToken, size)
+                .map(mapper::toSummaryResponse)
+                .doOnSuccess(page -> log.info("Fetched page of {} franchise summaries", page.getItems().size()))
+                .flatMap(page -> ServerResponse.ok().bodyValue(page));
+    }
+
+    public Mono<ServerResponse> findLowStock(ServerRequest request) {
+        int threshold = Integer.parseInt(request.queryParam("threshold")
+                .orElse(String.valueOf(DEFAULT_LOW_STOCK_THRESHOLD)));
+        int size = Integer.parseInt(request.queryParam("size").orElse(String.valueOf(DEFAULT_PAGE_SIZE)));
+        String pageToken = request.queryParam("pageToken").orElse(null);
+        log.info("GET /franchises/products/low-stock - Request to find a page of {} products below {}", size, threshold);
+
+        return franchiseUseCase.findLowStockPage(threshold, pageToken, size)
+                .map(mapper::toLowStockResponse)
+                .doOnSuccess(page -> log.info("Fetched page of {} low-stock products", page.getItems().size()))
+                .flatMap(page -> ServerResponse.ok().bodyValue(page));
+    }
+
+    /**
+     * Streams the matches as NDJSON while the database returns them.
+     */
+    public Mono<ServerResponse> searchProducts(ServerRequest request) {
+        String prefix = request.queryParam("prefix").orElse("");
+        log.info("GET /franchises/products/search - Searching products starting with '{}'", prefix);
+
+        Flux<ProductLocationDTO> locations = franchiseUseCase.findProductsByNamePrefix(prefix)
+                .map(mapper::toResponse)
+                .doOnComplete(() -> log.info("Completed product search for '{}'", prefix));
+        return ServerResponse.ok().contentType(MediaType.APPLICATION_NDJSON)
+                .body(locations, ProductLocationDTO.class);
+    }
+
+    /**
+     * Streams the whole catalog straight from the database cursor, as NDJSON franchises or, with
+     * {@code format=csv}, as one CSV line per product. Lines are written as they are read, so the
+     * first bytes leave before the catalog is fully read and memory does not grow with its size.
+     */
+    public Mono<ServerResponse> export(ServerRequest request) {
+        String format = request.queryParam("format").orElse(NDJSON_FORMAT);
+        log.info("GET /franchises/export - Exporting franchise catalog as {}", format);
+
+        Flux<Franchise> franchises = franchiseUseCase.findAll()
+                .doOnComplete(() -> log.info("Completed franchise catalog export"));
+        if (CSV_FORMAT.equalsIgnoreCase(format)) {
+            Flux<String> lines = Flux.concat(Flux.just(FranchiseCsv.HEADER),
+                    franchises.concatMapIterable(FranchiseCsv::rows));
+            return ServerResponse.ok().contentType(TEXT_CSV).body(lines, String.class);
+        }
+        if (!NDJSON_FORMAT.equalsIgnoreCase(format)) {
+            return ServerResponse.badRequest().build();
+        }
+        return ServerResponse.ok().contentType(MediaType.APPLICATION_NDJSON)
+                .body(franchises.map(mapper::toResponse), FranchiseResponseDTO.class);
     }
 
     public Mono<ServerResponse> findById(ServerRequest request) {
@@ -57,6 +143,55 @@ public class HandlerV1 {
                 .flatMap(response -> ServerResponse.ok().bodyValue(response));
     }
 
+    /**
+     * Imports an NDJSON stream of franchises. Each line is parsed and validated on its own, so a bad
+     * line is reported with its number and the rest of the stream keeps going. Results are emitted
+     * as batches complete, not necessarily in line order.
+     */
+    public Mono<ServerResponse> importFranchises(ServerRequest request) {
+        log.info("POST /franchises/import - Streaming franchise import");
+        Map<Franchise, Long> lineOf = Collections.synchronizedMap(new IdentityHashMap<>());
+
+        Flux<FranchiseImportLineDTO> results = request.bodyToFlux(String.class)
+                .index((index, line) -> new ImportLine(index + 1, line))
+                .filter(line -> !line.content().isBlank())
+                .map(this::parse)
+                .publish(lines -> Flux.merge(
+                        lines.filter(ParsedLine::failed)
+                                .map(line -> new FranchiseImportLineDTO(line.number(), null, null, "INVALID", line.error())),
+                        franchiseUseCase.importFranchises(lines.filter(line -> !line.failed())
+                                        .doOnNext(line -> lineOf.put(line.franchise(), line.number()))
+                                        .map(ParsedLine::franchise))
+                                .map(result -> toImportLine(lineOf.remove(result.getFranchise()), result))))
+                .doOnComplete(() -> log.info("Completed franchise import"));
+
+        return ServerResponse.ok().contentType(MediaType.APPLICATION_NDJSON)
+                .body(results, FranchiseImportLineDTO.class);
+    }
+
+    private ParsedLine parse(ImportLine line) {
+        try {
+            FranchiseRequestDTO dto = objectMapper.readValue(line.content(), FranchiseRequestDTO.class);
+            return new ParsedLine(line.number(), mapper.toDomain(dto), null);
+        } catch (Exception e) {
+            return new ParsedLine(line.number(), null, e.getMessage());
+        }
+    }
+
+    private static FranchiseImportLineDTO toImportLine(Long number, FranchiseImportResult result) {
+        return new FranchiseImportLineDTO(number, result.getFranchise().getId(), result.getFranchise().getName(),
+                result.getStatus().name(), null);
+    }
+
+    private record ImportLine(long number, String content) {
+    }
+
+    private record ParsedLine(long number, Franchise franchise, String error) {
+        boolean failed() {
+            return franchise == null;
+        }
+    }
+
     public Mono<ServerResponse> addBranch(ServerRequest request) {
         String id = request.pathVariable("id");
         log.info("POST /franchises/{}/branches - Adding branch to franchise", id);
@@ -98,15 +233,45 @@ public class HandlerV1 {
 
         return franchiseUseCase.updateProductStock(id, branchName, productName, newStock)
                 .map(mapper::toResponse)
-                .doOnSuccess(f -> log.info("Stock updated for product {} in branch {}", productName, branchName))
+                .doOnSuccess(p -> log.info("Stock updated for product {} in branch {}", productName, branchName))
                 .flatMap(updated -> ServerResponse.ok().bodyValue(updated));
     }
 
+    public Mono<ServerResponse> adjustStock(ServerRequest request) {
+        String id = request.pathVariable("id");
+        String branchName = request.pathVariable(VariablesNames.BRANCH.getName());
+        String productName = request.pathVariable(VariablesNames.PRODUCT.getName());
+        Optional<String> deltaParam = request.queryParam("delta");
+        if (deltaParam.isEmpty()) {
+            return Mono.error(new ServerWebInputException("Query parameter 'delta' is required"));
+        }
+        int delta = Integer.parseInt(deltaParam.get());
+        log.info("PATCH /franchises/{}/branches/{}/products/{}/stock/adjust - Adjusting stock by {}", id, branchName, productName, delta);
+
+        return franchiseUseCase.adjustProductStock(id, branchName, productName, delta)
+                .map(mapper::toResponse)
+                .doOnSuccess(p -> log.info("Stock adjusted for product {} in branch {}", productName, branchName))
+                .flatMap(updated -> ServerResponse.ok().bodyValue(updated));
+    }
+
+    public Mono<ServerResponse> bulkUpdateStock(ServerRequest request) {
+        log.info("POST /franchises/stock/bulk - Bulk stock update");
+        return ServerResponse.ok().body(
+                franchiseUseCase.bulkUpdateProductStock(
+                                request.bodyToFlux(StockUpdateRequestDTO.class).map(mapper::toDomain))
+                        .map(mapper::toResponse)
+                        .doOnComplete(() -> log.info("Completed bulk stock update")),
+                StockUpdateResultDTO.class
+        );
+    }
+
     public Mono<ServerResponse> getTopProductsPerBranch(ServerRequest request) {
         String id = request.pathVariable("id");
         log.info("GET /franchises/{}/top-products - Fetching top products per branch", id);
 
-        return franchiseUseCase.getTopProducts(id)
+        int limit = request.queryParam("limit").map(Integer::parseInt).orElse(1);
+        boolean withTies = request.queryParam("ties").map(Boolean::parseBoolean).orElse(false);
+        return franchiseUseCase.getTopProducts(id, limit, withTies)
                 .map(domain -> new BranchTopProductDTO(
                         domain.getBranchName(),
                         new ProductResponseDTO(domain.getProduct().getName(), domain.getProduct().getStock())))
@@ -15,12 +15,19 @@ public class RouterRest {
                 .route()
                 .path("/api-v1/franchises", builder -> builder
                         .GET("", handler::findAll)
+                        .GET("/summaries", handler::findSummaries)
+                        .GET("/export", handler::export)
+                        .GET("/products/low-stock", handler::findLowStock)
+                        .GET("/products/search", handler::searchProducts)
                         .GET("/{id}", handler::findById)
                         .POST("", handler::save)
+                        .POST("/import", handler::importFranchises)
                         .POST("/{id}/branches", handler::addBranch)
                         .POST("/{id}/branches/{branchName}/products", handler::addProduct)
                         .DELETE("/{id}/branches/{branchName}/products/{productName}", handler::removeProduct)
                         .PATCH("/{id}/branches/{branchName}/products/{productName}/stock", handler::updateStock)
+                        .PATCH("/{id}/branches/{branchName}/products/{productName}/stock/adjust", handler::adjustStock)
+                        .POST("/stock/bulk", handler::bulkUpdateStock)
                         .GET("/{id}/products/top", handler::getTopProductsPerBranch)
                         .PUT("/{id}/name/{newName}", handler::updateFranchiseName)
                         .PUT("/{id}/branch/{currentName}/name/{newName}", handler::updateBranchName)
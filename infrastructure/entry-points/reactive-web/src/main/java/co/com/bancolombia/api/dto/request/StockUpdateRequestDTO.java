@@ -0,0 +1,15 @@
+package co.com.bancolombia.api.dto.request;
+
+import lombok.*;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockUpdateRequestDTO {
+    private String franchiseId;
+    private String branch;
+    private String product;
+    private Integer stock;
+}
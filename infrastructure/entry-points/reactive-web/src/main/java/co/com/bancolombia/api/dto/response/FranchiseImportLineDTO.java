@@ -0,0 +1,16 @@
+package co.com.bancolombia.api.dto.response;
+
+import lombok.*;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FranchiseImportLineDTO {
+    private Long line;
+    private String id;
+    private String name;
+    private String status;
+    private String error;
+}
@@ -0,0 +1,15 @@
+package co.com.bancolombia.api.dto.response;
+
+import lombok.*;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FranchiseSummaryDTO {
+    private String id;
+    private String name;
+    private int branchCount;
+    private int productCount;
+}
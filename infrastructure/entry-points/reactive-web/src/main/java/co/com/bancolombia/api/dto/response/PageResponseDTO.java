@@ -0,0 +1,15 @@
+package co.com.bancolombia.api.dto.response;
+
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PageResponseDTO<T> {
+    private List<T> items;
+    private String nextPageToken;
+}
@@ -0,0 +1,16 @@
+package co.com.bancolombia.api.dto.response;
+
+import lombok.*;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductLocationDTO {
+    private String franchiseId;
+    private String franchiseName;
+    private String branchName;
+    private String productName;
+    private int stock;
+}
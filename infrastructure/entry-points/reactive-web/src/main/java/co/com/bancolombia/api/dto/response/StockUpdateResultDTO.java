@@ -0,0 +1,16 @@
+package co.com.bancolombia.api.dto.response;
+
+import lombok.*;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockUpdateResultDTO {
+    private String franchiseId;
+    private String branch;
+    private String product;
+    private Integer stock;
+    private String status;
+}
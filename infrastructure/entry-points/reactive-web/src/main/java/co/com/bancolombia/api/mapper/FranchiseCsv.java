@@ -0,0 +1,56 @@
+package co.com.bancolombia.api.mapper;
+
+import co.com.bancolombia.model.branch.Branch;
+import co.com.bancolombia.model.franchise.Franchise;
+import co.com.bancolombia.model.product.Product;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Flattens franchises into RFC 4180 CSV lines, one per product. Branches without products and
+ * franchises without branches still get a line, with the missing columns left empty, so every
+ * franchise and branch appears in the export.
+ */
+public final class FranchiseCsv {
+
+    public static final String HEADER = "franchiseId,franchiseName,branchName,productName,stock\r\n";
+
+    private FranchiseCsv() {
+    }
+
+    public static List<String> rows(Franchise franchise) {
+        List<String> rows = new ArrayList<>();
+        if (franchise.getBranches() == null || franchise.getBranches().isEmpty()) {
+            rows.add(row(franchise, null, null));
+            return rows;
+        }
+        for (Branch branch : franchise.getBranches()) {
+            if (branch.getProducts() == null || branch.getProducts().isEmpty()) {
+                rows.add(row(franchise, branch, null));
+            } else {
+                branch.getProducts().forEach(product -> rows.add(row(franchise, branch, product)));
+            }
+        }
+        return rows;
+    }
+
+    private static String row(Franchise franchise, Branch branch, Product product) {
+        return String.join(",",
+                field(franchise.getId()),
+                field(franchise.getName()),
+                field(branch == null ? null : branch.getName()),
+                field(product == null ? null : product.getName()),
+                product == null ? "" : String.valueOf(product.getStock())) + "\r\n";
+    }
+
+    private static String field(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.contains(",") || value.contains("\"") || value.contains("\n") || value.contains("\r")) {
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+        return value;
+    }
+}
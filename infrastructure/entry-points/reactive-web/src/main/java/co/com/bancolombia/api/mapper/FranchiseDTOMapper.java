@@ -3,12 +3,22 @@ package co.com.bancolombia.api.mapper;
 import co.com.bancolombia.api.dto.request.BranchRequestDTO;
 import co.com.bancolombia.api.dto.request.FranchiseRequestDTO;
 import co.com.bancolombia.api.dto.request.ProductRequestDTO;
+import co.com.bancolombia.api.dto.request.StockUpdateRequestDTO;
 import co.com.bancolombia.api.dto.response.BranchResponseDTO;
 import co.com.bancolombia.api.dto.response.FranchiseResponseDTO;
+import co.com.bancolombia.api.dto.response.FranchiseSummaryDTO;
+import co.com.bancolombia.api.dto.response.PageResponseDTO;
+import co.com.bancolombia.api.dto.response.ProductLocationDTO;
 import co.com.bancolombia.api.dto.response.ProductResponseDTO;
+import co.com.bancolombia.api.dto.response.StockUpdateResultDTO;
 import co.com.bancolombia.model.branch.Branch;
 import co.com.bancolombia.model.franchise.Franchise;
+import co.com.bancolombia.model.franchisesummary.FranchiseSummary;
+import co.com.bancolombia.model.page.PageResult;
 import co.com.bancolombia.model.product.Product;
+import co.com.bancolombia.model.productlocation.ProductLocation;
+import co.com.bancolombia.model.stock.StockUpdate;
+import co.com.bancolombia.model.stock.StockUpdateResult;
 import org.springframework.stereotype.Component;
 
 import java.util.Collections;
@@ -48,6 +58,15 @@ public class FranchiseDTOMapper {
                 .toList();
     }
 
+    public StockUpdate toDomain(StockUpdateRequestDTO dto) {
+        return StockUpdate.builder()
+                .franchiseId(dto.getFranchiseId())
+                .branchName(dto.getBranch())
+                .productName(dto.getProduct())
+                .stock(dto.getStock())
+                .build();
+    }
+
     // --- Domain -> Response DTO ---
     public FranchiseResponseDTO toResponse(Franchise franchise) {
         return FranchiseResponseDTO.builder()
@@ -57,6 +76,46 @@ public class FranchiseDTOMapper {
                 .build();
     }
 
+    public PageResponseDTO<FranchiseResponseDTO> toResponse(PageResult<Franchise> page) {
+        return PageResponseDTO.<FranchiseResponseDTO>builder()
+                .items(page.getItems().stream().map(this::toResponse).toList())
+                .nextPageToken(page.getNextToken())
+                .build();
+    }
+
+    public PageResponseDTO<FranchiseSummaryDTO> toSummaryResponse(PageResult<FranchiseSummary> page) {
+        return PageResponseDTO.<FranchiseSummaryDTO>builder()
+                .items(page.getItems().stream().map(this::toResponse).toList())
+                .nextPageToken(page.getNextToken())
+                .build();
+    }
+
+    public PageResponseDTO<ProductLocationDTO> toLowStockResponse(PageResult<ProductLocation> page) {
+        return PageResponseDTO.<ProductLocationDTO>builder()
+                .items(page.getItems().stream().map(this::toResponse).toList())
+                .nextPageToken(page.getNextToken())
+                .build();
+    }
+
+    public ProductLocationDTO toResponse(ProductLocation lowStock) {
+        return ProductLocationDTO.builder()
+                .franchiseId(lowStock.getFranchiseId())
+                .franchiseName(lowStock.getFranchiseName())
+                .branchName(lowStock.getBranchName())
+                .productName(lowStock.getProductName())
+                .stock(lowStock.getStock())
+                .build();
+    }
+
+    public FranchiseSummaryDTO toResponse(FranchiseSummary summary) {
+        return FranchiseSummaryDTO.builder()
+                .id(summary.getId())
+                .name(summary.getName())
+                .branchCount(summary.getBranchCount())
+                .productCount(summary.getProductCount())
+                .build();
+    }
+
     private List<BranchResponseDTO> toResponseBranches(List<Branch> branches) {
         if (branches == null) return Collections.emptyList();
         return branches.stream()
@@ -74,10 +133,25 @@ public class FranchiseDTOMapper {
     private List<ProductResponseDTO> toResponseProducts(List<Product> products) {
         if (products == null) return Collections.emptyList();
         return products.stream()
-                .map(p -> ProductResponseDTO.builder()
-                        .name(p.getName())
-                        .stock(p.getStock())
-                        .build())
+                .map(this::toResponse)
                 .toList();
     }
+
+    public ProductResponseDTO toResponse(Product product) {
+        return ProductResponseDTO.builder()
+                .name(product.getName())
+                .stock(product.getStock())
+                .build();
+    }
+
+    public StockUpdateResultDTO toResponse(StockUpdateResult result) {
+        StockUpdate update = result.getUpdate();
+        return StockUpdateResultDTO.builder()
+                .franchiseId(update.getFranchiseId())
+                .branch(update.getBranchName())
+                .product(update.getProductName())
+                .stock(update.getStock())
+                .status(result.getStatus().name())
+                .build();
+    }
 }
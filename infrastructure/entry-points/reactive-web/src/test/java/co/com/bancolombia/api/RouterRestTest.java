@@ -1,17 +1,34 @@
 package co.com.bancolombia.api;
 
 import co.com.bancolombia.api.dto.request.FranchiseRequestDTO;
+import co.com.bancolombia.api.dto.request.StockUpdateRequestDTO;
 import co.com.bancolombia.api.dto.response.BranchTopProductDTO;
+import co.com.bancolombia.api.dto.response.FranchiseImportLineDTO;
 import co.com.bancolombia.api.dto.response.FranchiseResponseDTO;
+import co.com.bancolombia.api.dto.response.FranchiseSummaryDTO;
+import co.com.bancolombia.api.dto.response.PageResponseDTO;
+import co.com.bancolombia.api.dto.response.ProductLocationDTO;
+import co.com.bancolombia.api.dto.response.ProductResponseDTO;
+import co.com.bancolombia.api.dto.response.StockUpdateResultDTO;
+import co.com.bancolombia.api.mapper.FranchiseCsv;
 import co.com.bancolombia.api.mapper.FranchiseDTOMapper;
 import co.com.bancolombia.model.branch.Branch;
 import co.com.bancolombia.model.branchtopproduct.BranchTopProduct;
 import co.com.bancolombia.model.franchise.Franchise;
+import co.com.bancolombia.model.franchisesummary.FranchiseSummary;
+import co.com.bancolombia.model.franchiseimport.FranchiseImportResult;
+import co.com.bancolombia.model.franchiseimport.FranchiseImportStatus;
+import co.com.bancolombia.model.page.PageResult;
 import co.com.bancolombia.model.product.Product;
+import co.com.bancolombia.model.productlocation.ProductLocation;
+import co.com.bancolombia.model.stock.StockUpdate;
+import co.com.bancolombia.model.stock.StockUpdateResult;
+import co.com.bancolombia.model.stock.StockUpdateStatus;
 import co.com.bancolombia.usecase.franchise.FranchiseUseCase;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.http.MediaType;
@@ -22,8 +39,10 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.util.Collections;
+import java.util.List;
 
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ContextConfiguration(classes = {RouterRest.class, HandlerV1.class})
@@ -43,10 +62,12 @@ class RouterRestTest {
     void testFindAllFranchises() {
         // Given
         Franchise franchise = createSampleFranchise();
-        FranchiseResponseDTO responseDTO = createSampleResponseDTO();
+        PageResult<Franchise> page = new PageResult<>(List.of(franchise), "next-token");
+        PageResponseDTO<FranchiseResponseDTO> responseDTO =
+                new PageResponseDTO<>(List.of(createSampleResponseDTO()), "next-token");
 
-        when(franchiseUseCase.findAll()).thenReturn(Flux.just(franchise));
-        when(mapper.toResponse(any(Franchise.class))).thenReturn(responseDTO);
+        when(franchiseUseCase.findPage(null, 20)).thenReturn(Mono.just(page));
+        when(mapper.toResponse(page)).thenReturn(responseDTO);
 
         // When & Then
         webTestClient.get()
@@ -54,14 +75,151 @@ class RouterRestTest {
                 .accept(MediaType.APPLICATION_JSON)
                 .exchange()
                 .expectStatus().isOk()
-                .expectBodyList(FranchiseResponseDTO.class)
-                .value(franchises -> {
-                    Assertions.assertThat(franchises).hasSize(1);
-                    Assertions.assertThat(franchises.getFirst().getId()).isEqualTo("123");
-                    Assertions.assertThat(franchises.getFirst().getName()).isEqualTo("Test Franchise");
+                .expectBody(new ParameterizedTypeReference<PageResponseDTO<FranchiseResponseDTO>>() {
+                })
+                .value(body -> {
+                    Assertions.assertThat(body.getItems()).hasSize(1);
+                    Assertions.assertThat(body.getItems().getFirst().getId()).isEqualTo("123");
+                    Assertions.assertThat(body.getItems().getFirst().getName()).isEqualTo("Test Franchise");
+                    Assertions.assertThat(body.getNextPageToken()).isEqualTo("next-token");
                 });
     }
 
+    @Test
+    void testFindAllFranchisesWithPageToken() {
+        PageResult<Franchise> page = new PageResult<>(List.of(), null);
+
+        when(franchiseUseCase.findPage("abc", 5)).thenReturn(Mono.just(page));
+        when(mapper.toResponse(page)).thenReturn(new PageResponseDTO<>(List.of(), null));
+
+        webTestClient.get()
+                .uri("/api-v1/franchises?size=5&pageToken=abc")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.items").isEmpty()
+                .jsonPath("$.nextPageToken").doesNotExist();
+    }
+
+    @Test
+    void testFindFranchiseSummaries() {
+        FranchiseSummary summary = FranchiseSummary.builder()
+                .id("123").name("Test Franchise").branchCount(2).productCount(4).build();
+        PageResult<FranchiseSummary> page = new PageResult<>(List.of(summary), null);
+        PageResponseDTO<FranchiseSummaryDTO> responseDTO = new PageResponseDTO<>(
+                List.of(new FranchiseSummaryDTO("123", "Test Franchise", 2, 4)), null);
+
+        when(franchiseUseCase.findSummaryPage(null, 20)).thenReturn(Mono.just(page));
+        when(mapper.toSummaryResponse(page)).thenReturn(responseDTO);
+
+        webTestClient.get()
+                .uri("/api-v1/franchises/summaries")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.items[0].id").isEqualTo("123")
+                .jsonPath("$.items[0].branchCount").isEqualTo(2)
+                .jsonPath("$.items[0].productCount").isEqualTo(4)
+                .jsonPath("$.items[0].branches").doesNotExist();
+    }
+
+    @Test
+    void testFindLowStockProducts() {
+        ProductLocation lowStock = ProductLocation.builder().franchiseId("123").franchiseName("Test Franchise")
+                .branchName("Branch").productName("Product").stock(3).build();
+        PageResult<ProductLocation> page = new PageResult<>(List.of(lowStock), "next");
+        PageResponseDTO<ProductLocationDTO> responseDTO = new PageResponseDTO<>(
+                List.of(new ProductLocationDTO("123", "Test Franchise", "Branch", "Product", 3)), "next");
+
+        when(franchiseUseCase.findLowStockPage(5, null, 20)).thenReturn(Mono.just(page));
+        when(mapper.toLowStockResponse(page)).thenReturn(responseDTO);
+
+        webTestClient.get()
+                .uri("/api-v1/franchises/products/low-stock?threshold=5")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.items[0].productName").isEqualTo("Product")
+                .jsonPath("$.items[0].stock").isEqualTo(3)
+                .jsonPath("$.nextPageToken").isEqualTo("next");
+    }
+
+    @Test
+    void testSearchProductsStreamsNdjson() {
+        ProductLocation location = ProductLocation.builder().franchiseId("123").franchiseName("Test Franchise")
+                .branchName("Branch").productName("Product").stock(3).build();
+
+        when(franchiseUseCase.findProductsByNamePrefix("pro")).thenReturn(Flux.just(location));
+        when(mapper.toResponse(location))
+                .thenReturn(new ProductLocationDTO("123", "Test Franchise", "Branch", "Product", 3));
+
+        webTestClient.get()
+                .uri("/api-v1/franchises/products/search?prefix=pro")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(ProductLocationDTO.class)
+                .value(locations -> {
+                    Assertions.assertThat(locations).hasSize(1);
+                    Assertions.assertThat(locations.getFirst().getBranchName()).isEqualTo("Branch");
+                });
+    }
+
+    @Test
+    void testExportStreamsNdjsonByDefault() {
+        Franchise franchise = createSampleFranchise();
+
+        when(franchiseUseCase.findAll()).thenReturn(Flux.just(franchise));
+        when(mapper.toResponse(franchise)).thenReturn(createSampleResponseDTO());
+
+        webTestClient.get()
+                .uri("/api-v1/franchises/export")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(FranchiseResponseDTO.class)
+                .value(franchises -> Assertions.assertThat(franchises)
+                        .extracting(FranchiseResponseDTO::getId)
+                        .containsExactly("123"));
+    }
+
+    @Test
+    void testExportWritesCsvRowPerProduct() {
+        Franchise franchise = Franchise.builder()
+                .id("123")
+                .name("Test, Franchise")
+                .branches(List.of(Branch.builder().name("Branch")
+                        .products(List.of(Product.builder().name("Apple").stock(3).build(),
+                                Product.builder().name("Pear").stock(0).build()))
+                        .build()))
+                .build();
+
+        when(franchiseUseCase.findAll()).thenReturn(Flux.just(franchise));
+
+        webTestClient.get()
+                .uri("/api-v1/franchises/export?format=csv")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.parseMediaType("text/csv"))
+                .expectBody(String.class)
+                .isEqualTo(FranchiseCsv.HEADER
+                        + "123,\"Test, Franchise\",Branch,Apple,3\r\n"
+                        + "123,\"Test, Franchise\",Branch,Pear,0\r\n");
+    }
+
+    @Test
+    void testExportRejectsUnknownFormat() {
+        webTestClient.get()
+                .uri("/api-v1/franchises/export?format=xml")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
     @Test
     void testFindFranchiseById() {
         // Given
@@ -209,12 +367,12 @@ class RouterRestTest {
         String branchName = "Main Branch";
         String productName = "Product A";
         int newStock = 50;
-        Franchise franchise = createSampleFranchise();
-        FranchiseResponseDTO responseDTO = createSampleResponseDTO();
+        Product product = Product.builder().name(productName).stock(newStock).build();
+        ProductResponseDTO responseDTO = new ProductResponseDTO(productName, newStock);
 
         when(franchiseUseCase.updateProductStock(franchiseId, branchName, productName, newStock))
-                .thenReturn(Mono.just(franchise));
-        when(mapper.toResponse(any(Franchise.class))).thenReturn(responseDTO);
+                .thenReturn(Mono.just(product));
+        when(mapper.toResponse(any(Product.class))).thenReturn(responseDTO);
 
         // When & Then
         webTestClient.patch()
@@ -222,10 +380,10 @@ class RouterRestTest {
                         franchiseId, branchName, productName, newStock)
                 .exchange()
                 .expectStatus().isOk()
-                .expectBody(FranchiseResponseDTO.class)
+                .expectBody(ProductResponseDTO.class)
                 .value(response -> {
-                    Assertions.assertThat(response.getId()).isEqualTo("123");
-                    Assertions.assertThat(response.getName()).isEqualTo("Test Franchise");
+                    Assertions.assertThat(response.getName()).isEqualTo("Product A");
+                    Assertions.assertThat(response.getStock()).isEqualTo(50);
                 });
     }
 
@@ -235,12 +393,12 @@ class RouterRestTest {
         String franchiseId = "123";
         String branchName = "Main Branch";
         String productName = "Product A";
-        Franchise franchise = createSampleFranchise();
-        FranchiseResponseDTO responseDTO = createSampleResponseDTO();
+        Product product = Product.builder().name(productName).stock(0).build();
+        ProductResponseDTO responseDTO = new ProductResponseDTO(productName, 0);
 
         when(franchiseUseCase.updateProductStock(franchiseId, branchName, productName, 0))
-                .thenReturn(Mono.just(franchise));
-        when(mapper.toResponse(any(Franchise.class))).thenReturn(responseDTO);
+                .thenReturn(Mono.just(product));
+        when(mapper.toResponse(any(Product.class))).thenReturn(responseDTO);
 
         // When & Then
         webTestClient.patch()
@@ -248,9 +406,109 @@ class RouterRestTest {
                         franchiseId, branchName, productName)
                 .exchange()
                 .expectStatus().isOk()
-                .expectBody(FranchiseResponseDTO.class)
+                .expectBody(ProductResponseDTO.class)
                 .value(response -> {
-                    Assertions.assertThat(response.getId()).isEqualTo("123");
+                    Assertions.assertThat(response.getStock()).isZero();
+                });
+    }
+
+    @Test
+    void testAdjustProductStock() {
+        // Given
+        String franchiseId = "123";
+        String branchName = "Main Branch";
+        String productName = "Product A";
+        Product product = Product.builder().name(productName).stock(7).build();
+        ProductResponseDTO responseDTO = new ProductResponseDTO(productName, 7);
+
+        when(franchiseUseCase.adjustProductStock(franchiseId, branchName, productName, -3))
+                .thenReturn(Mono.just(product));
+        when(mapper.toResponse(any(Product.class))).thenReturn(responseDTO);
+
+        // When & Then
+        webTestClient.patch()
+                .uri("/api-v1/franchises/{id}/branches/{branchName}/products/{productName}/stock/adjust?delta={delta}",
+                        franchiseId, branchName, productName, -3)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(ProductResponseDTO.class)
+                .value(response -> {
+                    Assertions.assertThat(response.getName()).isEqualTo("Product A");
+                    Assertions.assertThat(response.getStock()).isEqualTo(7);
+                });
+    }
+
+    @Test
+    void testAdjustProductStockRequiresDelta() {
+        webTestClient.patch()
+                .uri("/api-v1/franchises/{id}/branches/{branchName}/products/{productName}/stock/adjust",
+                        "123", "Main Branch", "Product A")
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        verifyNoInteractions(franchiseUseCase);
+    }
+
+    @Test
+    void testImportFranchisesReportsEachLine() {
+        Franchise franchise = createSampleFranchise();
+
+        when(mapper.toDomain(any(FranchiseRequestDTO.class))).thenReturn(franchise);
+        when(franchiseUseCase.importFranchises(any())).thenAnswer(invocation -> {
+            Flux<Franchise> franchises = invocation.getArgument(0);
+            return franchises.map(f -> FranchiseImportResult.of(f, FranchiseImportStatus.IMPORTED));
+        });
+
+        String body = "{\"id\":\"123\",\"name\":\"Test Franchise\",\"branches\":[]}\n"
+                + "\n"
+                + "not json\n";
+
+        webTestClient.post()
+                .uri("/api-v1/franchises/import")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(FranchiseImportLineDTO.class)
+                .value(lines -> {
+                    Assertions.assertThat(lines).hasSize(2);
+                    Assertions.assertThat(lines)
+                            .anySatisfy(line -> {
+                                Assertions.assertThat(line.getLine()).isEqualTo(1L);
+                                Assertions.assertThat(line.getStatus()).isEqualTo("IMPORTED");
+                                Assertions.assertThat(line.getId()).isEqualTo("123");
+                            })
+                            .anySatisfy(line -> {
+                                Assertions.assertThat(line.getLine()).isEqualTo(3L);
+                                Assertions.assertThat(line.getStatus()).isEqualTo("INVALID");
+                                Assertions.assertThat(line.getError()).isNotBlank();
+                            });
+                });
+    }
+
+    @Test
+    void testBulkUpdateStock() {
+        StockUpdate update = new StockUpdate("123", "Main Branch", "Product A", 40);
+        StockUpdateResult result = StockUpdateResult.of(update, StockUpdateStatus.UPDATED);
+        StockUpdateResultDTO resultDTO = new StockUpdateResultDTO("123", "Main Branch", "Product A", 40, "UPDATED");
+
+        when(mapper.toDomain(any(StockUpdateRequestDTO.class))).thenReturn(update);
+        when(franchiseUseCase.bulkUpdateProductStock(any())).thenAnswer(invocation -> {
+            Flux<StockUpdate> updates = invocation.getArgument(0);
+            return updates.map(u -> result);
+        });
+        when(mapper.toResponse(any(StockUpdateResult.class))).thenReturn(resultDTO);
+
+        webTestClient.post()
+                .uri("/api-v1/franchises/stock/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new StockUpdateRequestDTO[]{new StockUpdateRequestDTO("123", "Main Branch", "Product A", 40)})
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(StockUpdateResultDTO.class)
+                .value(results -> {
+                    Assertions.assertThat(results).hasSize(1);
+                    Assertions.assertThat(results.getFirst().getStatus()).isEqualTo("UPDATED");
                 });
     }
 
@@ -268,7 +526,7 @@ class RouterRestTest {
                         .build())
                 .build();
 
-        when(franchiseUseCase.getTopProducts(franchiseId))
+        when(franchiseUseCase.getTopProducts(franchiseId, 1, false))
                 .thenReturn(Flux.just(domainTopProduct));
 
         // When & Then
@@ -286,6 +544,57 @@ class RouterRestTest {
                 });
     }
 
+    @Test
+    void testGetTopProductsPerBranchWithLimit() {
+        String franchiseId = "123";
+        BranchTopProduct first = BranchTopProduct.builder()
+                .branchName("Main Branch")
+                .product(Product.builder().name("Product A").stock(100).build())
+                .build();
+        BranchTopProduct second = BranchTopProduct.builder()
+                .branchName("Main Branch")
+                .product(Product.builder().name("Product B").stock(80).build())
+                .build();
+
+        when(franchiseUseCase.getTopProducts(franchiseId, 2, false))
+                .thenReturn(Flux.just(first, second));
+
+        webTestClient.get()
+                .uri("/api-v1/franchises/{id}/products/top?limit=2", franchiseId)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(BranchTopProductDTO.class)
+                .value(products -> {
+                    Assertions.assertThat(products).hasSize(2);
+                    Assertions.assertThat(products.get(1).getProduct().getName()).isEqualTo("Product B");
+                });
+    }
+
+    @Test
+    void testGetTopProductsPerBranchWithTies() {
+        String franchiseId = "123";
+        BranchTopProduct first = BranchTopProduct.builder()
+                .branchName("Main Branch")
+                .product(Product.builder().name("Product A").stock(100).build())
+                .build();
+        BranchTopProduct tied = BranchTopProduct.builder()
+                .branchName("Main Branch")
+                .product(Product.builder().name("Product B").stock(100).build())
+                .build();
+
+        when(franchiseUseCase.getTopProducts(franchiseId, 1, true))
+                .thenReturn(Flux.just(first, tied));
+
+        webTestClient.get()
+                .uri("/api-v1/franchises/{id}/products/top?ties=true", franchiseId)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(BranchTopProductDTO.class)
+                .value(products -> Assertions.assertThat(products).hasSize(2));
+    }
+
     @Test
     void testUpdateFranchiseName() {
         // Given
@@ -391,7 +700,7 @@ class RouterRestTest {
     void testGetTopProductsEmpty() {
         // Given
         String franchiseId = "123";
-        when(franchiseUseCase.getTopProducts(franchiseId)).thenReturn(Flux.empty());
+        when(franchiseUseCase.getTopProducts(franchiseId, 1, false)).thenReturn(Flux.empty());
 
         // When & Then
         webTestClient.get()
@@ -0,0 +1,37 @@
+package co.com.bancolombia.api.mapper;
+
+import co.com.bancolombia.model.branch.Branch;
+import co.com.bancolombia.model.franchise.Franchise;
+import co.com.bancolombia.model.product.Product;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FranchiseCsvTest {
+
+    @Test
+    void shouldWriteOneRowPerProductAndQuoteSpecialCharacters() {
+        Franchise franchise = Franchise.builder()
+                .id("fr-1")
+                .name("Say \"hi\"")
+                .branches(List.of(
+                        Branch.builder().name("North\nSide")
+                                .products(List.of(Product.builder().name("Apple").stock(4).build()))
+                                .build(),
+                        Branch.builder().name("Empty").products(List.of()).build()))
+                .build();
+
+        assertEquals(List.of(
+                "fr-1,\"Say \"\"hi\"\"\",\"North\nSide\",Apple,4\r\n",
+                "fr-1,\"Say \"\"hi\"\"\",Empty,,\r\n"), FranchiseCsv.rows(franchise));
+    }
+
+    @Test
+    void shouldKeepFranchisesWithoutBranches() {
+        Franchise franchise = Franchise.builder().id("fr-2").name("Solo").branches(List.of()).build();
+
+        assertEquals(List.of("fr-2,Solo,,,\r\n"), FranchiseCsv.rows(franchise));
+    }
+}
@@ -3,10 +3,17 @@ package co.com.bancolombia.api.mapper;
 import co.com.bancolombia.api.dto.request.BranchRequestDTO;
 import co.com.bancolombia.api.dto.request.FranchiseRequestDTO;
 import co.com.bancolombia.api.dto.request.ProductRequestDTO;
+import co.com.bancolombia.api.dto.request.StockUpdateRequestDTO;
 import co.com.bancolombia.api.dto.response.FranchiseResponseDTO;
 import co.com.bancolombia.model.branch.Branch;
 import co.com.bancolombia.model.franchise.Franchise;
+import co.com.bancolombia.model.franchisesummary.FranchiseSummary;
+import co.com.bancolombia.model.page.PageResult;
 import co.com.bancolombia.model.product.Product;
+import co.com.bancolombia.model.productlocation.ProductLocation;
+import co.com.bancolombia.model.stock.StockUpdate;
+import co.com.bancolombia.model.stock.StockUpdateResult;
+import co.com.bancolombia.model.stock.StockUpdateStatus;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -91,6 +98,78 @@ class FranchiseDTOMapperTest {
         assertEquals(5, responseProduct.getStock());
     }
 
+    @Test
+    void shouldMapProductToResponseDTO() {
+        Product product = Product.builder()
+                .name("Product C")
+                .stock(12)
+                .build();
+
+        var response = mapper.toResponse(product);
+
+        assertEquals("Product C", response.getName());
+        assertEquals(12, response.getStock());
+    }
+
+    @Test
+    void shouldMapPageToResponseDTO() {
+        Franchise franchise = Franchise.builder().id("fr-1").name("Franchise").build();
+
+        var response = mapper.toResponse(new PageResult<>(List.of(franchise), "token"));
+
+        assertEquals(1, response.getItems().size());
+        assertEquals("fr-1", response.getItems().getFirst().getId());
+        assertEquals("token", response.getNextPageToken());
+    }
+
+    @Test
+    void shouldMapSummaryPage() {
+        FranchiseSummary summary = FranchiseSummary.builder()
+                .id("fr-1").name("Franchise").branchCount(2).productCount(7).build();
+
+        var response = mapper.toSummaryResponse(new PageResult<>(List.of(summary), null));
+
+        assertEquals(1, response.getItems().size());
+        assertEquals("Franchise", response.getItems().getFirst().getName());
+        assertEquals(2, response.getItems().getFirst().getBranchCount());
+        assertEquals(7, response.getItems().getFirst().getProductCount());
+        assertNull(response.getNextPageToken());
+    }
+
+    @Test
+    void shouldMapLowStockPage() {
+        ProductLocation lowStock = ProductLocation.builder().franchiseId("fr-1").franchiseName("Franchise")
+                .branchName("Branch A").productName("Product A").stock(1).build();
+
+        var response = mapper.toLowStockResponse(new PageResult<>(List.of(lowStock), "token"));
+
+        assertEquals(1, response.getItems().size());
+        assertEquals("fr-1", response.getItems().getFirst().getFranchiseId());
+        assertEquals("Branch A", response.getItems().getFirst().getBranchName());
+        assertEquals("Product A", response.getItems().getFirst().getProductName());
+        assertEquals(1, response.getItems().getFirst().getStock());
+        assertEquals("token", response.getNextPageToken());
+    }
+
+    @Test
+    void shouldMapStockUpdateRequestAndResult() {
+        StockUpdateRequestDTO dto = StockUpdateRequestDTO.builder()
+                .franchiseId("fr-1")
+                .branch("Branch A")
+                .product("Product A")
+                .stock(8)
+                .build();
+
+        StockUpdate update = mapper.toDomain(dto);
+        var response = mapper.toResponse(StockUpdateResult.of(update, StockUpdateStatus.PRODUCT_NOT_FOUND));
+
+        assertEquals("fr-1", update.getFranchiseId());
+        assertEquals("Branch A", update.getBranchName());
+        assertEquals("Product A", response.getProduct());
+        assertEquals(8, response.getStock());
+        assertEquals("PRODUCT_NOT_FOUND", response.getStatus());
+    }
+
     @Test
     void shouldReturnEmptyListsForNullBranchesOrProducts() {
         FranchiseRequestDTO franchiseDTO = FranchiseRequestDTO.builder()
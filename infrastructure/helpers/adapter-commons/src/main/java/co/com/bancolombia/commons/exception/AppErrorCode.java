@@ -1,4 +1,4 @@
-package co.com.bancolombia.mongo.exception;
+package co.com.bancolombia.commons.exception;
 
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -9,10 +9,12 @@ import org.springframework.http.HttpStatus;
 public enum AppErrorCode {
     FRANCHISE_NOT_FOUND(HttpStatus.NOT_FOUND, "FRANCHISE_001", "Franchise not found"),
     DUPLICATE_FRANCHISE_NAME(HttpStatus.CONFLICT, "FRANCHISE_002", "Duplicate franchise name"),
+    CONCURRENT_MODIFICATION(HttpStatus.CONFLICT, "FRANCHISE_003", "Franchise was modified concurrently, try again"),
     BRANCH_NOT_FOUND(HttpStatus.NOT_FOUND, "BRANCH_001", "Branch not found"),
     DUPLICATE_BRANCH_NAME(HttpStatus.CONFLICT, "BRANCH_002", "Duplicate branch name"),
     PRODUCT_NOT_FOUND(HttpStatus.NOT_FOUND, "PRODUCT_001", "Product not found"),
     DUPLICATE_PRODUCT_NAME(HttpStatus.CONFLICT, "PRODUCT_002", "Duplicate product name"),
+    INSUFFICIENT_STOCK(HttpStatus.CONFLICT, "PRODUCT_003", "Insufficient stock"),
 
     VALIDATION_ERROR(HttpStatus.BAD_REQUEST, "VALIDATION_001", "Error validating request"),
     BAD_REQUEST(HttpStatus.BAD_REQUEST, "REQUEST_001", "Invalid request"),
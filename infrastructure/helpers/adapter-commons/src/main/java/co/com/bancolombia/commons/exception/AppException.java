@@ -1,4 +1,4 @@
-package co.com.bancolombia.mongo.exception;
+package co.com.bancolombia.commons.exception;
 
 import lombok.Getter;
 
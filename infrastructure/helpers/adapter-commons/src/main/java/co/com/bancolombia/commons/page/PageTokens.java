@@ -0,0 +1,63 @@
+package co.com.bancolombia.commons.page;
+
+import co.com.bancolombia.commons.exception.AppErrorCode;
+import co.com.bancolombia.commons.exception.AppException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Opaque continuation tokens for keyset pagination: the {@code _id} of the last document of a page,
+ * base64url-encoded so clients do not build or rely on them.
+ */
+public final class PageTokens {
+
+    private static final String PREFIX = "id:";
+    private static final String KEY_PREFIX = "key:";
+    private static final String KEY_SEPARATOR = "\u001F";
+
+    private PageTokens() {
+    }
+
+    public static String encode(String lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIX + lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String decode(String token) {
+        String decoded = decodeRaw(token);
+        if (!decoded.startsWith(PREFIX) || decoded.length() == PREFIX.length()) {
+            throw new AppException(AppErrorCode.BAD_REQUEST, "Invalid page token");
+        }
+        return decoded.substring(PREFIX.length());
+    }
+
+    /**
+     * Token for pages ordered by a composite key, such as rows unwound from nested arrays.
+     */
+    public static String encodeKey(List<String> lastKey) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((KEY_PREFIX + String.join(KEY_SEPARATOR, lastKey)).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static List<String> decodeKey(String token, int parts) {
+        String decoded = decodeRaw(token);
+        if (!decoded.startsWith(KEY_PREFIX)) {
+            throw new AppException(AppErrorCode.BAD_REQUEST, "Invalid page token");
+        }
+        List<String> key = List.of(decoded.substring(KEY_PREFIX.length()).split(KEY_SEPARATOR, -1));
+        if (key.size() != parts || key.getFirst().isEmpty()) {
+            throw new AppException(AppErrorCode.BAD_REQUEST, "Invalid page token");
+        }
+        return key;
+    }
+
+    private static String decodeRaw(String token) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new AppException(AppErrorCode.BAD_REQUEST, "Invalid page token");
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package co.com.bancolombia.commons.page;
+
+import co.com.bancolombia.commons.exception.AppErrorCode;
+import co.com.bancolombia.commons.exception.AppException;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PageTokensTest {
+
+    @Test
+    void shouldRoundTripIds() {
+        String token = PageTokens.encode("franchise/ñ 1");
+
+        assertFalse(token.contains("franchise"));
+        assertEquals("franchise/ñ 1", PageTokens.decode(token));
+    }
+
+    @Test
+    void shouldRejectTamperedTokens() {
+        AppException notBase64 = assertThrows(AppException.class, () -> PageTokens.decode("%%%"));
+        AppException noPrefix = assertThrows(AppException.class, () -> PageTokens.decode("YWJj"));
+
+        assertEquals(AppErrorCode.BAD_REQUEST, notBase64.getErrorCode());
+        assertEquals(AppErrorCode.BAD_REQUEST, noPrefix.getErrorCode());
+    }
+
+    @Test
+    void shouldRoundTripCompositeKeys() {
+        String token = PageTokens.encodeKey(List.of("franchise-1", "Branch: Centro", ""));
+
+        assertEquals(List.of("franchise-1", "Branch: Centro", ""), PageTokens.decodeKey(token, 3));
+    }
+
+    @Test
+    void shouldRejectCompositeKeysOfAnotherShape() {
+        String idToken = PageTokens.encode("franchise-1");
+        String shortKey = PageTokens.encodeKey(List.of("franchise-1", "Branch"));
+
+        assertThrows(AppException.class, () -> PageTokens.decodeKey(idToken, 3));
+        assertThrows(AppException.class, () -> PageTokens.decodeKey(shortKey, 3));
+    }
+}